@@ -0,0 +1,49 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dao.MemoryRoomStore;
+import dao.MemoryUserStore;
+import dao.RoomRegistry;
+import dao.Stores;
+import model.UserSession;
+import util.PasswordHash;
+
+/**
+ * 메모리 저장소로 바꿔 끼우고 사용자/방을 채운 뒤 RoomRegistry 와 SeatGate 를 다시 맞춘다.
+ */
+public final class Seed {
+
+	public static final String PASSWORD = "bench";
+
+	private Seed() {
+	}
+
+	/**
+	 * 사용자 users 명 (bench{i}@omok.local), 공개 방 rooms 개 (호스트는 사용자를 돌아가며)
+	 */
+	public static List<UserSession> memory(int users, int rooms) throws Exception {
+		MemoryUserStore userStore = new MemoryUserStore();
+		MemoryRoomStore roomStore = new MemoryRoomStore(userStore);
+		Stores.use(roomStore, userStore);
+
+		String pwdHash = PasswordHash.sha256(PASSWORD);
+		List<UserSession> out = new ArrayList<>(users);
+		for (int i = 0; i < users; i++) {
+			String email = email(i);
+			userStore.signUp(email, PASSWORD, "bench" + i);
+			out.add(userStore.login(email, pwdHash).get());
+		}
+
+		for (int i = 0; i < rooms; i++)
+			roomStore.createRoomAndEnter(out.get(i % users).getId(), "room " + i, 1, i % 2, 4, null, 1);
+
+		RoomRegistry.get().loadFrom(roomStore);
+		return out;
+	}
+
+	public static String email(int i) {
+		return "bench" + i + "@omok.local";
+	}
+}
@@ -0,0 +1,167 @@
+package bench;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpSession;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import model.UserSession;
+
+/**
+ * 컨테이너/DB 없이 쓰는 가짜 Session, HttpSession, ResultSet (java.lang.reflect.Proxy)
+ *
+ * 가짜 Session 의 비동기 전송은 그 자리에서 바로 성공으로 끝나고, 보낸 프레임 수/바이트만 센다.
+ */
+public final class Stubs {
+
+	private static final AtomicLong ids = new AtomicLong();
+
+	public static final LongAdder framesSent = new LongAdder();
+	public static final LongAdder bytesSent = new LongAdder();
+
+	private Stubs() {
+	}
+
+	/**
+	 * subprotocol: "" (JSON) 또는 "omok-bin", loginUser 가 null 이면 HTTP 세션 없음
+	 */
+	public static Session session(String subprotocol, UserSession loginUser) {
+		String id = Long.toString(ids.incrementAndGet());
+		Map<String, Object> props = new ConcurrentHashMap<>();
+		if (loginUser != null)
+			props.put("HTTP_SESSION", httpSession(Map.of("loginUser", loginUser)));
+
+		SendResult ok = new SendResult();
+		RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(Stubs.class.getClassLoader(),
+				new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, m, args) -> {
+					switch (m.getName()) {
+					case "sendText":
+						framesSent.increment();
+						bytesSent.add(((String) args[0]).length());
+						((SendHandler) args[1]).onResult(ok);
+						return null;
+					case "sendBinary":
+						framesSent.increment();
+						bytesSent.add(((java.nio.ByteBuffer) args[0]).remaining());
+						((SendHandler) args[1]).onResult(ok);
+						return null;
+					default:
+						return defaultValue(m.getReturnType());
+					}
+				});
+
+		return (Session) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[] { Session.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+					case "getId":
+						return id;
+					case "isOpen":
+						return true;
+					case "getUserProperties":
+						return props;
+					case "getAsyncRemote":
+						return async;
+					case "getNegotiatedSubprotocol":
+						return subprotocol;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "StubSession-" + id;
+					default:
+						return defaultValue(m.getReturnType());
+					}
+				});
+	}
+
+	public static HttpSession httpSession(Map<String, Object> attributes) {
+		Map<String, Object> attrs = new ConcurrentHashMap<>(attributes);
+		return (HttpSession) Proxy.newProxyInstance(Stubs.class.getClassLoader(),
+				new Class<?>[] { HttpSession.class }, (proxy, m, args) -> {
+					switch (m.getName()) {
+					case "getAttribute":
+						return attrs.get(args[0]);
+					case "setAttribute":
+						attrs.put((String) args[0], args[1]);
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return defaultValue(m.getReturnType());
+					}
+				});
+	}
+
+	/**
+	 * rows 를 컬럼 이름으로 읽는 ResultSet (getBytes/getString/getInt/getTimestamp)
+	 * 처음부터 다시 읽으려면 beforeFirst()
+	 */
+	public static ResultSet resultSet(List<Map<String, Object>> rows) {
+		int[] cursor = { -1 };
+		return (ResultSet) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+					case "next":
+						return ++cursor[0] < rows.size();
+					case "beforeFirst":
+						cursor[0] = -1;
+						return null;
+					case "getBytes":
+						return (byte[]) rows.get(cursor[0]).get(args[0]);
+					case "getString":
+						return (String) rows.get(cursor[0]).get(args[0]);
+					case "getInt": {
+						Object v = rows.get(cursor[0]).get(args[0]);
+						return v == null ? 0 : ((Number) v).intValue();
+					}
+					case "getTimestamp":
+						return (Timestamp) rows.get(cursor[0]).get(args[0]);
+					case "close":
+						return null;
+					default:
+						return defaultValue(m.getReturnType());
+					}
+				});
+	}
+
+	public static Map<String, Object> row(Object... kv) {
+		Map<String, Object> row = new HashMap<>();
+		for (int i = 0; i < kv.length; i += 2)
+			row.put((String) kv[i], kv[i + 1]);
+		return row;
+	}
+
+	private static Object defaultValue(Class<?> t) {
+		if (!t.isPrimitive() || t == void.class)
+			return null;
+		if (t == boolean.class)
+			return false;
+		if (t == long.class)
+			return 0L;
+		if (t == int.class)
+			return 0;
+		if (t == double.class)
+			return 0d;
+		if (t == float.class)
+			return 0f;
+		if (t == short.class)
+			return (short) 0;
+		if (t == byte.class)
+			return (byte) 0;
+		return (char) 0;
+	}
+}
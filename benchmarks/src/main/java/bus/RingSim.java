@@ -0,0 +1,104 @@
+package bus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * HashRing 시뮬레이션: 노드 2..16 개에 방 UUID 를 나눠 본다
+ *
+ * - 균등도: 노드별 방 수의 최대/평균, 최소/평균, 표준편차/평균
+ * - 노드 하나가 들어올 때(n -> n+1)와 나갈 때(n -> n-1) 주인이 바뀐 방 비율 (이상값 1/(n+1), 1/n).
+ *   stray = 들어온 노드가 아닌 곳으로 옮겨 간 방 (일관 해싱이면 0)
+ *
+ * java -cp target/benchmarks.jar bus.RingSim --rooms=200000 --vnodes=16,64,128,256 --nodes=2-16
+ */
+public class RingSim {
+
+	public static void main(String[] args) {
+		Map<String, String> opts = new HashMap<>();
+		for (String a : args) {
+			int eq = a.indexOf('=');
+			if (a.startsWith("--") && eq > 2)
+				opts.put(a.substring(2, eq), a.substring(eq + 1));
+		}
+		int rooms = Integer.parseInt(opts.getOrDefault("rooms", "200000"));
+		String[] range = opts.getOrDefault("nodes", "2-16").split("-");
+		int from = Integer.parseInt(range[0]);
+		int to = Integer.parseInt(range[range.length - 1]);
+
+		Random rnd = new Random(42);
+		UUID[] keys = new UUID[rooms];
+		for (int i = 0; i < rooms; i++)
+			keys[i] = new UUID(rnd.nextLong(), rnd.nextLong());
+
+		for (String v : opts.getOrDefault("vnodes", "16,64,128,256").split(",")) {
+			int vnodes = Integer.parseInt(v.trim());
+			System.out.printf("%nvnodes=%d, rooms=%d%n", vnodes, rooms);
+			System.out.printf("%5s %8s %8s %8s %10s %8s %10s %8s %6s %9s%n", "nodes", "max/avg", "min/avg", "cv%",
+					"join%", "ideal%", "leave%", "ideal%", "stray", "lookup ns");
+			for (int n = Math.max(2, from); n <= to; n++)
+				row(keys, n, vnodes);
+		}
+	}
+
+	private static void row(UUID[] keys, int n, int vnodes) {
+		HashRing ring = HashRing.of(names(n), vnodes);
+		HashRing joined = HashRing.of(names(n + 1), vnodes);
+		HashRing left = HashRing.of(names(n - 1), vnodes);
+		String newcomer = node(n);
+
+		Map<String, Integer> load = new HashMap<>();
+		int moveJoin = 0, moveLeave = 0, stray = 0;
+		long start = System.nanoTime();
+		String[] owners = new String[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			owners[i] = ring.ownerOf(keys[i]);
+		long lookupNanos = (System.nanoTime() - start) / keys.length;
+
+		for (int i = 0; i < keys.length; i++) {
+			String o = owners[i];
+			load.merge(o, 1, Integer::sum);
+			String j = joined.ownerOf(keys[i]);
+			if (!j.equals(o)) {
+				moveJoin++;
+				if (!j.equals(newcomer))
+					stray++;
+			}
+			String l = left.ownerOf(keys[i]);
+			if (!l.equals(o)) {
+				moveLeave++;
+				if (!o.equals(node(n - 1))) // 나간 노드(마지막)의 방만 옮겨 가야 한다
+					stray++;
+			}
+		}
+
+		double avg = (double) keys.length / n;
+		int max = 0, min = Integer.MAX_VALUE;
+		double sq = 0;
+		for (int i = 0; i < n; i++) {
+			int c = load.getOrDefault(node(i), 0);
+			max = Math.max(max, c);
+			min = Math.min(min, c);
+			sq += (c - avg) * (c - avg);
+		}
+		double cv = Math.sqrt(sq / n) / avg * 100;
+		System.out.printf("%5d %8.3f %8.3f %8.2f %10.2f %8.2f %10.2f %8.2f %6d %9d%n", n, max / avg, min / avg, cv,
+				100.0 * moveJoin / keys.length, 100.0 / (n + 1), 100.0 * moveLeave / keys.length, 100.0 / n, stray,
+				lookupNanos);
+	}
+
+	private static List<String> names(int n) {
+		List<String> names = new ArrayList<>(n);
+		for (int i = 0; i < n; i++)
+			names.add(node(i));
+		return names;
+	}
+
+	private static String node(int i) {
+		return "node-" + i;
+	}
+}
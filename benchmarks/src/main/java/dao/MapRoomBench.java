@@ -0,0 +1,51 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.Stubs;
+import util.UuidRaw;
+
+/**
+ * RoomDao.mapRoom 행 매핑 (가짜 ResultSet, 한 번에 rows 행)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapRoomBench {
+
+	@Param({ "1", "50" })
+	public int rows;
+
+	private ResultSet rs;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		List<Map<String, Object>> list = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			list.add(Stubs.row("ID", UuidRaw.uuidToRaw(UUID.randomUUID()), "HOST_USER_ID",
+					UuidRaw.uuidToRaw(UUID.randomUUID()), "ROOM_NAME", "room " + i, "IS_PUBLIC", 1, "PLAY_TYPE", 1,
+					"TOTAL_USER_CNT", 4, "CURRENT_USER_CNT", i % 4, "CREATED_AT",
+					new Timestamp(System.currentTimeMillis() / 1000 * 1000)));
+		}
+		rs = Stubs.resultSet(list);
+	}
+
+	@Benchmark
+	public void mapRoom(Blackhole bh) throws Exception {
+		rs.beforeFirst();
+		while (rs.next())
+			bh.consume(RoomDao.mapRoom(rs));
+	}
+}
@@ -0,0 +1,134 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 착수 한 번 = ops 하나 → 초당 착수 수. 판 games 개를 돌아가며 한 수씩 (한 노드에서 동시에 도는 게임 수 흉내)
+ *
+ * 수순은 미리 만든 무작위 대국 (끝날 때까지)을 되풀이하고, 끝나면 reset 해서 다음 대국으로 (reset 비용 포함).
+ * move 는 Gomoku (비트보드 + 마지막 수에서만 검사), scanMove 는 비교용 int[225] 판에 두고 판 전체에서 다섯을 찾는 방식.
+ * -prof gc 로 B/op (move 는 0 이어야 함)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GomokuBench {
+
+	private static final int SCRIPTS = 256;
+	private static final int SIZE = Gomoku.SIZE;
+
+	@Param({ "1", "10000" })
+	public int games;
+
+	private int[][] scripts;
+	private Gomoku[] boards;
+	private int[][] naive;
+	private int[] scriptOf;
+	private int[] pos;
+	private int next;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(42);
+		scripts = new int[SCRIPTS][];
+		for (int i = 0; i < SCRIPTS; i++)
+			scripts[i] = randomGame(rnd);
+
+		boards = new Gomoku[games];
+		naive = new int[games][Gomoku.CELLS];
+		scriptOf = new int[games];
+		pos = new int[games];
+		for (int g = 0; g < games; g++) {
+			boards[g] = new Gomoku();
+			scriptOf[g] = g % SCRIPTS;
+		}
+	}
+
+	@Benchmark
+	public int move() {
+		int g = nextGame();
+		Gomoku b = boards[g];
+		int[] script = scripts[scriptOf[g]];
+		int r = b.play(b.turn(), script[pos[g]++]);
+		if (pos[g] == script.length)
+			nextScript(g, b);
+		return r;
+	}
+
+	@Benchmark
+	public boolean scanMove() {
+		int g = nextGame();
+		int[] board = naive[g];
+		int[] script = scripts[scriptOf[g]];
+		int p = pos[g]++;
+		board[script[p]] = (p & 1) == 0 ? Gomoku.BLACK : Gomoku.WHITE;
+		boolean five = scanFive(board);
+		if (pos[g] == script.length) {
+			Arrays.fill(board, 0);
+			nextScript(g, null);
+		}
+		return five;
+	}
+
+	private int nextGame() {
+		int g = next;
+		if (++next == games)
+			next = 0;
+		return g;
+	}
+
+	private void nextScript(int g, Gomoku b) {
+		if (b != null)
+			b.reset();
+		pos[g] = 0;
+		scriptOf[g] = (scriptOf[g] + 1) % SCRIPTS;
+	}
+
+	// 빈 칸을 무작위 순서로 두다가 끝난 곳까지
+	private static int[] randomGame(Random rnd) {
+		int[] order = new int[Gomoku.CELLS];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		for (int i = order.length - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		Gomoku g = new Gomoku();
+		for (int i = 0; i < order.length; i++) {
+			if (g.play(g.turn(), order[i]) != Gomoku.PLACED)
+				return Arrays.copyOf(order, i + 1);
+		}
+		return order;
+	}
+
+	private static boolean scanFive(int[] b) {
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				int c = b[y * SIZE + x];
+				if (c == 0)
+					continue;
+				if (run(b, x, y, 1, 0, c) || run(b, x, y, 0, 1, c) || run(b, x, y, 1, 1, c) || run(b, x, y, -1, 1, c))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean run(int[] b, int x, int y, int dx, int dy, int c) {
+		for (int i = 1; i < 5; i++) {
+			int nx = x + dx * i, ny = y + dy * i;
+			if (nx < 0 || nx >= SIZE || ny >= SIZE || b[ny * SIZE + nx] != c)
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,363 @@
+package load;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bench.Seed;
+
+/**
+ * 노드 두 개(각각 따로 띄운 JVM 의 내장 Tomcat + TcpEventBus)를 localhost 에 올리고 노드 간 fan-out 지연을 잰다
+ *
+ * 노드 A 의 creators 명이 rate 회/초로 방을 만들었다가 다음 tick 에 나가고(방 삭제), 양쪽 노드에 observers 명씩 붙은 로비 클라이언트가
+ * 그 방의 room_upsert 를 받는 시각을 잰다. local = A 의 관찰자, remote = B 의 관찰자 (버스를 한 번 거침).
+ * 저장소는 노드마다 따로인 메모리 저장소라 B 에서 A 의 방에 들어가는 것은 재지 않는다 (로비 전파만).
+ *
+ * java -cp target/benchmarks.jar load.ClusterBench --observers=200 --creators=4 --rate=5 --seconds=20
+ *
+ * 옵션: observers(노드당 200) creators(4) rate(5, 한 사람이 초당 만드는 방) seconds(20) batchMillis(2, -Dbus.batchMillis)
+ *      tickMillis(50, -Dws.broadcast.tickMillis) metrics(파일 접두사, 끝날 때 두 노드의 /metrics 를 {접두사}-a.txt, -b.txt 로)
+ *      owner(false, -Dws.owner.enabled. 저장소가 따로라 기본은 끔, 켜면 주인이 B 인 방의 leave 는 B 에서 ROOM_NOT_FOUND)
+ */
+public class ClusterBench {
+
+	private static final ObjectMapper om = new ObjectMapper();
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final Map<String, String> opts;
+	private final LatencyHistogram local = new LatencyHistogram();
+	private final LatencyHistogram remote = new LatencyHistogram();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT)
+			.followRedirects(HttpClient.Redirect.NEVER).build();
+
+	private ClusterBench(Map<String, String> opts) {
+		this.opts = opts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new ClusterBench(parse(args)).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		int observers = intOpt("observers", 200);
+		int creators = intOpt("creators", 4);
+		double rate = Double.parseDouble(opt("rate", "5"));
+		int seconds = intOpt("seconds", 20);
+		int users = observers + creators;
+
+		int busA = freePort();
+		int busB = freePort();
+		NodeProcess a = NodeProcess.start("a", busA, busB, users, opts);
+		NodeProcess b = NodeProcess.start("b", busB, busA, users, opts);
+		try {
+			System.out.printf("node a %s (bus %d), node b %s (bus %d), %d observers/node, %d creators x %.1f/s, %d s%n",
+					a.base, busA, b.base, busB, observers, creators, rate, seconds);
+
+			List<WebSocket> sockets = new ArrayList<>();
+			for (int i = 0; i < observers; i++) {
+				sockets.add(connect(a.base, i, new Observer(local)));
+				sockets.add(connect(b.base, i, new Observer(remote)));
+			}
+			Thread.sleep(1000); // 첫 room_list 가 다 지나가게
+
+			ScheduledExecutorService ticker = Executors.newScheduledThreadPool(2);
+			long periodMicros = (long) (1_000_000 / rate / 2); // 만들기와 나가기를 번갈아
+			for (int i = 0; i < creators; i++) {
+				Creator c = new Creator();
+				c.ws = connect(a.base, observers + i, c);
+				sockets.add(c.ws);
+				ticker.scheduleAtFixedRate(c::tick, ThreadLocalRandom.current().nextLong(periodMicros), periodMicros,
+						TimeUnit.MICROSECONDS);
+			}
+
+			Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+			ticker.shutdownNow();
+			Thread.sleep(1000); // 마지막 fan-out 이 도착할 시간
+
+			long expected = created.sum() * observers;
+			System.out.printf("%n%d rooms created, %d errors, %d upserts expected per node%n", created.sum(),
+					errors.sum(), expected);
+			System.out.printf("%-8s %9s %8s %8s %8s %8s %8s%n", "fan-out", "count", "p50", "p90", "p99", "p99.9",
+					"max (ms)");
+			print("local", local);
+			print("remote", remote);
+
+			for (NodeProcess n : List.of(a, b)) {
+				String text = client.send(HttpRequest.newBuilder(n.base.resolve("/metrics")).timeout(TIMEOUT).build(),
+						HttpResponse.BodyHandlers.ofString()).body();
+				System.out.println("node " + n.name + " " + busSummary(text));
+				String prefix = opts.get("metrics");
+				if (prefix != null)
+					Files.writeString(Path.of(prefix + "-" + n.name + ".txt"), text);
+			}
+
+			for (WebSocket ws : sockets)
+				ws.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(e -> null);
+		} finally {
+			a.stop();
+			b.stop();
+		}
+	}
+
+	private static void print(String name, LatencyHistogram h) {
+		System.out.printf("%-8s %9d %8s %8s %8s %8s %8s%n", name, h.count(), ms(h.percentile(0.5)),
+				ms(h.percentile(0.9)), ms(h.percentile(0.99)), ms(h.percentile(0.999)), ms(h.max()));
+	}
+
+	// bus_* 중 카운터와 히스토그램 합/개수만
+	private static String busSummary(String metrics) {
+		Map<String, String> out = new LinkedHashMap<>();
+		for (String line : metrics.split("\n")) {
+			if (!line.startsWith("bus_") || line.contains("_bucket"))
+				continue;
+			int sp = line.lastIndexOf(' ');
+			out.put(line.substring(0, sp), line.substring(sp + 1));
+		}
+		return out.toString();
+	}
+
+	private WebSocket connect(URI base, int index, WebSocket.Listener listener) throws Exception {
+		String form = "email=" + URLEncoder.encode(Seed.email(index), StandardCharsets.UTF_8) + "&password="
+				+ URLEncoder.encode(Seed.PASSWORD, StandardCharsets.UTF_8);
+		HttpResponse<Void> r = client.send(HttpRequest.newBuilder(base.resolve("/login")).timeout(TIMEOUT)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.discarding());
+		String cookie = null;
+		for (String c : r.headers().allValues("Set-Cookie")) {
+			if (c.startsWith("JSESSIONID="))
+				cookie = c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';'));
+		}
+		if (cookie == null)
+			throw new IllegalStateException("login failed: " + r.statusCode());
+
+		return client.newWebSocketBuilder().header("Cookie", cookie).connectTimeout(TIMEOUT)
+				.buildAsync(URI.create("ws://" + base.getAuthority() + "/ws/lobby"), listener).get(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 텍스트 프레임을 메시지 단위로 모아 넘긴다
+	 */
+	private abstract static class TextListener implements WebSocket.Listener {
+		private final StringBuilder buf = new StringBuilder();
+
+		@Override
+		public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+			buf.append(data);
+			if (last) {
+				String msg = buf.toString();
+				buf.setLength(0);
+				onMessage(msg, System.nanoTime());
+			}
+			ws.request(1);
+			return null;
+		}
+
+		abstract void onMessage(String msg, long now);
+	}
+
+	// 방 이름 cb-{보낸 nanoTime} 인 방의 첫 room_upsert (아직 만든 사람 혼자일 때)
+	private static final class Observer extends TextListener {
+		private final LatencyHistogram h;
+
+		Observer(LatencyHistogram h) {
+			this.h = h;
+		}
+
+		@Override
+		void onMessage(String msg, long now) {
+			if (!msg.contains("\"room_upsert\""))
+				return;
+			JsonNode root;
+			try {
+				root = om.readTree(msg);
+			} catch (Exception e) {
+				return;
+			}
+			if ("batch".equals(root.path("type").asText())) {
+				for (JsonNode ev : root.path("events"))
+					onDelta(ev, now);
+			} else {
+				onDelta(root, now);
+			}
+		}
+
+		private void onDelta(JsonNode ev, long now) {
+			JsonNode r = ev.path("room");
+			String name = r.path("roomName").asText();
+			if (!"room_upsert".equals(ev.path("type").asText()) || !name.startsWith("cb-")
+					|| r.path("currentUserCnt").asInt() != 1)
+				return;
+			h.record((now - Long.parseLong(name.substring(3))) / 1000);
+		}
+	}
+
+	// tick 마다 방 만들기와 나가기(혼자라 방이 지워짐)를 번갈아 한다. 응답을 받아야 다음 요청
+	// 만들자마자 나가면 로비 tick 안에서 upsert 가 삭제로 합쳐져 관찰자가 못 보므로 한 tick 은 둔다
+	private final class Creator extends TextListener {
+		volatile WebSocket ws;
+		private volatile String roomId;
+		private volatile boolean busy;
+		private volatile long busySince;
+
+		void tick() {
+			long now = System.nanoTime();
+			if (ws == null || (busy && now - busySince < TIMEOUT.toNanos()))
+				return;
+			busy = true;
+			busySince = now;
+			String in = roomId;
+			if (in != null) {
+				roomId = null;
+				ws.sendText("{\"type\":\"leave_room\",\"roomId\":\"" + in + "\"}", true);
+			} else {
+				ws.sendText("{\"type\":\"create_room\",\"roomName\":\"cb-" + now
+						+ "\",\"isPublic\":1,\"playType\":0,\"totalUserCnt\":2}", true);
+			}
+		}
+
+		@Override
+		void onMessage(String msg, long now) {
+			if (msg.contains("\"create_room_ok\"")) {
+				created.increment();
+				try {
+					roomId = om.readTree(msg).path("roomId").asText();
+				} catch (Exception ignore) {
+				}
+				busy = false;
+			} else if (msg.contains("\"leave_ok\"")) {
+				busy = false;
+			} else if (msg.contains("\"type\":\"error\"")) {
+				errors.increment();
+				busy = false;
+			}
+		}
+	}
+
+	/**
+	 * 노드 하나 = 자식 JVM 하나 (같은 클래스패스로 ClusterBench.Node 실행)
+	 */
+	private static final class NodeProcess {
+		final String name;
+		final Process process;
+		final URI base;
+
+		private NodeProcess(String name, Process process, URI base) {
+			this.name = name;
+			this.process = process;
+			this.base = base;
+		}
+
+		static NodeProcess start(String name, int busPort, int peerPort, int users, Map<String, String> opts)
+				throws Exception {
+			List<String> cmd = new ArrayList<>();
+			cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+			cmd.add("-cp");
+			cmd.add(System.getProperty("java.class.path"));
+			cmd.add("-Dbus.kind=tcp");
+			cmd.add("-Dbus.node=" + name);
+			cmd.add("-Dbus.listen=127.0.0.1:" + busPort);
+			cmd.add("-Dbus.peers=127.0.0.1:" + peerPort);
+			cmd.add("-Dbus.batchMillis=" + opts.getOrDefault("batchMillis", "2"));
+			cmd.add("-Dws.broadcast.tickMillis=" + opts.getOrDefault("tickMillis", "50"));
+			cmd.add("-Dws.owner.enabled=" + opts.getOrDefault("owner", "false"));
+			cmd.add(Node.class.getName());
+			cmd.add(Integer.toString(users));
+
+			Process p = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT)
+					.directory(new File(".")).start();
+			BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			while ((line = out.readLine()) != null && !line.startsWith("READY ")) {
+				System.out.println("[" + name + "] " + line);
+			}
+			if (line == null)
+				throw new IllegalStateException("node " + name + " exited: " + p.waitFor());
+			// 이후 출력은 버린다 (파이프가 차서 자식이 멈추지 않게)
+			Thread drain = new Thread(() -> {
+				try {
+					while (out.readLine() != null) {
+					}
+				} catch (Exception ignore) {
+				}
+			}, "drain-" + name);
+			drain.setDaemon(true);
+			drain.start();
+			return new NodeProcess(name, p, URI.create("http://127.0.0.1:" + line.substring(6).trim()));
+		}
+
+		// 표준 입력을 닫으면 자식이 스스로 내려간다
+		void stop() throws Exception {
+			try {
+				process.getOutputStream().close();
+			} catch (Exception ignore) {
+			}
+			if (!process.waitFor(10, TimeUnit.SECONDS))
+				process.destroyForcibly();
+		}
+	}
+
+	/**
+	 * 자식 JVM: 사용자 n 명을 심은 메모리 저장소 + 내장 Tomcat, 표준 입력이 닫힐 때까지
+	 */
+	public static final class Node {
+		public static void main(String[] args) throws Exception {
+			int users = Integer.parseInt(args[0]);
+			Seed.memory(users, 0);
+			EmbeddedServer server = new EmbeddedServer(0, users * 2 + 1000);
+			System.out.println("READY " + server.start());
+			System.out.flush();
+			while (System.in.read() >= 0) {
+			}
+			server.stop();
+			System.exit(0);
+		}
+	}
+
+	private static int freePort() throws Exception {
+		try (ServerSocket s = new ServerSocket(0)) {
+			return s.getLocalPort();
+		}
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> opts = new HashMap<>();
+		for (String a : args) {
+			if (!a.startsWith("--") || a.indexOf('=') < 0)
+				throw new IllegalArgumentException("--name=value: " + a);
+			opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+		}
+		return opts;
+	}
+
+	private static String ms(long micros) {
+		return String.format("%.2f", micros / 1000.0);
+	}
+
+	private String opt(String name, String def) {
+		return opts.getOrDefault(name, def);
+	}
+
+	private int intOpt(String name, int def) {
+		return Integer.parseInt(opt(name, Integer.toString(def)));
+	}
+}
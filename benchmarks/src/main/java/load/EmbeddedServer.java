@@ -0,0 +1,96 @@
+package load;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.websocket.server.ServerContainer;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.websocket.server.WsSci;
+
+import bus.Bus;
+import web.LoginServlet;
+import web.MetricsServlet;
+import websocket.DbExecutor;
+import websocket.LobbySocket;
+import websocket.RoomOwners;
+import websocket.RoomSocket;
+import websocket.RoomSweeper;
+import websocket.SeatReconciler;
+
+/**
+ * 부하 테스트용 내장 Tomcat: /login, /metrics, /ws/lobby, /ws/room 만 올린다 (JSP 없음)
+ *
+ * 저장소는 미리 Stores.use(...) 로 바꿔 둔 것을 그대로 쓴다.
+ */
+final class EmbeddedServer {
+
+	private final Tomcat tomcat = new Tomcat();
+	private final Connector connector;
+
+	EmbeddedServer(int port, int maxConnections) throws Exception {
+		Path base = Files.createTempDirectory("omok-load");
+		tomcat.setBaseDir(base.toString());
+		tomcat.setPort(port);
+
+		connector = tomcat.getConnector();
+		connector.setProperty("maxConnections", Integer.toString(maxConnections));
+		connector.setProperty("acceptCount", "1000");
+
+		Context ctx = tomcat.addContext("", base.toString());
+		ctx.addServletContainerInitializer(new WsSci(), null);
+		ctx.addApplicationListener(Endpoints.class.getName());
+
+		// 매핑되는 서블릿이 없으면 WsFilter 까지 가기 전에 404 가 나므로 "/" 를 하나 둔다
+		Tomcat.addServlet(ctx, "default", new DefaultServlet());
+		ctx.addServletMappingDecoded("/", "default");
+		Tomcat.addServlet(ctx, "login", new LoginServlet());
+		ctx.addServletMappingDecoded("/login", "login");
+		Tomcat.addServlet(ctx, "metrics", new MetricsServlet());
+		ctx.addServletMappingDecoded("/metrics", "metrics");
+	}
+
+	/**
+	 * 실제로 열린 포트 (port = 0 이면 임의 포트)
+	 */
+	int start() throws Exception {
+		tomcat.start();
+		return connector.getLocalPort();
+	}
+
+	void stop() {
+		RoomSweeper.stop();
+		SeatReconciler.stop();
+		DbExecutor.shutdown(); // 웹앱의 contextDestroyed 대신
+		RoomSocket.stopTimers();
+		Bus.get().close();
+		try {
+			tomcat.stop();
+			tomcat.destroy();
+		} catch (Exception ignore) {
+		}
+	}
+
+	// @ServerEndpoint 스캔 대신 직접 등록
+	public static class Endpoints implements ServletContextListener {
+		@Override
+		public void contextInitialized(ServletContextEvent sce) {
+			ServerContainer sc = (ServerContainer) sce.getServletContext()
+					.getAttribute(ServerContainer.class.getName());
+			try {
+				sc.addEndpoint(LobbySocket.class);
+				sc.addEndpoint(RoomSocket.class);
+				RoomOwners.start(); // 웹앱의 RoomRegistryLoader 대신
+				RoomSweeper.start();
+				SeatReconciler.start();
+			} catch (Exception e) {
+				throw new RuntimeException("endpoint registration failed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 마이크로초 단위 로그-선형 히스토그램 (2 의 거듭제곱 구간마다 16 칸, 상대 오차 약 6%)
+ *
+ * 버킷은 미리 다 만들어 두고 record 는 락 없이 칸 하나만 올린다.
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	void record(long micros) {
+		long v = Math.max(0, micros);
+		counts.incrementAndGet(index(v));
+		total.increment();
+		sum.add(v);
+		long m;
+		while (v > (m = max.get()) && !max.compareAndSet(m, v)) {
+		}
+	}
+
+	long count() {
+		return total.sum();
+	}
+
+	long max() {
+		return max.get();
+	}
+
+	double mean() {
+		long n = total.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * q = 0.5, 0.99 ... (버킷 상한값)
+	 */
+	long percentile(double q) {
+		long n = 0;
+		long[] snap = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snap[i] = counts.get(i);
+			n += snap[i];
+		}
+		if (n == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(q * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snap[i];
+			if (seen >= rank)
+				return Math.min(upper(i), max.get());
+		}
+		return max.get();
+	}
+
+	private static int index(long v) {
+		if (v < SUB)
+			return (int) v;
+		int exp = 63 - Long.numberOfLeadingZeros(v); // >= SUB_BITS
+		int shift = exp - SUB_BITS;
+		int sub = (int) (v >>> shift) - SUB; // 0..SUB-1
+		return (shift + 1) * SUB + sub;
+	}
+
+	private static long upper(int index) {
+		if (index < SUB)
+			return index;
+		int shift = index / SUB - 1;
+		int sub = index % SUB;
+		return ((long) (SUB + sub + 1) << shift) - 1;
+	}
+}
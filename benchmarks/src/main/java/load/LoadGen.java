@@ -0,0 +1,437 @@
+package load;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocketHandshakeException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import bench.Seed;
+import dao.ProfileCache;
+import dao.SeatGate;
+import dao.Stores;
+import model.UserSession;
+import websocket.BroadcastScheduler;
+import websocket.DbExecutor;
+import websocket.LobbySocket;
+import websocket.OutboundQueue;
+import websocket.RoomSocket;
+
+/**
+ * /ws/lobby, /ws/room 부하 발생기
+ *
+ * 같은 프로세스에 내장 Tomcat + 메모리 저장소를 띄우고, JDK HttpClient 로 /login 해서 받은 JSESSIONID 로
+ * 가상 사용자마다 로비 소켓을 연다. 각 사용자는 rate 회/초로 mix 가중치에 따라 create/enter/leave/refresh 를 보낸다.
+ *
+ * java -cp target/benchmarks.jar load.LoadGen --users=2000 --seconds=60 --rate=0.5 \
+ *     --mix=create:1,enter:4,leave:3,refresh:2 --roomSize=4 --out=load.json
+ *
+ * 옵션: users(1000) seconds(30) rate(0.5) mix roomSize(4) seedRooms(0) rampSeconds(5) reportSeconds(5)
+ *      clients(4, HttpClient 수) timeoutSeconds(10) port(0) out(요약 JSON 파일)
+ * 서버 쪽 설정은 -Dws.broadcast.tickMillis, -Dws.outbound.* 그대로.
+ */
+public class LoadGen {
+
+	private final Map<String, String> opts;
+	private final Stats stats = new Stats();
+	private final RoomPool rooms = new RoomPool();
+	private final Mix mix;
+	private final Duration timeout;
+	private final int roomSize;
+	private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+	private List<UserSession> users;
+	private URI base;
+	private HttpClient[] clients;
+
+	private LoadGen(Map<String, String> opts) {
+		this.opts = opts;
+		this.mix = Mix.parse(opt("mix", "create:1,enter:4,leave:3,refresh:2"));
+		this.timeout = Duration.ofSeconds(intOpt("timeoutSeconds", 10));
+		this.roomSize = intOpt("roomSize", 4);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> opts = new HashMap<>();
+		for (String a : args) {
+			if (!a.startsWith("--") || a.indexOf('=') < 0)
+				throw new IllegalArgumentException("--name=value: " + a);
+			opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+		}
+		new LoadGen(opts).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		int userCnt = intOpt("users", 1000);
+		int seconds = intOpt("seconds", 30);
+		double rate = Double.parseDouble(opt("rate", "0.5"));
+
+		users = Seed.memory(userCnt, intOpt("seedRooms", 0));
+		EmbeddedServer server = new EmbeddedServer(intOpt("port", 0), userCnt * 2 + 1000);
+		base = URI.create("http://127.0.0.1:" + server.start());
+		System.out.printf("server %s, %d users, %d s, %.2f ops/s/user, mix %s%n", base, userCnt, seconds, rate, mix);
+
+		ExecutorService io = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+				daemon("load-io"));
+		clients = new HttpClient[intOpt("clients", 4)];
+		for (int i = 0; i < clients.length; i++) {
+			clients[i] = HttpClient.newBuilder().executor(io).connectTimeout(timeout)
+					.followRedirects(HttpClient.Redirect.NEVER).build();
+		}
+
+		List<VirtualUser> vus = connectAll(intOpt("rampSeconds", 5));
+		System.out.printf("connected %d/%d lobby sockets%n", vus.size(), userCnt);
+
+		ScheduledExecutorService ticker = Executors.newScheduledThreadPool(
+				Math.max(2, Runtime.getRuntime().availableProcessors() / 2), daemon("load-tick"));
+		long periodMicros = (long) (1_000_000 / rate);
+		for (VirtualUser vu : vus) {
+			ticker.scheduleAtFixedRate(vu::tick, ThreadLocalRandom.current().nextLong(periodMicros), periodMicros,
+					TimeUnit.MICROSECONDS);
+		}
+
+		long start = System.nanoTime();
+		long reportNanos = TimeUnit.SECONDS.toNanos(intOpt("reportSeconds", 5));
+		long end = start + TimeUnit.SECONDS.toNanos(seconds);
+		long[] last = { 0, 0 };
+		long lastAt = start;
+		System.out.printf("%6s %9s %9s %8s %8s %8s %8s %6s%n", "t(s)", "sent/s", "recv/s", "fan p50", "fan p99",
+				"fan max", "rooms", "errors");
+		while (System.nanoTime() < end) {
+			Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(reportNanos),
+					Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+			long now = System.nanoTime();
+			long sent = stats.sent.sum();
+			long recv = stats.received.sum();
+			double dt = (now - lastAt) / 1e9;
+			System.out.printf("%6d %9.0f %9.0f %8s %8s %8s %8d %6d%n", TimeUnit.NANOSECONDS.toSeconds(now - start),
+					(sent - last[0]) / dt, (recv - last[1]) / dt, ms(stats.fanout.percentile(0.5)),
+					ms(stats.fanout.percentile(0.99)), ms(stats.fanout.max()), rooms.size(), stats.errors.sum());
+			last[0] = sent;
+			last[1] = recv;
+			lastAt = now;
+		}
+
+		ticker.shutdownNow();
+		Thread.sleep(1000); // 보낸 요청의 응답/fan-out 이 도착할 시간
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		Map<String, Object> summary = summary(userCnt, vus.size(), elapsed);
+		printSummary(summary);
+		String out = opts.get("out");
+		if (out != null) {
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(out), summary);
+			System.out.println("summary written to " + out);
+		}
+		String metrics = opts.get("metrics");
+		if (metrics != null) {
+			HttpResponse<Path> r = clients[0].send(HttpRequest.newBuilder(base.resolve("/metrics")).timeout(timeout).build(),
+					HttpResponse.BodyHandlers.ofFile(Path.of(metrics)));
+			System.out.println("/metrics (" + r.statusCode() + ") written to " + metrics);
+		}
+
+		for (VirtualUser vu : vus)
+			vu.close();
+		server.stop();
+		io.shutdownNow();
+	}
+
+	// rampSeconds 동안 고르게 로그인 + 로비 접속 (동시에 최대 64개)
+	private List<VirtualUser> connectAll(int rampSeconds) throws Exception {
+		List<VirtualUser> vus = Collections.synchronizedList(new ArrayList<>());
+		Semaphore inFlight = new Semaphore(64);
+		long gapNanos = users.isEmpty() ? 0 : TimeUnit.SECONDS.toNanos(rampSeconds) / users.size();
+		long t0 = System.nanoTime();
+		CountDownLatch done = new CountDownLatch(users.size());
+
+		for (int i = 0; i < users.size(); i++) {
+			long due = t0 + gapNanos * i;
+			long wait = due - System.nanoTime();
+			if (wait > 0)
+				TimeUnit.NANOSECONDS.sleep(wait);
+			inFlight.acquire();
+
+			int index = i;
+			login(index).thenCompose(cookie -> {
+				VirtualUser vu = new VirtualUser(this, index, users.get(index).getId(), cookie);
+				return vu.connect(client(index)).thenApply(ws -> vu);
+			}).whenComplete((vu, e) -> {
+				if (e == null)
+					vus.add(vu);
+				else if (stats.connectFailures.sum() == 0 && firstFailure.compareAndSet(null, e))
+					System.err.println("connect failed: " + describe(e));
+				if (e != null)
+					stats.connectFailures.increment();
+				inFlight.release();
+				done.countDown();
+			});
+		}
+		done.await(timeout.toSeconds() + rampSeconds, TimeUnit.SECONDS);
+		return new ArrayList<>(vus);
+	}
+
+	private CompletableFuture<String> login(int index) {
+		String form = "email=" + URLEncoder.encode(Seed.email(index), StandardCharsets.UTF_8) + "&password="
+				+ URLEncoder.encode(Seed.PASSWORD, StandardCharsets.UTF_8);
+		HttpRequest req = HttpRequest.newBuilder(base.resolve("/login")).timeout(timeout)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)).build();
+
+		return client(index).sendAsync(req, HttpResponse.BodyHandlers.discarding()).thenApply(resp -> {
+			// 성공이면 302 + Set-Cookie: JSESSIONID=...
+			for (String c : resp.headers().allValues("Set-Cookie")) {
+				if (c.startsWith("JSESSIONID="))
+					return c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';'));
+			}
+			throw new IllegalStateException("login failed: " + resp.statusCode());
+		});
+	}
+
+	private Map<String, Object> summary(int userCnt, int connected, double elapsed) {
+		Map<String, Object> s = new LinkedHashMap<>();
+		s.put("users", userCnt);
+		s.put("connected", connected);
+		s.put("seconds", elapsed);
+		s.put("rate", Double.parseDouble(opt("rate", "0.5")));
+		s.put("mix", mix.toString());
+		s.put("sent", stats.sent.sum());
+		s.put("received", stats.received.sum());
+		s.put("sentPerSecond", stats.sent.sum() / elapsed);
+		s.put("receivedPerSecond", stats.received.sum() / elapsed);
+		s.put("receivedCharsPerSecond", stats.receivedChars.sum() / elapsed);
+		s.put("errors", stats.errors.sum());
+		s.put("timeouts", stats.timeouts.sum());
+		s.put("resyncRequired", stats.resyncRequired.sum());
+		s.put("connectFailures", stats.connectFailures.sum());
+		s.put("closedByServer", stats.closedByServer.sum());
+
+		Map<String, Object> hs = new LinkedHashMap<>();
+		for (Map.Entry<String, LatencyHistogram> e : stats.histograms().entrySet()) {
+			LatencyHistogram h = e.getValue();
+			Map<String, Object> m = new LinkedHashMap<>();
+			m.put("count", h.count());
+			m.put("meanMicros", h.mean());
+			m.put("p50Micros", h.percentile(0.5));
+			m.put("p90Micros", h.percentile(0.9));
+			m.put("p99Micros", h.percentile(0.99));
+			m.put("p999Micros", h.percentile(0.999));
+			m.put("maxMicros", h.max());
+			hs.put(e.getKey(), m);
+		}
+		s.put("latency", hs);
+
+		Map<String, Object> server = new LinkedHashMap<>();
+		server.put("lobby", endpoint(LobbySocket.outbound(), LobbySocket.broadcaster()));
+		server.put("room", endpoint(RoomSocket.outbound(), RoomSocket.broadcaster()));
+		server.put("db", dbExecutor());
+		server.put("seats", seats());
+		server.put("profiles", profiles());
+		s.put("server", server);
+		return s;
+	}
+
+	private static Map<String, Object> endpoint(OutboundQueue.Endpoint q, BroadcastScheduler b) {
+		Map<String, Object> m = new LinkedHashMap<>();
+		m.put("eventsIn", b.eventsIn());
+		m.put("eventsMerged", b.eventsMerged());
+		m.put("framesOut", b.framesOut());
+		m.put("sends", b.sends());
+		m.put("sent", q.sent());
+		m.put("dropped", q.dropped());
+		m.put("conflated", q.conflated());
+		m.put("failed", q.failed());
+		m.put("slowClosed", q.slowClosed());
+		return m;
+	}
+
+	private static Map<String, Object> dbExecutor() {
+		Map<String, Object> m = new LinkedHashMap<>();
+		m.put("kind", DbExecutor.kind());
+		m.put("submitted", DbExecutor.submitted());
+		m.put("completed", DbExecutor.completed());
+		m.put("failed", DbExecutor.failed());
+		m.put("rejected", DbExecutor.rejected());
+		m.put("roomMailboxes", DbExecutor.roomMailboxes());
+		long n = DbExecutor.waitCount();
+		m.put("meanWaitMicros", n == 0 ? 0 : DbExecutor.waitNanos() / n / 1000);
+		m.put("maxWaitMicros", DbExecutor.maxWaitNanos() / 1000);
+		return m;
+	}
+
+	private static Map<String, Object> seats() {
+		SeatGate g = Stores.seats();
+		Map<String, Object> m = new LinkedHashMap<>();
+		m.put("trackedRooms", g.trackedRooms());
+		m.put("admitted", g.admitted());
+		m.put("fastRejected", g.fastRejected());
+		m.put("released", g.released());
+		m.put("corrected", g.corrected());
+		return m;
+	}
+
+	private static Map<String, Object> profiles() {
+		ProfileCache c = Stores.profiles();
+		Map<String, Object> m = new LinkedHashMap<>();
+		m.put("size", c.size());
+		m.put("hits", c.hits());
+		m.put("misses", c.misses());
+		m.put("evictions", c.evictions());
+		m.put("invalidations", c.invalidations());
+		return m;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void printSummary(Map<String, Object> s) {
+		System.out.println();
+		System.out.printf("connected %s/%s, %.1f s, sent %.0f/s, received %.0f/s, errors %s, timeouts %s%n",
+				s.get("connected"), s.get("users"), s.get("seconds"), s.get("sentPerSecond"), s.get("receivedPerSecond"),
+				s.get("errors"), s.get("timeouts"));
+		System.out.printf("%-24s %9s %8s %8s %8s %8s %8s%n", "latency (ms)", "count", "p50", "p90", "p99", "p99.9",
+				"max");
+		for (Map.Entry<String, Object> e : ((Map<String, Object>) s.get("latency")).entrySet()) {
+			Map<String, Object> m = (Map<String, Object>) e.getValue();
+			System.out.printf("%-24s %9d %8s %8s %8s %8s %8s%n", e.getKey(), m.get("count"), ms((Long) m.get("p50Micros")),
+					ms((Long) m.get("p90Micros")), ms((Long) m.get("p99Micros")), ms((Long) m.get("p999Micros")),
+					ms((Long) m.get("maxMicros")));
+		}
+		System.out.println("server " + s.get("server"));
+	}
+
+	private static String describe(Throwable e) {
+		Throwable c = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		if (c instanceof WebSocketHandshakeException) {
+			HttpResponse<?> r = ((WebSocketHandshakeException) c).getResponse();
+			return "handshake " + r.statusCode() + " " + r.headers().map();
+		}
+		return c.toString();
+	}
+
+	private static String ms(long micros) {
+		return String.format("%.2f", micros / 1000.0);
+	}
+
+	private static ThreadFactory daemon(String name) {
+		return r -> {
+			Thread t = new Thread(r, name);
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	// ---------- VirtualUser 가 쓰는 것 ----------
+
+	Stats stats() {
+		return stats;
+	}
+
+	RoomPool rooms() {
+		return rooms;
+	}
+
+	Mix mix() {
+		return mix;
+	}
+
+	Duration timeout() {
+		return timeout;
+	}
+
+	int roomSize() {
+		return roomSize;
+	}
+
+	UUID userId(int index) {
+		return users.get(index).getId();
+	}
+
+	HttpClient client(int index) {
+		return clients[index % clients.length];
+	}
+
+	URI uri(String path) {
+		return URI.create("ws://" + base.getAuthority() + path);
+	}
+
+	private String opt(String name, String def) {
+		return opts.getOrDefault(name, def);
+	}
+
+	private int intOpt(String name, int def) {
+		return Integer.parseInt(opt(name, Integer.toString(def)));
+	}
+
+	/**
+	 * create:1,enter:4,leave:3,refresh:2 (방 밖에서는 leave, 방 안에서는 create/enter 가중치를 뺀다)
+	 */
+	static final class Mix {
+		private final EnumMap<VirtualUser.Op, Integer> weights;
+
+		private Mix(EnumMap<VirtualUser.Op, Integer> weights) {
+			this.weights = weights;
+		}
+
+		static Mix parse(String spec) {
+			EnumMap<VirtualUser.Op, Integer> w = new EnumMap<>(VirtualUser.Op.class);
+			for (String part : spec.split(",")) {
+				String[] kv = part.trim().split(":");
+				w.put(VirtualUser.Op.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+			}
+			return new Mix(w);
+		}
+
+		VirtualUser.Op pick(boolean inRoom) {
+			int total = 0;
+			for (Map.Entry<VirtualUser.Op, Integer> e : weights.entrySet()) {
+				if (allowed(e.getKey(), inRoom))
+					total += e.getValue();
+			}
+			if (total <= 0)
+				return VirtualUser.Op.REFRESH;
+
+			int r = ThreadLocalRandom.current().nextInt(total);
+			for (Map.Entry<VirtualUser.Op, Integer> e : weights.entrySet()) {
+				if (!allowed(e.getKey(), inRoom))
+					continue;
+				r -= e.getValue();
+				if (r < 0)
+					return e.getKey();
+			}
+			return VirtualUser.Op.REFRESH;
+		}
+
+		private static boolean allowed(VirtualUser.Op op, boolean inRoom) {
+			switch (op) {
+			case CREATE:
+			case ENTER:
+				return !inRoom;
+			case LEAVE:
+				return inRoom;
+			default:
+				return true;
+			}
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<VirtualUser.Op, Integer> e : weights.entrySet()) {
+				if (sb.length() > 0)
+					sb.append(',');
+				sb.append(e.getKey().name().toLowerCase()).append(':').append(e.getValue());
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package load;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import bench.Seed;
+import dao.RoomRegistry;
+import metrics.Metrics;
+import model.UserSession;
+
+/**
+ * 방 소켓을 열고 닫기만 반복해서 RoomSocket 의 방 -> 세션 / 세션 -> 방 인덱스가 늘어나지 않는지 본다
+ *
+ * 같은 프로세스에 내장 Tomcat + 메모리 저장소를 띄우고, 로그인한 users 명이 rooms 개 방 중 하나에 방 소켓을 열어
+ * 첫 room_players 를 받으면 닫는다 (동시에 concurrency 개). report 번 열고 닫을 때마다, 끝나고 닫힌 세션이 다 빠진 뒤
+ * ws_rooms_open (roomSessions), ws_sessions_open{endpoint="room"} (roomOfSession), 자동 퇴장 대기, 힙을 찍는다.
+ * 중간 값은 그 순간 열려 있는 소켓 수 (concurrency) 안쪽이어야 하고, 끝에는 0 이어야 한다.
+ *
+ * java -cp target/benchmarks.jar load.RoomChurn --opens=100000 --concurrency=64
+ *
+ * 옵션: opens(100000) users(200) rooms(100) concurrency(64) report(10000) timeoutSeconds(10)
+ *      자동 퇴장 타이머는 -Dws.room.leaveGraceMillis 그대로 (기본 15000, 같은 자리는 타이머 하나로 합쳐진다)
+ */
+public class RoomChurn {
+
+	private final Map<String, String> opts;
+	private final Duration timeout;
+	private final LongAdder opened = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final AtomicLong closed = new AtomicLong();
+	private HttpClient client;
+	private URI base;
+
+	private RoomChurn(Map<String, String> opts) {
+		this.opts = opts;
+		this.timeout = Duration.ofSeconds(intOpt("timeoutSeconds", 10));
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> opts = new HashMap<>();
+		for (String a : args) {
+			if (!a.startsWith("--") || a.indexOf('=') < 0)
+				throw new IllegalArgumentException("--name=value: " + a);
+			opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+		}
+		new RoomChurn(opts).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		int opens = intOpt("opens", 100_000);
+		int userCnt = intOpt("users", 200);
+		int roomCnt = intOpt("rooms", 100);
+		int concurrency = intOpt("concurrency", 64);
+		int report = intOpt("report", 10_000);
+
+		List<UserSession> users = Seed.memory(userCnt, roomCnt);
+		List<String> roomIds = new ArrayList<>();
+		RoomRegistry.get().listPublicRooms().forEach(r -> roomIds.add(r.getId().toString()));
+		EmbeddedServer server = new EmbeddedServer(0, concurrency * 2 + 1000);
+		base = URI.create("http://127.0.0.1:" + server.start());
+		client = HttpClient.newBuilder().connectTimeout(timeout).followRedirects(HttpClient.Redirect.NEVER).build();
+
+		String[] cookies = new String[users.size()];
+		for (int i = 0; i < cookies.length; i++)
+			cookies[i] = login(i);
+		System.out.printf("server %s, %d users, %d rooms, %d opens, %d concurrent%n", base, userCnt, roomIds.size(),
+				opens, concurrency);
+		System.out.printf("%8s %8s %10s %12s %12s %10s %9s%n", "opens", "errors", "open/s", "rooms_open",
+				"sessions_open", "auto_leave", "heap(MB)");
+
+		long start = System.nanoTime();
+		long[] lastAt = { start };
+		AtomicLong next = new AtomicLong();
+		Semaphore reports = new Semaphore(0);
+		CountDownLatch done = new CountDownLatch(concurrency);
+		for (int w = 0; w < concurrency; w++) {
+			Thread t = new Thread(() -> {
+				try {
+					long n;
+					while ((n = next.getAndIncrement()) < opens) {
+						int u = (int) (n % cookies.length);
+						churnOnce(cookies[u], roomIds.get((int) (n % roomIds.size())));
+						if (closed.incrementAndGet() % report == 0)
+							reports.release();
+					}
+				} finally {
+					done.countDown();
+				}
+			}, "churn-" + w);
+			t.setDaemon(true);
+			t.start();
+		}
+
+		long reported = 0;
+		while (!done.await(200, TimeUnit.MILLISECONDS) || reports.availablePermits() > 0) {
+			if (!reports.tryAcquire())
+				continue;
+			reported += report;
+			long now = System.nanoTime();
+			printRow(reported, report / ((now - lastAt[0]) / 1e9));
+			lastAt[0] = now;
+		}
+
+		// 서버 쪽 onClose 가 다 돌 때까지
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (gauge("ws_sessions_open{endpoint=\"room\"}") > 0 && System.nanoTime() < deadline)
+			Thread.sleep(50);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%ndone: %d opened, %d errors, %.1f s (%.0f open+close/s)%n", opened.sum(), errors.sum(),
+				elapsed, opened.sum() / elapsed);
+		printRow(closed.get(), 0);
+
+		server.stop();
+	}
+
+	// 열고, 첫 room_players (또는 error) 를 받으면 닫고, 닫힘 확인까지 기다린다
+	private void churnOnce(String cookie, String roomId) {
+		CompletableFuture<Void> first = new CompletableFuture<>();
+		CompletableFuture<Void> gone = new CompletableFuture<>();
+		WebSocket.Listener l = new WebSocket.Listener() {
+			@Override
+			public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+				first.complete(null);
+				ws.request(1);
+				return null;
+			}
+
+			@Override
+			public CompletionStage<?> onClose(WebSocket ws, int status, String reason) {
+				first.complete(null);
+				gone.complete(null);
+				return null;
+			}
+
+			@Override
+			public void onError(WebSocket ws, Throwable e) {
+				first.complete(null);
+				gone.complete(null);
+			}
+		};
+		try {
+			WebSocket ws = client.newWebSocketBuilder().header("Cookie", cookie).connectTimeout(timeout)
+					.buildAsync(URI.create("ws://" + base.getAuthority() + "/ws/room?roomId=" + roomId), l)
+					.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			opened.increment();
+			first.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			ws.sendClose(WebSocket.NORMAL_CLOSURE, "").get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			gone.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (Exception e) {
+			errors.increment();
+		}
+	}
+
+	private void printRow(long opens, double rate) {
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		System.out.printf("%8d %8d %10.0f %12.0f %12.0f %10.0f %9d%n", opens, errors.sum(), rate, gauge("ws_rooms_open"),
+				gauge("ws_sessions_open{endpoint=\"room\"}"), gauge("ws_room_auto_leave_pending"),
+				(rt.totalMemory() - rt.freeMemory()) >> 20);
+	}
+
+	// 같은 프로세스의 지표를 /metrics 텍스트로 써서 한 줄 찾는다
+	private static double gauge(String name) {
+		StringWriter w = new StringWriter();
+		try {
+			Metrics.write(w);
+		} catch (Exception e) {
+			return Double.NaN;
+		}
+		for (String line : w.toString().split("\n")) {
+			if (line.startsWith(name + " "))
+				return Double.parseDouble(line.substring(name.length() + 1).trim());
+		}
+		return Double.NaN;
+	}
+
+	private String login(int index) throws Exception {
+		String form = "email=" + URLEncoder.encode(Seed.email(index), StandardCharsets.UTF_8) + "&password="
+				+ URLEncoder.encode(Seed.PASSWORD, StandardCharsets.UTF_8);
+		HttpResponse<Void> r = client.send(HttpRequest.newBuilder(base.resolve("/login")).timeout(timeout)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.discarding());
+		for (String c : r.headers().allValues("Set-Cookie")) {
+			if (c.startsWith("JSESSIONID="))
+				return c.substring(0, c.indexOf(';') < 0 ? c.length() : c.indexOf(';'));
+		}
+		throw new IllegalStateException("login failed: " + r.statusCode());
+	}
+
+	private int intOpt(String name, int def) {
+		return Integer.parseInt(opts.getOrDefault(name, Integer.toString(def)));
+	}
+}
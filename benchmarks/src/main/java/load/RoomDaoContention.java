@@ -0,0 +1,240 @@
+package load;
+
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+
+import dao.RoomDao;
+import dao.RoomStore.LeaveResult;
+import dao.UsersDao;
+import metrics.Metrics;
+import model.RoomDto;
+import model.UserSession;
+import util.PasswordHash;
+
+/**
+ * 실제 Oracle 에 RoomDao 의 입장(enterRoomAutoColor) / 퇴장(leaveRoomWithHostTransfer) PL/SQL 블록을 동시에 돌려
+ * 같은 방에 몰릴 때의 처리량과 지연을 잰다 (SeatGate, 웹소켓 없이 DAO 만)
+ *
+ * 방 rooms 개를 만들고 (만든 사람은 끝까지 남아 방이 지워지지 않는다) 스레드 threads 개가 각자 자기 사용자로
+ * 아무 방에나 들어갔다 나오기를 seconds 초 동안 반복한다. 방이 적을수록, 정원(seats)이 작을수록 ROOM 행 락을 두고 다툰다.
+ * 끝나면 입장/퇴장 지연, 결과별 건수, db_* 지표 (커넥션 대기, SQL 시간) 를 찍고 만든 방을 지운다.
+ * 사용자는 bench-contention{i}@omok.local 로 처음 한 번 가입해 두고 다음 실행에 다시 쓴다.
+ *
+ * Db 가 찾는 JNDI jdbc/oracle 대신 DriverManager 커넥션을 threads 개 모아 둔 풀을 쓴다. 드라이버는 클래스패스에 직접:
+ *
+ * java -Dbench.jdbcUrl=jdbc:oracle:thin:@//localhost:1521/XEPDB1 -Dbench.jdbcUser=omok -Dbench.jdbcPassword=... \
+ *     -cp target/benchmarks.jar:ojdbc11.jar load.RoomDaoContention --threads=32 --rooms=4 --seats=8 --seconds=30
+ *
+ * 옵션: threads(32) rooms(4) seats(8, 방 정원 TOTAL_USER_CNT) seconds(30)
+ */
+public class RoomDaoContention {
+
+	private static final String ROOM_FULL = "ROOM_FULL";
+
+	private final Map<String, String> opts;
+	private final LatencyHistogram enter = new LatencyHistogram();
+	private final LatencyHistogram leave = new LatencyHistogram();
+	private final Map<String, LongAdder> outcomes = new ConcurrentSkipListMap<>();
+
+	private RoomDaoContention(Map<String, String> opts) {
+		this.opts = opts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> opts = new HashMap<>();
+		for (String a : args) {
+			if (!a.startsWith("--") || a.indexOf('=') < 0)
+				throw new IllegalArgumentException("--name=value: " + a);
+			opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+		}
+		new RoomDaoContention(opts).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		int threads = intOpt("threads", 32);
+		int roomCnt = intOpt("rooms", 4);
+		int seats = intOpt("seats", 8);
+		int seconds = intOpt("seconds", 30);
+
+		Pool.install(threads + 2);
+		RoomDao rooms = new RoomDao();
+		List<UUID> users = users(new UsersDao(), roomCnt + threads);
+
+		List<UUID> roomIds = new ArrayList<>();
+		for (int i = 0; i < roomCnt; i++) {
+			RoomDto r = rooms.createRoomAndEnter(users.get(i), "contention " + i, 1, 0, seats, null, 1);
+			roomIds.add(r.getId());
+		}
+		System.out.printf("%s, %d threads, %d rooms x %d seats, %d s%n", System.getProperty("bench.jdbcUrl"), threads,
+				roomCnt, seats, seconds);
+
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			UUID me = users.get(roomCnt + t);
+			pool.execute(() -> {
+				ThreadLocalRandom rnd = ThreadLocalRandom.current();
+				while (System.nanoTime() < end) {
+					UUID roomId = roomIds.get(rnd.nextInt(roomIds.size()));
+					long t0 = System.nanoTime();
+					try {
+						rooms.enterRoomAutoColor(roomId, me);
+						enter.record((System.nanoTime() - t0) / 1000);
+						count("enter_ok");
+					} catch (Exception e) {
+						count(ROOM_FULL.equals(e.getMessage()) ? "enter_room_full" : "enter_error " + e);
+						continue;
+					}
+					long t1 = System.nanoTime();
+					try {
+						LeaveResult r = rooms.leaveRoomWithHostTransfer(roomId, me);
+						leave.record((System.nanoTime() - t1) / 1000);
+						count("leave_" + r.type.name().toLowerCase());
+					} catch (Exception e) {
+						count("leave_error " + e);
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+
+		System.out.printf("%n%-8s %9s %8s %8s %8s %8s %8s%n", "op", "count", "ops/s", "p50", "p99", "p99.9",
+				"max (ms)");
+		print("enter", enter, seconds);
+		print("leave", leave, seconds);
+		System.out.println();
+		outcomes.forEach((k, v) -> System.out.printf("%-24s %d%n", k, v.sum()));
+		System.out.println();
+		printDbMetrics();
+
+		for (UUID id : roomIds)
+			rooms.deleteRoom(id);
+	}
+
+	// 없으면 가입하고 로그인해서 USER_ID 를 받는다
+	private static List<UUID> users(UsersDao dao, int n) throws Exception {
+		String pwd = "bench";
+		String hash = PasswordHash.sha256(pwd);
+		List<UUID> ids = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			String email = "bench-contention" + i + "@omok.local";
+			Optional<UserSession> u = dao.login(email, hash);
+			if (u.isEmpty()) {
+				dao.signUp(email, pwd, "contention" + i);
+				u = dao.login(email, hash);
+			}
+			ids.add(u.orElseThrow().getId());
+		}
+		return ids;
+	}
+
+	private void count(String outcome) {
+		outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+	}
+
+	private static void print(String name, LatencyHistogram h, int seconds) {
+		System.out.printf("%-8s %9d %8.0f %8s %8s %8s %8s%n", name, h.count(), (double) h.count() / seconds,
+				ms(h.percentile(0.5)), ms(h.percentile(0.99)), ms(h.percentile(0.999)), ms(h.max()));
+	}
+
+	// db_* 중 카운터와 히스토그램 합/개수만
+	private static void printDbMetrics() throws Exception {
+		StringWriter w = new StringWriter();
+		Metrics.write(w);
+		for (String line : w.toString().split("\n")) {
+			if (line.startsWith("db_") && !line.contains("_bucket"))
+				System.out.println(line);
+		}
+	}
+
+	private static String ms(long micros) {
+		return String.format("%.2f", micros / 1000.0);
+	}
+
+	private int intOpt(String name, int def) {
+		return Integer.parseInt(opts.getOrDefault(name, Integer.toString(def)));
+	}
+
+	/**
+	 * -Dbench.jdbcUrl / jdbcUser / jdbcPassword 로 연 커넥션 size 개. close 하면 풀로 돌아간다.
+	 * Db 의 new InitialContext().lookup("java:/comp/env/jdbc/oracle") 가 이 DataSource 를 받도록 JNDI 팩토리로 건다.
+	 */
+	public static final class Pool implements InitialContextFactory {
+
+		private static DataSource ds;
+
+		static void install(int size) throws Exception {
+			String url = System.getProperty("bench.jdbcUrl");
+			if (url == null)
+				throw new IllegalArgumentException("-Dbench.jdbcUrl=jdbc:oracle:thin:@//host:1521/service");
+			BlockingQueue<Connection> idle = new ArrayBlockingQueue<>(size);
+			for (int i = 0; i < size; i++) {
+				idle.add(DriverManager.getConnection(url, System.getProperty("bench.jdbcUser"),
+						System.getProperty("bench.jdbcPassword")));
+			}
+			ds = (DataSource) Proxy.newProxyInstance(Pool.class.getClassLoader(), new Class<?>[] { DataSource.class },
+					(p, m, a) -> {
+						if (!m.getName().equals("getConnection"))
+							throw new UnsupportedOperationException(m.getName());
+						return lease(idle.take(), idle);
+					});
+			System.setProperty(Context.INITIAL_CONTEXT_FACTORY, Pool.class.getName());
+		}
+
+		// close 만 가로채 풀에 돌려준다 (autocommit 은 다음 사용자를 위해 켜 둔다)
+		private static Connection lease(Connection c, BlockingQueue<Connection> idle) {
+			boolean[] closed = { false };
+			return (Connection) Proxy.newProxyInstance(Pool.class.getClassLoader(), new Class<?>[] { Connection.class },
+					(p, m, a) -> {
+						switch (m.getName()) {
+						case "close":
+							if (!closed[0]) {
+								closed[0] = true;
+								if (!c.getAutoCommit()) {
+									c.rollback();
+									c.setAutoCommit(true);
+								}
+								idle.add(c);
+							}
+							return null;
+						case "isClosed":
+							return closed[0];
+						default:
+							if (closed[0])
+								throw new java.sql.SQLException("closed");
+							try {
+								return m.invoke(c, a);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						}
+					});
+		}
+
+		@Override
+		public Context getInitialContext(Hashtable<?, ?> env) throws NamingException {
+			return (Context) Proxy.newProxyInstance(Pool.class.getClassLoader(), new Class<?>[] { Context.class },
+					(p, m, a) -> {
+						if (m.getName().equals("lookup") && "java:/comp/env/jdbc/oracle".equals(String.valueOf(a[0])))
+							return ds;
+						if (m.getName().equals("close"))
+							return null;
+						throw new OperationNotSupportedException(m.getName());
+					});
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package load;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 부하 발생기가 만든, 아직 살아 있는 방 (enter_room 대상 고르기용)
+ *
+ * create_room_ok 에서 넣고 로비의 room_removed 에서 뺀다.
+ * room_removed 는 handle 만 주므로 room_upsert 로 본 handle -> roomId 를 같이 들고 있는다.
+ */
+final class RoomPool {
+
+	private final List<UUID> rooms = new ArrayList<>();
+	private final Map<UUID, Integer> index = new HashMap<>();
+	private final Map<Integer, UUID> handles = new HashMap<>();
+
+	synchronized void add(UUID roomId) {
+		if (index.putIfAbsent(roomId, rooms.size()) == null)
+			rooms.add(roomId);
+	}
+
+	synchronized void remove(UUID roomId) {
+		Integer i = index.remove(roomId);
+		if (i == null)
+			return;
+		UUID last = rooms.remove(rooms.size() - 1);
+		if (i < rooms.size()) {
+			rooms.set(i, last);
+			index.put(last, i);
+		}
+	}
+
+	synchronized void bind(int handle, UUID roomId) {
+		handles.put(handle, roomId);
+	}
+
+	synchronized void removeHandle(int handle) {
+		UUID roomId = handles.remove(handle);
+		if (roomId != null)
+			remove(roomId);
+	}
+
+	synchronized UUID random() {
+		return rooms.isEmpty() ? null : rooms.get(ThreadLocalRandom.current().nextInt(rooms.size()));
+	}
+
+	synchronized int size() {
+		return rooms.size();
+	}
+}
@@ -0,0 +1,38 @@
+package load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 부하 발생기 전체 집계 (가상 사용자들이 같이 올린다)
+ */
+final class Stats {
+
+	final LongAdder sent = new LongAdder();
+	final LongAdder received = new LongAdder();
+	final LongAdder receivedChars = new LongAdder();
+	final LongAdder errors = new LongAdder();
+	final LongAdder timeouts = new LongAdder();
+	final LongAdder resyncRequired = new LongAdder();
+	final LongAdder connectFailures = new LongAdder();
+	final LongAdder closedByServer = new LongAdder();
+
+	// create_room 보낸 시점 → 다른 로비 클라이언트가 room_upsert 를 받은 시점
+	final LatencyHistogram fanout = new LatencyHistogram();
+	// 요청 → 자기 응답
+	final LatencyHistogram createOk = new LatencyHistogram();
+	final LatencyHistogram enterOk = new LatencyHistogram();
+	final LatencyHistogram leaveOk = new LatencyHistogram();
+	final LatencyHistogram refresh = new LatencyHistogram();
+
+	Map<String, LatencyHistogram> histograms() {
+		Map<String, LatencyHistogram> m = new LinkedHashMap<>();
+		m.put("fanout_create_to_upsert", fanout);
+		m.put("create_room_ok", createOk);
+		m.put("enter_ok", enterOk);
+		m.put("leave_ok", leaveOk);
+		m.put("refresh_room_list", refresh);
+		return m;
+	}
+}
@@ -0,0 +1,320 @@
+package load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 가상 사용자 하나: 로비 소켓 1개 + 방에 들어가 있는 동안 방 소켓 1개
+ *
+ * 한 번에 요청 하나만 보내고 응답(또는 error)을 받아야 다음 요청을 보낸다.
+ * 방 밖: create / enter / refresh, 방 안: leave / refresh 중에서 가중치대로 고른다.
+ */
+final class VirtualUser {
+
+	enum Op {
+		CREATE, ENTER, LEAVE, REFRESH
+	}
+
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private final LoadGen gen;
+	private final int index;
+	private final UUID userId;
+	private final String cookie;
+
+	private volatile WebSocket lobby;
+
+	// 아래는 모두 this 로 보호
+	private WebSocket room;
+	private UUID currentRoom;
+	private Op pending;
+	private long pendingAt;
+
+	VirtualUser(LoadGen gen, int index, UUID userId, String cookie) {
+		this.gen = gen;
+		this.index = index;
+		this.userId = userId;
+		this.cookie = cookie;
+	}
+
+	UUID userId() {
+		return userId;
+	}
+
+	CompletableFuture<WebSocket> connect(HttpClient client) {
+		return client.newWebSocketBuilder().header("Cookie", cookie).connectTimeout(gen.timeout())
+				.buildAsync(gen.uri("/ws/lobby"), new Listener(true)).thenApply(ws -> lobby = ws);
+	}
+
+	/**
+	 * 스케줄러가 주기적으로 호출
+	 */
+	void tick() {
+		if (lobby == null || lobby.isOutputClosed())
+			return;
+
+		String msg;
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (pending != null) {
+				if (now - pendingAt < gen.timeout().toNanos())
+					return;
+				gen.stats().timeouts.increment();
+				pending = null;
+			}
+
+			Op op = gen.mix().pick(currentRoom != null);
+			msg = request(op);
+			if (msg == null)
+				return;
+			pending = op;
+			pendingAt = System.nanoTime();
+		}
+		send(lobby, msg);
+	}
+
+	// 반드시 synchronized 안에서
+	private String request(Op op) {
+		switch (op) {
+		case CREATE:
+			// 받는 쪽이 지연을 잴 수 있게 보낸 시각과 만든 사람을 방 이름에 싣는다
+			return json(Map.of("type", "create_room", "roomName", "load-" + System.nanoTime() + "-" + index,
+					"isPublic", 1, "playType", 0, "totalUserCnt", gen.roomSize()));
+		case ENTER: {
+			UUID target = gen.rooms().random();
+			if (target == null)
+				return request(Op.CREATE);
+			currentRoom = target; // enter_ok 전까지는 후보
+			return json(Map.of("type", "enter_room", "roomId", target.toString()));
+		}
+		case LEAVE:
+			return json(Map.of("type", "leave_room", "roomId", currentRoom.toString()));
+		default:
+			return json(Map.of("type", "refresh", "pageSize", 50));
+		}
+	}
+
+	private void onLobbyMessage(String msg) {
+		long now = System.nanoTime();
+
+		if (msg.contains("\"room_upsert\"") || msg.contains("\"room_removed\"")) {
+			onDeltas(msg, now);
+			return;
+		}
+		if (msg.contains("\"resync_required\"")) {
+			gen.stats().resyncRequired.increment();
+			return;
+		}
+
+		Op op;
+		long at;
+		synchronized (this) {
+			op = pending;
+			at = pendingAt;
+			if (op == null)
+				return;
+		}
+
+		if (msg.contains("\"type\":\"error\"")) {
+			gen.stats().errors.increment();
+			synchronized (this) {
+				if (op == Op.ENTER)
+					currentRoom = null;
+				pending = null;
+			}
+			return;
+		}
+
+		long micros = (now - at) / 1000;
+		switch (op) {
+		case CREATE:
+			if (msg.contains("\"create_room_ok\"")) {
+				gen.stats().createOk.record(micros);
+				UUID roomId = roomIdOf(msg);
+				gen.rooms().add(roomId);
+				enteredRoom(roomId);
+			}
+			break;
+		case ENTER:
+			if (msg.contains("\"enter_ok\"")) {
+				gen.stats().enterOk.record(micros);
+				enteredRoom(roomIdOf(msg));
+			}
+			break;
+		case LEAVE:
+			if (msg.contains("\"leave_ok\"")) {
+				gen.stats().leaveOk.record(micros);
+				leftRoom();
+			}
+			break;
+		default:
+			if (msg.contains("\"room_list\"")) {
+				gen.stats().refresh.record(micros);
+				synchronized (this) {
+					pending = null;
+				}
+			}
+		}
+	}
+
+	private void onDeltas(String msg, long now) {
+		JsonNode root;
+		try {
+			root = om.readTree(msg);
+		} catch (Exception e) {
+			return;
+		}
+		JsonNode events = "batch".equals(root.path("type").asText()) ? root.path("events") : null;
+		if (events == null) {
+			onDelta(root, now);
+		} else {
+			for (JsonNode ev : events)
+				onDelta(ev, now);
+		}
+	}
+
+	private void onDelta(JsonNode ev, long now) {
+		String type = ev.path("type").asText();
+		if ("room_removed".equals(type)) {
+			gen.rooms().removeHandle(ev.path("handle").asInt());
+			return;
+		}
+		if (!"room_upsert".equals(type))
+			return;
+
+		JsonNode r = ev.path("room");
+		gen.rooms().bind(r.path("handle").asInt(), UUID.fromString(r.path("id").asText()));
+
+		// 생성 직후의 upsert 만: 만든 사람이 아직 호스트이고 혼자 있는 상태
+		String name = r.path("roomName").asText();
+		if (!name.startsWith("load-") || r.path("currentUserCnt").asInt() != 1)
+			return;
+		int dash = name.lastIndexOf('-');
+		long sentAt = Long.parseLong(name.substring(5, dash));
+		int creator = Integer.parseInt(name.substring(dash + 1));
+		if (creator == index || !gen.userId(creator).toString().equals(r.path("hostUserId").asText()))
+			return;
+
+		gen.stats().fanout.record((now - sentAt) / 1000);
+	}
+
+	private void enteredRoom(UUID roomId) {
+		synchronized (this) {
+			currentRoom = roomId;
+			pending = null;
+		}
+		gen.client(index).newWebSocketBuilder().header("Cookie", cookie).connectTimeout(gen.timeout())
+				.buildAsync(gen.uri("/ws/room?roomId=" + roomId), new Listener(false)).whenComplete((ws, e) -> {
+					if (e != null) {
+						gen.stats().connectFailures.increment();
+						return;
+					}
+					boolean stale;
+					synchronized (this) {
+						stale = !roomId.equals(currentRoom);
+						if (!stale)
+							room = ws;
+					}
+					if (stale)
+						close(ws);
+				});
+	}
+
+	private void leftRoom() {
+		WebSocket ws;
+		synchronized (this) {
+			ws = room;
+			room = null;
+			currentRoom = null;
+			pending = null;
+		}
+		close(ws);
+	}
+
+	void close() {
+		WebSocket ws;
+		synchronized (this) {
+			ws = room;
+			room = null;
+		}
+		close(ws);
+		close(lobby);
+	}
+
+	private static void close(WebSocket ws) {
+		if (ws != null && !ws.isOutputClosed())
+			ws.sendClose(WebSocket.NORMAL_CLOSURE, "").orTimeout(5, TimeUnit.SECONDS).exceptionally(e -> null);
+	}
+
+	private void send(WebSocket ws, String msg) {
+		gen.stats().sent.increment();
+		ws.sendText(msg, true).exceptionally(e -> {
+			gen.stats().errors.increment();
+			return null;
+		});
+	}
+
+	private static UUID roomIdOf(String msg) {
+		try {
+			return UUID.fromString(om.readTree(msg).path("roomId").asText());
+		} catch (Exception e) {
+			throw new IllegalStateException(msg, e);
+		}
+	}
+
+	private static String json(Map<String, Object> m) {
+		try {
+			return om.writeValueAsString(m);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 조각난 텍스트 프레임을 모아서 한 메시지로 처리
+	 */
+	private final class Listener implements WebSocket.Listener {
+		private final boolean isLobby;
+		private final StringBuilder buf = new StringBuilder();
+
+		Listener(boolean isLobby) {
+			this.isLobby = isLobby;
+		}
+
+		@Override
+		public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+			buf.append(data);
+			if (last) {
+				String msg = buf.toString();
+				buf.setLength(0);
+				gen.stats().received.increment();
+				gen.stats().receivedChars.add(msg.length());
+				if (isLobby)
+					onLobbyMessage(msg);
+			}
+			ws.request(1);
+			return null;
+		}
+
+		@Override
+		public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+			if (statusCode != WebSocket.NORMAL_CLOSURE)
+				gen.stats().closedByServer.increment();
+			return null;
+		}
+
+		@Override
+		public void onError(WebSocket ws, Throwable error) {
+			gen.stats().errors.increment();
+		}
+	}
+}
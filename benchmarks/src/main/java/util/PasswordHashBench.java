@@ -0,0 +1,22 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashBench {
+
+	@Param({ "1234", "correct horse battery staple" })
+	public String plain;
+
+	@Benchmark
+	public String sha256() {
+		return PasswordHash.sha256(plain);
+	}
+}
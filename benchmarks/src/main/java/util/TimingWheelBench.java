@@ -0,0 +1,62 @@
+package util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 끊긴 방 소켓마다 거는 자동 퇴장 타이머: 대기 중인 타이머가 pending 개 있을 때 하나 걸고 바로 취소 (재접속)
+ *
+ * ScheduledThreadPoolExecutor 는 힙 기반 큐라 O(log n) + Future 할당, TimingWheel 은 O(1) + Timeout 하나.
+ * -prof gc 로 B/op 비교.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimingWheelBench {
+
+	private static final long GRACE_MILLIS = 600_000; // 측정 중에 만료되지 않게
+
+	@Param({ "1000", "100000" })
+	public int pending;
+
+	private TimingWheel wheel;
+	private ScheduledThreadPoolExecutor stpe;
+	private final Runnable task = () -> {
+	};
+
+	@Setup
+	public void setup() {
+		wheel = new TimingWheel("bench-wheel", 100, 512);
+		stpe = new ScheduledThreadPoolExecutor(1);
+		stpe.setRemoveOnCancelPolicy(true);
+		for (int i = 0; i < pending; i++) {
+			// 만료 시각을 흩어서 버킷/힙에 고루
+			long delay = GRACE_MILLIS + (i % 60_000);
+			wheel.schedule(delay, task);
+			stpe.schedule(task, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		wheel.stop();
+		stpe.shutdownNow();
+	}
+
+	@Benchmark
+	public boolean wheelScheduleCancel() {
+		return wheel.schedule(GRACE_MILLIS, task).cancel();
+	}
+
+	@Benchmark
+	public boolean executorScheduleCancel() {
+		ScheduledFuture<?> f = stpe.schedule(task, GRACE_MILLIS, TimeUnit.MILLISECONDS);
+		return f.cancel(false);
+	}
+}
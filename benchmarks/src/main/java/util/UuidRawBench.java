@@ -0,0 +1,34 @@
+package util;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidRawBench {
+
+	private UUID uuid;
+	private byte[] raw;
+
+	@Setup
+	public void setup() {
+		uuid = UUID.randomUUID();
+		raw = UuidRaw.uuidToRaw(uuid);
+	}
+
+	@Benchmark
+	public byte[] uuidToRaw() {
+		return UuidRaw.uuidToRaw(uuid);
+	}
+
+	@Benchmark
+	public UUID rawToUuid() {
+		return UuidRaw.rawToUuid(raw);
+	}
+}
@@ -0,0 +1,95 @@
+package websocket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import model.RoomDto;
+import util.HandleTable;
+
+/**
+ * room_list(50개) 인코딩/디코딩: JSON vs omok-bin
+ *
+ * 프레임 크기는 main 으로 출력: java -cp target/benchmarks.jar websocket.CodecBench
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBench {
+
+	private final ObjectMapper om = new ObjectMapper();
+
+	private Map<String, Object> roomList;
+	private String json;
+	private byte[] binary;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		roomList = roomList(50);
+		json = om.writeValueAsString(roomList);
+		binary = BinaryCodec.encode(roomList);
+	}
+
+	@Benchmark
+	public String encodeJson() throws Exception {
+		return om.writeValueAsString(roomList);
+	}
+
+	@Benchmark
+	public byte[] encodeBinary() {
+		return BinaryCodec.encode(roomList);
+	}
+
+	@Benchmark
+	public Object decodeJson() throws Exception {
+		return om.readValue(json, Map.class);
+	}
+
+	@Benchmark
+	public Object decodeBinary() throws Exception {
+		return BinaryCodec.decode(ByteBuffer.wrap(binary));
+	}
+
+	static Map<String, Object> roomList(int n) {
+		long now = System.currentTimeMillis() / 1000 * 1000;
+		List<RoomDto> rooms = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			UUID id = UUID.randomUUID();
+			rooms.add(RoomDto.builder().id(id).handle(HandleTable.ROOMS.handleOf(id)).hostUserId(UUID.randomUUID()).roomName("오목 방 " + i)
+					.isPublic(1).playType(i % 2).totalUserCnt(2).currentUserCnt(1).createdAt(now - i * 1000L).build());
+		}
+		return Map.of("type", "room_list", "version", 12345L, "rooms", rooms, "nextCursor",
+				rooms.get(n - 1).getCreatedAt() + "_" + rooms.get(n - 1).getId());
+	}
+
+	public static void main(String[] args) throws Exception {
+		ObjectMapper om = new ObjectMapper();
+		RoomDto room = (RoomDto) ((List<?>) roomList(1).get("rooms")).get(0);
+		int handle = room.getHandle();
+
+		Map<String, Map<String, Object>> samples = new LinkedHashMap<>();
+		samples.put("room_list(50)", roomList(50));
+		samples.put("room_upsert", Map.of("type", "room_upsert", "seq", 100000L, "handle", handle, "room", room));
+		samples.put("room_counts", Map.of("type", "room_counts", "seq", 100000L, "handle", handle,
+				"currentUserCnt", 1, "totalUserCnt", 2));
+		samples.put("room_removed", Map.of("type", "room_removed", "seq", 100000L, "handle", handle));
+		samples.put("refresh", Map.of("type", "refresh", "pageSize", 50));
+
+		System.out.printf("%-16s %8s %8s%n", "frame", "json", "omok-bin");
+		for (Map.Entry<String, Map<String, Object>> e : samples.entrySet()) {
+			System.out.printf("%-16s %8d %8d%n", e.getKey(), om.writeValueAsBytes(e.getValue()).length,
+					BinaryCodec.encode(e.getValue()).length);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package websocket;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import util.HandleTable;
+
+/**
+ * 들어오는 명령 한 건 디코딩: 예전 Map 경로 vs Command (JSON 스트리밍 / omok-bin)
+ *
+ * 메시지당 할당량은 -prof gc 의 gc.alloc.rate.norm (B/op) 으로 본다:
+ * java -jar target/benchmarks.jar CommandDecodeBench -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDecodeBench {
+
+	@Param({ "refresh", "create_room", "enter_room" })
+	public String command;
+
+	private final ObjectMapper om = new ObjectMapper();
+
+	private String json;
+	private byte[] binary;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Map<String, Object> m;
+		switch (command) {
+		case "refresh":
+			m = Map.of("type", "refresh", "pageSize", 50, "playType", 1, "hasFreeSeats", true);
+			break;
+		case "create_room":
+			m = Map.of("type", "create_room", "roomName", "오목 한 판", "isPublic", 0, "playType", 1, "totalUserCnt",
+					2, "roomPwd", "1234");
+			break;
+		default:
+			m = Map.of("type", "enter_room", "handle", HandleTable.ROOMS.handleOf(UUID.randomUUID()), "roomPwd",
+					"1234");
+		}
+		json = om.writeValueAsString(m);
+		binary = BinaryCodec.encode(m);
+	}
+
+	@Benchmark
+	public Object mapJson() throws Exception {
+		return om.readValue(json, Map.class);
+	}
+
+	@Benchmark
+	public Object mapBinary() throws Exception {
+		return BinaryCodec.decode(ByteBuffer.wrap(binary));
+	}
+
+	@Benchmark
+	public Command typedJson() throws Exception {
+		return CommandDecoder.decode(json);
+	}
+
+	@Benchmark
+	public Command typedBinary() throws Exception {
+		return BinaryCodec.decodeCommand(ByteBuffer.wrap(binary));
+	}
+}
@@ -0,0 +1,85 @@
+package websocket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.Session;
+
+import org.openjdk.jmh.annotations.*;
+
+import bench.Stubs;
+import model.RoomDto;
+import util.HandleTable;
+
+/**
+ * BroadcastScheduler 한 tick 의 fan-out: 이벤트 1건 → Frame 1개 인코딩 → 세션 N 개의 OutboundQueue
+ *
+ * tick 타이머는 멈춰 두고 flush() 를 직접 부른다. 가짜 Session 은 전송을 바로 완료시키므로
+ * 큐 적재 없이 매번 실제 send 경로를 탄다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dws.broadcast.tickMillis=3600000")
+public class FanoutBench {
+
+	@Param({ "1000", "10000", "100000" })
+	public int sessions;
+
+	@Param({ "json", "binary" })
+	public String wire;
+
+	private final UUID roomId = UUID.randomUUID();
+	private final int handle = HandleTable.ROOMS.handleOf(roomId);
+	private final UUID hostId = UUID.randomUUID();
+
+	private List<Session> list;
+	private BroadcastScheduler scheduler;
+	private long seq;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		OutboundQueue.Endpoint endpoint = new OutboundQueue.Endpoint("bench", null);
+		String subprotocol = "binary".equals(wire) ? BinaryCodec.SUBPROTOCOL : "";
+
+		list = new ArrayList<>(sessions);
+		for (int i = 0; i < sessions; i++) {
+			Session s = Stubs.session(subprotocol, null);
+			OutboundQueue.attach(s, endpoint);
+			list.add(s);
+		}
+		scheduler = new BroadcastScheduler("bench", topic -> list, (prev, next) -> next, false, true);
+	}
+
+	@Benchmark
+	public void roomCounts() {
+		Map<String, Object> m = new HashMap<>();
+		m.put("type", "room_counts");
+		m.put("seq", ++seq);
+		m.put("handle", handle);
+		m.put("currentUserCnt", (int) (seq & 3));
+		m.put("totalUserCnt", 4);
+
+		scheduler.submit("lobby", "room:" + handle, m);
+		scheduler.flush();
+	}
+
+	@Benchmark
+	public void roomUpsert() {
+		Map<String, Object> m = new HashMap<>();
+		m.put("type", "room_upsert");
+		m.put("seq", ++seq);
+		m.put("handle", handle);
+		m.put("room", RoomDto.builder().id(roomId).handle(handle).hostUserId(hostId).roomName("오목 한 판").isPublic(1).playType(1)
+				.totalUserCnt(4).currentUserCnt((int) (seq & 3)).createdAt(seq * 1000).build());
+
+		scheduler.submit("lobby", "room:" + handle, m);
+		scheduler.flush();
+	}
+}
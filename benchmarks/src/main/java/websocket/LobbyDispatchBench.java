@@ -0,0 +1,88 @@
+package websocket;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.Session;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bench.Seed;
+import bench.Stubs;
+import model.UserSession;
+
+/**
+ * LobbySocket.onMessage / onBinary 한 번의 비용 (파싱 + 디스패치 + 응답 인코딩 + 큐 offer)
+ *
+ * parse*: Jackson Map 파싱만, dispatch*: 소켓 전체 경로
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dws.broadcast.tickMillis=3600000")
+public class LobbyDispatchBench {
+
+	private static final String REFRESH = "{\"type\":\"refresh\",\"pageSize\":50}";
+	private static final String CREATE_ROOM = "{\"type\":\"create_room\",\"roomName\":\"오목 한 판\",\"isPublic\":0,"
+			+ "\"playType\":1,\"totalUserCnt\":2,\"roomPwd\":\"1234\"}";
+	private static final String UNKNOWN = "{\"type\":\"ping\"}";
+
+	@Param({ "100", "10000" })
+	public int rooms;
+
+	private final ObjectMapper om = new ObjectMapper();
+
+	private LobbySocket socket;
+	private Session jsonSession;
+	private Session binarySession;
+	private byte[] refreshBinary;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		UserSession user = Seed.memory(16, rooms).get(0);
+
+		socket = new LobbySocket();
+		jsonSession = Stubs.session("", user);
+		binarySession = Stubs.session(BinaryCodec.SUBPROTOCOL, user);
+		socket.onOpen(jsonSession);
+		socket.onOpen(binarySession);
+
+		refreshBinary = BinaryCodec.encode(Map.of("type", "refresh", "pageSize", 50));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		socket.onClose(jsonSession);
+		socket.onClose(binarySession);
+	}
+
+	@Benchmark
+	public Object parseRefresh() throws Exception {
+		return om.readValue(REFRESH, Map.class);
+	}
+
+	@Benchmark
+	public Object parseCreateRoom() throws Exception {
+		return om.readValue(CREATE_ROOM, Map.class);
+	}
+
+	@Benchmark
+	public void dispatchRefresh() {
+		socket.onMessage(jsonSession, REFRESH);
+	}
+
+	@Benchmark
+	public void dispatchRefreshBinary() {
+		socket.onBinary(binarySession, ByteBuffer.wrap(refreshBinary));
+	}
+
+	@Benchmark
+	public void dispatchUnknownType() {
+		socket.onMessage(jsonSession, UNKNOWN);
+	}
+}
@@ -0,0 +1,57 @@
+package bus;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 프로세스 전역 버스 선택 (-Dbus.kind=local|tcp, 기본 local)
+ *
+ * tcp 면 -Dbus.listen=[host:]port 로 받고 -Dbus.peers=host:port,host:port 의 다른 노드들로 보낸다.
+ * -Dbus.node 는 노드 이름 (기본 호스트이름:listen 포트), 노드마다 달라야 한다.
+ */
+public final class Bus {
+
+	private static final EventBus bus = create();
+
+	private Bus() {
+	}
+
+	public static EventBus get() {
+		return bus;
+	}
+
+	private static EventBus create() {
+		String kind = System.getProperty("bus.kind", "local");
+		if ("local".equalsIgnoreCase(kind))
+			return new LocalEventBus(System.getProperty("bus.node", "local"));
+		if (!"tcp".equalsIgnoreCase(kind))
+			throw new IllegalArgumentException("bus.kind: " + kind);
+
+		try {
+			InetSocketAddress listen = address(System.getProperty("bus.listen", "7700"), "0.0.0.0");
+			List<InetSocketAddress> peers = new ArrayList<>();
+			for (String p : System.getProperty("bus.peers", "").split(",")) {
+				if (!p.isBlank())
+					peers.add(address(p.trim(), null));
+			}
+			String node = System.getProperty("bus.node",
+					InetAddress.getLocalHost().getHostName() + ":" + listen.getPort());
+			return new TcpEventBus(node, listen, peers);
+		} catch (IOException e) {
+			throw new RuntimeException("bus start failed", e);
+		}
+	}
+
+	// "host:port" 또는 "port" (host 가 없으면 defaultHost)
+	static InetSocketAddress address(String s, String defaultHost) {
+		int i = s.lastIndexOf(':');
+		String host = i < 0 ? defaultHost : s.substring(0, i);
+		int port = Integer.parseInt(s.substring(i + 1));
+		if (host == null || host.isEmpty())
+			throw new IllegalArgumentException("bus address needs host:port: " + s);
+		return new InetSocketAddress(host, port);
+	}
+}
@@ -0,0 +1,51 @@
+package bus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * origin 노드가 보낸 이벤트. seq 는 origin 에서 이 노드로 오는 연결의 순번 (1 부터, 이 노드가 받은 순서)
+ *
+ * publishedAt = origin 의 System.currentTimeMillis() (노드 간 전달 시간 측정용)
+ */
+public record BusEvent(String origin, long seq, long publishedAt, String channel, String type,
+		Map<String, Object> body) {
+
+	public boolean isFrom(EventBus bus) {
+		return origin.equals(bus.nodeId());
+	}
+
+	public String string(String key) {
+		Object v = body.get(key);
+		return v == null ? null : v.toString();
+	}
+
+	public UUID uuid(String key) {
+		Object v = body.get(key);
+		return v == null ? null : v instanceof UUID u ? u : UUID.fromString(v.toString());
+	}
+
+	/**
+	 * UUID 목록 (없으면 빈 목록)
+	 */
+	public List<UUID> uuids(String key) {
+		Object v = body.get(key);
+		List<UUID> out = new ArrayList<>();
+		if (v instanceof Collection<?> c) {
+			for (Object o : c)
+				out.add(o instanceof UUID u ? u : UUID.fromString(o.toString()));
+		}
+		return out;
+	}
+
+	public int intValue(String key) {
+		return ((Number) body.get(key)).intValue();
+	}
+
+	public long longValue(String key) {
+		return ((Number) body.get(key)).longValue();
+	}
+}
@@ -0,0 +1,52 @@
+package bus;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 노드 사이에 퍼뜨릴 이벤트 버스
+ *
+ * publish 한 이벤트는 이 노드의 구독자에게는 그 자리에서(호출 스레드), 다른 노드에는 각 노드에 한 번씩 전달된다.
+ * 구독자는 보통 출처와 상관없이 같은 코드로 적용한다 (방/로비 브로드캐스트). 이미 적용한 뒤에 publish 하는 쪽은
+ * (RoomRegistry) 자기 노드 이벤트를 BusEvent.isFrom 으로 건너뛴다.
+ * 한 노드가 publish 한 이벤트는 다른 노드에서도 publish 순서대로 적용된다.
+ *
+ * body 는 Jackson 으로 직렬화할 수 있는 값만 (String, 숫자, Boolean, UUID, List, Map, null).
+ * 다른 노드에서 온 이벤트의 UUID 는 문자열로 오므로 BusEvent.uuid 로 읽는다.
+ */
+public interface EventBus {
+
+	/**
+	 * 이 노드의 이름 (이벤트 출처)
+	 */
+	String nodeId();
+
+	void subscribe(String channel, Consumer<BusEvent> handler);
+
+	void publish(String channel, String type, Map<String, Object> body);
+
+	/**
+	 * 어떤 노드의 이벤트를 놓쳤을 때 (재전송 버퍼가 넘쳤거나 그 노드가 재시작함). 인자는 그 노드 이름.
+	 * 이벤트로 맞추던 상태는 저장소에서 다시 읽어야 한다.
+	 */
+	void onGap(Consumer<String> handler);
+
+	/**
+	 * 노드 하나에만 보낸다 (받는 쪽 구독자 호출은 publish 와 같다). 자기 이름이면 그 자리에서 전달.
+	 * 그 노드가 지금 nodes() 에 없으면 보내지 않고 false.
+	 */
+	boolean send(String node, String channel, String type, Map<String, Object> body);
+
+	/**
+	 * 지금 연결이 살아 있는 노드들 (자기 포함)
+	 */
+	Set<String> nodes();
+
+	/**
+	 * nodes() 가 바뀔 때마다 (피어가 붙거나 끊김). 버스 스레드에서 부르므로 오래 잡지 않는다.
+	 */
+	void onMembership(Runnable handler);
+
+	void close();
+}
@@ -0,0 +1,117 @@
+package bus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * 방 UUID -> 주인 노드 (일관 해싱, 바꾸지 않는 값)
+ *
+ * 노드마다 가상 노드 vnodes 개를 64비트 원 위에 흩어 놓고, 키의 해시에서 시계 방향으로 처음 만나는 점의 노드가 주인이다.
+ * 노드가 하나 들어오거나 나가면 그 노드의 점 앞 구간만 주인이 바뀐다 (N 개 중 하나가 빠지면 약 1/N 만 이동).
+ * 같은 노드 목록이면 어느 JVM 에서 만들어도 같은 결과여야 하므로 해시는 String.hashCode/랜덤 없이 직접 계산한다.
+ */
+public final class HashRing {
+
+	public static final int DEFAULT_VNODES = 128;
+
+	private final List<String> nodes;
+	private final long[] points; // 정렬됨
+	private final String[] owners; // points[i] 의 노드
+
+	private HashRing(List<String> nodes, long[] points, String[] owners) {
+		this.nodes = nodes;
+		this.points = points;
+		this.owners = owners;
+	}
+
+	public static HashRing of(Collection<String> nodes) {
+		return of(nodes, DEFAULT_VNODES);
+	}
+
+	public static HashRing of(Collection<String> nodes, int vnodes) {
+		if (nodes.isEmpty())
+			throw new IllegalArgumentException("empty ring");
+		if (vnodes < 1)
+			throw new IllegalArgumentException("vnodes: " + vnodes);
+		List<String> sorted = List.copyOf(new TreeSet<>(nodes));
+
+		int n = sorted.size() * vnodes;
+		long[] raw = new long[n];
+		int k = 0;
+		for (String node : sorted) {
+			long base = hash(node);
+			for (int i = 0; i < vnodes; i++)
+				raw[k++] = fmix64(base + i * 0x9E3779B97F4A7C15L);
+		}
+		// (점, 노드) 를 점 기준으로 정렬. 점이 겹치면 이름 순서가 앞선 노드
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> raw[a] != raw[b] ? Long.compare(raw[a], raw[b]) : Integer.compare(a, b));
+		long[] points = new long[n];
+		String[] owners = new String[n];
+		for (int i = 0; i < n; i++) {
+			points[i] = raw[order[i]];
+			owners[i] = sorted.get(order[i] / vnodes);
+		}
+		return new HashRing(sorted, points, owners);
+	}
+
+	public String ownerOf(UUID key) {
+		return ownerOf(hash(key));
+	}
+
+	String ownerOf(long h) {
+		int i = Arrays.binarySearch(points, h);
+		if (i < 0)
+			i = -i - 1;
+		else
+			while (i > 0 && points[i - 1] == h) // 같은 점이 여럿이면 첫 번째
+				i--;
+		return owners[i == points.length ? 0 : i];
+	}
+
+	/**
+	 * 이름 순서
+	 */
+	public List<String> nodes() {
+		return nodes;
+	}
+
+	public boolean contains(String node) {
+		return nodes.contains(node);
+	}
+
+	static long hash(UUID key) {
+		return fmix64(key.getMostSignificantBits() ^ fmix64(key.getLeastSignificantBits()));
+	}
+
+	// FNV-1a 64 (UTF-8) 뒤에 한 번 더 섞는다
+	static long hash(String s) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return fmix64(h);
+	}
+
+	// MurmurHash3 의 마지막 섞기
+	static long fmix64(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+	@Override
+	public String toString() {
+		return "HashRing" + nodes + " x" + points.length / nodes.size();
+	}
+}
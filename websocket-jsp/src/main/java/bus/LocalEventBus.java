@@ -0,0 +1,100 @@
+package bus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 노드 하나짜리 버스: publish 하면 이 JVM 의 구독자만 호출한다 (직렬화 없음)
+ *
+ * TcpEventBus 도 이 노드 몫의 전달과 원격에서 받은 이벤트의 전달은 deliver 로 한다.
+ */
+public class LocalEventBus implements EventBus {
+
+	private final String nodeId;
+	private final AtomicLong seq = new AtomicLong();
+	private final Map<String, List<Consumer<BusEvent>>> handlers = new ConcurrentHashMap<>();
+	final List<Consumer<String>> gapHandlers = new CopyOnWriteArrayList<>();
+	private final List<Runnable> membershipHandlers = new CopyOnWriteArrayList<>();
+
+	public LocalEventBus() {
+		this(UUID.randomUUID().toString());
+	}
+
+	public LocalEventBus(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	@Override
+	public String nodeId() {
+		return nodeId;
+	}
+
+	@Override
+	public void subscribe(String channel, Consumer<BusEvent> handler) {
+		handlers.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(handler);
+	}
+
+	@Override
+	public void publish(String channel, String type, Map<String, Object> body) {
+		deliver(new BusEvent(nodeId, seq.incrementAndGet(), System.currentTimeMillis(), channel, type, body));
+	}
+
+	@Override
+	public void onGap(Consumer<String> handler) {
+		gapHandlers.add(handler);
+	}
+
+	@Override
+	public boolean send(String node, String channel, String type, Map<String, Object> body) {
+		if (!nodeId.equals(node))
+			return false;
+		deliver(new BusEvent(nodeId, seq.incrementAndGet(), System.currentTimeMillis(), channel, type, body));
+		return true;
+	}
+
+	@Override
+	public Set<String> nodes() {
+		return Set.of(nodeId);
+	}
+
+	@Override
+	public void onMembership(Runnable handler) {
+		membershipHandlers.add(handler);
+	}
+
+	@Override
+	public void close() {
+	}
+
+	void membershipChanged() {
+		for (Runnable h : membershipHandlers) {
+			try {
+				h.run();
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	// 구독자 하나가 터져도 나머지는 받는다
+	void deliver(BusEvent e) {
+		List<Consumer<BusEvent>> hs = handlers.get(e.channel());
+		if (hs == null)
+			return;
+		for (Consumer<BusEvent> h : hs) {
+			try {
+				h.accept(e);
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	long nextSeq() {
+		return seq.incrementAndGet();
+	}
+}
@@ -0,0 +1,484 @@
+package bus;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * 노드끼리 TCP 로 직접 잇는 버스 (전체 메시, 중계 없음)
+ *
+ * 피어마다 보내는 연결 하나 + 스레드 하나를 두고, publish 된 이벤트를 BATCH_MILLIS 동안(또는 BATCH_MAX 개까지) 모아
+ * 프레임 하나로 보낸다. 받는 쪽은 배치를 적용한 뒤 마지막 seq 를 ACK 로 돌려주고, 보내는 쪽은 ACK 전까지 이벤트를 들고 있다가
+ * 끊겼다 다시 붙으면 받는 쪽이 알려준 마지막 seq 다음부터 다시 보낸다.
+ *
+ * seq 는 보내는 연결(피어)마다 따로 매긴다 → send 로 한 노드에만 보낸 것이 다른 노드에서 gap 으로 보이지 않는다.
+ * 받는 쪽은 출처 노드마다 (epoch, 마지막 seq) 만 기억해서 이미 적용한 seq 는 버린다 → 재전송이 겹쳐도 노드마다 한 번만 적용.
+ * seq 가 건너뛰면(보내는 쪽 버퍼 REPLAY 초과) 또는 출처가 재시작해서 epoch 가 바뀌면 onGap 으로 알린다.
+ *
+ * 보낼 것이 없어도 HEARTBEAT_MILLIS 마다 빈 배치를 보내고, 양쪽 모두 그 5배 동안 아무것도 못 읽으면 끊는다.
+ * nodes() 는 자기 + WELCOME 까지 주고받은 보내는 연결이 살아 있는 피어들이다.
+ *
+ * 스트림 (DataOutputStream):
+ * <pre>
+ * HELLO   1 node:UTF epoch:long          보내는 쪽 -> 받는 쪽
+ * WELCOME 2 node:UTF lastSeq:long         받는 쪽 이름, 이미 적용한 마지막 seq
+ * BATCH   3 n:int { seq:long publishedAt:long len:int payload } * n   (n = 0 이면 heartbeat)
+ * ACK     4 seq:long
+ * payload = channel:UTF type:UTF body(JSON)
+ * </pre>
+ *
+ * -Dbus.batchMillis (기본 2), -Dbus.batchMax (기본 512), -Dbus.replay (피어당 ACK 전 보관 개수, 기본 65536),
+ * -Dbus.heartbeatMillis (기본 1000)
+ */
+public class TcpEventBus extends LocalEventBus {
+
+	static final long BATCH_MILLIS = Math.max(0, Long.getLong("bus.batchMillis", 2));
+	static final int BATCH_MAX = Math.max(1, Integer.getInteger("bus.batchMax", 512));
+	static final int REPLAY = Math.max(BATCH_MAX, Integer.getInteger("bus.replay", 65536));
+	static final long HEARTBEAT_MILLIS = Math.max(10, Long.getLong("bus.heartbeatMillis", 1000));
+	private static final int DEAD_MILLIS = (int) Math.min(Integer.MAX_VALUE, HEARTBEAT_MILLIS * 5);
+
+	private static final long RECONNECT_MILLIS = 1000;
+	private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+	private static final byte HELLO = 1;
+	private static final byte WELCOME = 2;
+	private static final byte BATCH = 3;
+	private static final byte ACK = 4;
+
+	private static final ObjectMapper om = new ObjectMapper();
+	private static final TypeReference<Map<String, Object>> BODY = new TypeReference<>() {
+	};
+
+	private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+	private final ServerSocket server;
+	private final List<Peer> peers = new ArrayList<>();
+	private final Map<String, Origin> origins = new ConcurrentHashMap<>();
+	private volatile boolean running = true;
+
+	private final Counter published = Metrics.counter("bus_events_published_total", "이 노드가 publish 한 이벤트");
+	private final Counter received = Metrics.counter("bus_events_received_total", "다른 노드에서 받아 적용한 이벤트");
+	private final Counter duplicates = Metrics.counter("bus_events_duplicate_total", "이미 적용한 seq 라 버린 이벤트 (재전송)");
+	private final Counter gaps = Metrics.counter("bus_gaps_total", "seq 가 건너뛰었거나 출처가 재시작한 횟수");
+	private final Histogram transit = Metrics.latency("bus_transit_seconds",
+			"출처 노드의 publish 부터 이 노드에서 적용할 때까지 (벽시계 기준)");
+
+	/**
+	 * listen = 이 노드가 받을 주소, peers = 다른 노드들의 listen 주소
+	 */
+	public TcpEventBus(String nodeId, InetSocketAddress listen, List<InetSocketAddress> peers) throws IOException {
+		super(nodeId);
+		server = new ServerSocket();
+		server.setReuseAddress(true);
+		server.bind(listen);
+		for (InetSocketAddress a : peers)
+			this.peers.add(new Peer(a));
+
+		daemon("bus-accept", this::acceptLoop).start();
+		for (Peer p : this.peers)
+			daemon("bus-send-" + p.name, p::sendLoop).start();
+	}
+
+	/**
+	 * 실제로 열린 포트 (listen 포트가 0 이면 임의 포트)
+	 */
+	public int port() {
+		return server.getLocalPort();
+	}
+
+	@Override
+	public void publish(String channel, String type, Map<String, Object> body) {
+		byte[] payload = encode(channel, type, body);
+		long at = System.currentTimeMillis();
+		// 모든 피어 큐에 같은 순서로
+		synchronized (this) {
+			for (Peer p : peers)
+				p.enqueue(at, payload);
+		}
+		published.inc();
+		deliver(new BusEvent(nodeId(), nextSeq(), at, channel, type, body));
+	}
+
+	@Override
+	public boolean send(String node, String channel, String type, Map<String, Object> body) {
+		if (nodeId().equals(node))
+			return super.send(node, channel, type, body);
+		for (Peer p : peers) {
+			if (node.equals(p.node) && p.socket != null) {
+				p.enqueue(System.currentTimeMillis(), encode(channel, type, body));
+				published.inc();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Set<String> nodes() {
+		Set<String> live = new TreeSet<>();
+		live.add(nodeId());
+		for (Peer p : peers) {
+			String n = p.node;
+			if (n != null && p.socket != null)
+				live.add(n);
+		}
+		return live;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		try {
+			server.close();
+		} catch (IOException ignore) {
+		}
+		for (Peer p : peers)
+			p.close();
+	}
+
+	private static byte[] encode(String channel, String type, Map<String, Object> body) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeUTF(channel);
+			out.writeUTF(type);
+			out.write(om.writeValueAsBytes(body));
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private BusEvent decode(String origin, long seq, long at, byte[] payload) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		String channel = in.readUTF();
+		String type = in.readUTF();
+		Map<String, Object> body = om.readValue(in, BODY);
+		return new BusEvent(origin, seq, at, channel, type, body);
+	}
+
+	// ---------- 받는 쪽 ----------
+
+	// 출처 노드 하나의 적용 위치. 같은 출처의 연결이 잠깐 둘이 돼도 이 객체로 줄을 세운다
+	private static final class Origin {
+		long epoch;
+		long lastSeq;
+	}
+
+	private record Incoming(long seq, long publishedAt, byte[] payload) {
+	}
+
+	private void acceptLoop() {
+		while (running) {
+			try {
+				Socket s = server.accept();
+				daemon("bus-recv", () -> receive(s)).start();
+			} catch (IOException e) {
+				if (!running)
+					return;
+			}
+		}
+	}
+
+	private void receive(Socket s) {
+		try (s) {
+			s.setTcpNoDelay(true);
+			s.setSoTimeout(DEAD_MILLIS);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			if (in.readByte() != HELLO)
+				return;
+			String origin = in.readUTF();
+			long epoch = in.readLong();
+
+			Origin o = origins.computeIfAbsent(origin, k -> new Origin());
+			boolean restarted;
+			long last;
+			synchronized (o) {
+				restarted = o.epoch != 0 && o.epoch != epoch;
+				if (o.epoch != epoch) {
+					o.epoch = epoch;
+					o.lastSeq = 0;
+				}
+				last = o.lastSeq;
+			}
+			if (restarted)
+				gap(origin);
+			out.writeByte(WELCOME);
+			out.writeUTF(nodeId());
+			out.writeLong(last);
+			out.flush();
+
+			while (running) {
+				if (in.readByte() != BATCH)
+					return;
+				int n = in.readInt();
+				List<Incoming> batch = new ArrayList<>(n);
+				for (int i = 0; i < n; i++) {
+					long seq = in.readLong();
+					long at = in.readLong();
+					byte[] payload = new byte[in.readInt()];
+					in.readFully(payload);
+					batch.add(new Incoming(seq, at, payload));
+				}
+
+				boolean skipped = false;
+				long ack;
+				synchronized (o) {
+					if (o.epoch != epoch)
+						return; // 재시작한 출처의 새 연결이 넘겨받음
+					for (Incoming ev : batch) {
+						if (ev.seq <= o.lastSeq) {
+							duplicates.inc();
+							continue;
+						}
+						if (ev.seq != o.lastSeq + 1)
+							skipped = true;
+						o.lastSeq = ev.seq;
+						received.inc();
+						transit.observe(Math.max(0, System.currentTimeMillis() - ev.publishedAt) * 1_000_000L);
+						deliver(decode(origin, ev.seq, ev.publishedAt, ev.payload));
+					}
+					ack = o.lastSeq;
+				}
+				if (skipped)
+					gap(origin);
+				out.writeByte(ACK);
+				out.writeLong(ack);
+				out.flush();
+			}
+		} catch (IOException ignore) {
+			// 보내는 쪽이 다시 붙으면 WELCOME 의 lastSeq 부터 이어진다
+		}
+	}
+
+	private void gap(String origin) {
+		gaps.inc();
+		for (Consumer<String> h : gapHandlers) {
+			try {
+				h.accept(origin);
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	// ---------- 보내는 쪽 ----------
+
+	private record Outgoing(long seq, long publishedAt, byte[] payload) {
+	}
+
+	private final class Peer {
+		final InetSocketAddress address;
+		final String name;
+
+		// 아래는 this 로 보호. pending = 아직 안 보냄, unacked = 보냈지만 ACK 전 (둘 다 seq 순)
+		private final ArrayDeque<Outgoing> pending = new ArrayDeque<>();
+		private final ArrayDeque<Outgoing> unacked = new ArrayDeque<>();
+		private int backlog;
+		private long seq;
+
+		// 피어가 WELCOME 에서 알려준 노드 이름 (처음 붙기 전에는 null)
+		volatile String node;
+		volatile Socket socket;
+		private final Counter dropped;
+		private final Counter batches;
+		private final Histogram batchSize;
+
+		Peer(InetSocketAddress address) {
+			this.address = address;
+			this.name = address.getHostString() + ":" + address.getPort();
+			dropped = Metrics.counter("bus_peer_dropped_total", "재전송 버퍼가 넘쳐 버린 이벤트 (받는 쪽에서 gap)", "peer", name);
+			batches = Metrics.counter("bus_peer_batches_total", "보낸 배치 프레임", "peer", name);
+			batchSize = Metrics.histogram("bus_peer_batch_events", "배치 하나에 담긴 이벤트 수", Histogram.COUNTS, 1, "peer",
+					name);
+			Metrics.gauge("bus_peer_connected", "피어로 보내는 연결이 살아 있으면 1", () -> socket != null ? 1 : 0, "peer",
+					name);
+			Metrics.gauge("bus_peer_backlog", "피어에 아직 보내지 않았거나 ACK 를 못 받은 이벤트", this::backlog, "peer", name);
+		}
+
+		synchronized long backlog() {
+			return backlog;
+		}
+
+		// 버퍼가 차면 가장 오래된 것부터 버린다 (publish 는 절대 막히지 않는다)
+		synchronized void enqueue(long publishedAt, byte[] payload) {
+			Outgoing o = new Outgoing(++seq, publishedAt, payload);
+			if (backlog >= REPLAY) {
+				if (!unacked.isEmpty())
+					unacked.pollFirst();
+				else
+					pending.pollFirst();
+				backlog--;
+				dropped.inc();
+			}
+			pending.addLast(o);
+			backlog++;
+			notifyAll();
+		}
+
+		synchronized void acked(long seq) {
+			while (!unacked.isEmpty() && unacked.peekFirst().seq <= seq) {
+				unacked.pollFirst();
+				backlog--;
+			}
+		}
+
+		// 다시 붙었을 때: 받는 쪽이 lastSeq 까지 적용했으니 그 뒤의 보낸 것부터 다시
+		synchronized void rewind(long lastSeq) {
+			acked(lastSeq);
+			while (!unacked.isEmpty())
+				pending.addFirst(unacked.pollLast());
+			while (!pending.isEmpty() && pending.peekFirst().seq <= lastSeq) {
+				pending.pollFirst();
+				backlog--;
+			}
+		}
+
+		// 첫 이벤트가 오면 BATCH_MILLIS 만큼 더 모은다. HEARTBEAT_MILLIS 동안 없으면 빈 배치
+		synchronized List<Outgoing> take(Socket s) throws InterruptedException {
+			long idle = System.currentTimeMillis() + HEARTBEAT_MILLIS;
+			long left;
+			while (running && socket == s && pending.isEmpty() && (left = idle - System.currentTimeMillis()) > 0)
+				wait(left);
+			if (pending.isEmpty())
+				return List.of();
+			long deadline = System.currentTimeMillis() + BATCH_MILLIS;
+			while (running && pending.size() < BATCH_MAX && (left = deadline - System.currentTimeMillis()) > 0)
+				wait(left);
+
+			List<Outgoing> out = new ArrayList<>(Math.min(pending.size(), BATCH_MAX));
+			while (!pending.isEmpty() && out.size() < BATCH_MAX) {
+				Outgoing o = pending.pollFirst();
+				unacked.addLast(o);
+				out.add(o);
+			}
+			return out;
+		}
+
+		void sendLoop() {
+			while (running) {
+				try (Socket s = new Socket()) {
+					s.connect(address, CONNECT_TIMEOUT_MILLIS);
+					s.setTcpNoDelay(true);
+					s.setSoTimeout(DEAD_MILLIS);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+					DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+					out.writeByte(HELLO);
+					out.writeUTF(nodeId());
+					out.writeLong(epoch);
+					out.flush();
+					if (in.readByte() != WELCOME)
+						throw new IOException("bad handshake from " + name);
+					node = in.readUTF();
+					rewind(in.readLong());
+
+					connected(s);
+					daemon("bus-ack-" + name, () -> ackLoop(s, in)).start();
+					while (running && socket == s) {
+						List<Outgoing> batch = take(s);
+						out.writeByte(BATCH);
+						out.writeInt(batch.size());
+						for (Outgoing o : batch) {
+							out.writeLong(o.seq);
+							out.writeLong(o.publishedAt);
+							out.writeInt(o.payload.length);
+							out.write(o.payload);
+						}
+						out.flush();
+						if (batch.isEmpty())
+							continue;
+						batches.inc();
+						batchSize.observe(batch.size());
+					}
+				} catch (IOException e) {
+					// 아래에서 잠깐 쉬고 다시 연결
+				} catch (InterruptedException e) {
+					return;
+				} finally {
+					disconnected(null);
+				}
+				sleep(RECONNECT_MILLIS);
+			}
+		}
+
+		private void ackLoop(Socket s, DataInputStream in) {
+			try {
+				while (running) {
+					if (in.readByte() != ACK)
+						break;
+					acked(in.readLong());
+				}
+			} catch (IOException ignore) {
+			}
+			// 보내는 스레드가 take() 에서 기다리는 중이면 깨워서 다시 연결하게
+			disconnected(s);
+			try {
+				s.close();
+			} catch (IOException ignore) {
+			}
+		}
+
+		private void connected(Socket s) {
+			socket = s;
+			membershipChanged();
+		}
+
+		// s == null 이면 지금 연결이 무엇이든
+		private void disconnected(Socket s) {
+			boolean changed;
+			synchronized (this) {
+				Socket cur = socket;
+				changed = cur != null && (s == null || cur == s);
+				if (changed)
+					socket = null;
+				notifyAll();
+			}
+			if (changed)
+				membershipChanged();
+		}
+
+		void close() {
+			Socket s = socket;
+			if (s != null) {
+				try {
+					s.close();
+				} catch (IOException ignore) {
+				}
+			}
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+
+	private static Thread daemon(String name, Runnable r) {
+		Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -27,7 +27,7 @@ public class AuthDao {
             VALUES (?, ?, 0, 0, 0)
         """;
 
-        try (Connection con = Db.getConnection()) {
+        try (Connection con = Db.getConnection("signUp")) {
             con.setAutoCommit(false);
             try (PreparedStatement ps1 = con.prepareStatement(insertUsers);
                  PreparedStatement ps2 = con.prepareStatement(insertInfo)) {
@@ -0,0 +1,362 @@
+package dao;
+
+import model.RoomCursor;
+import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * DB 없이 도는 방 저장소 (부하 테스트, 벤치마크용)
+ *
+ * RoomDao 와 같은 규칙: 정원 확인, 호스트 위임(입장 순서상 다음 사람), 마지막 사람이 나가면 방 삭제, 같은 에러 코드.
+ * 방마다 자기 객체로 잠그므로 서로 다른 방은 동시에 처리되고, 같은 방은 ROOM 행 락처럼 줄을 선다.
+ * RoomRegistry 반영도 방 락 안에서 해서 같은 방의 delta 순서가 실제 변경 순서와 같다.
+ *
+ * CURRENT_USER_CNT 는 따로 두지 않고 players.size() 로 계산한다.
+ * (ROOM_ID, USER_ID) 는 유니크로 취급해서 중복 입장은 SQLIntegrityConstraintViolationException.
+ */
+public class MemoryRoomStore implements RoomStore {
+
+	private static final class Room {
+		final UUID id;
+		final long createdAt;
+		final String roomName;
+		final int isPublic;
+		final int playType;
+		final int totalUserCnt;
+		final String pwdHash;
+
+		// 아래는 모두 this 로 보호
+		UUID hostUserId;
+		final LinkedHashMap<UUID, Integer> players = new LinkedHashMap<>(); // 입장 순서, 값은 돌 색
+		boolean deleted;
+		long activeAt; // 만든 시각 또는 마지막 입장 (JOINED_AT)
+
+		Room(UUID id, long createdAt, UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+				String pwdHash) {
+			this.id = id;
+			this.createdAt = createdAt;
+			this.hostUserId = hostUserId;
+			this.roomName = roomName;
+			this.isPublic = isPublic;
+			this.playType = playType;
+			this.totalUserCnt = totalUserCnt;
+			this.pwdHash = pwdHash;
+			this.activeAt = createdAt;
+		}
+
+		// 반드시 synchronized (this) 안에서
+		RoomDto dto() {
+			return RoomDto.builder().id(id).hostUserId(hostUserId).roomName(roomName).isPublic(isPublic)
+					.playType(playType).totalUserCnt(totalUserCnt).currentUserCnt(players.size())
+					.createdAt(createdAt).build();
+		}
+	}
+
+	// RoomRegistry.ORDER 와 같은 순서 (CREATED_AT DESC, ID DESC)
+	private static final Comparator<Room> ORDER = (a, b) -> RoomRegistry.compareKey(a.createdAt, a.id, b.createdAt,
+			b.id);
+
+	private final MemoryUserStore users;
+	private final Map<UUID, Room> rooms = new ConcurrentHashMap<>();
+	private final NavigableSet<Room> ordered = new ConcurrentSkipListSet<>(ORDER);
+
+	/**
+	 * 닉네임은 users 에서 찾는다 (listRoomPlayers)
+	 */
+	public MemoryRoomStore(MemoryUserStore users) {
+		this.users = users;
+	}
+
+	@Override
+	public List<RoomDto> listPublicRooms() throws Exception {
+		List<RoomDto> list = new ArrayList<>();
+		for (Room r : ordered) {
+			if (r.isPublic != 1)
+				continue;
+			synchronized (r) {
+				if (!r.deleted)
+					list.add(r.dto());
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public RoomPage listRoomsPage(RoomPageQuery q) throws Exception {
+		NavigableSet<Room> src = ordered;
+		if (q.getAfter() != null) {
+			RoomCursor c = q.getAfter();
+			src = ordered.tailSet(new Room(c.getId(), c.getCreatedAt(), null, null, 0, 0, 0, null), false);
+		}
+
+		List<RoomDto> list = new ArrayList<>();
+		for (Iterator<Room> it = src.iterator(); it.hasNext() && list.size() < q.getLimit();) {
+			Room r = it.next();
+			if (q.isPublicOnly() && r.isPublic != 1)
+				continue;
+			if (q.getPlayType() != null && r.playType != q.getPlayType())
+				continue;
+			synchronized (r) {
+				if (r.deleted)
+					continue;
+				if (q.isHasFreeSeats() && r.players.size() >= r.totalUserCnt)
+					continue;
+				list.add(r.dto());
+			}
+		}
+
+		RoomCursor next = list.size() < q.getLimit() ? null : RoomCursor.after(list.get(list.size() - 1));
+		return new RoomPage(list, next);
+	}
+
+	@Override
+	public Optional<RoomDto> findRoom(UUID roomId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			return Optional.empty();
+		synchronized (r) {
+			return r.deleted ? Optional.empty() : Optional.of(r.dto());
+		}
+	}
+
+	@Override
+	public boolean isHost(UUID roomId, UUID userId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			return false;
+		synchronized (r) {
+			return !r.deleted && userId.equals(r.hostUserId);
+		}
+	}
+
+	@Override
+	public RoomDto createRoom(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash) throws Exception {
+		return create(hostUserId, roomName, isPublic, playType, totalUserCnt, pwdHash, 0);
+	}
+
+	@Override
+	public boolean checkRoomPassword(UUID roomId, String pwdHash) throws Exception {
+		Room r = rooms.get(roomId);
+		return r != null && pwdHash != null && pwdHash.equals(r.pwdHash);
+	}
+
+	@Override
+	public void enterRoom(UUID roomId, UUID userId, int stoneColor) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			throw new RuntimeException("ROOM_FULL_OR_NOT_FOUND");
+
+		synchronized (r) {
+			if (r.deleted || r.players.size() >= r.totalUserCnt)
+				throw new RuntimeException("ROOM_FULL_OR_NOT_FOUND");
+			addPlayer(r, userId, stoneColor);
+			RoomRegistry.get().onEntered(roomId);
+		}
+	}
+
+	@Override
+	public void leaveRoom(UUID roomId, UUID userId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			return;
+
+		synchronized (r) {
+			if (!r.deleted && r.players.remove(userId) != null)
+				RoomRegistry.get().onLeft(roomId, null);
+		}
+	}
+
+	@Override
+	public void deleteRoom(UUID roomId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			return;
+
+		synchronized (r) {
+			if (!r.deleted)
+				remove(r);
+		}
+	}
+
+	@Override
+	public List<Map<String, Object>> listRoomPlayers(UUID roomId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			return new ArrayList<>();
+
+		Map<UUID, Integer> players;
+		synchronized (r) {
+			players = new LinkedHashMap<>(r.players);
+		}
+
+		List<Map<String, Object>> list = new ArrayList<>(players.size());
+		for (Map.Entry<UUID, Integer> e : players.entrySet()) {
+			String nickname = users.nickname(e.getKey());
+			if (nickname == null)
+				continue;
+
+			Map<String, Object> row = new HashMap<>();
+			row.put("userId", e.getKey().toString());
+			row.put("nickname", nickname);
+			row.put("stoneColor", e.getValue());
+			list.add(row);
+		}
+		return list;
+	}
+
+	@Override
+	public Map<UUID, Integer> listRoomSeats(UUID roomId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			return new LinkedHashMap<>();
+		synchronized (r) {
+			return new LinkedHashMap<>(r.players);
+		}
+	}
+
+	@Override
+	public LeaveResult leaveRoomWithHostTransfer(UUID roomId, UUID userId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			throw new RuntimeException("ROOM_NOT_FOUND");
+
+		synchronized (r) {
+			if (r.deleted)
+				throw new RuntimeException("ROOM_NOT_FOUND");
+
+			// 방에 없던 사용자: 아무것도 안 바뀜
+			if (r.players.remove(userId) == null)
+				return LeaveResult.left();
+
+			if (r.players.isEmpty()) {
+				remove(r);
+				return LeaveResult.roomDeleted();
+			}
+
+			if (userId.equals(r.hostUserId)) {
+				UUID next = r.players.keySet().iterator().next();
+				r.hostUserId = next;
+				RoomRegistry.get().onLeft(roomId, next);
+				return LeaveResult.hostTransferred(next);
+			}
+
+			RoomRegistry.get().onLeft(roomId, null);
+			return LeaveResult.left();
+		}
+	}
+
+	@Override
+	public RoomDto createRoomAndEnter(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash, int stoneColor) throws Exception {
+		return create(hostUserId, roomName, isPublic, playType, totalUserCnt, pwdHash, stoneColor);
+	}
+
+	@Override
+	public int enterRoomAutoColor(UUID roomId, UUID userId) throws Exception {
+		Room r = rooms.get(roomId);
+		if (r == null)
+			throw new RuntimeException("ROOM_FULL");
+
+		synchronized (r) {
+			if (r.deleted || r.players.size() >= r.totalUserCnt)
+				throw new RuntimeException("ROOM_FULL");
+
+			int color = r.players.containsValue(1) ? 2 : 1;
+			addPlayer(r, userId, color);
+			RoomRegistry.get().onEntered(roomId);
+			return color;
+		}
+	}
+
+	// hostColor == 0 이면 호스트는 입장하지 않음 (createRoom)
+	private RoomDto create(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash, int hostColor) {
+		Room r = new Room(UUID.randomUUID(), nowSeconds(), hostUserId, roomName, isPublic, playType,
+				totalUserCnt, pwdHash);
+
+		// 레지스트리에 올라가기 전에 다른 스레드가 이 방을 건드리지 못하게 먼저 잠근다
+		synchronized (r) {
+			if (hostColor != 0)
+				r.players.put(hostUserId, hostColor);
+			rooms.put(r.id, r);
+			ordered.add(r);
+
+			RoomDto room = r.dto();
+			RoomRegistry.get().onCreated(room);
+			return room;
+		}
+	}
+
+	// 반드시 synchronized (r) 안에서
+	private void addPlayer(Room r, UUID userId, int stoneColor) throws SQLIntegrityConstraintViolationException {
+		if (r.players.containsKey(userId))
+			throw new SQLIntegrityConstraintViolationException("ROOM_PLAYER");
+		r.players.put(userId, stoneColor);
+		r.activeAt = System.currentTimeMillis();
+	}
+
+	@Override
+	public List<UUID> findIdleRooms(long idleMillis, int limit) throws Exception {
+		long idleBefore = System.currentTimeMillis() - idleMillis;
+		// 잠금 안에서 읽은 값으로 정렬 (정렬 중에 바뀌지 않게)
+		List<Map.Entry<Long, UUID>> idle = new ArrayList<>();
+		for (Room r : rooms.values()) {
+			synchronized (r) {
+				if (!r.deleted && r.activeAt < idleBefore)
+					idle.add(Map.entry(r.activeAt, r.id));
+			}
+		}
+		idle.sort(Map.Entry.comparingByKey());
+		List<UUID> ids = new ArrayList<>(Math.min(limit, idle.size()));
+		for (int i = 0; i < idle.size() && i < limit; i++)
+			ids.add(idle.get(i).getValue());
+		return ids;
+	}
+
+	// 방마다 잠그고 다시 확인 (RoomDao 의 FOR UPDATE 뒤 재확인과 같음)
+	@Override
+	public PurgeResult purgeIdleRooms(Collection<UUID> roomIds, long idleMillis) throws Exception {
+		long idleBefore = System.currentTimeMillis() - idleMillis;
+		List<UUID> removed = new ArrayList<>();
+		int playerRows = 0;
+		for (UUID id : roomIds) {
+			Room r = rooms.get(id);
+			if (r == null)
+				continue;
+			synchronized (r) {
+				if (r.deleted || r.activeAt >= idleBefore)
+					continue;
+				playerRows += r.players.size();
+				drop(r);
+				removed.add(id);
+			}
+		}
+		RoomRegistry.get().onDeletedAll(removed);
+		return new PurgeResult(removed, playerRows);
+	}
+
+	// 반드시 synchronized (r) 안에서
+	private void remove(Room r) {
+		drop(r);
+		RoomRegistry.get().onDeleted(r.id);
+	}
+
+	private void drop(Room r) {
+		r.deleted = true;
+		r.players.clear();
+		rooms.remove(r.id);
+		ordered.remove(r);
+	}
+
+	// RoomDao 의 CREATED_AT(DATE) 처럼 초 단위
+	private static long nowSeconds() {
+		return System.currentTimeMillis() / 1000 * 1000;
+	}
+}
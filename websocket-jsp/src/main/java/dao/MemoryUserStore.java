@@ -0,0 +1,102 @@
+package dao;
+
+import model.UserInfo;
+import model.UserSession;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import util.PasswordHash;
+
+/**
+ * DB 없이 도는 회원 저장소 (부하 테스트, 벤치마크용)
+ *
+ * USERS.EMAIL, USER_INFO.NICKNAME 유니크 제약을 putIfAbsent 로 흉내낸다.
+ */
+public class MemoryUserStore implements UserStore {
+
+	private static final class Account {
+		final UUID id;
+		final String email;
+		final String pwdHash;
+		final String nickname;
+
+		// 아래는 this 로 보호
+		long totalWin;
+		long totalLose;
+		long coin;
+
+		Account(UUID id, String email, String pwdHash, String nickname) {
+			this.id = id;
+			this.email = email;
+			this.pwdHash = pwdHash;
+			this.nickname = nickname;
+		}
+	}
+
+	private final Map<String, Account> byEmail = new ConcurrentHashMap<>();
+	private final Map<String, UUID> nicknames = new ConcurrentHashMap<>();
+	private final Map<UUID, Account> byId = new ConcurrentHashMap<>();
+
+	@Override
+	public void signUp(String email, String plainPwd, String nickname) throws Exception {
+		UUID id = UUID.randomUUID();
+		Account a = new Account(id, email, PasswordHash.sha256(plainPwd), nickname);
+
+		// 닉네임을 먼저 잡고, 이메일이 겹치면 되돌린다
+		if (nicknames.putIfAbsent(nickname, id) != null)
+			throw new SQLIntegrityConstraintViolationException("NICKNAME");
+		if (byEmail.putIfAbsent(email, a) != null) {
+			nicknames.remove(nickname, id);
+			throw new SQLIntegrityConstraintViolationException("EMAIL");
+		}
+		byId.put(id, a);
+	}
+
+	@Override
+	public Optional<UserSession> login(String email, String pwdHash) throws Exception {
+		Account a = byEmail.get(email);
+		if (a == null || !a.pwdHash.equals(pwdHash))
+			return Optional.empty();
+		return Optional.of(UserSession.builder().id(a.id).email(a.email).nickname(a.nickname).build());
+	}
+
+	@Override
+	public Map<UUID, UserInfo> findProfiles(Collection<UUID> userIds) throws Exception {
+		Map<UUID, UserInfo> out = new HashMap<>(userIds.size() * 2);
+		for (UUID id : userIds) {
+			Account a = byId.get(id);
+			if (a == null)
+				continue;
+			synchronized (a) {
+				out.put(id, new UserInfo(id, a.nickname, a.totalWin, a.totalLose, a.coin));
+			}
+		}
+		return out;
+	}
+
+	@Override
+	public void addStats(UUID userId, int winDelta, int loseDelta, long coinDelta) throws Exception {
+		Account a = byId.get(userId);
+		if (a == null)
+			return;
+		synchronized (a) {
+			a.totalWin += winDelta;
+			a.totalLose += loseDelta;
+			a.coin += coinDelta;
+		}
+	}
+
+	/**
+	 * 없는 사용자면 null (USER_INFO 와 조인했을 때 빠지는 것과 같음)
+	 */
+	String nickname(UUID userId) {
+		Account a = byId.get(userId);
+		return a == null ? null : a.nickname;
+	}
+}
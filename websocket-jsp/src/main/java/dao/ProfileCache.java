@@ -0,0 +1,166 @@
+package dao;
+
+import model.UserInfo;
+import model.UserSession;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * userId -> UserInfo(닉네임, 전적, 코인) 캐시를 얹은 UserStore 래퍼
+ *
+ * 크기 제한 LRU 를 STRIPES 개로 쪼개 각 조각만 잠근다 (조각마다 access-order LinkedHashMap).
+ * 못 찾은 것만 한 번에 모아 저장소에서 읽고, 프로필을 쓰는 경로(addStats)는 저장소 커밋 뒤 해당 항목을 지운다.
+ * 다른 경로로 USER_INFO 를 바꾸면 invalidate(userId) 를 불러야 한다.
+ *
+ * 읽는 도중에 invalidate 가 끼면 읽어 온 (낡았을 수 있는) 값은 캐시에 넣지 않는다.
+ * 돌려준 UserInfo 는 캐시와 공유하는 객체라 절대 수정하지 않는다.
+ *
+ * -Ddao.profiles.capacity (기본 10000)
+ */
+public final class ProfileCache implements UserStore {
+
+	static final int CAPACITY = Math.max(16, Integer.getInteger("dao.profiles.capacity", 10000));
+
+	private static final int STRIPES = 16;
+
+	private static final class Stripe {
+		// 아래는 모두 this 로 보호
+		final LinkedHashMap<UUID, UserInfo> map;
+		long generation; // invalidate 할 때마다 +1
+
+		Stripe(int capacity, LongAdder evictions) {
+			this.map = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<UUID, UserInfo> eldest) {
+					if (size() <= capacity)
+						return false;
+					evictions.increment();
+					return true;
+				}
+			};
+		}
+	}
+
+	private final UserStore delegate;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	public ProfileCache(UserStore delegate) {
+		this.delegate = delegate;
+		int perStripe = (CAPACITY + STRIPES - 1) / STRIPES;
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe(perStripe, evictions);
+	}
+
+	public UserStore delegate() {
+		return delegate;
+	}
+
+	private Stripe stripe(UUID userId) {
+		int h = userId.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+
+	@Override
+	public void signUp(String email, String plainPwd, String nickname) throws Exception {
+		delegate.signUp(email, plainPwd, nickname);
+	}
+
+	@Override
+	public Optional<UserSession> login(String email, String pwdHash) throws Exception {
+		return delegate.login(email, pwdHash);
+	}
+
+	@Override
+	public Map<UUID, UserInfo> findProfiles(Collection<UUID> userIds) throws Exception {
+		Map<UUID, UserInfo> out = new HashMap<>(userIds.size() * 2);
+		List<UUID> missing = null;
+		Map<UUID, Long> generations = null;
+
+		for (UUID id : userIds) {
+			Stripe st = stripe(id);
+			UserInfo hit;
+			long gen;
+			synchronized (st) {
+				hit = st.map.get(id);
+				gen = st.generation;
+			}
+			if (hit != null) {
+				hits.increment();
+				out.put(id, hit);
+				continue;
+			}
+			misses.increment();
+			if (missing == null) {
+				missing = new ArrayList<>();
+				generations = new HashMap<>();
+			}
+			missing.add(id);
+			generations.put(id, gen);
+		}
+
+		if (missing == null)
+			return out;
+
+		Map<UUID, UserInfo> loaded = delegate.findProfiles(missing);
+		for (Map.Entry<UUID, UserInfo> e : loaded.entrySet()) {
+			Stripe st = stripe(e.getKey());
+			synchronized (st) {
+				if (st.generation == generations.get(e.getKey()))
+					st.map.put(e.getKey(), e.getValue());
+			}
+			out.put(e.getKey(), e.getValue());
+		}
+		return out;
+	}
+
+	@Override
+	public void addStats(UUID userId, int winDelta, int loseDelta, long coinDelta) throws Exception {
+		try {
+			delegate.addStats(userId, winDelta, loseDelta, coinDelta);
+		} finally {
+			// 실패해도 커밋됐을 수 있으니 항상 지운다
+			invalidate(userId);
+		}
+	}
+
+	public void invalidate(UUID userId) {
+		Stripe st = stripe(userId);
+		synchronized (st) {
+			st.generation++;
+			if (st.map.remove(userId) != null)
+				invalidations.increment();
+		}
+	}
+
+	public int size() {
+		int n = 0;
+		for (Stripe st : stripes) {
+			synchronized (st) {
+				n += st.map.size();
+			}
+		}
+		return n;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	public long invalidations() {
+		return invalidations.sum();
+	}
+}
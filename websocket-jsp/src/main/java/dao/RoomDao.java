@@ -1,17 +1,25 @@
 package dao;
 
 import db.Db;
+import model.RoomCursor;
 import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
 import util.UuidRaw;
 
 import java.sql.*;
 import java.util.*;
 
-public class RoomDao {
+public class RoomDao implements RoomStore {
+
+	// INSERT 후 getGeneratedKeys 로 돌려받을 컬럼
+	private static final String[] CREATED_AT = { "CREATED_AT" };
+
+	@Override
 	public List<RoomDto> listPublicRooms() throws Exception {
 		String sql = """
 				    SELECT ID, HOST_USER_ID, ROOM_NAME, IS_PUBLIC, PLAY_TYPE,
-				           TOTAL_USER_CNT, CURRENT_USER_CNT
+				           TOTAL_USER_CNT, CURRENT_USER_CNT, CREATED_AT
 				    FROM ROOM
 				    WHERE IS_PUBLIC = 1
 				    ORDER BY CREATED_AT DESC
@@ -30,10 +38,69 @@ public class RoomDao {
 		return list;
 	}
 
+	/**
+	 * 방 목록 한 페이지 (keyset: CREATED_AT DESC, ID DESC, OFFSET 없음)
+	 *
+	 * 커서 값은 CAST(? AS DATE) 로 DATE 에 맞춰 비교한다 (TIMESTAMP 로 묶으면 컬럼 쪽이 변환돼 인덱스 범위 스캔을 못 탄다).
+	 *
+	 * 필요한 인덱스:
+	 * CREATE INDEX IX_ROOM_PUBLIC_CREATED ON ROOM (IS_PUBLIC, CREATED_AT DESC, ID DESC);
+	 * CREATE INDEX IX_ROOM_CREATED ON ROOM (CREATED_AT DESC, ID DESC);
+	 */
+	@Override
+	public RoomPage listRoomsPage(RoomPageQuery q) throws Exception {
+		StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+		if (q.isPublicOnly())
+			where.append(" AND IS_PUBLIC = 1");
+		if (q.getPlayType() != null)
+			where.append(" AND PLAY_TYPE = ?");
+		if (q.isHasFreeSeats())
+			where.append(" AND CURRENT_USER_CNT < TOTAL_USER_CNT");
+		if (q.getAfter() != null)
+			where.append(" AND (CREATED_AT < CAST(? AS DATE) OR (CREATED_AT = CAST(? AS DATE) AND ID < ?))");
+
+		String sql = """
+				    SELECT * FROM (
+				        SELECT ID, HOST_USER_ID, ROOM_NAME, IS_PUBLIC, PLAY_TYPE,
+				               TOTAL_USER_CNT, CURRENT_USER_CNT, CREATED_AT
+				        FROM ROOM
+				""" + where + """
+				        ORDER BY CREATED_AT DESC, ID DESC
+				    )
+				    WHERE ROWNUM <= ?
+				""";
+
+		List<RoomDto> list = new ArrayList<>();
+
+		try (Connection con = Db.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+
+			int i = 1;
+			if (q.getPlayType() != null)
+				ps.setInt(i++, q.getPlayType());
+			if (q.getAfter() != null) {
+				Timestamp at = new Timestamp(q.getAfter().getCreatedAt());
+				ps.setTimestamp(i++, at);
+				ps.setTimestamp(i++, at);
+				ps.setBytes(i++, UuidRaw.uuidToRaw(q.getAfter().getId()));
+			}
+			ps.setInt(i, q.getLimit());
+
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					list.add(mapRoom(rs));
+				}
+			}
+		}
+
+		RoomCursor next = list.size() < q.getLimit() ? null : RoomCursor.after(list.get(list.size() - 1));
+		return new RoomPage(list, next);
+	}
+
+	@Override
 	public Optional<RoomDto> findRoom(UUID roomId) throws Exception {
 		String sql = """
 				    SELECT ID, HOST_USER_ID, ROOM_NAME, IS_PUBLIC, PLAY_TYPE,
-				           TOTAL_USER_CNT, CURRENT_USER_CNT
+				           TOTAL_USER_CNT, CURRENT_USER_CNT, CREATED_AT
 				    FROM ROOM
 				    WHERE ID = ?
 				""";
@@ -49,6 +116,7 @@ public class RoomDao {
 		}
 	}
 
+	@Override
 	public boolean isHost(UUID roomId, UUID userId) throws Exception {
 		String sql = "SELECT COUNT(*) FROM ROOM WHERE ID = ? AND HOST_USER_ID = ?";
 
@@ -64,10 +132,12 @@ public class RoomDao {
 		}
 	}
 	
+	@Override
 	public RoomDto createRoom(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
 			String pwdHash) throws Exception {
 
 		UUID roomId = UUID.randomUUID();
+		long createdAt;
 
 		String sql = """
 				    INSERT INTO ROOM
@@ -77,7 +147,7 @@ public class RoomDao {
 				      (?, ?, ?, ?, ?, ?, 0, ?, SYSDATE)
 				""";
 
-		try (Connection con = Db.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+		try (Connection con = Db.getConnection(); PreparedStatement ps = con.prepareStatement(sql, CREATED_AT)) {
 
 			ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
 			ps.setBytes(2, UuidRaw.uuidToRaw(hostUserId));
@@ -92,12 +162,16 @@ public class RoomDao {
 				ps.setString(7, pwdHash);
 
 			ps.executeUpdate();
+			createdAt = insertedCreatedAt(ps);
 		}
 
-		return RoomDto.builder().id(roomId).hostUserId(hostUserId).roomName(roomName).isPublic(isPublic)
-				.playType(playType).totalUserCnt(totalUserCnt).currentUserCnt(0).build();
+		RoomDto room = RoomDto.builder().id(roomId).hostUserId(hostUserId).roomName(roomName).isPublic(isPublic)
+				.playType(playType).totalUserCnt(totalUserCnt).currentUserCnt(0).createdAt(createdAt).build();
+		RoomRegistry.get().onCreated(room);
+		return room;
 	}
 
+	@Override
 	public boolean checkRoomPassword(UUID roomId, String pwdHash) throws Exception {
 		String sql = "SELECT COUNT(*) FROM ROOM WHERE ID = ? AND ROOM_PWD_HASH = ?";
 
@@ -116,6 +190,7 @@ public class RoomDao {
 	/**
 	 * 방 입장
 	 */
+	@Override
 	public void enterRoom(UUID roomId, UUID userId, int stoneColor) throws Exception {
 		String updCnt = """
 				    UPDATE ROOM
@@ -129,7 +204,7 @@ public class RoomDao {
 				    VALUES (?, ?, ?, SYSDATE, ?)
 				""";
 
-		try (Connection con = Db.getConnection()) {
+		try (Connection con = Db.getConnection("enterRoom")) {
 			con.setAutoCommit(false);
 
 			try (PreparedStatement ps1 = con.prepareStatement(updCnt);
@@ -157,11 +232,13 @@ public class RoomDao {
 				con.setAutoCommit(true);
 			}
 		}
+		RoomRegistry.get().onEntered(roomId);
 	}
 
 	/**
 	 * 방 퇴장
 	 */
+	@Override
 	public void leaveRoom(UUID roomId, UUID userId) throws Exception {
 		String delPlayer = "DELETE FROM ROOM_PLAYER WHERE ROOM_ID = ? AND USER_ID = ?";
 		String decCnt = """
@@ -171,7 +248,7 @@ public class RoomDao {
 				      AND CURRENT_USER_CNT > 0
 				""";
 
-		try (Connection con = Db.getConnection()) {
+		try (Connection con = Db.getConnection("leaveRoom")) {
 			con.setAutoCommit(false);
 
 			try (PreparedStatement ps1 = con.prepareStatement(delPlayer);
@@ -188,6 +265,9 @@ public class RoomDao {
 
 				con.commit();
 
+				if (deleted > 0)
+					RoomRegistry.get().onLeft(roomId, null);
+
 			} catch (Exception e) {
 				con.rollback();
 				throw e;
@@ -197,11 +277,12 @@ public class RoomDao {
 		}
 	}
 
+	@Override
 	public void deleteRoom(UUID roomId) throws Exception {
 		String delPlayers = "DELETE FROM ROOM_PLAYER WHERE ROOM_ID = ?";
 		String delRoom = "DELETE FROM ROOM WHERE ID = ?";
 
-		try (Connection con = Db.getConnection()) {
+		try (Connection con = Db.getConnection("deleteRoom")) {
 			con.setAutoCommit(false);
 
 			try (PreparedStatement ps1 = con.prepareStatement(delPlayers);
@@ -214,6 +295,7 @@ public class RoomDao {
 				ps2.executeUpdate();
 
 				con.commit();
+				RoomRegistry.get().onDeleted(roomId);
 
 			} catch (Exception e) {
 				con.rollback();
@@ -224,6 +306,7 @@ public class RoomDao {
 		}
 	}
 
+	@Override
 	public List<Map<String, Object>> listRoomPlayers(UUID roomId) throws Exception {
 		String sql = """
 				    SELECT rp.USER_ID, ui.NICKNAME, rp.STONE_COLOR
@@ -256,147 +339,135 @@ public class RoomDao {
 		return list;
 	}
 
-	public enum LeaveResultType {
-		LEFT, HOST_TRANSFERRED, ROOM_DELETED
-	}
-
-	public static class LeaveResult {
-		public final LeaveResultType type;
-		public final UUID newHostUserId; 
+	@Override
+	public Map<UUID, Integer> listRoomSeats(UUID roomId) throws Exception {
+		String sql = """
+				    SELECT USER_ID, STONE_COLOR
+				    FROM ROOM_PLAYER
+				    WHERE ROOM_ID = ?
+				    ORDER BY JOINED_AT ASC
+				""";
 
-		public LeaveResult(LeaveResultType type, UUID newHostUserId) {
-			this.type = type;
-			this.newHostUserId = newHostUserId;
-		}
+		Map<UUID, Integer> seats = new LinkedHashMap<>();
 
-		public static LeaveResult left() {
-			return new LeaveResult(LeaveResultType.LEFT, null);
-		}
+		try (Connection con = Db.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
 
-		public static LeaveResult hostTransferred(UUID newHost) {
-			return new LeaveResult(LeaveResultType.HOST_TRANSFERRED, newHost);
-		}
+			ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
 
-		public static LeaveResult roomDeleted() {
-			return new LeaveResult(LeaveResultType.ROOM_DELETED, null);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next())
+					seats.put(UuidRaw.rawToUuid(rs.getBytes("USER_ID")), rs.getInt("STONE_COLOR"));
+			}
 		}
+		return seats;
 	}
 
+	/**
+	 * 방 퇴장 + 호스트 위임 + 마지막 사람이면 방 삭제
+	 *
+	 * 전부 PL/SQL 블록 하나로 서버에서 처리한다 (JDBC 왕복 1회).
+	 * autocommit 상태로 실행하므로 블록이 끝나면 바로 커밋되고, 블록 안에서 예외가 나면 블록 전체가 롤백된다.
+	 * ROOM 행 락은 블록이 도는 동안만 잡힌다.
+	 */
+	@Override
 	public LeaveResult leaveRoomWithHostTransfer(UUID roomId, UUID userId) throws Exception {
 
-		String selHost = "SELECT HOST_USER_ID FROM ROOM WHERE ID = ?";
-		String delPlayer = "DELETE FROM ROOM_PLAYER WHERE ROOM_ID = ? AND USER_ID = ?";
-		String decCnt = """
-				    UPDATE ROOM
-				    SET CURRENT_USER_CNT = CURRENT_USER_CNT - 1
-				    WHERE ID = ? AND CURRENT_USER_CNT > 0
+		// 결과 코드: 0 = 방에 없던 사용자, 1 = 퇴장, 2 = 퇴장 + 호스트 위임, 3 = 방 삭제
+		String block = """
+				    DECLARE
+				        v_room RAW(16) := ?;
+				        v_user RAW(16) := ?;
+				        v_host RAW(16);
+				        v_next RAW(16);
+				        v_cnt  NUMBER;
+				        v_res  NUMBER := 0;
+				    BEGIN
+				        SELECT HOST_USER_ID INTO v_host FROM ROOM WHERE ID = v_room FOR UPDATE;
+
+				        DELETE FROM ROOM_PLAYER WHERE ROOM_ID = v_room AND USER_ID = v_user;
+
+				        IF SQL%ROWCOUNT > 0 THEN
+				            UPDATE ROOM
+				            SET CURRENT_USER_CNT = CURRENT_USER_CNT - 1
+				            WHERE ID = v_room AND CURRENT_USER_CNT > 0
+				            RETURNING CURRENT_USER_CNT INTO v_cnt;
+
+				            IF NVL(v_cnt, 0) <= 0 THEN
+				                DELETE FROM ROOM WHERE ID = v_room;
+				                v_res := 3;
+				            ELSIF v_host = v_user THEN
+				                BEGIN
+				                    SELECT USER_ID INTO v_next
+				                    FROM (
+				                        SELECT USER_ID
+				                        FROM ROOM_PLAYER
+				                        WHERE ROOM_ID = v_room
+				                        ORDER BY JOINED_AT ASC
+				                    )
+				                    WHERE ROWNUM = 1;
+
+				                    UPDATE ROOM SET HOST_USER_ID = v_next WHERE ID = v_room;
+				                    v_res := 2;
+				                EXCEPTION
+				                    WHEN NO_DATA_FOUND THEN v_res := 1;
+				                END;
+				            ELSE
+				                v_res := 1;
+				            END IF;
+				        END IF;
+
+				        ? := v_res;
+				        ? := v_next;
+				    EXCEPTION
+				        WHEN NO_DATA_FOUND THEN
+				            RAISE_APPLICATION_ERROR(-20002, 'ROOM_NOT_FOUND');
+				    END;
 				""";
 
-		// 호스트 위임
-		String selNextHost = """
-				    SELECT USER_ID
-				    FROM (
-				        SELECT USER_ID
-				        FROM ROOM_PLAYER
-				        WHERE ROOM_ID = ?
-				        ORDER BY JOINED_AT ASC
-				    )
-				    WHERE ROWNUM = 1
-				""";
+		int res;
+		UUID newHost;
 
-		String updHost = "UPDATE ROOM SET HOST_USER_ID = ? WHERE ID = ?";
-		String selCnt = "SELECT CURRENT_USER_CNT FROM ROOM WHERE ID = ?";
-		String delRoom = "DELETE FROM ROOM WHERE ID = ?";
+		try (Connection con = Db.getConnection(); CallableStatement cs = con.prepareCall(block)) {
 
-		try (Connection con = Db.getConnection()) {
-			con.setAutoCommit(false);
+			cs.setBytes(1, UuidRaw.uuidToRaw(roomId));
+			cs.setBytes(2, UuidRaw.uuidToRaw(userId));
+			cs.registerOutParameter(3, Types.INTEGER);
+			cs.registerOutParameter(4, Types.VARBINARY);
 
 			try {
-				UUID hostId;
-				try (PreparedStatement ps = con.prepareStatement(selHost)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-					try (ResultSet rs = ps.executeQuery()) {
-						if (!rs.next())
-							throw new RuntimeException("ROOM_NOT_FOUND");
-						hostId = UuidRaw.rawToUuid(rs.getBytes(1));
-					}
-				}
-				boolean leavingIsHost = hostId.equals(userId);
-
-				int deleted;
-				try (PreparedStatement ps = con.prepareStatement(delPlayer)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-					ps.setBytes(2, UuidRaw.uuidToRaw(userId));
-					deleted = ps.executeUpdate();
-				}
-
-				if (deleted == 0) {
-					con.commit();
-					return LeaveResult.left();
-				}
-
-				try (PreparedStatement ps = con.prepareStatement(decCnt)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-					ps.executeUpdate();
-				}
-
-				int curCnt;
-				try (PreparedStatement ps = con.prepareStatement(selCnt)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-					try (ResultSet rs = ps.executeQuery()) {
-						rs.next();
-						curCnt = rs.getInt(1);
-					}
-				}
-
-				if (curCnt <= 0) {
-					try (PreparedStatement ps = con.prepareStatement(delRoom)) {
-						ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-						ps.executeUpdate();
-					}
-					con.commit();
-					return LeaveResult.roomDeleted();
-				}
-
-				if (leavingIsHost) {
-					UUID newHost = null;
-
-					try (PreparedStatement ps = con.prepareStatement(selNextHost)) {
-						ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-						try (ResultSet rs = ps.executeQuery()) {
-							if (rs.next()) {
-								newHost = UuidRaw.rawToUuid(rs.getBytes(1));
-							}
-						}
-					}
-
-					if (newHost != null) {
-						try (PreparedStatement ps = con.prepareStatement(updHost)) {
-							ps.setBytes(1, UuidRaw.uuidToRaw(newHost));
-							ps.setBytes(2, UuidRaw.uuidToRaw(roomId));
-							ps.executeUpdate();
-						}
-						con.commit();
-						return LeaveResult.hostTransferred(newHost);
-					}
-				}
-
-				con.commit();
-				return LeaveResult.left();
-
-			} catch (Exception e) {
-				con.rollback();
+				cs.execute();
+			} catch (SQLException e) {
+				if (e.getErrorCode() == 20002)
+					throw new RuntimeException("ROOM_NOT_FOUND");
 				throw e;
-			} finally {
-				con.setAutoCommit(true);
 			}
+
+			res = cs.getInt(3);
+			byte[] next = cs.getBytes(4);
+			newHost = next == null ? null : UuidRaw.rawToUuid(next);
+		}
+
+		switch (res) {
+		case 3:
+			RoomRegistry.get().onDeleted(roomId);
+			return LeaveResult.roomDeleted();
+		case 2:
+			RoomRegistry.get().onLeft(roomId, newHost);
+			return LeaveResult.hostTransferred(newHost);
+		case 1:
+			RoomRegistry.get().onLeft(roomId, null);
+			return LeaveResult.left();
+		default:
+			return LeaveResult.left();
 		}
 	}
 
+	@Override
 	public RoomDto createRoomAndEnter(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
 			String pwdHash, int stoneColor) throws Exception {
 
 		UUID roomId = UUID.randomUUID();
+		long createdAt;
 
 		String insRoom = """
 				    INSERT INTO ROOM
@@ -411,10 +482,10 @@ public class RoomDao {
 				    VALUES (?, ?, ?, SYSDATE, ?)
 				""";
 
-		try (Connection con = Db.getConnection()) {
+		try (Connection con = Db.getConnection("createRoomAndEnter")) {
 			con.setAutoCommit(false);
 
-			try (PreparedStatement ps1 = con.prepareStatement(insRoom);
+			try (PreparedStatement ps1 = con.prepareStatement(insRoom, CREATED_AT);
 					PreparedStatement ps2 = con.prepareStatement(insPlayer)) {
 
 				ps1.setBytes(1, UuidRaw.uuidToRaw(roomId));
@@ -430,6 +501,7 @@ public class RoomDao {
 					ps1.setString(7, pwdHash);
 
 				ps1.executeUpdate();
+				createdAt = insertedCreatedAt(ps1);
 
 				ps2.setBytes(1, UuidRaw.uuidToRaw(UUID.randomUUID()));
 				ps2.setBytes(2, UuidRaw.uuidToRaw(roomId));
@@ -447,67 +519,186 @@ public class RoomDao {
 			}
 		}
 
-		return RoomDto.builder().id(roomId).hostUserId(hostUserId).roomName(roomName).isPublic(isPublic)
-				.playType(playType).totalUserCnt(totalUserCnt).currentUserCnt(1).build();
+		RoomDto room = RoomDto.builder().id(roomId).hostUserId(hostUserId).roomName(roomName).isPublic(isPublic)
+				.playType(playType).totalUserCnt(totalUserCnt).currentUserCnt(1).createdAt(createdAt).build();
+		RoomRegistry.get().onCreated(room);
+		return room;
 	}
 
+	/**
+	 * 방 입장 (흑이 없으면 흑, 있으면 백)
+	 *
+	 * 정원 확인, 색 결정, ROOM_PLAYER 추가를 PL/SQL 블록 하나로 처리한다 (JDBC 왕복 1회).
+	 * 먼저 ROOM 행을 UPDATE 해서 같은 방의 동시 입장을 줄 세우므로 ROOM_PLAYER 전체에 FOR UPDATE 를 걸 필요가 없다.
+	 */
+	@Override
 	public int enterRoomAutoColor(UUID roomId, UUID userId) throws Exception {
 
-		String selectColor = """
-				    SELECT STONE_COLOR
-				    FROM ROOM_PLAYER
-				    WHERE ROOM_ID = ?
-				    FOR UPDATE
-				""";
+		String block = """
+				    DECLARE
+				        v_room  RAW(16) := ?;
+				        v_user  RAW(16) := ?;
+				        v_color NUMBER;
+				    BEGIN
+				        UPDATE ROOM
+				        SET CURRENT_USER_CNT = CURRENT_USER_CNT + 1
+				        WHERE ID = v_room
+				          AND CURRENT_USER_CNT < TOTAL_USER_CNT;
+
+				        IF SQL%ROWCOUNT = 0 THEN
+				            RAISE_APPLICATION_ERROR(-20001, 'ROOM_FULL');
+				        END IF;
+
+				        SELECT CASE WHEN COUNT(*) > 0 THEN 2 ELSE 1 END INTO v_color
+				        FROM ROOM_PLAYER
+				        WHERE ROOM_ID = v_room AND STONE_COLOR = 1;
 
-		String updateCnt = """
-				    UPDATE ROOM
-				    SET CURRENT_USER_CNT = CURRENT_USER_CNT + 1
-				    WHERE ID = ?
-				      AND CURRENT_USER_CNT < TOTAL_USER_CNT
+				        INSERT INTO ROOM_PLAYER (ID, ROOM_ID, USER_ID, JOINED_AT, STONE_COLOR)
+				        VALUES (?, v_room, v_user, SYSDATE, v_color);
+
+				        ? := v_color;
+				    END;
 				""";
 
-		String insertPlayer = """
-				    INSERT INTO ROOM_PLAYER (ID, ROOM_ID, USER_ID, JOINED_AT, STONE_COLOR)
-				    VALUES (?, ?, ?, SYSDATE, ?)
+		int myColor;
+
+		try (Connection con = Db.getConnection(); CallableStatement cs = con.prepareCall(block)) {
+
+			cs.setBytes(1, UuidRaw.uuidToRaw(roomId));
+			cs.setBytes(2, UuidRaw.uuidToRaw(userId));
+			cs.setBytes(3, UuidRaw.uuidToRaw(UUID.randomUUID()));
+			cs.registerOutParameter(4, Types.INTEGER);
+
+			try {
+				cs.execute();
+			} catch (SQLException e) {
+				if (e.getErrorCode() == 20001)
+					throw new RuntimeException("ROOM_FULL");
+				throw e;
+			}
+			myColor = cs.getInt(4);
+		}
+
+		RoomRegistry.get().onEntered(roomId);
+		return myColor;
+	}
+
+	static RoomDto mapRoom(ResultSet rs) throws SQLException {
+		UUID id = UuidRaw.rawToUuid(rs.getBytes("ID"));
+		UUID hostId = UuidRaw.rawToUuid(rs.getBytes("HOST_USER_ID"));
+
+		return RoomDto.builder().id(id).hostUserId(hostId).roomName(rs.getString("ROOM_NAME"))
+				.isPublic(rs.getInt("IS_PUBLIC")).playType(rs.getInt("PLAY_TYPE"))
+				.totalUserCnt(rs.getInt("TOTAL_USER_CNT")).currentUserCnt(rs.getInt("CURRENT_USER_CNT"))
+				.createdAt(rs.getTimestamp("CREATED_AT").getTime()).build();
+	}
+
+	/**
+	 * 마지막 활동 = CREATED_AT 와 마지막 JOINED_AT 중 늦은 것. 오래 멈춘 방부터
+	 *
+	 * 기준 시각은 SYSDATE 에서 뺀다 (JOINED_AT 이 SYSDATE 라 앱 서버의 시계/시간대와 섞이지 않게).
+	 *
+	 * 필요한 인덱스:
+	 * CREATE INDEX IX_ROOM_PLAYER_ROOM_JOINED ON ROOM_PLAYER (ROOM_ID, JOINED_AT);
+	 */
+	@Override
+	public List<UUID> findIdleRooms(long idleMillis, int limit) throws Exception {
+		String sql = """
+				    SELECT ID FROM (
+				        SELECT r.ID
+				        FROM ROOM r
+				        WHERE r.CREATED_AT < SYSDATE - NUMTODSINTERVAL(?, 'SECOND')
+				          AND NOT EXISTS (
+				              SELECT 1 FROM ROOM_PLAYER p
+				              WHERE p.ROOM_ID = r.ID AND p.JOINED_AT >= SYSDATE - NUMTODSINTERVAL(?, 'SECOND')
+				          )
+				        ORDER BY r.CREATED_AT ASC
+				    )
+				    WHERE ROWNUM <= ?
 				""";
 
-		try (Connection con = Db.getConnection()) {
+		List<UUID> ids = new ArrayList<>();
+		try (Connection con = Db.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+
+			long idleSeconds = idleMillis / 1000;
+			ps.setLong(1, idleSeconds);
+			ps.setLong(2, idleSeconds);
+			ps.setInt(3, limit);
+
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					ids.add(UuidRaw.rawToUuid(rs.getBytes("ID")));
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * 청소: 한 트랜잭션에 IN 목록째
+	 *
+	 * 1) 후보 ROOM 행을 FOR UPDATE 로 잠근다 (입장은 ROOM 의 UPDATE 부터 하므로 여기서 줄을 선다)
+	 * 2) 잠근 뒤 새 문장으로 아직도 멈춰 있는지 다시 본다 (그 사이 커밋된 입장이 있으면 빠진다)
+	 * 3) 남은 방의 ROOM_PLAYER, ROOM 을 지우고 커밋
+	 */
+	@Override
+	public PurgeResult purgeIdleRooms(Collection<UUID> roomIds, long idleMillis) throws Exception {
+		if (roomIds.isEmpty())
+			return new PurgeResult(List.of(), 0);
+
+		List<UUID> ids = new ArrayList<>(roomIds);
+		String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+		String lock = "SELECT ID FROM ROOM WHERE ID IN (" + in + ") FOR UPDATE";
+		String recheck = """
+				    SELECT r.ID
+				    FROM ROOM r
+				    WHERE r.ID IN (%s)
+				      AND r.CREATED_AT < SYSDATE - NUMTODSINTERVAL(?, 'SECOND')
+				      AND NOT EXISTS (
+				          SELECT 1 FROM ROOM_PLAYER p
+				          WHERE p.ROOM_ID = r.ID AND p.JOINED_AT >= SYSDATE - NUMTODSINTERVAL(?, 'SECOND')
+				      )
+				""".formatted(in);
+
+		List<UUID> idle = new ArrayList<>();
+		int playerRows;
+
+		try (Connection con = Db.getConnection("purgeIdleRooms")) {
 			con.setAutoCommit(false);
 
 			try {
-				boolean blackExists = false;
+				try (PreparedStatement ps = con.prepareStatement(lock)) {
+					bindIds(ps, 1, ids);
+					ps.executeQuery().close();
+				}
 
-				try (PreparedStatement ps = con.prepareStatement(selectColor)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
+				try (PreparedStatement ps = con.prepareStatement(recheck)) {
+					int i = bindIds(ps, 1, ids);
+					long idleSeconds = idleMillis / 1000;
+					ps.setLong(i++, idleSeconds);
+					ps.setLong(i, idleSeconds);
 					try (ResultSet rs = ps.executeQuery()) {
 						while (rs.next()) {
-							if (rs.getInt(1) == 1) {
-								blackExists = true;
-							}
+							idle.add(UuidRaw.rawToUuid(rs.getBytes("ID")));
 						}
 					}
 				}
 
-				int myColor = blackExists ? 2 : 1;
-
-				try (PreparedStatement ps = con.prepareStatement(updateCnt)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(roomId));
-					if (ps.executeUpdate() == 0) {
-						throw new RuntimeException("ROOM_FULL");
-					}
+				if (idle.isEmpty()) {
+					con.rollback();
+					return new PurgeResult(List.of(), 0);
 				}
 
-				try (PreparedStatement ps = con.prepareStatement(insertPlayer)) {
-					ps.setBytes(1, UuidRaw.uuidToRaw(UUID.randomUUID()));
-					ps.setBytes(2, UuidRaw.uuidToRaw(roomId));
-					ps.setBytes(3, UuidRaw.uuidToRaw(userId));
-					ps.setInt(4, myColor);
-					ps.executeUpdate();
+				String idleIn = String.join(",", Collections.nCopies(idle.size(), "?"));
+				try (PreparedStatement ps1 = con.prepareStatement("DELETE FROM ROOM_PLAYER WHERE ROOM_ID IN (" + idleIn + ")");
+						PreparedStatement ps2 = con.prepareStatement("DELETE FROM ROOM WHERE ID IN (" + idleIn + ")")) {
+					bindIds(ps1, 1, idle);
+					playerRows = ps1.executeUpdate();
+					bindIds(ps2, 1, idle);
+					ps2.executeUpdate();
 				}
 
 				con.commit();
-				return myColor;
 
 			} catch (Exception e) {
 				con.rollback();
@@ -516,15 +707,26 @@ public class RoomDao {
 				con.setAutoCommit(true);
 			}
 		}
+
+		RoomRegistry.get().onDeletedAll(idle);
+		return new PurgeResult(idle, playerRows);
 	}
 
-	private RoomDto mapRoom(ResultSet rs) throws SQLException {
-		UUID id = UuidRaw.rawToUuid(rs.getBytes("ID"));
-		UUID hostId = UuidRaw.rawToUuid(rs.getBytes("HOST_USER_ID"));
+	// 다음 파라미터 위치를 돌려준다
+	private static int bindIds(PreparedStatement ps, int from, List<UUID> ids) throws SQLException {
+		for (UUID id : ids)
+			ps.setBytes(from++, UuidRaw.uuidToRaw(id));
+		return from;
+	}
 
-		return RoomDto.builder().id(id).hostUserId(hostId).roomName(rs.getString("ROOM_NAME"))
-				.isPublic(rs.getInt("IS_PUBLIC")).playType(rs.getInt("PLAY_TYPE"))
-				.totalUserCnt(rs.getInt("TOTAL_USER_CNT")).currentUserCnt(rs.getInt("CURRENT_USER_CNT")).build();
+	// CREATED_AT 와 JOINED_AT 는 둘 다 DB 시계(SYSDATE): 노드마다 시계가 달라도 정렬 키와 멈춘 시간이 한 시계로 맞는다.
+	// 레지스트리에는 INSERT 가 돌려준 값을 그대로 넣어 DB 의 정렬 키와 같게 한다
+	private static long insertedCreatedAt(PreparedStatement ps) throws SQLException {
+		try (ResultSet keys = ps.getGeneratedKeys()) {
+			if (!keys.next())
+				throw new SQLException("CREATED_AT not returned");
+			return keys.getTimestamp(1).getTime();
+		}
 	}
 
 }
@@ -0,0 +1,467 @@
+package dao;
+
+import model.RoomCursor;
+import model.RoomDelta;
+import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import bus.Bus;
+import bus.BusEvent;
+import bus.EventBus;
+import util.HandleTable;
+
+/**
+ * 프로세스 로컬 방 목록 (DB 는 영속 저장소, 로비 조회는 여기서만)
+ *
+ * 변경은 RoomStore 구현체(RoomDao 는 커밋 이후)에서만 반영되고, 매번 새 불변 스냅샷을 만들어 교체한다(copy-on-write).
+ * 읽는 쪽은 volatile 스냅샷 하나만 보므로 락도 JDBC 도 타지 않는다.
+ *
+ * 공개 방 목록이 바뀔 때마다 version 이 1 씩 올라가고 같은 seq 의 RoomDelta 가 리스너로 나간다.
+ * 최근 DELTA_LOG_SIZE 개는 보관해서 중간을 놓친 클라이언트가 resync 할 수 있게 한다.
+ *
+ * 스냅샷에 들어가는 방마다 HandleTable.ROOMS 의 handle 을 붙이고, 지워지면 handle 도 푼다.
+ *
+ * 노드가 여럿이면 이 노드의 변경을 버스("registry")로 내보내고 다른 노드의 변경을 받아 같은 방식으로 반영한다.
+ * 받은 변경도 이 노드의 version/seq 로 delta 가 나가므로 로비 클라이언트는 노드를 구분하지 않는다.
+ */
+public class RoomRegistry {
+
+	private static final RoomRegistry INSTANCE = new RoomRegistry();
+
+	private static final int DELTA_LOG_SIZE = 1024;
+	private static final int LOAD_PAGE_SIZE = 500;
+	private static final String CHANNEL = "registry";
+
+	/**
+	 * ORDER BY CREATED_AT DESC, ID DESC 와 같은 순서 (RAW 비교처럼 ID 는 부호 없는 바이트 순)
+	 */
+	static final Comparator<RoomDto> ORDER = (a, b) -> compareKey(a.getCreatedAt(), a.getId(), b.getCreatedAt(),
+			b.getId());
+
+	public static RoomRegistry get() {
+		return INSTANCE;
+	}
+
+	public interface Listener {
+		void onDelta(RoomDelta delta);
+	}
+
+	/**
+	 * 방이 목록에서 빠질 때마다 (공개/비공개, 이 노드에서 지웠든 버스로 받았든). 레지스트리 락 안에서 불리므로 짧게
+	 */
+	public interface RemovalListener {
+		void onRemoved(UUID roomId);
+	}
+
+	public static final class Snapshot {
+		public final long version;
+		public final List<RoomDto> publicRooms; // CREATED_AT DESC, ID DESC
+
+		final List<RoomDto> all;
+		final Map<UUID, RoomDto> byId;
+
+		Snapshot(long version, List<RoomDto> all) {
+			Map<UUID, RoomDto> byId = new HashMap<>();
+			List<RoomDto> publicRooms = new ArrayList<>();
+			for (RoomDto r : all) {
+				byId.put(r.getId(), r);
+				if (r.getIsPublic() == 1)
+					publicRooms.add(r);
+			}
+			this.version = version;
+			this.all = Collections.unmodifiableList(all);
+			this.byId = Collections.unmodifiableMap(byId);
+			this.publicRooms = Collections.unmodifiableList(publicRooms);
+		}
+
+		/**
+		 * RoomDao.listRoomsPage 와 같은 keyset 페이지를 메모리에서
+		 */
+		public RoomPage page(RoomPageQuery q) {
+			List<RoomDto> src = q.isPublicOnly() ? publicRooms : all;
+			int i = q.getAfter() == null ? 0 : firstAfter(src, q.getAfter());
+
+			List<RoomDto> out = new ArrayList<>(Math.min(q.getLimit(), src.size()));
+			for (; i < src.size() && out.size() < q.getLimit(); i++) {
+				RoomDto r = src.get(i);
+				if (q.getPlayType() != null && r.getPlayType() != q.getPlayType())
+					continue;
+				if (q.isHasFreeSeats() && r.getCurrentUserCnt() >= r.getTotalUserCnt())
+					continue;
+				out.add(r);
+			}
+
+			RoomCursor next = out.size() < q.getLimit() ? null : RoomCursor.after(out.get(out.size() - 1));
+			return new RoomPage(Collections.unmodifiableList(out), next);
+		}
+	}
+
+	private volatile Snapshot snapshot = new Snapshot(0, new ArrayList<>());
+
+	private final ArrayDeque<RoomDelta> deltaLog = new ArrayDeque<>(DELTA_LOG_SIZE);
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private final List<RemovalListener> removalListeners = new CopyOnWriteArrayList<>();
+
+	private final EventBus bus = Bus.get();
+
+	private RoomRegistry() {
+		bus.subscribe(CHANNEL, this::onRemote);
+	}
+
+	/**
+	 * 시작 시 ROOM 테이블 전체로 초기화 (keyset 페이지 단위로 끝까지 읽음)
+	 */
+	public void loadFrom(RoomStore store) throws Exception {
+		List<RoomDto> all = readAll(store, LOAD_PAGE_SIZE);
+		all.sort(ORDER);
+		Set<UUID> ids = new HashSet<>(all.size() * 2);
+		for (RoomDto r : all) {
+			r.setHandle(HandleTable.ROOMS.handleOf(r.getId()));
+			ids.add(r.getId());
+		}
+		synchronized (this) {
+			Snapshot old = snapshot;
+			deltaLog.clear();
+			snapshot = new Snapshot(old.version + 1, all);
+			for (RoomDto r : old.all) {
+				if (!ids.contains(r.getId()))
+					released(r.getId());
+			}
+		}
+	}
+
+	/**
+	 * 저장소의 방 전체 (공개/비공개 모두), 각 행은 복사본
+	 */
+	static List<RoomDto> readAll(RoomStore store, int pageSize) throws Exception {
+		List<RoomDto> all = new ArrayList<>();
+		RoomPageQuery q = RoomPageQuery.builder().limit(pageSize).build();
+		RoomPage page;
+		do {
+			page = store.listRoomsPage(q);
+			for (RoomDto r : page.getRooms())
+				all.add(copy(r));
+			q.setAfter(page.getNext());
+		} while (page.getNext() != null);
+		return all;
+	}
+
+	public void addListener(Listener l) {
+		listeners.add(l);
+	}
+
+	public void addRemovalListener(RemovalListener l) {
+		removalListeners.add(l);
+	}
+
+	/**
+	 * version 과 목록이 항상 같이 맞는 한 벌
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	public List<RoomDto> listPublicRooms() {
+		return snapshot.publicRooms;
+	}
+
+	public Optional<RoomDto> findRoom(UUID roomId) {
+		return Optional.ofNullable(snapshot.byId.get(roomId));
+	}
+
+	/**
+	 * fromVersion 이후의 delta (오래돼서 로그에 없으면 null → 전체 목록을 다시 보내야 함)
+	 */
+	public synchronized List<RoomDelta> deltasSince(long fromVersion) {
+		long current = snapshot.version;
+		if (fromVersion >= current)
+			return List.of();
+
+		RoomDelta oldest = deltaLog.peekFirst();
+		if (oldest == null || oldest.getSeq() > fromVersion + 1)
+			return null;
+
+		List<RoomDelta> out = new ArrayList<>((int) (current - fromVersion));
+		for (RoomDelta d : deltaLog) {
+			if (d.getSeq() > fromVersion)
+				out.add(d);
+		}
+		return out;
+	}
+
+	synchronized void onCreated(RoomDto room) {
+		replicate(insert(copy(room)));
+	}
+
+	synchronized void onEntered(UUID roomId) {
+		replicate(replace(roomId, r -> {
+			r.setCurrentUserCnt(r.getCurrentUserCnt() + 1);
+			return RoomDelta.Kind.COUNTS;
+		}));
+	}
+
+	/**
+	 * newHostUserId 가 null 이면 호스트는 그대로
+	 */
+	synchronized void onLeft(UUID roomId, UUID newHostUserId) {
+		replicate(replace(roomId, r -> {
+			r.setCurrentUserCnt(Math.max(0, r.getCurrentUserCnt() - 1));
+			if (newHostUserId == null)
+				return RoomDelta.Kind.COUNTS;
+			r.setHostUserId(newHostUserId);
+			return RoomDelta.Kind.UPSERT;
+		}));
+	}
+
+	/**
+	 * 저장소에서 다시 읽은 인원/정원으로 교정 (SeatGate.reconcile). 바뀌었으면 true
+	 */
+	synchronized boolean onCountsChecked(UUID roomId, int currentUserCnt, int totalUserCnt) {
+		RoomDto changed = replace(roomId, r -> {
+			if (r.getCurrentUserCnt() == currentUserCnt && r.getTotalUserCnt() == totalUserCnt)
+				return null;
+			r.setCurrentUserCnt(currentUserCnt);
+			r.setTotalUserCnt(totalUserCnt);
+			return RoomDelta.Kind.COUNTS;
+		});
+		replicate(changed);
+		return changed != null;
+	}
+
+	synchronized void onDeleted(UUID roomId) {
+		if (remove(roomId))
+			bus.publish(CHANNEL, "room_removed", Map.of("roomId", roomId));
+	}
+
+	/**
+	 * 청소로 여러 방이 한꺼번에 지워짐: 목록을 한 번만 걸러 새로 만들고 버스에도 한 번만 알린다
+	 */
+	synchronized void onDeletedAll(Collection<UUID> roomIds) {
+		List<UUID> removed = removeAll(roomIds);
+		if (!removed.isEmpty())
+			bus.publish(CHANNEL, "rooms_removed", Map.of("roomIds", removed));
+	}
+
+	// ---------- 다른 노드 ----------
+
+	// 바뀐 뒤의 방 전체를 보낸다 (증감이 아니라 값이라 재전송/시작 직후 겹침에도 같은 결과)
+	private void replicate(RoomDto r) {
+		if (r == null)
+			return;
+		Map<String, Object> body = new HashMap<>();
+		body.put("id", r.getId());
+		body.put("hostUserId", r.getHostUserId());
+		body.put("roomName", r.getRoomName());
+		body.put("isPublic", r.getIsPublic());
+		body.put("playType", r.getPlayType());
+		body.put("totalUserCnt", r.getTotalUserCnt());
+		body.put("currentUserCnt", r.getCurrentUserCnt());
+		body.put("createdAt", r.getCreatedAt());
+		bus.publish(CHANNEL, "room", body);
+	}
+
+	// 다른 노드에서 커밋된 변경. handle / seq 는 이 노드 것으로 새로 붙는다
+	private synchronized void onRemote(BusEvent e) {
+		if (e.isFrom(bus))
+			return;
+		if ("room_removed".equals(e.type())) {
+			remove(e.uuid("roomId"));
+			return;
+		}
+		if ("rooms_removed".equals(e.type())) {
+			removeAll(e.uuids("roomIds"));
+			return;
+		}
+		if (!"room".equals(e.type()))
+			return;
+
+		RoomDto in = RoomDto.builder().id(e.uuid("id")).hostUserId(e.uuid("hostUserId"))
+				.roomName(e.string("roomName")).isPublic(e.intValue("isPublic")).playType(e.intValue("playType"))
+				.totalUserCnt(e.intValue("totalUserCnt")).currentUserCnt(e.intValue("currentUserCnt"))
+				.createdAt(e.longValue("createdAt")).build();
+		if (!snapshot.byId.containsKey(in.getId())) {
+			insert(in);
+			return;
+		}
+		replace(in.getId(), r -> {
+			boolean info = !Objects.equals(r.getHostUserId(), in.getHostUserId())
+					|| !Objects.equals(r.getRoomName(), in.getRoomName()) || r.getIsPublic() != in.getIsPublic()
+					|| r.getPlayType() != in.getPlayType();
+			boolean counts = r.getCurrentUserCnt() != in.getCurrentUserCnt()
+					|| r.getTotalUserCnt() != in.getTotalUserCnt();
+			r.setHostUserId(in.getHostUserId());
+			r.setRoomName(in.getRoomName());
+			r.setIsPublic(in.getIsPublic());
+			r.setPlayType(in.getPlayType());
+			r.setTotalUserCnt(in.getTotalUserCnt());
+			r.setCurrentUserCnt(in.getCurrentUserCnt());
+			return info ? RoomDelta.Kind.UPSERT : counts ? RoomDelta.Kind.COUNTS : null;
+		});
+	}
+
+	// ---------- 스냅샷 교체 (모두 synchronized 안에서) ----------
+
+	private RoomDto insert(RoomDto created) {
+		created.setHandle(HandleTable.ROOMS.handleOf(created.getId()));
+		List<RoomDto> all = new ArrayList<>(snapshot.all.size() + 1);
+		all.addAll(snapshot.all);
+		int pos = Collections.binarySearch(all, created, ORDER);
+		all.add(pos < 0 ? -pos - 1 : pos, created); // 보통은 맨 앞
+
+		if (created.getIsPublic() == 1)
+			publish(all, RoomDelta.Kind.UPSERT, created);
+		else
+			snapshot = new Snapshot(snapshot.version, all);
+		return created;
+	}
+
+	private boolean remove(UUID roomId) {
+		Snapshot cur = snapshot;
+		RoomDto removed = cur.byId.get(roomId);
+		if (removed == null)
+			return false;
+
+		List<RoomDto> all = new ArrayList<>(cur.all.size());
+		for (RoomDto r : cur.all) {
+			if (!r.getId().equals(roomId))
+				all.add(r);
+		}
+
+		if (removed.getIsPublic() == 1)
+			publish(all, RoomDelta.Kind.REMOVE, removed);
+		else
+			snapshot = new Snapshot(cur.version, all);
+		released(roomId);
+		return true;
+	}
+
+	// 지운 방 id (원래 없던 방은 빠진다). 공개 방마다 REMOVE 델타가 seq 를 이어서 하나씩
+	private List<UUID> removeAll(Collection<UUID> roomIds) {
+		Snapshot cur = snapshot;
+		Set<UUID> targets = new HashSet<>(roomIds);
+		List<RoomDto> all = new ArrayList<>(cur.all.size());
+		List<RoomDto> removed = new ArrayList<>();
+		for (RoomDto r : cur.all) {
+			if (targets.contains(r.getId()))
+				removed.add(r);
+			else
+				all.add(r);
+		}
+		if (removed.isEmpty())
+			return List.of();
+
+		int publicCount = 0;
+		for (RoomDto r : removed) {
+			if (r.getIsPublic() == 1)
+				publicCount++;
+		}
+		long seq = cur.version;
+		snapshot = new Snapshot(seq + publicCount, all);
+
+		List<UUID> ids = new ArrayList<>(removed.size());
+		for (RoomDto r : removed) {
+			if (r.getIsPublic() == 1)
+				emit(++seq, RoomDelta.Kind.REMOVE, r);
+			released(r.getId());
+			ids.add(r.getId());
+		}
+		return ids;
+	}
+
+	// 스냅샷에서 빠진 방
+	private void released(UUID roomId) {
+		HandleTable.ROOMS.release(roomId);
+		for (RemovalListener l : removalListeners)
+			l.onRemoved(roomId);
+	}
+
+	/**
+	 * Mutation 이 null 을 돌려주면 바뀐 게 없어서 그대로 둔다
+	 */
+	private interface Mutation {
+		RoomDelta.Kind apply(RoomDto copy);
+	}
+
+	// 바뀐 방 (없는 방이거나 바뀐 게 없으면 null)
+	private RoomDto replace(UUID roomId, Mutation m) {
+		Snapshot cur = snapshot;
+		RoomDto before = cur.byId.get(roomId);
+		if (before == null)
+			return null;
+
+		RoomDto changed = copy(before);
+		RoomDelta.Kind kind = m.apply(changed);
+		if (kind == null)
+			return null;
+
+		List<RoomDto> all = new ArrayList<>(cur.all.size());
+		for (RoomDto r : cur.all)
+			all.add(r == before ? changed : r);
+
+		if (changed.getIsPublic() == 1)
+			publish(all, kind, changed);
+		else
+			snapshot = new Snapshot(cur.version, all);
+		return changed;
+	}
+
+	// 반드시 synchronized 안에서 호출: seq 순서 == 리스너 호출 순서
+	private void publish(List<RoomDto> all, RoomDelta.Kind kind, RoomDto room) {
+		long seq = snapshot.version + 1;
+		snapshot = new Snapshot(seq, all);
+		emit(seq, kind, room);
+	}
+
+	// 델타 기록 + 리스너. 스냅샷은 이미 seq 까지 바뀌어 있어야 한다
+	private void emit(long seq, RoomDelta.Kind kind, RoomDto room) {
+		RoomDelta delta = new RoomDelta(seq, kind, room.getId(), room.getHandle(), kind == RoomDelta.Kind.UPSERT ? room : null,
+				room.getCurrentUserCnt(), room.getTotalUserCnt());
+
+		if (deltaLog.size() == DELTA_LOG_SIZE)
+			deltaLog.pollFirst();
+		deltaLog.addLast(delta);
+
+		for (Listener l : listeners) {
+			try {
+				l.onDelta(delta);
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	// 커서 바로 다음(정렬상 더 오래된) 첫 위치
+	private static int firstAfter(List<RoomDto> src, RoomCursor c) {
+		int lo = 0, hi = src.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			RoomDto r = src.get(mid);
+			if (compareKey(r.getCreatedAt(), r.getId(), c.getCreatedAt(), c.getId()) <= 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	// 음수면 a 가 앞 (CREATED_AT DESC, ID DESC)
+	static int compareKey(long aAt, UUID aId, long bAt, UUID bId) {
+		int c = Long.compare(bAt, aAt);
+		if (c != 0)
+			return c;
+		c = Long.compareUnsigned(bId.getMostSignificantBits(), aId.getMostSignificantBits());
+		if (c != 0)
+			return c;
+		return Long.compareUnsigned(bId.getLeastSignificantBits(), aId.getLeastSignificantBits());
+	}
+
+	// 스냅샷에 들어간 객체는 절대 수정하지 않는다
+	private static RoomDto copy(RoomDto r) {
+		return RoomDto.builder().id(r.getId()).hostUserId(r.getHostUserId()).roomName(r.getRoomName())
+				.isPublic(r.getIsPublic()).playType(r.getPlayType()).totalUserCnt(r.getTotalUserCnt())
+				.currentUserCnt(r.getCurrentUserCnt()).createdAt(r.getCreatedAt()).handle(r.getHandle()).build();
+	}
+}
@@ -0,0 +1,104 @@
+package dao;
+
+import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 방/플레이어 저장소 (RoomDao = Oracle, MemoryRoomStore = 메모리)
+ *
+ * 구현체는 변경이 확정된 뒤에 RoomRegistry 의 onCreated/onEntered/onLeft/onDeleted 를 호출해야 한다.
+ * 에러는 RoomDao 와 같은 RuntimeException 코드로 낸다 (ROOM_FULL, ROOM_NOT_FOUND, ROOM_FULL_OR_NOT_FOUND).
+ */
+public interface RoomStore {
+
+	List<RoomDto> listPublicRooms() throws Exception;
+
+	RoomPage listRoomsPage(RoomPageQuery q) throws Exception;
+
+	Optional<RoomDto> findRoom(UUID roomId) throws Exception;
+
+	boolean isHost(UUID roomId, UUID userId) throws Exception;
+
+	RoomDto createRoom(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt, String pwdHash)
+			throws Exception;
+
+	boolean checkRoomPassword(UUID roomId, String pwdHash) throws Exception;
+
+	void enterRoom(UUID roomId, UUID userId, int stoneColor) throws Exception;
+
+	void leaveRoom(UUID roomId, UUID userId) throws Exception;
+
+	void deleteRoom(UUID roomId) throws Exception;
+
+	/**
+	 * 입장 순서대로 userId, nickname, stoneColor
+	 */
+	List<Map<String, Object>> listRoomPlayers(UUID roomId) throws Exception;
+
+	/**
+	 * USER_INFO 조인 없이 userId -> stoneColor (입장 순서). 닉네임은 ProfileCache 에서
+	 */
+	Map<UUID, Integer> listRoomSeats(UUID roomId) throws Exception;
+
+	LeaveResult leaveRoomWithHostTransfer(UUID roomId, UUID userId) throws Exception;
+
+	RoomDto createRoomAndEnter(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash, int stoneColor) throws Exception;
+
+	int enterRoomAutoColor(UUID roomId, UUID userId) throws Exception;
+
+	/**
+	 * 마지막 활동(만든 시각, 마지막 입장 시각)이 idleMillis 보다 오래된 방, 오래 멈춘 순서로 최대 limit 개.
+	 * 기준 시각은 저장소가 그 시각들을 쓸 때와 같은 시계로 정한다 (Oracle 은 SYSDATE)
+	 */
+	List<UUID> findIdleRooms(long idleMillis, int limit) throws Exception;
+
+	/**
+	 * roomIds 중 지금도 idleMillis 넘게 멈춰 있는 방만 플레이어째 지운다 (한 트랜잭션).
+	 * 지운 방은 RoomRegistry.onDeletedAll 로 한 번에 알린다.
+	 */
+	PurgeResult purgeIdleRooms(Collection<UUID> roomIds, long idleMillis) throws Exception;
+
+	enum LeaveResultType {
+		LEFT, HOST_TRANSFERRED, ROOM_DELETED
+	}
+
+	class LeaveResult {
+		public final LeaveResultType type;
+		public final UUID newHostUserId; 
+
+		public LeaveResult(LeaveResultType type, UUID newHostUserId) {
+			this.type = type;
+			this.newHostUserId = newHostUserId;
+		}
+
+		public static LeaveResult left() {
+			return new LeaveResult(LeaveResultType.LEFT, null);
+		}
+
+		public static LeaveResult hostTransferred(UUID newHost) {
+			return new LeaveResult(LeaveResultType.HOST_TRANSFERRED, newHost);
+		}
+
+		public static LeaveResult roomDeleted() {
+			return new LeaveResult(LeaveResultType.ROOM_DELETED, null);
+		}
+	}
+
+	class PurgeResult {
+		public final List<UUID> roomIds; // 실제로 지운 방
+		public final int playerRows; // 같이 지운 ROOM_PLAYER 행
+
+		public PurgeResult(List<UUID> roomIds, int playerRows) {
+			this.roomIds = roomIds;
+			this.playerRows = playerRows;
+		}
+	}
+}
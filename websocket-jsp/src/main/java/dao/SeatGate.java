@@ -0,0 +1,243 @@
+package dao;
+
+import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 입장 전에 메모리에서 자리부터 잡는 RoomStore 래퍼
+ *
+ * 확정 인원과 정원은 RoomRegistry 에서 읽고 (저장소가 커밋 뒤에 고친 값, 다른 노드 것은 버스로 받은 값),
+ * 여기서는 방마다 아직 커밋되지 않은 예약 수만 AtomicInteger 로 센다 (락 없이 CAS: 확정 + 예약이 정원 미만일 때만 +1).
+ * 확정 + 예약이 정원이면 트랜잭션을 열지 않고 바로 ROOM_FULL, 자리를 잡았으면 그때 저장소로 내려간다.
+ * 예약이 0 이 된 카운터는 -1 로 닫고 맵에서 뺀다. 닫힌 카운터를 본 쪽은 새 카운터로 다시 시도한다.
+ * 저장소가 끝나면 (커밋이면 레지스트리에 이미 반영됐다) 예약을 푼다. 확정 인원을 따로 들고 있지 않으므로
+ * 커밋과 카운터 사이에 끼어들 대조 작업이 없고, 예약이 없는 방은 항목도 없다.
+ *
+ * DB 의 조건부 UPDATE 가 여전히 최종 판정이고 이건 뻔히 실패할 트랜잭션을 걸러내는 앞단일 뿐이다.
+ * 레지스트리에 없는 방은 그냥 저장소로 보낸다.
+ *
+ * 레지스트리는 시작 시 CURRENT_USER_CNT 로 채워진다. 이후 수동 변경 등으로 어긋난 값은 findDrifted 로 주기적으로 찾고,
+ * 방마다 reconcile 로 그 방의 입장/퇴장과 겹치지 않는 곳(방 주인 노드의 방 줄, websocket.SeatReconciler)에서
+ * 다시 읽어 레지스트리를 고친다.
+ */
+public final class SeatGate implements RoomStore {
+
+	private static final int SCAN_PAGE_SIZE = 500;
+
+	private final RoomStore delegate;
+	// roomId -> 저장소에 내려가 있는 입장 수 (0 이 되면 -1 로 닫고 뺀다)
+	private final Map<UUID, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+	private final LongAdder admitted = new LongAdder();
+	private final LongAdder fastRejected = new LongAdder();
+	private final LongAdder released = new LongAdder();
+	private final LongAdder corrected = new LongAdder();
+
+	public SeatGate(RoomStore delegate) {
+		this.delegate = delegate;
+	}
+
+	public RoomStore delegate() {
+		return delegate;
+	}
+
+	/**
+	 * 주기 점검 1단계: 저장소 전체를 keyset 페이지로 훑어 레지스트리와 인원/정원이 다른 방.
+	 * 훑는 동안 커밋된 입장/퇴장 때문에도 다를 수 있어서 여기서는 고치지 않는다
+	 */
+	public List<UUID> findDrifted() throws Exception {
+		List<UUID> drifted = new ArrayList<>();
+		for (RoomDto r : RoomRegistry.readAll(delegate, SCAN_PAGE_SIZE)) {
+			RoomDto cur = RoomRegistry.get().findRoom(r.getId()).orElse(null);
+			if (cur != null && (cur.getCurrentUserCnt() != r.getCurrentUserCnt()
+					|| cur.getTotalUserCnt() != r.getTotalUserCnt()))
+				drifted.add(r.getId());
+		}
+		return drifted;
+	}
+
+	/**
+	 * 2단계: 그 방의 입장/퇴장과 겹치지 않는 곳에서 다시 읽어 레지스트리를 고친다. 고쳤으면 true
+	 */
+	public boolean reconcile(UUID roomId) throws Exception {
+		Optional<RoomDto> r = delegate.findRoom(roomId);
+		if (r.isEmpty())
+			return false; // 지운 쪽이 레지스트리에서도 뺀다
+		if (!RoomRegistry.get().onCountsChecked(roomId, r.get().getCurrentUserCnt(), r.get().getTotalUserCnt()))
+			return false;
+		corrected.increment();
+		return true;
+	}
+
+	private interface Entry<T> {
+		T run() throws Exception;
+	}
+
+	private <T> T admit(UUID roomId, Entry<T> enter) throws Exception {
+		if (RoomRegistry.get().findRoom(roomId).isEmpty())
+			return enter.run();
+
+		if (!reserve(roomId)) {
+			fastRejected.increment();
+			throw new RuntimeException("ROOM_FULL");
+		}
+		T result;
+		try {
+			result = enter.run();
+		} catch (Exception e) {
+			release(roomId);
+			released.increment();
+			throw e;
+		}
+		release(roomId); // 확정 인원은 저장소가 레지스트리에 올렸다
+		admitted.increment();
+		return result;
+	}
+
+	// 레지스트리 확정 인원 + 예약이 정원 미만이면 예약 하나 (CAS 에 지면 확정 인원부터 다시 읽는다)
+	private boolean reserve(UUID roomId) {
+		while (true) {
+			AtomicInteger c = pending.computeIfAbsent(roomId, k -> new AtomicInteger());
+			int p = c.get();
+			if (p < 0) {
+				Thread.onSpinWait(); // 닫는 중 (곧 맵에서 빠진다)
+				continue;
+			}
+			RoomDto r = RoomRegistry.get().findRoom(roomId).orElse(null);
+			if (r != null && r.getCurrentUserCnt() + p >= r.getTotalUserCnt()) {
+				if (p == 0)
+					retire(roomId, c); // 방금 만든 빈 카운터를 남기지 않는다
+				return false;
+			}
+			if (c.compareAndSet(p, p + 1))
+				return true;
+		}
+	}
+
+	private void release(UUID roomId) {
+		AtomicInteger c = pending.get(roomId);
+		if (c != null && c.decrementAndGet() == 0)
+			retire(roomId, c);
+	}
+
+	// 0 이면 닫고 뺀다 (그 사이 누가 잡았으면 CAS 가 실패하고, 그쪽 release 가 나중에 뺀다)
+	private void retire(UUID roomId, AtomicInteger c) {
+		if (c.compareAndSet(0, -1))
+			pending.remove(roomId, c);
+	}
+
+	@Override
+	public List<RoomDto> listPublicRooms() throws Exception {
+		return delegate.listPublicRooms();
+	}
+
+	@Override
+	public RoomPage listRoomsPage(RoomPageQuery q) throws Exception {
+		return delegate.listRoomsPage(q);
+	}
+
+	@Override
+	public Optional<RoomDto> findRoom(UUID roomId) throws Exception {
+		return delegate.findRoom(roomId);
+	}
+
+	@Override
+	public boolean isHost(UUID roomId, UUID userId) throws Exception {
+		return delegate.isHost(roomId, userId);
+	}
+
+	@Override
+	public RoomDto createRoom(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash) throws Exception {
+		return delegate.createRoom(hostUserId, roomName, isPublic, playType, totalUserCnt, pwdHash);
+	}
+
+	@Override
+	public boolean checkRoomPassword(UUID roomId, String pwdHash) throws Exception {
+		return delegate.checkRoomPassword(roomId, pwdHash);
+	}
+
+	@Override
+	public void enterRoom(UUID roomId, UUID userId, int stoneColor) throws Exception {
+		admit(roomId, () -> {
+			delegate.enterRoom(roomId, userId, stoneColor);
+			return null;
+		});
+	}
+
+	@Override
+	public void leaveRoom(UUID roomId, UUID userId) throws Exception {
+		delegate.leaveRoom(roomId, userId);
+	}
+
+	@Override
+	public void deleteRoom(UUID roomId) throws Exception {
+		delegate.deleteRoom(roomId);
+	}
+
+	@Override
+	public List<Map<String, Object>> listRoomPlayers(UUID roomId) throws Exception {
+		return delegate.listRoomPlayers(roomId);
+	}
+
+	@Override
+	public Map<UUID, Integer> listRoomSeats(UUID roomId) throws Exception {
+		return delegate.listRoomSeats(roomId);
+	}
+
+	@Override
+	public LeaveResult leaveRoomWithHostTransfer(UUID roomId, UUID userId) throws Exception {
+		return delegate.leaveRoomWithHostTransfer(roomId, userId);
+	}
+
+	@Override
+	public RoomDto createRoomAndEnter(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash, int stoneColor) throws Exception {
+		return delegate.createRoomAndEnter(hostUserId, roomName, isPublic, playType, totalUserCnt, pwdHash,
+				stoneColor);
+	}
+
+	@Override
+	public int enterRoomAutoColor(UUID roomId, UUID userId) throws Exception {
+		return admit(roomId, () -> delegate.enterRoomAutoColor(roomId, userId));
+	}
+
+	@Override
+	public List<UUID> findIdleRooms(long idleMillis, int limit) throws Exception {
+		return delegate.findIdleRooms(idleMillis, limit);
+	}
+
+	@Override
+	public PurgeResult purgeIdleRooms(Collection<UUID> roomIds, long idleMillis) throws Exception {
+		return delegate.purgeIdleRooms(roomIds, idleMillis);
+	}
+
+	/**
+	 * 예약이 저장소에 내려가 있는 방 수
+	 */
+	public int trackedRooms() {
+		return pending.size();
+	}
+
+	public long admitted() {
+		return admitted.sum();
+	}
+
+	public long fastRejected() {
+		return fastRejected.sum();
+	}
+
+	public long released() {
+		return released.sum();
+	}
+
+	public long corrected() {
+		return corrected.sum();
+	}
+}
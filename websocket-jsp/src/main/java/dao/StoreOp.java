@@ -0,0 +1,21 @@
+package dao;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * 저장소 메서드 하나의 지연 히스토그램 + 예외 수 (TimedRoomStore / TimedUserStore 가 메서드마다 하나씩 들고 있음)
+ */
+final class StoreOp {
+
+	final Histogram latency;
+	final Counter errors;
+
+	StoreOp(String store, String method) {
+		latency = Metrics.latency("dao_call_seconds", "저장소 메서드 호출 시간 (커넥션 대기 포함)", "store", store, "method",
+				method);
+		errors = Metrics.counter("dao_call_errors_total", "예외로 끝난 저장소 호출 (ROOM_FULL 같은 코드 포함)", "store", store,
+				"method", method);
+	}
+}
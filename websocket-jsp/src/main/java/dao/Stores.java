@@ -0,0 +1,72 @@
+package dao;
+
+import metrics.Metrics;
+
+/**
+ * 저장소 선택 (-Ddao.store=oracle|memory, 기본 oracle)
+ *
+ * memory 면 Db(JNDI) 클래스를 아예 건드리지 않는다.
+ * 벤치마크/부하 테스트는 RoomRegistry.loadFrom 전에 use(...) 로 직접 바꿔 끼울 수 있다.
+ * 방 저장소는 항상 SeatGate 로(정원 초과는 DB 전에 거절), 회원 저장소는 ProfileCache 로 감싸서 내준다.
+ * 그 안쪽에는 Timed*Store 를 끼워 실제 저장소 호출만 dao_call_seconds 로 잰다.
+ */
+public final class Stores {
+
+	private static volatile SeatGate rooms;
+	private static volatile ProfileCache users;
+
+	static {
+		String kind = System.getProperty("dao.store", "oracle");
+		if ("memory".equalsIgnoreCase(kind)) {
+			MemoryUserStore u = new MemoryUserStore();
+			use(new MemoryRoomStore(u), u);
+		} else if ("oracle".equalsIgnoreCase(kind)) {
+			use(new RoomDao(), new UsersDao());
+		} else {
+			throw new IllegalArgumentException("dao.store: " + kind);
+		}
+	}
+
+	private Stores() {
+	}
+
+	public static RoomStore rooms() {
+		return rooms;
+	}
+
+	public static SeatGate seats() {
+		return rooms;
+	}
+
+	public static UserStore users() {
+		return users;
+	}
+
+	public static ProfileCache profiles() {
+		return users;
+	}
+
+	public static void use(RoomStore roomStore, UserStore userStore) {
+		rooms = roomStore instanceof SeatGate ? (SeatGate) roomStore : new SeatGate(new TimedRoomStore(roomStore));
+		users = userStore instanceof ProfileCache ? (ProfileCache) userStore
+				: new ProfileCache(new TimedUserStore(userStore));
+		registerMetrics();
+	}
+
+	// 바꿔 끼울 때마다 다시 등록해서 항상 지금 쓰는 인스턴스를 읽는다
+	private static void registerMetrics() {
+		Metrics.gauge("dao_seats_tracked_rooms", "SeatGate 예약이 저장소에 내려가 있는 방 수", () -> rooms.trackedRooms());
+		Metrics.counterOf("dao_seats_admitted_total", "자리를 잡고 저장소까지 가서 커밋된 입장", () -> rooms.admitted());
+		Metrics.counterOf("dao_seats_fast_rejected_total", "트랜잭션 없이 바로 ROOM_FULL 로 거절한 입장",
+				() -> rooms.fastRejected());
+		Metrics.counterOf("dao_seats_released_total", "잡았다가 저장소 실패로 푼 자리", () -> rooms.released());
+		Metrics.counterOf("dao_seats_corrected_total", "주기 점검에서 저장소 값으로 고친 방 인원/정원", () -> rooms.corrected());
+
+		Metrics.gauge("dao_profile_cache_size", "ProfileCache 에 든 프로필 수", () -> users.size());
+		Metrics.counterOf("dao_profile_cache_hits_total", "ProfileCache 적중", () -> users.hits());
+		Metrics.counterOf("dao_profile_cache_misses_total", "ProfileCache 미스 (저장소에서 읽음)", () -> users.misses());
+		Metrics.counterOf("dao_profile_cache_evictions_total", "용량 때문에 밀려난 프로필", () -> users.evictions());
+		Metrics.counterOf("dao_profile_cache_invalidations_total", "전적 변경 등으로 지운 프로필",
+				() -> users.invalidations());
+	}
+}
@@ -0,0 +1,257 @@
+package dao;
+
+import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 메서드별 호출 시간/예외 수를 재는 RoomStore 래퍼 (dao_call_seconds{store="room"})
+ *
+ * Stores 에서 SeatGate 안쪽에 끼우므로 SeatGate 가 바로 거절한 입장은 재지 않는다 (실제로 저장소까지 간 것만).
+ */
+public final class TimedRoomStore implements RoomStore {
+
+	private static final StoreOp LIST_PUBLIC_ROOMS = new StoreOp("room", "listPublicRooms");
+	private static final StoreOp LIST_ROOMS_PAGE = new StoreOp("room", "listRoomsPage");
+	private static final StoreOp FIND_ROOM = new StoreOp("room", "findRoom");
+	private static final StoreOp IS_HOST = new StoreOp("room", "isHost");
+	private static final StoreOp CREATE_ROOM = new StoreOp("room", "createRoom");
+	private static final StoreOp CHECK_ROOM_PASSWORD = new StoreOp("room", "checkRoomPassword");
+	private static final StoreOp ENTER_ROOM = new StoreOp("room", "enterRoom");
+	private static final StoreOp LEAVE_ROOM = new StoreOp("room", "leaveRoom");
+	private static final StoreOp DELETE_ROOM = new StoreOp("room", "deleteRoom");
+	private static final StoreOp LIST_ROOM_PLAYERS = new StoreOp("room", "listRoomPlayers");
+	private static final StoreOp LIST_ROOM_SEATS = new StoreOp("room", "listRoomSeats");
+	private static final StoreOp LEAVE_ROOM_WITH_HOST_TRANSFER = new StoreOp("room", "leaveRoomWithHostTransfer");
+	private static final StoreOp CREATE_ROOM_AND_ENTER = new StoreOp("room", "createRoomAndEnter");
+	private static final StoreOp ENTER_ROOM_AUTO_COLOR = new StoreOp("room", "enterRoomAutoColor");
+	private static final StoreOp FIND_IDLE_ROOMS = new StoreOp("room", "findIdleRooms");
+	private static final StoreOp PURGE_IDLE_ROOMS = new StoreOp("room", "purgeIdleRooms");
+
+	private final RoomStore delegate;
+
+	public TimedRoomStore(RoomStore delegate) {
+		this.delegate = delegate;
+	}
+
+	public RoomStore delegate() {
+		return delegate;
+	}
+
+	@Override
+	public List<RoomDto> listPublicRooms() throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.listPublicRooms();
+		} catch (Exception e) {
+			LIST_PUBLIC_ROOMS.errors.inc();
+			throw e;
+		} finally {
+			LIST_PUBLIC_ROOMS.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public RoomPage listRoomsPage(RoomPageQuery q) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.listRoomsPage(q);
+		} catch (Exception e) {
+			LIST_ROOMS_PAGE.errors.inc();
+			throw e;
+		} finally {
+			LIST_ROOMS_PAGE.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public Optional<RoomDto> findRoom(UUID roomId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.findRoom(roomId);
+		} catch (Exception e) {
+			FIND_ROOM.errors.inc();
+			throw e;
+		} finally {
+			FIND_ROOM.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public boolean isHost(UUID roomId, UUID userId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.isHost(roomId, userId);
+		} catch (Exception e) {
+			IS_HOST.errors.inc();
+			throw e;
+		} finally {
+			IS_HOST.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public RoomDto createRoom(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.createRoom(hostUserId, roomName, isPublic, playType, totalUserCnt, pwdHash);
+		} catch (Exception e) {
+			CREATE_ROOM.errors.inc();
+			throw e;
+		} finally {
+			CREATE_ROOM.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public boolean checkRoomPassword(UUID roomId, String pwdHash) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.checkRoomPassword(roomId, pwdHash);
+		} catch (Exception e) {
+			CHECK_ROOM_PASSWORD.errors.inc();
+			throw e;
+		} finally {
+			CHECK_ROOM_PASSWORD.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public void enterRoom(UUID roomId, UUID userId, int stoneColor) throws Exception {
+		long t = System.nanoTime();
+		try {
+			delegate.enterRoom(roomId, userId, stoneColor);
+		} catch (Exception e) {
+			ENTER_ROOM.errors.inc();
+			throw e;
+		} finally {
+			ENTER_ROOM.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public void leaveRoom(UUID roomId, UUID userId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			delegate.leaveRoom(roomId, userId);
+		} catch (Exception e) {
+			LEAVE_ROOM.errors.inc();
+			throw e;
+		} finally {
+			LEAVE_ROOM.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public void deleteRoom(UUID roomId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			delegate.deleteRoom(roomId);
+		} catch (Exception e) {
+			DELETE_ROOM.errors.inc();
+			throw e;
+		} finally {
+			DELETE_ROOM.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public List<Map<String, Object>> listRoomPlayers(UUID roomId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.listRoomPlayers(roomId);
+		} catch (Exception e) {
+			LIST_ROOM_PLAYERS.errors.inc();
+			throw e;
+		} finally {
+			LIST_ROOM_PLAYERS.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public Map<UUID, Integer> listRoomSeats(UUID roomId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.listRoomSeats(roomId);
+		} catch (Exception e) {
+			LIST_ROOM_SEATS.errors.inc();
+			throw e;
+		} finally {
+			LIST_ROOM_SEATS.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public LeaveResult leaveRoomWithHostTransfer(UUID roomId, UUID userId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.leaveRoomWithHostTransfer(roomId, userId);
+		} catch (Exception e) {
+			LEAVE_ROOM_WITH_HOST_TRANSFER.errors.inc();
+			throw e;
+		} finally {
+			LEAVE_ROOM_WITH_HOST_TRANSFER.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public RoomDto createRoomAndEnter(UUID hostUserId, String roomName, int isPublic, int playType, int totalUserCnt,
+			String pwdHash, int stoneColor) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.createRoomAndEnter(hostUserId, roomName, isPublic, playType, totalUserCnt, pwdHash,
+					stoneColor);
+		} catch (Exception e) {
+			CREATE_ROOM_AND_ENTER.errors.inc();
+			throw e;
+		} finally {
+			CREATE_ROOM_AND_ENTER.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public int enterRoomAutoColor(UUID roomId, UUID userId) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.enterRoomAutoColor(roomId, userId);
+		} catch (Exception e) {
+			ENTER_ROOM_AUTO_COLOR.errors.inc();
+			throw e;
+		} finally {
+			ENTER_ROOM_AUTO_COLOR.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public List<UUID> findIdleRooms(long idleMillis, int limit) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.findIdleRooms(idleMillis, limit);
+		} catch (Exception e) {
+			FIND_IDLE_ROOMS.errors.inc();
+			throw e;
+		} finally {
+			FIND_IDLE_ROOMS.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public PurgeResult purgeIdleRooms(Collection<UUID> roomIds, long idleMillis) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.purgeIdleRooms(roomIds, idleMillis);
+		} catch (Exception e) {
+			PURGE_IDLE_ROOMS.errors.inc();
+			throw e;
+		} finally {
+			PURGE_IDLE_ROOMS.latency.observeSince(t);
+		}
+	}
+}
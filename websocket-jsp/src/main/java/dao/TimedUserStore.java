@@ -0,0 +1,84 @@
+package dao;
+
+import model.UserInfo;
+import model.UserSession;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 메서드별 호출 시간/예외 수를 재는 UserStore 래퍼 (dao_call_seconds{store="user"}, signUp 은 AuthDao 경로)
+ *
+ * Stores 에서 ProfileCache 안쪽에 끼우므로 findProfiles 는 캐시에서 못 찾은 것만 잰다.
+ */
+public final class TimedUserStore implements UserStore {
+
+	private static final StoreOp SIGN_UP = new StoreOp("user", "signUp");
+	private static final StoreOp LOGIN = new StoreOp("user", "login");
+	private static final StoreOp FIND_PROFILES = new StoreOp("user", "findProfiles");
+	private static final StoreOp ADD_STATS = new StoreOp("user", "addStats");
+
+	private final UserStore delegate;
+
+	public TimedUserStore(UserStore delegate) {
+		this.delegate = delegate;
+	}
+
+	public UserStore delegate() {
+		return delegate;
+	}
+
+	@Override
+	public void signUp(String email, String plainPwd, String nickname) throws Exception {
+		long t = System.nanoTime();
+		try {
+			delegate.signUp(email, plainPwd, nickname);
+		} catch (Exception e) {
+			SIGN_UP.errors.inc();
+			throw e;
+		} finally {
+			SIGN_UP.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public Optional<UserSession> login(String email, String pwdHash) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.login(email, pwdHash);
+		} catch (Exception e) {
+			LOGIN.errors.inc();
+			throw e;
+		} finally {
+			LOGIN.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public Map<UUID, UserInfo> findProfiles(Collection<UUID> userIds) throws Exception {
+		long t = System.nanoTime();
+		try {
+			return delegate.findProfiles(userIds);
+		} catch (Exception e) {
+			FIND_PROFILES.errors.inc();
+			throw e;
+		} finally {
+			FIND_PROFILES.latency.observeSince(t);
+		}
+	}
+
+	@Override
+	public void addStats(UUID userId, int winDelta, int loseDelta, long coinDelta) throws Exception {
+		long t = System.nanoTime();
+		try {
+			delegate.addStats(userId, winDelta, loseDelta, coinDelta);
+		} catch (Exception e) {
+			ADD_STATS.errors.inc();
+			throw e;
+		} finally {
+			ADD_STATS.latency.observeSince(t);
+		}
+	}
+}
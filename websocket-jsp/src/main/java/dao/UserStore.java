@@ -0,0 +1,40 @@
+package dao;
+
+import model.UserInfo;
+import model.UserSession;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 회원 저장소 (UsersDao = Oracle, MemoryUserStore = 메모리)
+ */
+public interface UserStore {
+
+	/**
+	 * 이메일/닉네임 중복이면 SQLException (Oracle 은 ORA-00001)
+	 */
+	void signUp(String email, String plainPwd, String nickname) throws Exception;
+
+	/**
+	 * pwdHash 는 PasswordHash.sha256 결과
+	 */
+	Optional<UserSession> login(String email, String pwdHash) throws Exception;
+
+	/**
+	 * USER_INFO 한 번에 여러 명 (없는 사용자는 결과에서 빠짐)
+	 */
+	Map<UUID, UserInfo> findProfiles(Collection<UUID> userIds) throws Exception;
+
+	default Optional<UserInfo> findProfile(UUID userId) throws Exception {
+		return Optional.ofNullable(findProfiles(List.of(userId)).get(userId));
+	}
+
+	/**
+	 * 대국 결과 반영: TOTAL_WIN/TOTAL_LOSE/COIN 에 더한다
+	 */
+	void addStats(UUID userId, int winDelta, int loseDelta, long coinDelta) throws Exception;
+}
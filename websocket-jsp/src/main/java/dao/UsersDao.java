@@ -1,15 +1,26 @@
 package dao;
 
 import db.Db;
+import model.UserInfo;
 import model.UserSession;
 import util.UuidRaw;
 
 import java.sql.*;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 
-public class UsersDao {
+public class UsersDao implements UserStore {
 
+    // Oracle IN 목록은 1000 개까지
+    private static final int IN_CHUNK = 1000;
+
+    private final AuthDao authDao = new AuthDao();
+
+    @Override
+    public void signUp(String email, String plainPwd, String nickname) throws Exception {
+        authDao.signUp(email, plainPwd, nickname);
+    }
+
+    @Override
     public Optional<UserSession> login(String email, String pwdHash) throws Exception {
         String sql = """
             SELECT u.ID, u.EMAIL, ui.NICKNAME
@@ -39,4 +50,59 @@ public class UsersDao {
             }
         }
     }
+
+    @Override
+    public Map<UUID, UserInfo> findProfiles(Collection<UUID> userIds) throws Exception {
+        Map<UUID, UserInfo> out = new HashMap<>(userIds.size() * 2);
+        if (userIds.isEmpty()) return out;
+
+        List<UUID> ids = new ArrayList<>(userIds);
+        try (Connection con = Db.getConnection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+                List<UUID> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+                String sql = "SELECT USER_ID, NICKNAME, TOTAL_WIN, TOTAL_LOSE, COIN FROM USER_INFO WHERE USER_ID IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setBytes(i + 1, UuidRaw.uuidToRaw(chunk.get(i)));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID id = UuidRaw.rawToUuid(rs.getBytes("USER_ID"));
+                            out.put(id, UserInfo.builder()
+                                    .userId(id)
+                                    .nickname(rs.getString("NICKNAME"))
+                                    .totalWin(rs.getLong("TOTAL_WIN"))
+                                    .totalLose(rs.getLong("TOTAL_LOSE"))
+                                    .coin(rs.getLong("COIN"))
+                                    .build());
+                        }
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void addStats(UUID userId, int winDelta, int loseDelta, long coinDelta) throws Exception {
+        String sql = """
+            UPDATE USER_INFO
+            SET TOTAL_WIN = TOTAL_WIN + ?,
+                TOTAL_LOSE = TOTAL_LOSE + ?,
+                COIN = COIN + ?
+            WHERE USER_ID = ?
+        """;
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setInt(1, winDelta);
+            ps.setInt(2, loseDelta);
+            ps.setLong(3, coinDelta);
+            ps.setBytes(4, UuidRaw.uuidToRaw(userId));
+            ps.executeUpdate();
+        }
+    }
 }
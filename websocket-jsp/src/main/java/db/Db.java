@@ -4,13 +4,21 @@ import javax.naming.InitialContext;
 import javax.sql.DataSource;
 import java.sql.Connection;
 
+/**
+ * JNDI 커넥션 풀. 기본으로 TimedDataSource 로 감싸 커넥션 대기 / SQL 실행 / 트랜잭션 시간을 /metrics 에 낸다.
+ *
+ * -Ddb.metrics=false 면 풀을 그대로 쓴다. 느린 쿼리 로그 설정은 SqlStats 참고.
+ */
 public class Db {
     private static final DataSource ds;
+    private static final TimedDataSource timed;
 
     static {
         try {
-            ds = (DataSource) new InitialContext()
+            DataSource raw = (DataSource) new InitialContext()
                     .lookup("java:/comp/env/jdbc/oracle");
+            timed = Boolean.parseBoolean(System.getProperty("db.metrics", "true")) ? new TimedDataSource(raw) : null;
+            ds = timed != null ? timed : raw;
         } catch (Exception e) {
             throw new RuntimeException("JNDI lookup failed", e);
         }
@@ -19,4 +27,11 @@ public class Db {
     public static Connection getConnection() throws Exception {
         return ds.getConnection();
     }
-}
\ No newline at end of file
+
+    /**
+     * 여러 문장을 한 트랜잭션으로 묶는 메서드용. tx 는 db_transaction_seconds 의 라벨 (메서드 이름)
+     */
+    public static Connection getConnection(String tx) throws Exception {
+        return timed != null ? timed.getConnection(tx) : ds.getConnection();
+    }
+}
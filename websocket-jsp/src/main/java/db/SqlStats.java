@@ -0,0 +1,108 @@
+package db;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * SQL 문장 하나(정규화한 텍스트)의 실행 시간 / 행 수 / 예외 수 + 느린 쿼리 로그
+ *
+ * 라벨은 공백을 한 칸으로 줄이고 IN (?,?,...) 를 IN (?...) 로 접은 SQL 텍스트라
+ * UsersDao.findProfiles 처럼 ? 개수가 달라지는 문장도 한 줄로 모인다.
+ * 종류가 MAX_STATEMENTS 를 넘으면 나머지는 sql="other" 로 (라벨 폭주 방지).
+ *
+ * 느린 쿼리: SLOW_MILLIS 이상 걸린 실행은 전부 db_slow_queries_total 로 세고, 로그는 SLOW_SAMPLE 비율만 남긴다
+ * (DB 가 통째로 느려졌을 때 로그가 쏟아지지 않게). 바인드 값은 남기지 않는다 (비밀번호 해시 등).
+ *
+ * -Ddb.slowQueryMillis (기본 200, 0 이면 끔), -Ddb.slowQuerySample (0..1, 기본 0.1), -Ddb.metrics.maxStatements (기본 200)
+ */
+final class SqlStats {
+
+    static final long SLOW_MILLIS = Long.getLong("db.slowQueryMillis", 200);
+    static final double SLOW_SAMPLE = Math.max(0, Math.min(1, Double.parseDouble(System.getProperty("db.slowQuerySample", "0.1"))));
+    static final int MAX_STATEMENTS = Math.max(1, Integer.getInteger("db.metrics.maxStatements", 200));
+
+    /**
+     * 0 .. 10000 (반환/변경 행 수)
+     */
+    static final long[] ROWS = { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000, 10000 };
+
+    private static final long SLOW_NANOS = SLOW_MILLIS * 1_000_000L;
+    private static final Logger slowLog = Logger.getLogger("db.slow");
+    private static final Counter slowQueries = Metrics.counter("db_slow_queries_total",
+            "db.slowQueryMillis 이상 걸린 SQL 실행 (로그는 일부만)");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    // 원본 SQL 문자열 -> 통계 (RoomDao 의 텍스트 블록은 상수라 키가 몇 개 안 된다)
+    private static final ConcurrentHashMap<String, SqlStats> bySql = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, SqlStats> byLabel = new ConcurrentHashMap<>();
+    private static final SqlStats OTHER = new SqlStats("other");
+
+    final String label;
+    private final Histogram latency;
+    private final Histogram rows;
+    private final Counter errors;
+
+    private SqlStats(String label) {
+        this.label = label;
+        latency = Metrics.latency("db_statement_seconds", "SQL 실행 시간 (execute 호출 기준, 결과 fetch 제외)", "sql", label);
+        rows = Metrics.histogram("db_statement_rows", "SELECT 가 돌려준 행 / DML 이 바꾼 행", ROWS, 1, "sql", label);
+        errors = Metrics.counter("db_statement_errors_total", "SQLException 등으로 끝난 실행", "sql", label);
+    }
+
+    static SqlStats of(String sql) {
+        if (sql == null) return OTHER;
+        SqlStats s = bySql.get(sql);
+        if (s != null) return s;
+
+        String label = normalize(sql);
+        s = byLabel.get(label);
+        if (s == null) {
+            if (byLabel.size() >= MAX_STATEMENTS) return OTHER;
+            s = byLabel.computeIfAbsent(label, SqlStats::new);
+        }
+        // ? 개수만 다른 동적 SQL 은 원본 키로 쌓지 않는다
+        if (bySql.size() < MAX_STATEMENTS * 4) bySql.putIfAbsent(sql, s);
+        return s;
+    }
+
+    static String normalize(String sql) {
+        String s = SPACES.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(s).replaceAll("?...");
+    }
+
+    /**
+     * rows < 0 이면 행 수 모름 (SELECT 는 ResultSet 을 다 읽은 뒤 rows() 로 따로 기록)
+     */
+    void executed(long startNanos, long rowCount) {
+        long elapsed = System.nanoTime() - startNanos;
+        latency.observe(elapsed);
+        if (rowCount >= 0) rows.observe(rowCount);
+        if (SLOW_NANOS > 0 && elapsed >= SLOW_NANOS) slow(elapsed, rowCount);
+    }
+
+    void rows(long rowCount) {
+        rows.observe(rowCount);
+    }
+
+    void failed(long startNanos) {
+        latency.observeSince(startNanos);
+        errors.inc();
+    }
+
+    private void slow(long elapsedNanos, long rowCount) {
+        slowQueries.inc();
+        if (SLOW_SAMPLE <= 0 || ThreadLocalRandom.current().nextDouble() >= SLOW_SAMPLE) return;
+        if (!slowLog.isLoggable(Level.WARNING)) return;
+        slowLog.warning("느린 SQL " + elapsedNanos / 1_000_000L + "ms"
+                + (rowCount >= 0 ? " rows=" + rowCount : "") + ": " + label);
+    }
+}
@@ -0,0 +1,105 @@
+package db;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 커넥션 풀(DataSource) 앞에 붙여 커넥션 얻는 시간을 재고, 돌려주는 커넥션을 TimedJdbc 로 감싼다
+ *
+ * 풀이 바닥나면(maxTotal) 실행 시간이 아니라 acquire 쪽이 늘어나므로 둘을 나눠 본다.
+ * db_connections_in_use 는 빌려가서 아직 close 안 한 수 (context.xml 의 maxTotal 과 비교).
+ */
+final class TimedDataSource implements DataSource {
+
+    private final DataSource target;
+    private final Histogram acquire = Metrics.latency("db_connection_acquire_seconds", "풀에서 커넥션을 얻는 데 걸린 시간");
+    private final Counter acquireErrors = Metrics.counter("db_connection_acquire_errors_total",
+            "커넥션을 못 얻고 예외로 끝난 수 (풀 대기 시간 초과 등)");
+    final AtomicLong inUse = new AtomicLong();
+
+    TimedDataSource(DataSource target) {
+        this.target = target;
+        Metrics.gauge("db_connections_in_use", "빌려가서 아직 close 안 한 커넥션", inUse::get);
+    }
+
+    /**
+     * tx = 트랜잭션 시간 라벨 (null 이면 "other")
+     */
+    Connection getConnection(String tx) throws SQLException {
+        long start = System.nanoTime();
+        Connection con;
+        try {
+            con = target.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            acquireErrors.inc();
+            throw e;
+        } finally {
+            acquire.observeSince(start);
+        }
+        return TimedJdbc.connection(con, tx == null ? "other" : tx, this);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection con;
+        try {
+            con = target.getConnection(username, password);
+        } catch (SQLException | RuntimeException e) {
+            acquireErrors.inc();
+            throw e;
+        } finally {
+            acquire.observeSince(start);
+        }
+        return TimedJdbc.connection(con, "other", this);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,268 @@
+package db;
+
+import metrics.Histogram;
+import metrics.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection / Statement / ResultSet 계측용 동적 프록시
+ *
+ * JDBC 인터페이스는 메서드가 수백 개라 손으로 위임 클래스를 만들지 않고 java.lang.reflect.Proxy 로 감싼다.
+ * 호출마다 리플렉션 한 번이 더 붙지만 DB 왕복(수백 µs ~ ms)에 비하면 무시할 만하다.
+ *
+ * - prepareStatement / prepareCall 의 SQL 을 기억했다가 execute* 시간과 행 수를 SqlStats 에 기록
+ * - executeQuery 가 돌려준 ResultSet 은 next() 로 읽은 행을 세다가 끝까지 읽거나 close 할 때 기록
+ * - setAutoCommit(false) 부터 commit / rollback 까지를 db_transaction_seconds{tx,outcome} 로
+ *   (tx 는 Db.getConnection(tx) 로 넘긴 이름, RoomDao 의 여러 문장짜리 메서드)
+ */
+final class TimedJdbc {
+
+    private static final ClassLoader LOADER = TimedJdbc.class.getClassLoader();
+
+    // "enterRoom" -> commit/rollback 히스토그램
+    private static final ConcurrentHashMap<String, Tx> txs = new ConcurrentHashMap<>();
+
+    private TimedJdbc() {
+    }
+
+    private static final class Tx {
+        final Histogram commit;
+        final Histogram rollback;
+
+        Tx(String name) {
+            commit = Metrics.latency("db_transaction_seconds", "setAutoCommit(false) 부터 commit/rollback 까지", "tx", name,
+                    "outcome", "commit");
+            rollback = Metrics.latency("db_transaction_seconds", "setAutoCommit(false) 부터 commit/rollback 까지", "tx", name,
+                    "outcome", "rollback");
+        }
+    }
+
+    static Connection connection(Connection target, String tx, TimedDataSource ds) {
+        ds.inUse.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(LOADER, new Class<?>[] { Connection.class },
+                new ConnectionHandler(target, txs.computeIfAbsent(tx, Tx::new), ds));
+    }
+
+    private static Object call(Object target, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 프록시끼리 비교할 때 대상 객체로 넘기면 항상 false 라 Object 메서드는 프록시 자신 기준으로
+    private static Object objectMethod(Object proxy, Object target, Method m, Object[] args) {
+        switch (m.getName()) {
+        case "equals":
+            return proxy == args[0];
+        case "hashCode":
+            return System.identityHashCode(proxy);
+        default:
+            return target.toString();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final Tx tx;
+        private final TimedDataSource ds;
+        private boolean manual; // autoCommit == false
+        private long txStart; // 0 이면 열린 트랜잭션 없음
+        private boolean closed;
+
+        ConnectionHandler(Connection target, Tx tx, TimedDataSource ds) {
+            this.target = target;
+            this.tx = tx;
+            this.ds = ds;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if (m.getDeclaringClass() == Object.class) return objectMethod(proxy, target, m, args);
+
+            switch (m.getName()) {
+            case "prepareStatement":
+            case "prepareCall":
+                return statement((Statement) call(target, m, args), m.getReturnType(), SqlStats.of((String) args[0]), this,
+                        (Connection) proxy);
+            case "createStatement":
+                return statement((Statement) call(target, m, args), m.getReturnType(), null, this, (Connection) proxy);
+            case "setAutoCommit": {
+                boolean auto = (Boolean) args[0];
+                call(target, m, args);
+                if (!auto) {
+                    manual = true;
+                    if (txStart == 0) txStart = System.nanoTime();
+                } else {
+                    manual = false;
+                    end(tx.commit); // 열린 트랜잭션이 있으면 setAutoCommit(true) 가 커밋한다
+                }
+                return null;
+            }
+            case "commit":
+                call(target, m, args);
+                end(tx.commit); // 실패하면 열린 채로 두고 뒤따르는 rollback 에서 기록
+                return null;
+            case "rollback":
+                call(target, m, args);
+                if (args == null) end(tx.rollback); // rollback(Savepoint) 는 트랜잭션이 이어진다
+                return null;
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    ds.inUse.decrementAndGet();
+                    end(tx.rollback); // 끝맺지 않은 트랜잭션은 풀이 반납할 때 롤백한다
+                }
+                return call(target, m, args);
+            default:
+                return call(target, m, args);
+            }
+        }
+
+        // commit/rollback 뒤 autoCommit 이 꺼진 채로 다음 문장을 실행하면 새 트랜잭션
+        void executing(long start) {
+            if (manual && txStart == 0) txStart = start;
+        }
+
+        private void end(Histogram h) {
+            if (txStart == 0) return;
+            h.observeSince(txStart);
+            txStart = 0;
+        }
+    }
+
+    private static Statement statement(Statement target, Class<?> type, SqlStats sql, ConnectionHandler con,
+            Connection conProxy) {
+        return (Statement) Proxy.newProxyInstance(LOADER, new Class<?>[] { type },
+                new StatementHandler(target, sql, con, conProxy));
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final SqlStats sql; // createStatement 면 null (execute(sql) 인자로 정함)
+        private final ConnectionHandler con;
+        private final Connection conProxy;
+        private RowCounter open; // 마지막 executeQuery 결과 (statement close 가 같이 닫음)
+
+        StatementHandler(Statement target, SqlStats sql, ConnectionHandler con, Connection conProxy) {
+            this.target = target;
+            this.sql = sql;
+            this.con = con;
+            this.conProxy = conProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if (m.getDeclaringClass() == Object.class) return objectMethod(proxy, target, m, args);
+
+            String name = m.getName();
+            if (name.startsWith("execute")) return execute(proxy, m, args, name);
+
+            switch (name) {
+            case "getConnection":
+                return conProxy;
+            case "close":
+                finishOpen();
+                return call(target, m, args);
+            default:
+                return call(target, m, args);
+            }
+        }
+
+        private Object execute(Object proxy, Method m, Object[] args, String name) throws Throwable {
+            SqlStats s = args != null && args.length > 0 && args[0] instanceof String text ? SqlStats.of(text)
+                    : sql != null ? sql : SqlStats.of(null);
+            long start = System.nanoTime();
+            con.executing(start);
+            Object result;
+            try {
+                result = call(target, m, args);
+            } catch (Throwable e) {
+                s.failed(start);
+                throw e;
+            }
+
+            if (result instanceof ResultSet rs) {
+                s.executed(start, -1);
+                finishOpen();
+                open = new RowCounter(rs, s, (Statement) proxy);
+                return Proxy.newProxyInstance(LOADER, new Class<?>[] { ResultSet.class }, open);
+            }
+            s.executed(start, rows(name, result));
+            return result;
+        }
+
+        // executeUpdate / executeLargeUpdate / executeBatch 는 바뀐 행 수, execute() 는 모름
+        private static long rows(String name, Object result) {
+            if (result instanceof Integer n) return n;
+            if (result instanceof Long n) return n;
+            long sum = 0;
+            if (result instanceof int[] counts) {
+                for (int c : counts) if (c > 0) sum += c;
+                return sum;
+            }
+            if (result instanceof long[] counts) {
+                for (long c : counts) if (c > 0) sum += c;
+                return sum;
+            }
+            return -1;
+        }
+
+        private void finishOpen() {
+            if (open != null) {
+                open.finish();
+                open = null;
+            }
+        }
+    }
+
+    private static final class RowCounter implements InvocationHandler {
+        private final ResultSet target;
+        private final SqlStats sql;
+        private final Statement statement;
+        private long rows;
+        private boolean done;
+
+        RowCounter(ResultSet target, SqlStats sql, Statement statement) {
+            this.target = target;
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if (m.getDeclaringClass() == Object.class) return objectMethod(proxy, target, m, args);
+
+            switch (m.getName()) {
+            case "next": {
+                Object more = call(target, m, args);
+                if ((Boolean) more) rows++;
+                else finish();
+                return more;
+            }
+            case "close":
+                finish();
+                return call(target, m, args);
+            case "getStatement":
+                return statement;
+            default:
+                return call(target, m, args);
+            }
+        }
+
+        void finish() {
+            if (done) return;
+            done = true;
+            sql.rows(rows);
+        }
+    }
+}
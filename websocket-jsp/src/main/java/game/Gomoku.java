@@ -0,0 +1,148 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * 15x15 오목 판 하나 (자유룰: 흑 먼저, 같은 색 다섯 이상 이으면 승리, 판이 차면 무승부)
+ *
+ * 돌은 색마다 비트보드 long[4]. 안쪽 비트 번호는 y * 16 + x 로, 줄 끝에 늘 비어 있는 16번째 칸을 둬서
+ * 옆 칸 = 비트 + 1, 아래 = + 16, 대각선 = + 17 / + 15 가 줄을 넘어 이어지지 않는다 (x 경계 검사 없음).
+ * 승패는 마지막 수에서 네 방향으로 이어진 같은 색 돌만 센다 (방향마다 양쪽 최대 4칸, 판 전체를 훑지 않는다).
+ * 착수 기록도 미리 잡아 둔 배열이라 play / reset 은 할당이 없다.
+ *
+ * 밖에서 쓰는 칸 번호(cell)는 y * 15 + x (0..224). 스레드 안전하지 않다.
+ */
+public final class Gomoku {
+
+	public static final int SIZE = 15;
+	public static final int CELLS = SIZE * SIZE;
+
+	// ROOM_PLAYER.STONE_COLOR 와 같은 값
+	public static final int BLACK = 1;
+	public static final int WHITE = 2;
+	// winner() 값: 0 = 진행 중, BLACK/WHITE, DRAW
+	public static final int DRAW = 3;
+
+	// play 결과. 음수는 거절 (판은 그대로)
+	public static final int PLACED = 0;
+	public static final int WON = 1;
+	public static final int DRAWN = 2;
+	public static final int GAME_OVER = -1;
+	public static final int NOT_YOUR_TURN = -2;
+	public static final int OUT_OF_BOARD = -3;
+	public static final int OCCUPIED = -4;
+
+	private static final int STRIDE = SIZE + 1;
+	private static final int BITS = SIZE * STRIDE;
+	private static final int WORDS = (BITS + 63) >>> 6;
+	private static final int[] DIRECTIONS = { 1, STRIDE, STRIDE + 1, STRIDE - 1 };
+
+	private final long[] black = new long[WORDS];
+	private final long[] white = new long[WORDS];
+	private final short[] history = new short[CELLS]; // 둔 순서대로 cell
+	private int moves;
+	private int winner;
+
+	/**
+	 * 다음에 둘 색 (끝났으면 0)
+	 */
+	public int turn() {
+		return winner != 0 ? 0 : (moves & 1) == 0 ? BLACK : WHITE;
+	}
+
+	public int moves() {
+		return moves;
+	}
+
+	public int winner() {
+		return winner;
+	}
+
+	/**
+	 * i 번째 (0 부터) 수의 cell
+	 */
+	public int moveAt(int i) {
+		if (i < 0 || i >= moves)
+			throw new IndexOutOfBoundsException(i);
+		return history[i];
+	}
+
+	/**
+	 * 그 칸의 돌 색 (비었으면 0)
+	 */
+	public int stoneAt(int cell) {
+		int b = bit(cell);
+		return test(black, b) ? BLACK : test(white, b) ? WHITE : 0;
+	}
+
+	/**
+	 * color 가 cell 에 둔다. PLACED / WON / DRAWN, 거절이면 음수
+	 */
+	public int play(int color, int cell) {
+		if (winner != 0)
+			return GAME_OVER;
+		if (cell < 0 || cell >= CELLS)
+			return OUT_OF_BOARD;
+		if (color != turn())
+			return NOT_YOUR_TURN;
+		int b = bit(cell);
+		if (test(black, b) || test(white, b))
+			return OCCUPIED;
+
+		long[] mine = color == BLACK ? black : white;
+		mine[b >>> 6] |= 1L << b;
+		history[moves++] = (short) cell;
+
+		if (five(mine, b)) {
+			winner = color;
+			return WON;
+		}
+		if (moves == CELLS) {
+			winner = DRAW;
+			return DRAWN;
+		}
+		return PLACED;
+	}
+
+	public void reset() {
+		Arrays.fill(black, 0);
+		Arrays.fill(white, 0);
+		moves = 0;
+		winner = 0;
+	}
+
+	// b 를 지나는 네 방향 중 하나라도 다섯 이상
+	private static boolean five(long[] mine, int b) {
+		for (int d : DIRECTIONS) {
+			int n = 1;
+			for (int p = b + d; n < 5 && p < BITS && test(mine, p); p += d)
+				n++;
+			for (int p = b - d; n < 5 && p >= 0 && test(mine, p); p -= d)
+				n++;
+			if (n >= 5)
+				return true;
+		}
+		return false;
+	}
+
+	private static int bit(int cell) {
+		return cell / SIZE * STRIDE + cell % SIZE;
+	}
+
+	// 16번째 칸(x == 15)은 어느 색도 세우지 않으므로 항상 false
+	private static boolean test(long[] board, int b) {
+		return (board[b >>> 6] >>> b & 1) != 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(CELLS + SIZE);
+		for (int cell = 0; cell < CELLS; cell++) {
+			int s = stoneAt(cell);
+			sb.append(s == BLACK ? 'X' : s == WHITE ? 'O' : '.');
+			if (cell % SIZE == SIZE - 1)
+				sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
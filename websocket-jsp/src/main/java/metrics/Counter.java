@@ -0,0 +1,26 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 단조 증가 카운터 (LongAdder: 스레드마다 다른 셀에 더해서 경합/락 없음)
+ */
+public final class Counter {
+
+	private final LongAdder value = new LongAdder();
+
+	Counter() {
+	}
+
+	public void inc() {
+		value.increment();
+	}
+
+	public void add(long n) {
+		value.add(n);
+	}
+
+	public long sum() {
+		return value.sum();
+	}
+}
@@ -0,0 +1,87 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 경계가 고정된 히스토그램. 버킷은 만들 때 전부 잡아 두고, 기록은 이분 탐색 + LongAdder 두 번이라 락/할당이 없다.
+ *
+ * 값은 정수(지연은 나노초, 크기는 개수)로 받고 내보낼 때만 unit 으로 나눈다 (나노초 -> 초면 1_000_000_000).
+ * 버킷은 누적이 아닌 구간별로 세고 스크랩할 때 누적한다.
+ */
+public final class Histogram {
+
+	/**
+	 * 50µs .. 10s (나노초)
+	 */
+	public static final long[] LATENCY_NANOS = { 50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L,
+			5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L,
+			1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L };
+
+	/**
+	 * 1 .. 10000 (브로드캐스트 대상 세션 수 등)
+	 */
+	public static final long[] COUNTS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+	private final long[] bounds;
+	private final long unit;
+	private final LongAdder[] buckets; // bounds.length + 1, 마지막이 +Inf
+	private final LongAdder sum = new LongAdder();
+	final String[] le; // 미리 만든 le 라벨 값
+
+	Histogram(long[] bounds, long unit) {
+		this.bounds = bounds.clone();
+		this.unit = unit;
+		this.buckets = new LongAdder[bounds.length + 1];
+		this.le = new String[bounds.length + 1];
+		for (int i = 0; i < buckets.length; i++)
+			buckets[i] = new LongAdder();
+		for (int i = 0; i < bounds.length; i++)
+			le[i] = BigDecimal.valueOf(bounds[i]).divide(BigDecimal.valueOf(unit)).stripTrailingZeros().toPlainString();
+		le[bounds.length] = "+Inf";
+	}
+
+	public void observe(long value) {
+		int lo = 0, hi = bounds.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (value <= bounds[mid])
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		buckets[lo].increment();
+		sum.add(value);
+	}
+
+	/**
+	 * startNanos = System.nanoTime() 으로 잰 시작 시각
+	 */
+	public void observeSince(long startNanos) {
+		observe(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * 누적 버킷 값 (마지막이 전체 개수)
+	 */
+	long[] cumulative() {
+		long[] out = new long[buckets.length];
+		long acc = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			acc += buckets[i].sum();
+			out[i] = acc;
+		}
+		return out;
+	}
+
+	double sum() {
+		return (double) sum.sum() / unit;
+	}
+
+	public long count() {
+		long n = 0;
+		for (LongAdder b : buckets)
+			n += b.sum();
+		return n;
+	}
+}
@@ -0,0 +1,187 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * 프로세스 전역 지표 목록과 Prometheus 텍스트(0.0.4) 출력
+ *
+ * 등록(이름 + 라벨)은 시작할 때 한 번만 하고 돌려받은 Counter/Histogram 을 필드에 들고 쓴다.
+ * 같은 이름 + 라벨로 다시 등록하면 Counter/Histogram 은 있던 것을, 함수형(이미 있는 LongAdder 등을 읽는 것)은 새 함수로 바꾼다.
+ * 라벨은 "키", "값" 을 번갈아 넘긴다.
+ */
+public final class Metrics {
+
+	public static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private static final class Family {
+		final String name;
+		final String help;
+		final String type; // counter | gauge | histogram
+		final Map<String, Object> series = new LinkedHashMap<>(); // 라벨 문자열 -> Counter | Histogram | Fn
+
+		Family(String name, String help, String type) {
+			this.name = name;
+			this.help = help;
+			this.type = type;
+		}
+	}
+
+	private static final class Fn {
+		final LongSupplier value;
+		final long unit;
+
+		Fn(LongSupplier value, long unit) {
+			this.value = value;
+			this.unit = unit;
+		}
+	}
+
+	// Metrics.class 로 보호 (등록과 스크랩만 잡는다, 기록 경로는 안 탐)
+	private static final Map<String, Family> families = new LinkedHashMap<>();
+
+	private Metrics() {
+	}
+
+	public static Counter counter(String name, String help, String... labels) {
+		return (Counter) register(name, help, "counter", labels, null);
+	}
+
+	/**
+	 * 나노초로 기록해서 초로 내보내는 지연 히스토그램 (Histogram.LATENCY_NANOS 경계)
+	 */
+	public static Histogram latency(String name, String help, String... labels) {
+		return histogram(name, help, Histogram.LATENCY_NANOS, NANOS_PER_SECOND, labels);
+	}
+
+	public static Histogram histogram(String name, String help, long[] bounds, long unit, String... labels) {
+		return (Histogram) register(name, help, "histogram", labels, new Histogram(bounds, unit));
+	}
+
+	/**
+	 * 이미 따로 세고 있는 누적 값 (스크랩할 때 읽음)
+	 */
+	public static void counterOf(String name, String help, LongSupplier value, String... labels) {
+		register(name, help, "counter", labels, new Fn(value, 1));
+	}
+
+	public static void gauge(String name, String help, LongSupplier value, String... labels) {
+		register(name, help, "gauge", labels, new Fn(value, 1));
+	}
+
+	/**
+	 * value 를 unit 으로 나눠 내보낸다 (나노초 합 -> 초 등)
+	 */
+	public static void counterOf(String name, String help, LongSupplier value, long unit, String... labels) {
+		register(name, help, "counter", labels, new Fn(value, unit));
+	}
+
+	public static void gauge(String name, String help, LongSupplier value, long unit, String... labels) {
+		register(name, help, "gauge", labels, new Fn(value, unit));
+	}
+
+	private static synchronized Object register(String name, String help, String type, String[] labels,
+			Object fresh) {
+		if (labels.length % 2 != 0)
+			throw new IllegalArgumentException(name + ": 라벨은 키/값 쌍이어야 합니다");
+		Family f = families.computeIfAbsent(name, k -> new Family(name, help, type));
+		if (!f.type.equals(type))
+			throw new IllegalArgumentException(name + ": 이미 " + f.type + " 로 등록됨");
+
+		String key = labelString(labels);
+		Object existing = f.series.get(key);
+		if (fresh instanceof Fn || existing == null) {
+			Object created = fresh != null ? fresh : new Counter();
+			f.series.put(key, created);
+			return created;
+		}
+		return existing;
+	}
+
+	// a="1",b="2" (중괄호 없이)
+	private static String labelString(String[] labels) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < labels.length; i += 2) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(labels[i]).append("=\"");
+			escape(sb, labels[i + 1], true);
+			sb.append('"');
+		}
+		return sb.toString();
+	}
+
+	private static void escape(StringBuilder sb, String s, boolean quote) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\')
+				sb.append("\\\\");
+			else if (c == '\n')
+				sb.append("\\n");
+			else if (quote && c == '"')
+				sb.append("\\\"");
+			else
+				sb.append(c);
+		}
+	}
+
+	/**
+	 * 등록 순서대로 전부
+	 */
+	public static void write(Writer out) throws IOException {
+		List<Family> snapshot;
+		List<Map<String, Object>> series = new ArrayList<>();
+		synchronized (Metrics.class) {
+			snapshot = new ArrayList<>(families.values());
+			for (Family f : snapshot)
+				series.add(new LinkedHashMap<>(f.series));
+		}
+
+		StringBuilder sb = new StringBuilder(4096);
+		for (int i = 0; i < snapshot.size(); i++) {
+			Family f = snapshot.get(i);
+			sb.append("# HELP ").append(f.name).append(' ');
+			escape(sb, f.help, false);
+			sb.append('\n').append("# TYPE ").append(f.name).append(' ').append(f.type).append('\n');
+			for (Map.Entry<String, Object> e : series.get(i).entrySet())
+				writeSeries(sb, f.name, e.getKey(), e.getValue());
+		}
+		out.write(sb.toString());
+	}
+
+	private static void writeSeries(StringBuilder sb, String name, String labels, Object s) {
+		if (s instanceof Counter c) {
+			sample(sb, name, labels, null, Long.toString(c.sum()));
+		} else if (s instanceof Fn fn) {
+			long v;
+			try {
+				v = fn.value.getAsLong();
+			} catch (RuntimeException e) {
+				return; // 아직 초기화 전인 컴포넌트 등은 이번 스크랩에서 빼기
+			}
+			sample(sb, name, labels, null, fn.unit == 1 ? Long.toString(v) : Double.toString((double) v / fn.unit));
+		} else if (s instanceof Histogram h) {
+			long[] cum = h.cumulative();
+			for (int i = 0; i < cum.length; i++)
+				sample(sb, name + "_bucket", labels, h.le[i], Long.toString(cum[i]));
+			sample(sb, name + "_sum", labels, null, Double.toString(h.sum()));
+			sample(sb, name + "_count", labels, null, Long.toString(cum[cum.length - 1]));
+		}
+	}
+
+	private static void sample(StringBuilder sb, String name, String labels, String le, String value) {
+		sb.append(name);
+		if (!labels.isEmpty() || le != null) {
+			sb.append('{').append(labels);
+			if (le != null)
+				sb.append(labels.isEmpty() ? "" : ",").append("le=\"").append(le).append('"');
+			sb.append('}');
+		}
+		sb.append(' ').append(value).append('\n');
+	}
+}
@@ -0,0 +1,31 @@
+package model;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * 방 목록 keyset 커서: (CREATED_AT, ID) 가 이 값보다 작은 방부터 이어서 조회
+ */
+@Getter
+@AllArgsConstructor
+public class RoomCursor {
+    private final long createdAt;
+    private final UUID id;
+
+    public static RoomCursor after(RoomDto last) {
+        return new RoomCursor(last.getCreatedAt(), last.getId());
+    }
+
+    // 클라이언트에는 "createdAt_id" 문자열로만 노출
+    public String encode() {
+        return createdAt + "_" + id;
+    }
+
+    public static RoomCursor decode(String s) {
+        if (s == null || s.isBlank()) return null;
+        int idx = s.indexOf('_');
+        if (idx <= 0) throw new IllegalArgumentException("BAD_CURSOR");
+        return new RoomCursor(Long.parseLong(s.substring(0, idx)), UUID.fromString(s.substring(idx + 1)));
+    }
+}
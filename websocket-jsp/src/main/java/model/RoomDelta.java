@@ -0,0 +1,23 @@
+package model;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class RoomDelta {
+    public enum Kind {
+        UPSERT,  // 새 방 또는 방 정보 변경 (room 전체)
+        REMOVE,  // 방 삭제
+        COUNTS   // 인원 수만 변경
+    }
+
+    private final long seq;
+    private final Kind kind;
+    private final UUID roomId;
+    private final int handle;
+    private final RoomDto room;   // UPSERT 일 때만
+    private final int currentUserCnt;
+    private final int totalUserCnt;
+}
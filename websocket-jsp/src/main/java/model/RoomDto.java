@@ -14,4 +14,6 @@ public class RoomDto {
     private int playType;       
     private int totalUserCnt;
     private int currentUserCnt;
+    private long createdAt;     // epoch millis (초 단위로 잘림, DB DATE 와 같게)
+    private int handle;         // 이 노드의 방 handle (RoomRegistry 에 들어갈 때 붙음, 저장소에서 바로 읽은 건 0)
 }
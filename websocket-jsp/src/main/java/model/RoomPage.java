@@ -0,0 +1,12 @@
+package model;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class RoomPage {
+    private final List<RoomDto> rooms;
+    private final RoomCursor next; // 마지막 페이지면 null
+}
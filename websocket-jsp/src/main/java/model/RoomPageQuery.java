@@ -0,0 +1,13 @@
+package model;
+
+import lombok.*;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class RoomPageQuery {
+    private boolean publicOnly;
+    private Integer playType;      // null 이면 전체
+    private boolean hasFreeSeats;  // CURRENT_USER_CNT < TOTAL_USER_CNT 만
+    private RoomCursor after;      // null 이면 첫 페이지
+    private int limit;
+}
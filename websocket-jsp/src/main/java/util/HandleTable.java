@@ -0,0 +1,105 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * UUID <-> 이 노드에서만 통하는 작은 정수 handle (프레임에서 36자 UUID 문자열 대신 쓴다)
+ *
+ * handle 은 1 부터 하나씩 늘고 다시 쓰지 않는다. 지운(release) handle 은 영원히 null 로 풀리므로
+ * 클라이언트가 들고 있던 낡은 handle 이 다른 방을 가리키는 일은 없다.
+ * handle -> UUID 는 CHUNK 개짜리 배열 조각이라 락 없이 읽고, 조각 안이 다 지워지면 조각째 버린다.
+ * 재시작하면 handle 이 바뀌므로 URL 이나 저장소에는 계속 UUID 를 쓴다.
+ */
+public final class HandleTable {
+
+    public static final HandleTable ROOMS = new HandleTable();
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    private final Map<UUID, Integer> handles = new ConcurrentHashMap<>();
+
+    // 아래는 this 로 보호 (chunks 는 통째로 바꿔 끼워서 읽는 쪽은 락 없이)
+    private volatile AtomicReferenceArray<UUID>[] chunks = newChunks(16);
+    private int[] live = new int[16];
+    private int next = 1;
+
+    /**
+     * 없으면 새로 붙인다
+     */
+    public int handleOf(UUID id) {
+        Integer h = handles.get(id);
+        return h != null ? h : assign(id);
+    }
+
+    /**
+     * 붙은 적 없거나 지웠으면 0
+     */
+    public int find(UUID id) {
+        Integer h = handles.get(id);
+        return h == null ? 0 : h;
+    }
+
+    /**
+     * 모르는/지운 handle 이면 null
+     */
+    public UUID uuidOf(int handle) {
+        if (handle <= 0)
+            return null;
+        AtomicReferenceArray<UUID>[] cs = chunks;
+        int c = handle >>> CHUNK_BITS;
+        if (c >= cs.length || cs[c] == null)
+            return null;
+        return cs[c].get(handle & (CHUNK - 1));
+    }
+
+    public synchronized void release(UUID id) {
+        Integer h = handles.remove(id);
+        if (h == null)
+            return;
+        int c = h >>> CHUNK_BITS;
+        chunks[c].set(h & (CHUNK - 1), null);
+        // 더 붙일 자리가 남은 (지금 채우는) 조각은 남겨 둔다
+        if (--live[c] == 0 && c < next >>> CHUNK_BITS) {
+            AtomicReferenceArray<UUID>[] cs = chunks.clone();
+            cs[c] = null;
+            chunks = cs;
+        }
+    }
+
+    public int size() {
+        return handles.size();
+    }
+
+    private synchronized int assign(UUID id) {
+        Integer existing = handles.get(id);
+        if (existing != null)
+            return existing;
+        if (next == Integer.MAX_VALUE)
+            throw new IllegalStateException("handle exhausted");
+
+        int h = next++;
+        int c = h >>> CHUNK_BITS;
+        AtomicReferenceArray<UUID>[] cs = chunks;
+        if (c >= cs.length || cs[c] == null) {
+            cs = c >= cs.length ? Arrays.copyOf(cs, Math.max(cs.length * 2, c + 1)) : cs.clone();
+            if (c >= live.length)
+                live = Arrays.copyOf(live, cs.length);
+            cs[c] = new AtomicReferenceArray<>(CHUNK);
+        }
+        cs[c].set(h & (CHUNK - 1), id);
+        chunks = cs; // 배열 원소를 먼저 쓰고 발행
+        live[c]++;
+        handles.put(id, h);
+        return h;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static AtomicReferenceArray<UUID>[] newChunks(int n) {
+        return new AtomicReferenceArray[n];
+    }
+}
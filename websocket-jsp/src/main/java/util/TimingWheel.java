@@ -0,0 +1,165 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 해시 타이밍 휠: 스레드 하나로 타이머 수십만 개를 돌린다 (정밀도는 tick 단위)
+ *
+ * 버킷 wheelSize 개가 원형으로 돌고, 타이머는 만료 tick 의 버킷에 이중 연결 리스트로 걸린다.
+ * 한 바퀴보다 먼 타이머는 같은 버킷에 걸려 있다가 만료 tick 이 된 바퀴에서 꺼낸다.
+ * 등록/취소는 O(1) 이고 Timeout 객체 하나 말고는 할당이 없다 (큐 노드나 Future 없음).
+ * 작업은 휠 스레드에서 바로 돌므로 짧게 (DB 나 네트워크는 다른 실행기로 넘긴다).
+ */
+public final class TimingWheel {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // 아래는 this 로 보호
+    private final Timeout[] buckets;
+    private long tick = 1; // 다음에 처리할 tick
+    private int size;
+
+    /**
+     * wheelSize 는 2 의 거듭제곱으로 올림
+     */
+    public TimingWheel(String name, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0)
+            throw new IllegalArgumentException("tickMillis/wheelSize");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int n = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[n];
+        this.mask = n - 1;
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadline; // tick
+        private Timeout prev, next;
+        private int state;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 아직 안 돌았으면 빼고 true
+         */
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (state != PENDING)
+                    return false;
+                state = CANCELLED;
+                unlink(this);
+                return true;
+            }
+        }
+
+        /**
+         * 만료돼서 작업을 넘겼으면 true (작업 안에서도 true)
+         */
+        public boolean isExpired() {
+            synchronized (TimingWheel.this) {
+                return state == EXPIRED;
+            }
+        }
+    }
+
+    public Timeout schedule(long delayMillis, Runnable task) {
+        long due = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        long dueTick = (due + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            if (!running)
+                throw new IllegalStateException("stopped");
+            Timeout t = new Timeout(task, Math.max(dueTick, tick));
+            int b = (int) (t.deadline & mask);
+            t.next = buckets[b];
+            if (t.next != null)
+                t.next.prev = t;
+            buckets[b] = t;
+            size++;
+            return t;
+        }
+    }
+
+    /**
+     * 대기 중인 타이머 수
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 남은 타이머는 돌지 않는다
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void unlink(Timeout t) {
+        int b = (int) (t.deadline & mask);
+        if (t.prev != null)
+            t.prev.next = t.next;
+        else
+            buckets[b] = t.next;
+        if (t.next != null)
+            t.next.prev = t.prev;
+        t.prev = t.next = null;
+        size--;
+    }
+
+    private void run() {
+        while (running) {
+            long wait;
+            synchronized (this) {
+                wait = startNanos + tick * tickNanos - System.nanoTime();
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            // 밀렸으면 sleep 없이 다음 tick 들도 이어서 처리
+            Timeout expired = expire();
+            while (expired != null) {
+                Timeout t = expired;
+                expired = t.next;
+                t.next = null;
+                try {
+                    t.task.run();
+                } catch (Throwable ignore) {
+                }
+            }
+        }
+    }
+
+    // 이번 tick 버킷에서 만료된 것만 떼어 연결 리스트로 돌려준다
+    private synchronized Timeout expire() {
+        Timeout head = null;
+        Timeout t = buckets[(int) (tick & mask)];
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.deadline <= tick) {
+                unlink(t);
+                t.state = EXPIRED;
+                t.next = head;
+                head = t;
+            }
+            t = next;
+        }
+        tick++;
+        return head;
+    }
+}
@@ -1,20 +1,31 @@
 package util;
 
-import java.nio.ByteBuffer;
 import java.util.UUID;
 
+// RAW(16) 과 같은 순서 (상위 8 + 하위 8, big-endian). ByteBuffer 없이 바로 옮긴다
 public class UuidRaw {
     public static byte[] uuidToRaw(UUID uuid) {
-        ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-        bb.putLong(uuid.getMostSignificantBits());
-        bb.putLong(uuid.getLeastSignificantBits());
-        return bb.array();
+        byte[] raw = new byte[16];
+        putLong(raw, 0, uuid.getMostSignificantBits());
+        putLong(raw, 8, uuid.getLeastSignificantBits());
+        return raw;
     }
 
     public static UUID rawToUuid(byte[] raw) {
-        ByteBuffer bb = ByteBuffer.wrap(raw);
-        long high = bb.getLong();
-        long low = bb.getLong();
-        return new UUID(high, low);
+        return new UUID(getLong(raw, 0), getLong(raw, 8));
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++)
+            v = v << 8 | (b[off + i] & 0xff);
+        return v;
     }
 }
@@ -1,6 +1,7 @@
 package web;
 
-import dao.UsersDao;
+import dao.Stores;
+import dao.UserStore;
 import model.UserSession;
 import util.PasswordHash;
 
@@ -13,7 +14,7 @@ import java.util.Optional;
 @WebServlet("/login")
 public class LoginServlet extends HttpServlet {
 
-    private final UsersDao usersDao = new UsersDao();
+    private final UserStore userStore = Stores.users();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
@@ -48,7 +49,7 @@ public class LoginServlet extends HttpServlet {
             // 비밀번호 해시 (DB에 해시 저장 기준)
             String pwdHash = PasswordHash.sha256(password);
 
-            Optional<UserSession> userOpt = usersDao.login(email, pwdHash);
+            Optional<UserSession> userOpt = userStore.login(email, pwdHash);
 
             if (userOpt.isEmpty()) {
                 req.setAttribute("error", "이메일 또는 비밀번호가 올바르지 않습니다.");
@@ -0,0 +1,19 @@
+package web;
+
+import metrics.Metrics;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+
+// Prometheus 스크랩용 (text exposition 0.0.4). 외부에 열지 말고 프록시/방화벽에서 막을 것
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        resp.setHeader("Cache-Control", "no-store");
+        Metrics.write(resp.getWriter());
+    }
+}
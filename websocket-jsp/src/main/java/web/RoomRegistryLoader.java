@@ -0,0 +1,43 @@
+package web;
+
+import bus.Bus;
+import dao.RoomRegistry;
+import dao.Stores;
+import websocket.DbExecutor;
+import websocket.RoomOwners;
+import websocket.RoomSocket;
+import websocket.RoomSweeper;
+import websocket.SeatReconciler;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+@WebListener
+public class RoomRegistryLoader implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        try {
+            // 웹소켓 요청을 받기 전에 ROOM 테이블로 레지스트리를 채운다
+            RoomRegistry.get().loadFrom(Stores.rooms());
+            // 이후 어긋난 인원은 주기적으로 DB 와 대조 (방 주인 노드의 방 줄에서 고침)
+            SeatReconciler.start();
+            // 다른 노드가 넘기는 입장/퇴장을 받기 시작
+            RoomOwners.start();
+            // 버려진 방 청소 (주인인 방만)
+            RoomSweeper.start();
+        } catch (Exception e) {
+            throw new RuntimeException("RoomRegistry load failed", e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        RoomSweeper.stop();
+        SeatReconciler.stop();
+        DbExecutor.shutdown();
+        RoomSocket.stopTimers();
+        Bus.get().close();
+    }
+}
@@ -1,6 +1,7 @@
 package web;
 
-import dao.AuthDao;
+import dao.Stores;
+import dao.UserStore;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
@@ -10,7 +11,7 @@ import java.sql.SQLException;
 
 @WebServlet("/signup")
 public class SignUpServlet extends HttpServlet {
-    private final AuthDao authDao = new AuthDao();
+    private final UserStore userStore = Stores.users();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -26,7 +27,7 @@ public class SignUpServlet extends HttpServlet {
         String nickname = req.getParameter("nickname");
 
         try {
-            authDao.signUp(email, pwd, nickname);
+            userStore.signUp(email, pwd, nickname);
             resp.sendRedirect(req.getContextPath() + "/login?signup=success");
         } catch (SQLException e) {
             // ORA-00001: unique constraint (EMAIL/NICKNAME 중복)
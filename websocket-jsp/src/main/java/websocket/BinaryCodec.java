@@ -0,0 +1,580 @@
+package websocket;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import javax.websocket.Session;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import model.RoomDto;
+
+/**
+ * "omok-bin.3" 서브프로토콜용 바이너리 인코딩. JSON 과 같은 메시지를 같은 Map 모양으로 주고받는다.
+ *
+ * 프레임 = 타입 1바이트 + 본문. 정수는 varint, 문자열은 varint 길이 + UTF-8,
+ * UUID 는 UuidRaw 와 같은 16바이트(상위 8 + 하위 8, big-endian), null 가능한 문자열은 앞에 0/1 플래그.
+ * handle 은 HandleTable.ROOMS 의 varint 방 handle (이 노드, 이 프로세스에서만 유효). 사용자는 UUID 16바이트 그대로
+ * (클라이언트가 자기 자신과 방장을 알아봐야 하고, 노드마다 handle 이 달라서).
+ * 아래 표에 없는 메시지(error 등)는 타입 0 + JSON UTF-8 로 보낸다.
+ *
+ * <pre>
+ *  1 room_list        version, cursor?, nextCursor?, n, room*
+ *  2 room_upsert      seq, fromSeq, room
+ *  3 room_removed     seq, fromSeq, handle
+ *  4 room_counts      seq, fromSeq, handle, currentUserCnt, totalUserCnt
+ *  5 room_deltas      fromVersion, n, (타입 + delta)*
+ *  6 batch            hasSeq(0/1), [fromSeq, toSeq], n, (프레임)*
+ *  7 room_players     roomId, n, (userId, nickname, stoneColor)*
+ *  8 room_deleted     roomId
+ *  9 create_room_ok   roomId
+ * 10 enter_ok         roomId
+ * 11 leave_ok         roomId
+ * 12 host_changed     handle, newHostUserId
+ * 13 resync_required
+ * 14 game_move        roomId, move, color, cell, winner
+ * 15 game_state       roomId, winner, n, cell*
+ *
+ * 32 refresh          listQuery
+ * 33 resync           fromVersion, listQuery
+ * 34 create_room      roomName, isPublic, playType, totalUserCnt, roomPwd?
+ * 35 enter_room       handle, roomPwd?
+ * 36 leave_room       handle
+ * 37 refresh_players  handle
+ * 38 place_stone      handle, cell
+ * 39 new_game         handle
+ * 40 sync_game        handle
+ *
+ * room = id, handle, hostUserId, roomName, isPublic, playType, totalUserCnt, currentUserCnt, createdAt
+ * cell = y * 15 + x, winner = 0(진행 중) / 1(흑) / 2(백) / 3(무승부)
+ * listQuery = pageSize(0 = 기본값), cursor?, playType(0 = 전체, 아니면 playType + 1), hasFreeSeats(0/1)
+ * </pre>
+ *
+ * 예전 "omok-bin"(UUID 만 쓰던 형식), "omok-bin.2"(사용자도 handle 이던 형식)와는 호환되지 않아 이름을 바꿨다.
+ * 그걸 요청하는 클라이언트는 JSON 으로 떨어진다.
+ */
+final class BinaryCodec {
+
+	static final String SUBPROTOCOL = "omok-bin.3";
+
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private static final String[] TYPES = new String[41];
+	private static final Map<String, Integer> CODES = new HashMap<>();
+
+	static {
+		String[] names = { "room_list", "room_upsert", "room_removed", "room_counts", "room_deltas", "batch",
+				"room_players", "room_deleted", "create_room_ok", "enter_ok", "leave_ok", "host_changed",
+				"resync_required", "game_move", "game_state" };
+		for (int i = 0; i < names.length; i++)
+			register(i + 1, names[i]);
+
+		String[] commands = { "refresh", "resync", "create_room", "enter_room", "leave_room", "refresh_players",
+				"place_stone", "new_game", "sync_game" };
+		for (int i = 0; i < commands.length; i++)
+			register(32 + i, commands[i]);
+	}
+
+	private static void register(int code, String type) {
+		TYPES[code] = type;
+		CODES.put(type, code);
+	}
+
+	private BinaryCodec() {
+	}
+
+	/**
+	 * Sec-WebSocket-Protocol 협상: 클라이언트가 omok-bin.3 을 요청했을 때만 바이너리, 아니면 JSON("")
+	 */
+	static String negotiate(List<String> requested) {
+		return requested != null && requested.contains(SUBPROTOCOL) ? SUBPROTOCOL : "";
+	}
+
+	static boolean isBinary(Session s) {
+		return SUBPROTOCOL.equals(s.getNegotiatedSubprotocol());
+	}
+
+	static byte[] encode(Map<String, Object> msg) {
+		Out out = new Out(64);
+		write(out, msg);
+		return out.toByteArray();
+	}
+
+	static Map<String, Object> decode(ByteBuffer buf) throws Exception {
+		return read(buf);
+	}
+
+	// ---------- encode ----------
+
+	@SuppressWarnings("unchecked")
+	private static void write(Out out, Map<String, Object> m) {
+		Integer code = CODES.get(m.get("type"));
+		if (code == null) {
+			out.writeByte(0);
+			try {
+				out.writeBytes(om.writeValueAsBytes(m));
+			} catch (Exception e) {
+				throw new IllegalArgumentException(e);
+			}
+			return;
+		}
+
+		out.writeByte(code);
+		switch (code) {
+		case 1: {
+			out.writeVarLong(num(m.get("version")));
+			out.writeNullableString((String) m.get("cursor"));
+			out.writeNullableString((String) m.get("nextCursor"));
+			List<RoomDto> rooms = (List<RoomDto>) m.get("rooms");
+			out.writeVarLong(rooms.size());
+			for (RoomDto r : rooms)
+				writeRoom(out, r);
+			break;
+		}
+		case 2:
+			writeSeq(out, m);
+			writeRoom(out, (RoomDto) m.get("room"));
+			break;
+		case 3:
+			writeSeq(out, m);
+			out.writeVarLong(num(m.get("handle")));
+			break;
+		case 4:
+			writeSeq(out, m);
+			out.writeVarLong(num(m.get("handle")));
+			out.writeVarLong(num(m.get("currentUserCnt")));
+			out.writeVarLong(num(m.get("totalUserCnt")));
+			break;
+		case 5: {
+			out.writeVarLong(num(m.get("fromVersion")));
+			List<Map<String, Object>> deltas = (List<Map<String, Object>>) m.get("deltas");
+			out.writeVarLong(deltas.size());
+			for (Map<String, Object> d : deltas)
+				write(out, d);
+			break;
+		}
+		case 6: {
+			boolean hasSeq = m.get("toSeq") != null;
+			out.writeByte(hasSeq ? 1 : 0);
+			if (hasSeq) {
+				out.writeVarLong(num(m.get("fromSeq")));
+				out.writeVarLong(num(m.get("toSeq")));
+			}
+			List<Map<String, Object>> events = (List<Map<String, Object>>) m.get("events");
+			out.writeVarLong(events.size());
+			for (Map<String, Object> e : events)
+				write(out, e);
+			break;
+		}
+		case 7: {
+			out.writeUuid(m.get("roomId"));
+			List<Map<String, Object>> players = (List<Map<String, Object>>) m.get("players");
+			out.writeVarLong(players.size());
+			for (Map<String, Object> p : players) {
+				out.writeUuid(p.get("userId"));
+				out.writeString((String) p.get("nickname"));
+				out.writeVarLong(num(p.get("stoneColor")));
+			}
+			break;
+		}
+		case 8:
+		case 9:
+		case 10:
+		case 11:
+			out.writeUuid(m.get("roomId"));
+			break;
+		case 12:
+			out.writeVarLong(num(m.get("handle")));
+			out.writeUuid(m.get("newHostUserId"));
+			break;
+		case 14:
+			out.writeUuid(m.get("roomId"));
+			out.writeVarLong(num(m.get("move")));
+			out.writeVarLong(num(m.get("color")));
+			out.writeVarLong(num(m.get("cell")));
+			out.writeVarLong(num(m.get("winner")));
+			break;
+		case 15: {
+			out.writeUuid(m.get("roomId"));
+			out.writeVarLong(num(m.get("winner")));
+			int[] cells = (int[]) m.get("moves");
+			out.writeVarLong(cells.length);
+			for (int c : cells)
+				out.writeVarLong(c);
+			break;
+		}
+		case 32:
+			writeListQuery(out, m);
+			break;
+		case 33:
+			out.writeVarLong(num(m.get("fromVersion")));
+			writeListQuery(out, m);
+			break;
+		case 34:
+			out.writeString((String) m.get("roomName"));
+			out.writeVarLong(num(m.get("isPublic")));
+			out.writeVarLong(num(m.get("playType")));
+			out.writeVarLong(num(m.get("totalUserCnt")));
+			out.writeNullableString((String) m.get("roomPwd"));
+			break;
+		case 35:
+			out.writeVarLong(num(m.get("handle")));
+			out.writeNullableString((String) m.get("roomPwd"));
+			break;
+		case 36:
+		case 37:
+		case 39:
+		case 40:
+			out.writeVarLong(num(m.get("handle")));
+			break;
+		case 38:
+			out.writeVarLong(num(m.get("handle")));
+			out.writeVarLong(num(m.get("cell")));
+			break;
+		default:
+			// 13: 본문 없음
+		}
+	}
+
+	private static void writeSeq(Out out, Map<String, Object> m) {
+		long seq = num(m.get("seq"));
+		out.writeVarLong(seq);
+		out.writeVarLong(num(m.getOrDefault("fromSeq", seq)));
+	}
+
+	private static void writeListQuery(Out out, Map<String, Object> m) {
+		Object pageSize = m.get("pageSize");
+		Object playType = m.get("playType");
+		out.writeVarLong(pageSize == null ? 0 : num(pageSize));
+		out.writeNullableString((String) m.get("cursor"));
+		out.writeVarLong(playType == null ? 0 : num(playType) + 1);
+		out.writeByte(Boolean.TRUE.equals(m.get("hasFreeSeats")) ? 1 : 0);
+	}
+
+	private static void writeRoom(Out out, RoomDto r) {
+		out.writeUuid(r.getId());
+		out.writeVarLong(r.getHandle());
+		out.writeUuid(r.getHostUserId());
+		out.writeString(r.getRoomName());
+		out.writeVarLong(r.getIsPublic());
+		out.writeVarLong(r.getPlayType());
+		out.writeVarLong(r.getTotalUserCnt());
+		out.writeVarLong(r.getCurrentUserCnt());
+		out.writeVarLong(r.getCreatedAt());
+	}
+
+	private static long num(Object v) {
+		return ((Number) v).longValue();
+	}
+
+	// ---------- decode ----------
+
+	/**
+	 * 클라이언트 명령(32~40, 0 = JSON)을 Map 없이 바로 Command 로
+	 */
+	static Command decodeCommand(ByteBuffer buf) throws CommandDecoder.InvalidCommand {
+		ByteBuffer in = buf.slice();
+		try {
+			int code = in.get() & 0xff;
+			switch (code) {
+			case 0:
+				if (in.hasArray())
+					return CommandDecoder.decode(in.array(), in.arrayOffset() + in.position(), in.remaining());
+				byte[] json = new byte[in.remaining()];
+				in.get(json);
+				return CommandDecoder.decode(json, 0, json.length);
+			case 32:
+				return CommandDecoder.refresh(CommandDecoder.unsetIfZero((int) readVarLong(in)),
+						readNullableString(in), (int) readVarLong(in) - 1, in.get() == 1);
+			case 33: {
+				long fromVersion = readVarLong(in);
+				return CommandDecoder.resync(fromVersion, CommandDecoder.unsetIfZero((int) readVarLong(in)),
+						readNullableString(in), (int) readVarLong(in) - 1, in.get() == 1);
+			}
+			case 34:
+				return CommandDecoder.createRoom(readString(in), (int) readVarLong(in), (int) readVarLong(in),
+						(int) readVarLong(in), readNullableString(in));
+			case 35:
+				return new Command.EnterRoom(CommandDecoder.room((int) readVarLong(in)), readNullableString(in));
+			case 36:
+				return new Command.LeaveRoom(CommandDecoder.room((int) readVarLong(in)));
+			case 37:
+				return new Command.RefreshPlayers(CommandDecoder.room((int) readVarLong(in)));
+			case 38:
+				return CommandDecoder.placeStone(CommandDecoder.room((int) readVarLong(in)), (int) readVarLong(in));
+			case 39:
+				return new Command.NewGame(CommandDecoder.room((int) readVarLong(in)));
+			case 40:
+				return new Command.SyncGame(CommandDecoder.room((int) readVarLong(in)));
+			default:
+				String type = code < TYPES.length ? TYPES[code] : null;
+				throw new CommandDecoder.InvalidCommand("지원하지 않는 type: " + (type == null ? code : type));
+			}
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new CommandDecoder.InvalidCommand("바이너리 형식이 잘못되었습니다.");
+		}
+	}
+
+	private static Map<String, Object> read(ByteBuffer in) throws Exception {
+		int code = in.get() & 0xff;
+		if (code == 0) {
+			byte[] json = new byte[in.remaining()];
+			in.get(json);
+			@SuppressWarnings("unchecked")
+			Map<String, Object> m = om.readValue(json, Map.class);
+			return m;
+		}
+
+		String type = code < TYPES.length ? TYPES[code] : null;
+		if (type == null)
+			throw new IllegalArgumentException("unknown binary type: " + code);
+
+		Map<String, Object> m = new HashMap<>();
+		m.put("type", type);
+		switch (code) {
+		case 1: {
+			m.put("version", readVarLong(in));
+			m.put("cursor", readNullableString(in));
+			m.put("nextCursor", readNullableString(in));
+			int n = (int) readVarLong(in);
+			List<RoomDto> rooms = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				rooms.add(readRoom(in));
+			m.put("rooms", rooms);
+			break;
+		}
+		case 2:
+			readSeq(in, m);
+			m.put("room", readRoom(in));
+			break;
+		case 3:
+			readSeq(in, m);
+			m.put("handle", (int) readVarLong(in));
+			break;
+		case 4:
+			readSeq(in, m);
+			m.put("handle", (int) readVarLong(in));
+			m.put("currentUserCnt", (int) readVarLong(in));
+			m.put("totalUserCnt", (int) readVarLong(in));
+			break;
+		case 5: {
+			m.put("fromVersion", readVarLong(in));
+			int n = (int) readVarLong(in);
+			List<Map<String, Object>> deltas = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				deltas.add(read(in));
+			m.put("deltas", deltas);
+			break;
+		}
+		case 6: {
+			if (in.get() == 1) {
+				m.put("fromSeq", readVarLong(in));
+				m.put("toSeq", readVarLong(in));
+			}
+			int n = (int) readVarLong(in);
+			List<Map<String, Object>> events = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				events.add(read(in));
+			m.put("events", events);
+			break;
+		}
+		case 7: {
+			m.put("roomId", readUuid(in));
+			int n = (int) readVarLong(in);
+			List<Map<String, Object>> players = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				Map<String, Object> p = new HashMap<>();
+				p.put("userId", readUuid(in));
+				p.put("nickname", readString(in));
+				p.put("stoneColor", (int) readVarLong(in));
+				players.add(p);
+			}
+			m.put("players", players);
+			break;
+		}
+		case 8:
+		case 9:
+		case 10:
+		case 11:
+			m.put("roomId", readUuid(in));
+			break;
+		case 12:
+			m.put("handle", (int) readVarLong(in));
+			m.put("newHostUserId", readUuid(in));
+			break;
+		case 14:
+			m.put("roomId", readUuid(in));
+			m.put("move", (int) readVarLong(in));
+			m.put("color", (int) readVarLong(in));
+			m.put("cell", (int) readVarLong(in));
+			m.put("winner", (int) readVarLong(in));
+			break;
+		case 15: {
+			m.put("roomId", readUuid(in));
+			m.put("winner", (int) readVarLong(in));
+			int[] cells = new int[(int) readVarLong(in)];
+			for (int i = 0; i < cells.length; i++)
+				cells[i] = (int) readVarLong(in);
+			m.put("moves", cells);
+			break;
+		}
+		case 32:
+			readListQuery(in, m);
+			break;
+		case 33:
+			m.put("fromVersion", readVarLong(in));
+			readListQuery(in, m);
+			break;
+		case 34:
+			m.put("roomName", readString(in));
+			m.put("isPublic", (int) readVarLong(in));
+			m.put("playType", (int) readVarLong(in));
+			m.put("totalUserCnt", (int) readVarLong(in));
+			m.put("roomPwd", readNullableString(in));
+			break;
+		case 35:
+			m.put("handle", (int) readVarLong(in));
+			m.put("roomPwd", readNullableString(in));
+			break;
+		case 36:
+		case 37:
+		case 39:
+		case 40:
+			m.put("handle", (int) readVarLong(in));
+			break;
+		case 38:
+			m.put("handle", (int) readVarLong(in));
+			m.put("cell", (int) readVarLong(in));
+			break;
+		default:
+		}
+		return m;
+	}
+
+	private static void readSeq(ByteBuffer in, Map<String, Object> m) {
+		m.put("seq", readVarLong(in));
+		m.put("fromSeq", readVarLong(in));
+	}
+
+	private static void readListQuery(ByteBuffer in, Map<String, Object> m) {
+		int pageSize = (int) readVarLong(in);
+		if (pageSize > 0)
+			m.put("pageSize", pageSize);
+		m.put("cursor", readNullableString(in));
+		int playType = (int) readVarLong(in);
+		if (playType > 0)
+			m.put("playType", playType - 1);
+		m.put("hasFreeSeats", in.get() == 1);
+	}
+
+	private static RoomDto readRoom(ByteBuffer in) {
+		return RoomDto.builder().id(new UUID(in.getLong(), in.getLong())).handle((int) readVarLong(in))
+				.hostUserId(new UUID(in.getLong(), in.getLong())).roomName(readString(in)).isPublic((int) readVarLong(in)).playType((int) readVarLong(in))
+				.totalUserCnt((int) readVarLong(in)).currentUserCnt((int) readVarLong(in))
+				.createdAt(readVarLong(in)).build();
+	}
+
+	// JSON 쪽과 같은 모양이 되도록 UUID 는 문자열로 돌려준다
+	private static String readUuid(ByteBuffer in) {
+		return new UUID(in.getLong(), in.getLong()).toString();
+	}
+
+	private static long readVarLong(ByteBuffer in) {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			v |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+		throw new IllegalArgumentException("varint too long");
+	}
+
+	private static String readString(ByteBuffer in) {
+		int len = (int) readVarLong(in);
+		if (len > in.remaining())
+			throw new IllegalArgumentException("string length " + len + " > remaining " + in.remaining());
+		if (in.hasArray()) {
+			String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+			in.position(in.position() + len);
+			return s;
+		}
+		byte[] b = new byte[len];
+		in.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private static String readNullableString(ByteBuffer in) {
+		return in.get() == 0 ? null : readString(in);
+	}
+
+	/**
+	 * 늘어나는 byte[] 버퍼
+	 */
+	private static final class Out {
+		private byte[] buf;
+		private int len;
+
+		Out(int initial) {
+			buf = new byte[initial];
+		}
+
+		private void ensure(int extra) {
+			if (len + extra > buf.length)
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+		}
+
+		void writeByte(int b) {
+			ensure(1);
+			buf[len++] = (byte) b;
+		}
+
+		void writeBytes(byte[] b) {
+			ensure(b.length);
+			System.arraycopy(b, 0, buf, len, b.length);
+			len += b.length;
+		}
+
+		void writeVarLong(long v) {
+			ensure(10);
+			while ((v & ~0x7fL) != 0) {
+				buf[len++] = (byte) ((v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			buf[len++] = (byte) v;
+		}
+
+		void writeLong(long v) {
+			ensure(8);
+			for (int shift = 56; shift >= 0; shift -= 8)
+				buf[len++] = (byte) (v >>> shift);
+		}
+
+		void writeUuid(Object v) {
+			UUID u = v instanceof UUID ? (UUID) v : UUID.fromString(String.valueOf(v));
+			writeLong(u.getMostSignificantBits());
+			writeLong(u.getLeastSignificantBits());
+		}
+
+		void writeString(String s) {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(b.length);
+			writeBytes(b);
+		}
+
+		void writeNullableString(String s) {
+			if (s == null) {
+				writeByte(0);
+			} else {
+				writeByte(1);
+				writeString(s);
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buf, len);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package websocket;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import javax.websocket.Session;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * 토픽(로비 / 방 하나) 단위로 tick 동안 이벤트를 모았다가 한 프레임으로 내보낸다.
+ *
+ * 같은 coalesceKey 로 들어온 이벤트는 merger 로 합쳐지고(기본은 나중 것이 이김),
+ * 토픽에 이벤트가 하나면 그대로, 여러 개면 {type:"batch", events:[...]} 로 보낸다.
+ * seq 가 붙은 이벤트(로비 delta)를 묶을 때는 batch 에 fromSeq/toSeq 범위를 같이 싣는다.
+ *
+ * tick 은 -Dws.broadcast.tickMillis (기본 50ms)
+ */
+public class BroadcastScheduler {
+
+	static final long TICK_MILLIS = Math.max(1, Long.getLong("ws.broadcast.tickMillis", 50));
+
+	private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "ws-broadcast-tick");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final String name;
+	private final Function<Object, Collection<Session>> sessionsOf;
+	private final BinaryOperator<Map<String, Object>> merger;
+	private final boolean conflateFrames; // 큐에 밀린 같은 키 프레임은 최신 것으로 교체
+	private final boolean droppableFrames; // 큐가 넘치면 버려도 되는 프레임
+
+	// topic -> (coalesceKey -> event), 첫 도착 순서 유지
+	private Map<Object, LinkedHashMap<String, Map<String, Object>>> pending = new HashMap<>();
+
+	private final LongAdder eventsIn = new LongAdder();
+	private final LongAdder eventsMerged = new LongAdder();
+	private final LongAdder framesOut = new LongAdder();
+	private final LongAdder sends = new LongAdder();
+	private final Histogram fanout; // 프레임 하나를 넣은 세션 수
+	private final Histogram frameNanos; // 프레임 하나 만들고 모든 세션 큐에 넣기까지
+	private final Counter failures;
+
+	BroadcastScheduler(String name, Function<Object, Collection<Session>> sessionsOf,
+			BinaryOperator<Map<String, Object>> merger, boolean conflateFrames, boolean droppableFrames) {
+		this.name = name;
+		this.sessionsOf = sessionsOf;
+		this.merger = merger;
+		this.conflateFrames = conflateFrames;
+		this.droppableFrames = droppableFrames;
+		this.fanout = Metrics.histogram("ws_broadcast_fanout", "브로드캐스트 프레임 하나를 받은 세션 수", Histogram.COUNTS, 1,
+				"scheduler", name);
+		this.frameNanos = Metrics.latency("ws_broadcast_frame_seconds", "브로드캐스트 프레임 하나를 모든 세션 큐에 넣는 시간",
+				"scheduler", name);
+		this.failures = Metrics.counter("ws_broadcast_failures_total", "예외로 중간에 멈춘 브로드캐스트 프레임", "scheduler",
+				name);
+		Metrics.counterOf("ws_broadcast_events_total", "브로드캐스트로 들어온 이벤트", eventsIn::sum, "scheduler", name);
+		Metrics.counterOf("ws_broadcast_events_merged_total", "같은 키로 합쳐진 이벤트", eventsMerged::sum, "scheduler",
+				name);
+		Metrics.counterOf("ws_broadcast_frames_total", "내보낸 프레임 (토픽당 tick 마다 하나)", framesOut::sum, "scheduler",
+				name);
+		Metrics.counterOf("ws_broadcast_sends_total", "세션 큐에 넣은 프레임", sends::sum, "scheduler", name);
+		timer.scheduleAtFixedRate(this::flush, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	void submit(Object topic, String coalesceKey, Map<String, Object> event) {
+		eventsIn.increment();
+		synchronized (this) {
+			LinkedHashMap<String, Map<String, Object>> events = pending.computeIfAbsent(topic,
+					k -> new LinkedHashMap<>());
+			Map<String, Object> prev = events.get(coalesceKey);
+			if (prev == null) {
+				events.put(coalesceKey, event);
+			} else {
+				eventsMerged.increment();
+				events.put(coalesceKey, merger.apply(prev, event));
+			}
+		}
+	}
+
+	// tick 타이머가 호출 (벤치마크는 직접)
+	void flush() {
+		Map<Object, LinkedHashMap<String, Map<String, Object>>> batch;
+		synchronized (this) {
+			if (pending.isEmpty())
+				return;
+			batch = pending;
+			pending = new HashMap<>();
+		}
+
+		for (Map.Entry<Object, LinkedHashMap<String, Map<String, Object>>> e : batch.entrySet()) {
+			long start = System.nanoTime();
+			int n = 0;
+			try {
+				LinkedHashMap<String, Map<String, Object>> events = e.getValue();
+				Frame frame = new Frame(frameOf(events.values()));
+				String conflateKey = conflateFrames && events.size() == 1 ? events.keySet().iterator().next() : null;
+				framesOut.increment();
+
+				for (Session s : sessionsOf.apply(e.getKey())) {
+					OutboundQueue q = OutboundQueue.of(s);
+					if (q != null && s.isOpen()) {
+						q.offer(frame, conflateKey, droppableFrames);
+						n++;
+					}
+				}
+			} catch (Exception ex) {
+				failures.inc();
+			} finally {
+				sends.add(n);
+				fanout.observe(n);
+				frameNanos.observeSince(start);
+			}
+		}
+	}
+
+	private static Map<String, Object> frameOf(Collection<Map<String, Object>> events) {
+		if (events.size() == 1)
+			return events.iterator().next();
+
+		long fromSeq = Long.MAX_VALUE;
+		long toSeq = -1;
+		for (Map<String, Object> ev : events) {
+			Object seq = ev.get("seq");
+			if (seq == null)
+				continue;
+			Object from = ev.getOrDefault("fromSeq", seq);
+			fromSeq = Math.min(fromSeq, ((Number) from).longValue());
+			toSeq = Math.max(toSeq, ((Number) seq).longValue());
+		}
+
+		Map<String, Object> frame = new HashMap<>();
+		frame.put("type", "batch");
+		frame.put("events", new ArrayList<>(events));
+		if (toSeq >= 0) {
+			frame.put("fromSeq", fromSeq);
+			frame.put("toSeq", toSeq);
+		}
+		return frame;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public long eventsIn() {
+		return eventsIn.sum();
+	}
+
+	public long eventsMerged() {
+		return eventsMerged.sum();
+	}
+
+	public long framesOut() {
+		return framesOut.sum();
+	}
+
+	public long sends() {
+		return sends.sum();
+	}
+}
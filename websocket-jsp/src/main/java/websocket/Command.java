@@ -0,0 +1,74 @@
+package websocket;
+
+import java.util.UUID;
+
+import model.RoomCursor;
+
+/**
+ * 클라이언트 → 서버 명령 (JSON 은 CommandDecoder, omok-bin 은 BinaryCodec.decodeCommand 가 만든다)
+ *
+ * 값은 디코딩할 때 이미 검증되어 있다. 숫자는 전부 primitive, 빠진 값은 기본값으로 채워진다.
+ */
+sealed interface Command permits Command.Refresh, Command.Resync, Command.CreateRoom, Command.EnterRoom,
+		Command.LeaveRoom, Command.RefreshPlayers, Command.PlaceStone, Command.NewGame, Command.SyncGame {
+
+	int ALL_PLAY_TYPES = -1;
+
+	/**
+	 * refresh / resync 공통 목록 조건. pageSize 는 이미 1..MAX 로 잘려 있고, playType 은 ALL_PLAY_TYPES 면 전체.
+	 * cursor 는 클라이언트가 보낸 원문(응답에 그대로 돌려줌), after 는 그걸 푼 것.
+	 */
+	interface ListQuery {
+		int pageSize();
+
+		String cursor();
+
+		RoomCursor after();
+
+		int playType();
+
+		boolean hasFreeSeats();
+	}
+
+	record Refresh(int pageSize, String cursor, RoomCursor after, int playType, boolean hasFreeSeats)
+			implements Command, ListQuery {
+	}
+
+	/**
+	 * fromVersion 이 음수면 클라이언트가 버전을 모름 → 첫 페이지
+	 */
+	record Resync(long fromVersion, int pageSize, String cursor, RoomCursor after, int playType,
+			boolean hasFreeSeats) implements Command, ListQuery {
+	}
+
+	/**
+	 * isPublic == 0 이면 roomPwd 는 비어 있지 않다
+	 */
+	record CreateRoom(String roomName, int isPublic, int playType, int totalUserCnt, String roomPwd)
+			implements Command {
+	}
+
+	record EnterRoom(UUID roomId, String roomPwd) implements Command {
+	}
+
+	record LeaveRoom(UUID roomId) implements Command {
+	}
+
+	record RefreshPlayers(UUID roomId) implements Command {
+	}
+
+	/**
+	 * cell = y * 15 + x, 이미 0..224 로 검사됨
+	 */
+	record PlaceStone(UUID roomId, int cell) implements Command {
+	}
+
+	record NewGame(UUID roomId) implements Command {
+	}
+
+	/**
+	 * 놓친 수가 있는 클라이언트가 판 전체(game_state)를 다시 달라고 할 때
+	 */
+	record SyncGame(UUID roomId) implements Command {
+	}
+}
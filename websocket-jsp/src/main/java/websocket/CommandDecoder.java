@@ -0,0 +1,338 @@
+package websocket;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import game.Gomoku;
+import model.RoomCursor;
+import util.HandleTable;
+
+/**
+ * JSON 텍스트 → Command, 스트리밍 파서로 한 번만 훑는다 (Map, 박싱된 숫자 없음)
+ *
+ * 필드 순서는 상관없고 모르는 필드는 건너뛴다. 값은 읽는 즉시 검증해서 잘못되면 InvalidCommand
+ * (메시지는 그대로 클라이언트 error 로 나간다). roomId 는 문자열을 만들지 않고 파서 버퍼에서 바로 UUID 로 읽는다.
+ * 방은 roomId 대신 handle(정수, 로비 목록에 같이 옴)로 가리켜도 된다. 둘 다 있으면 handle 이 이긴다.
+ *
+ * 예전 Map 경로와 같은 관용: 숫자 필드는 "2" 같은 숫자 문자열도 받고, cursor/roomPwd 의 "null" 문자열은 null.
+ */
+final class CommandDecoder {
+
+	static final int DEFAULT_PAGE_SIZE = 50;
+	static final int MAX_PAGE_SIZE = 200;
+
+	// JSON 에 값이 없었음
+	private static final int UNSET = Integer.MIN_VALUE;
+
+	private static final JsonFactory json = new JsonFactory();
+
+	/**
+	 * 스택 트레이스 없음: 잘못된 입력마다 만들어지므로
+	 */
+	static final class InvalidCommand extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		InvalidCommand(String message) {
+			super(message, null, false, false);
+		}
+	}
+
+	private CommandDecoder() {
+	}
+
+	static Command decode(String text) throws InvalidCommand {
+		try (JsonParser p = json.createParser(text)) {
+			return decode(p);
+		} catch (IOException e) {
+			throw new InvalidCommand("JSON 형식이 잘못되었습니다.");
+		}
+	}
+
+	static Command decode(byte[] utf8, int offset, int length) throws InvalidCommand {
+		try (JsonParser p = json.createParser(utf8, offset, length)) {
+			return decode(p);
+		} catch (IOException e) {
+			throw new InvalidCommand("JSON 형식이 잘못되었습니다.");
+		}
+	}
+
+	private static Command decode(JsonParser p) throws IOException, InvalidCommand {
+		if (p.nextToken() != JsonToken.START_OBJECT)
+			throw new InvalidCommand("JSON 객체가 아닙니다.");
+
+		String type = null;
+		int pageSize = UNSET;
+		String cursor = null;
+		int playType = UNSET;
+		boolean hasFreeSeats = false;
+		long fromVersion = -1;
+		String roomName = null;
+		int isPublic = UNSET;
+		int totalUserCnt = UNSET;
+		String roomPwd = null;
+		UUID roomId = null;
+		int handle = UNSET;
+		int cell = UNSET;
+
+		String field;
+		while ((field = p.nextFieldName()) != null) {
+			p.nextToken();
+			switch (field) {
+			case "type":
+				type = string(p, field);
+				break;
+			case "pageSize":
+				pageSize = integer(p, field);
+				break;
+			case "cursor":
+				cursor = nullableString(p, field);
+				break;
+			case "playType":
+				playType = integer(p, field);
+				break;
+			case "hasFreeSeats":
+				hasFreeSeats = bool(p, field);
+				break;
+			case "fromVersion": {
+				long v = longInteger(p, field);
+				fromVersion = v == UNSET ? -1 : v;
+				break;
+			}
+			case "roomName":
+				roomName = string(p, field);
+				break;
+			case "isPublic":
+				isPublic = integer(p, field);
+				break;
+			case "totalUserCnt":
+				totalUserCnt = integer(p, field);
+				break;
+			case "roomPwd":
+				roomPwd = nullableString(p, field);
+				break;
+			case "roomId":
+				roomId = uuid(p);
+				break;
+			case "handle":
+				handle = integer(p, field);
+				break;
+			case "cell":
+				cell = integer(p, field);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+
+		if (type == null)
+			throw new InvalidCommand("type이 없습니다.");
+
+		switch (type) {
+		case "refresh":
+			return refresh(pageSize, cursor, playType, hasFreeSeats);
+		case "resync":
+			return resync(fromVersion, pageSize, cursor, playType, hasFreeSeats);
+		case "create_room":
+			return createRoom(roomName, isPublic == UNSET ? 1 : isPublic, playType == UNSET ? 1 : playType,
+					totalUserCnt == UNSET ? 2 : totalUserCnt, roomPwd);
+		case "enter_room":
+			return new Command.EnterRoom(require(roomId, handle), roomPwd);
+		case "leave_room":
+			return new Command.LeaveRoom(require(roomId, handle));
+		case "refresh_players":
+			return new Command.RefreshPlayers(require(roomId, handle));
+		case "place_stone":
+			return placeStone(require(roomId, handle), cell);
+		case "new_game":
+			return new Command.NewGame(require(roomId, handle));
+		case "sync_game":
+			return new Command.SyncGame(require(roomId, handle));
+		default:
+			throw new InvalidCommand("지원하지 않는 type: " + type);
+		}
+	}
+
+	// ---------- 검증 + 생성 (BinaryCodec 도 같이 씀) ----------
+
+	/**
+	 * pageSize/playType 은 UNSET 이면 기본값 (omok-bin 은 0 을 UNSET 으로 넘긴다)
+	 */
+	static Command.Refresh refresh(int pageSize, String cursor, int playType, boolean hasFreeSeats)
+			throws InvalidCommand {
+		return new Command.Refresh(pageSize(pageSize), cursor, cursor(cursor), listPlayType(playType), hasFreeSeats);
+	}
+
+	static Command.Resync resync(long fromVersion, int pageSize, String cursor, int playType, boolean hasFreeSeats)
+			throws InvalidCommand {
+		return new Command.Resync(fromVersion, pageSize(pageSize), cursor, cursor(cursor), listPlayType(playType),
+				hasFreeSeats);
+	}
+
+	static Command.CreateRoom createRoom(String roomName, int isPublic, int playType, int totalUserCnt,
+			String roomPwd) throws InvalidCommand {
+		if (roomName == null || roomName.isBlank())
+			throw new InvalidCommand("방 이름이 비어있습니다.");
+		if (totalUserCnt <= 0)
+			throw new InvalidCommand("정원은 1 이상이어야 합니다.");
+		if (isPublic == 0 && (roomPwd == null || roomPwd.isBlank()))
+			throw new InvalidCommand("비공개 방은 비밀번호가 필요합니다.");
+		return new Command.CreateRoom(roomName, isPublic, playType, totalUserCnt, roomPwd);
+	}
+
+	static Command.PlaceStone placeStone(UUID roomId, int cell) throws InvalidCommand {
+		if (cell < 0 || cell >= Gomoku.CELLS)
+			throw new InvalidCommand("cell 은 0.." + (Gomoku.CELLS - 1) + " 이어야 합니다.");
+		return new Command.PlaceStone(roomId, cell);
+	}
+
+	private static UUID require(UUID roomId, int handle) throws InvalidCommand {
+		if (handle != UNSET)
+			return room(handle);
+		if (roomId == null)
+			throw new InvalidCommand("roomId가 없습니다.");
+		return roomId;
+	}
+
+	/**
+	 * 모르는/지워진 handle 이면 InvalidCommand (재시작 전 handle 도 여기로)
+	 */
+	static UUID room(int handle) throws InvalidCommand {
+		UUID roomId = HandleTable.ROOMS.uuidOf(handle);
+		if (roomId == null)
+			throw new InvalidCommand("방을 찾을 수 없습니다.");
+		return roomId;
+	}
+
+	static int unsetIfZero(int v) {
+		return v == 0 ? UNSET : v;
+	}
+
+	private static int pageSize(int v) {
+		return v == UNSET ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(MAX_PAGE_SIZE, v));
+	}
+
+	private static int listPlayType(int v) {
+		return v == UNSET ? Command.ALL_PLAY_TYPES : v;
+	}
+
+	private static RoomCursor cursor(String cursor) throws InvalidCommand {
+		try {
+			return RoomCursor.decode(cursor);
+		} catch (RuntimeException e) {
+			throw new InvalidCommand("cursor 형식이 잘못되었습니다.");
+		}
+	}
+
+	// ---------- 토큰 읽기 ----------
+
+	private static String string(JsonParser p, String field) throws IOException, InvalidCommand {
+		JsonToken t = p.currentToken();
+		if (t == JsonToken.VALUE_NULL)
+			return null;
+		if (!t.isScalarValue())
+			throw new InvalidCommand(field + " 값이 잘못되었습니다.");
+		return p.getText();
+	}
+
+	private static String nullableString(JsonParser p, String field) throws IOException, InvalidCommand {
+		String s = string(p, field);
+		return "null".equalsIgnoreCase(s) ? null : s;
+	}
+
+	private static int integer(JsonParser p, String field) throws IOException, InvalidCommand {
+		long v = longInteger(p, field);
+		if (v == UNSET)
+			return UNSET;
+		if (v < Integer.MIN_VALUE + 1 || v > Integer.MAX_VALUE)
+			throw new InvalidCommand(field + " 값이 너무 큽니다.");
+		return (int) v;
+	}
+
+	private static long longInteger(JsonParser p, String field) throws IOException, InvalidCommand {
+		switch (p.currentToken()) {
+		case VALUE_NULL:
+			return UNSET;
+		case VALUE_NUMBER_INT:
+			if (p.getNumberType() == JsonParser.NumberType.BIG_INTEGER)
+				throw new InvalidCommand(field + " 값이 너무 큽니다.");
+			return p.getLongValue();
+		case VALUE_STRING:
+			try {
+				return Long.parseLong(p.getText().trim());
+			} catch (NumberFormatException e) {
+				throw new InvalidCommand(field + " 는 숫자여야 합니다.");
+			}
+		default:
+			throw new InvalidCommand(field + " 는 숫자여야 합니다.");
+		}
+	}
+
+	private static boolean bool(JsonParser p, String field) throws IOException, InvalidCommand {
+		switch (p.currentToken()) {
+		case VALUE_TRUE:
+			return true;
+		case VALUE_FALSE:
+		case VALUE_NULL:
+			return false;
+		case VALUE_STRING:
+			return Boolean.parseBoolean(p.getText());
+		default:
+			throw new InvalidCommand(field + " 는 true/false 여야 합니다.");
+		}
+	}
+
+	private static UUID uuid(JsonParser p) throws IOException, InvalidCommand {
+		JsonToken t = p.currentToken();
+		if (t == JsonToken.VALUE_NULL)
+			return null;
+		if (t != JsonToken.VALUE_STRING)
+			throw new InvalidCommand("roomId 형식이 잘못되었습니다.");
+
+		UUID id = parseUuid(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+		if (id == null)
+			throw new InvalidCommand("roomId 형식이 잘못되었습니다.");
+		return id;
+	}
+
+	/**
+	 * 8-4-4-4-12 형식만 (UUID.toString 결과), 아니면 null
+	 */
+	static UUID parseUuid(char[] c, int off, int len) {
+		if (len != 36 || c[off + 8] != '-' || c[off + 13] != '-' || c[off + 18] != '-' || c[off + 23] != '-')
+			return null;
+		long a = hex(c, off, 8);
+		long b = hex(c, off + 9, 4);
+		long d = hex(c, off + 14, 4);
+		long e = hex(c, off + 19, 4);
+		long f = hex(c, off + 24, 12);
+		if ((a | b | d | e | f) < 0)
+			return null;
+		return new UUID(a << 32 | b << 16 | d, e << 48 | f);
+	}
+
+	// 음수면 16진수가 아닌 글자가 있음 (UUID.fromString 처럼 ASCII 0-9a-fA-F 만, 전각 숫자 등은 거절)
+	private static long hex(char[] c, int off, int len) {
+		long v = 0;
+		for (int i = off; i < off + len; i++) {
+			int digit = hexDigit(c[i]);
+			if (digit < 0)
+				return -1;
+			v = v << 4 | digit;
+		}
+		return v;
+	}
+
+	private static int hexDigit(char ch) {
+		if (ch >= '0' && ch <= '9')
+			return ch - '0';
+		if (ch >= 'a' && ch <= 'f')
+			return ch - 'a' + 10;
+		if (ch >= 'A' && ch <= 'F')
+			return ch - 'A' + 10;
+		return -1;
+	}
+}
@@ -0,0 +1,253 @@
+package websocket;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.websocket.Session;
+
+import dao.RoomRegistry;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * DB 를 타는 명령을 웹소켓 컨테이너 스레드 밖에서 실행한다.
+ * 커넥션 풀이 밀려 maxWaitMillis 동안 막혀도 다른 소켓의 onMessage 는 계속 돈다.
+ *
+ * - JDK 에 가상 스레드가 있으면 newVirtualThreadPerTaskExecutor, 없으면 고정 크기 플랫폼 풀
+ * - 명령은 Mailbox 줄에 들어간다: 방에 묶인 명령은 방 줄, 나머지는 세션 줄. 줄 하나는 한 번에 하나씩 순서대로,
+ *   서로 다른 줄은 병렬로 돈다
+ * - 방 줄은 RoomRegistry 에 있는 방에만 만든다. 방이 레지스트리에서 빠지면 (어느 노드에서 지웠든) 남은 명령이
+ *   다 끝난 뒤에 줄을 치운다. 넣기와 치우기는 rooms 맵의 같은 키 락 안에서라 치운 줄에 명령이 들어가지 않는다
+ * - 세션당 대기+실행 중인 명령(어느 줄에 있든)이 PER_SESSION 개를 넘으면 바로 거절 (호출한 쪽이 에러 응답)
+ * - 응답은 작업 안에서 OutboundQueue 로 비동기로 나간다
+ *
+ * -Dws.db.executor=auto|virtual|platform (기본 auto), -Dws.db.perSession (기본 4),
+ * -Dws.db.poolSize (플랫폼 풀 스레드 수, 기본 50 = context.xml 의 maxTotal),
+ * -Dws.db.queue (플랫폼 풀 대기열, 기본 4096)
+ */
+public final class DbExecutor {
+
+	static final int PER_SESSION = Math.max(1, Integer.getInteger("ws.db.perSession", 4));
+	static final int POOL_SIZE = Math.max(1, Integer.getInteger("ws.db.poolSize", 50));
+	static final int QUEUE = Math.max(1, Integer.getInteger("ws.db.queue", 4096));
+
+	private static final String KEY = "DB_LANE";
+	private static final String PENDING_KEY = "DB_PENDING";
+
+	// roomId -> 방 줄 (레지스트리에 있는 방만)
+	private static final Map<UUID, Mailbox> rooms = new ConcurrentHashMap<>();
+	private static final RoomRegistry registry = RoomRegistry.get();
+
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private static final boolean virtual;
+	private static final ExecutorService executor;
+
+	static {
+		String kind = System.getProperty("ws.db.executor", "auto");
+		ExecutorService vt = "platform".equalsIgnoreCase(kind) ? null : virtualExecutor();
+		if (vt == null && "virtual".equalsIgnoreCase(kind))
+			throw new IllegalStateException("ws.db.executor=virtual: 가상 스레드를 지원하지 않는 JDK");
+		virtual = vt != null;
+		executor = vt != null ? vt : platformExecutor();
+	}
+
+	private static final LongAdder submitted = new LongAdder();
+	private static final LongAdder completed = new LongAdder();
+	private static final LongAdder failed = new LongAdder();
+	private static final LongAdder rejected = new LongAdder();
+	private static final AtomicLong inFlight = new AtomicLong();
+	// 제출부터 실행 시작까지 (같은 세션 앞 명령을 기다린 시간 포함)
+	private static final LongAdder waitCount = new LongAdder();
+	private static final LongAdder waitNanos = new LongAdder();
+	private static final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+	private static final Histogram wait = Metrics.latency("ws_db_wait_seconds", "DB 명령을 넣고 실행이 시작되기까지");
+
+	static {
+		Metrics.counterOf("ws_db_tasks_submitted_total", "DbExecutor 에 들어간 명령", submitted::sum, "executor", kind());
+		Metrics.counterOf("ws_db_tasks_completed_total", "정상 종료한 명령", completed::sum, "executor", kind());
+		Metrics.counterOf("ws_db_tasks_failed_total", "예외로 끝난 명령", failed::sum, "executor", kind());
+		Metrics.counterOf("ws_db_tasks_rejected_total", "세션 한도/대기열 때문에 거절한 명령", rejected::sum, "executor",
+				kind());
+		Metrics.gauge("ws_db_tasks_in_flight", "대기 중이거나 실행 중인 명령", inFlight::get, "executor", kind());
+		Metrics.gauge("ws_db_room_mailboxes", "방 줄 수", () -> rooms.size());
+		registry.addRemovalListener(DbExecutor::forgetRoom);
+	}
+
+	private DbExecutor() {
+	}
+
+	// JDK 21+ 에서만 있는 메서드라 리플렉션으로 (컴파일은 17 기준)
+	private static ExecutorService virtualExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService platformExecutor() {
+		AtomicInteger seq = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(QUEUE), r -> {
+					Thread t = new Thread(r, "ws-db-" + seq.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * 세션 줄: 방에 안 묶인 명령(create_room 등)을 그 세션이 보낸 순서대로
+	 */
+	static boolean submit(Session s, Task task) {
+		Mailbox box = (Mailbox) s.getUserProperties().computeIfAbsent(KEY, k -> new Mailbox(executor));
+		return post(s, box, task);
+	}
+
+	/**
+	 * 방 줄: 같은 방의 입장/퇴장/명단 조회는 어느 세션에서 왔든 한 번에 하나씩, 들어온 순서대로.
+	 * DB 커밋, RoomRoster 갱신, 브로드캐스트 제출이 모두 이 순서를 따른다.
+	 */
+	static boolean submit(Session s, UUID roomId, Task task) {
+		Boolean accepted = postToRoom(s, roomId, task);
+		// 레지스트리에 없는 방은 줄을 만들지 않고 세션 줄에서 (ROOM_NOT_FOUND 로 끝난다)
+		return accepted != null ? accepted : submit(s, task);
+	}
+
+	/**
+	 * 방 줄, 세션 없이: 다른 노드에서 넘어온 명령 (세션 한도는 보낸 노드에서 이미 셌다)
+	 */
+	static boolean submit(UUID roomId, Task task) {
+		Boolean accepted = postToRoom(null, roomId, task);
+		return accepted != null ? accepted : post(null, new Mailbox(executor), task);
+	}
+
+	// 방 줄에 넣음. 줄이 없고 레지스트리에도 없는 방이면 null
+	private static Boolean postToRoom(Session s, UUID roomId, Task task) {
+		Boolean[] accepted = new Boolean[1];
+		rooms.compute(roomId, (id, box) -> {
+			if (box == null) {
+				if (registry.findRoom(id).isEmpty())
+					return null;
+				box = new Mailbox(executor, () -> forgetIfDeleted(id));
+			}
+			accepted[0] = post(s, box, task);
+			return box;
+		});
+		return accepted[0];
+	}
+
+	// 방이 레지스트리에서 빠졌을 때: 남은 명령이 없으면 지금, 있으면 마지막 명령이 끝날 때 forgetIfDeleted 가 치운다
+	private static void forgetRoom(UUID roomId) {
+		rooms.computeIfPresent(roomId, (id, box) -> box.idle() ? null : box);
+	}
+
+	// 방 줄이 빌 때마다
+	private static void forgetIfDeleted(UUID roomId) {
+		if (registry.findRoom(roomId).isEmpty())
+			forgetRoom(roomId);
+	}
+
+	/**
+	 * false 면 거절됨 (세션당 한도 초과 또는 플랫폼 풀 대기열이 가득 참). s == null 이면 세션 한도 없음
+	 */
+	private static boolean post(Session s, Mailbox box, Task task) {
+		AtomicInteger pending = s == null ? new AtomicInteger()
+				: (AtomicInteger) s.getUserProperties().computeIfAbsent(PENDING_KEY, k -> new AtomicInteger());
+		if (pending.incrementAndGet() > PER_SESSION) {
+			pending.decrementAndGet();
+			rejected.increment();
+			return false;
+		}
+
+		inFlight.incrementAndGet();
+		long enqueuedAt = System.nanoTime();
+		try {
+			box.post(() -> {
+				long waited = System.nanoTime() - enqueuedAt;
+				waitCount.increment();
+				waitNanos.add(waited);
+				maxWaitNanos.accumulate(waited);
+				wait.observe(waited);
+				try {
+					task.run();
+					completed.increment();
+				} catch (Throwable t) {
+					failed.increment();
+				} finally {
+					inFlight.decrementAndGet();
+					pending.decrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			inFlight.decrementAndGet();
+			pending.decrementAndGet();
+			rejected.increment();
+			return false;
+		}
+		submitted.increment();
+		return true;
+	}
+
+	/**
+	 * 웹앱 내려갈 때 (이미 들어간 작업은 끝까지 돈다)
+	 */
+	public static void shutdown() {
+		executor.shutdown();
+	}
+
+	public static String kind() {
+		return virtual ? "virtual" : "platform";
+	}
+
+	public static long submitted() {
+		return submitted.sum();
+	}
+
+	public static long completed() {
+		return completed.sum();
+	}
+
+	public static long failed() {
+		return failed.sum();
+	}
+
+	public static long rejected() {
+		return rejected.sum();
+	}
+
+	public static long inFlight() {
+		return inFlight.get();
+	}
+
+	public static int roomMailboxes() {
+		return rooms.size();
+	}
+
+	public static long waitCount() {
+		return waitCount.sum();
+	}
+
+	public static long waitNanos() {
+		return waitNanos.sum();
+	}
+
+	public static long maxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+}
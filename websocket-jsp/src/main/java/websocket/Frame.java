@@ -0,0 +1,40 @@
+package websocket;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 보낼 메시지 하나. JSON / 바이너리 인코딩은 필요할 때 한 번만 만들고
+ * 같은 프레임을 받는 모든 세션이 재사용한다.
+ */
+final class Frame {
+
+	private static final ObjectMapper om = new ObjectMapper();
+
+	private final Map<String, Object> msg;
+	private volatile String json;
+	private volatile byte[] binary;
+
+	Frame(Map<String, Object> msg) {
+		this.msg = msg;
+	}
+
+	Map<String, Object> message() {
+		return msg;
+	}
+
+	String json() throws Exception {
+		String j = json;
+		if (j == null)
+			json = j = om.writeValueAsString(msg);
+		return j;
+	}
+
+	byte[] binary() {
+		byte[] b = binary;
+		if (b == null)
+			binary = b = BinaryCodec.encode(msg);
+		return b;
+	}
+}
@@ -0,0 +1,76 @@
+package websocket;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * 엔드포인트 하나의 수신 지표: 세션 수, 명령 type 별 처리 시간, 거절/실패 수
+ *
+ * 명령 type 별 히스토그램은 만들 때 다 잡아 두고, 기록할 때는 Command 클래스로 찾기만 한다 (할당 없음).
+ * 처리 시간은 메시지를 받은 순간부터 응답을 보내기(큐에 넣기)까지라 DbExecutor 대기도 들어간다.
+ */
+final class InboundMetrics {
+
+	private final Map<Class<?>, Histogram> latency = new HashMap<>();
+	private final Map<Class<?>, Counter> failures = new HashMap<>();
+
+	final Counter opened;
+	final Counter errors; // onError
+	final Counter invalid; // 디코딩 실패
+	final Counter busy; // DbExecutor 거절
+
+	@SafeVarargs
+	InboundMetrics(String endpoint, LongSupplier openSessions, Class<? extends Command>... types) {
+		Metrics.gauge("ws_sessions_open", "열려 있는 웹소켓 세션", openSessions, "endpoint", endpoint);
+		opened = Metrics.counter("ws_sessions_opened_total", "열린 웹소켓 세션 누적", "endpoint", endpoint);
+		errors = Metrics.counter("ws_session_errors_total", "onError 로 끝난 세션", "endpoint", endpoint);
+		invalid = Metrics.counter("ws_inbound_rejected_total", "처리하지 않고 거절한 메시지", "endpoint", endpoint,
+				"reason", "invalid");
+		busy = Metrics.counter("ws_inbound_rejected_total", "처리하지 않고 거절한 메시지", "endpoint", endpoint,
+				"reason", "busy");
+		for (Class<? extends Command> c : types) {
+			String type = typeName(c);
+			latency.put(c, Metrics.latency("ws_inbound_seconds", "명령을 받은 순간부터 처리가 끝날 때까지", "endpoint",
+					endpoint, "type", type));
+			failures.put(c, Metrics.counter("ws_inbound_failures_total", "예외로 끝난 명령", "endpoint", endpoint,
+					"type", type));
+		}
+	}
+
+	/**
+	 * receivedNanos = onMessage 에 들어온 시각 (System.nanoTime)
+	 */
+	void handled(Command c, long receivedNanos) {
+		Histogram h = latency.get(c.getClass());
+		if (h != null)
+			h.observeSince(receivedNanos);
+	}
+
+	void failed(Command c) {
+		Counter f = failures.get(c.getClass());
+		if (f != null)
+			f.inc();
+	}
+
+	// EnterRoom -> enter_room (와이어의 type 과 같게)
+	private static String typeName(Class<?> c) {
+		String n = c.getSimpleName();
+		StringBuilder sb = new StringBuilder(n.length() + 4);
+		for (int i = 0; i < n.length(); i++) {
+			char ch = n.charAt(i);
+			if (Character.isUpperCase(ch)) {
+				if (i > 0)
+					sb.append('_');
+				sb.append(Character.toLowerCase(ch));
+			} else {
+				sb.append(ch);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -1,11 +1,14 @@
 package websocket;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.http.HttpSession;
 import javax.websocket.HandshakeResponse;
@@ -18,20 +21,47 @@ import javax.websocket.server.HandshakeRequest;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import dao.RoomDao;
+import bus.Bus;
+import bus.BusEvent;
+import dao.RoomRegistry;
+import dao.RoomStore;
+import dao.Stores;
+import model.RoomCursor;
+import model.RoomDelta;
 import model.RoomDto;
+import model.RoomPage;
+import model.RoomPageQuery;
 import model.UserSession;
+import util.HandleTable;
 import util.PasswordHash;
 
-@ServerEndpoint(value = "/ws/lobby", configurator = LobbySocket.HttpSessionConfigurator.class)
+@ServerEndpoint(value = "/ws/lobby", subprotocols = {
+		BinaryCodec.SUBPROTOCOL }, configurator = LobbySocket.HttpSessionConfigurator.class)
 public class LobbySocket {
 
 	private static final Set<Session> sessions = ConcurrentHashMap.newKeySet();
-	private static final ObjectMapper om = new ObjectMapper();
 
-	private final RoomDao roomDao = new RoomDao();
+	private static final String LOBBY = "lobby";
+	private static final String CHANNEL = "lobby"; // 버스 채널 (host_changed)
+	private static final AtomicBoolean reloading = new AtomicBoolean();
+	private static final Command.Refresh FIRST_PAGE = new Command.Refresh(CommandDecoder.DEFAULT_PAGE_SIZE, null, null,
+			Command.ALL_PLAY_TYPES, false);
+	// 큐가 넘쳐 delta 를 버렸으면 클라이언트가 resync 하도록 알린다
+	private static final OutboundQueue.Endpoint outbound = new OutboundQueue.Endpoint("lobby",
+			new Frame(Map.of("type", "resync_required")));
+	private static final BroadcastScheduler broadcaster = new BroadcastScheduler("lobby", topic -> sessions,
+			LobbySocket::mergeDelta, false, true);
+	private static final InboundMetrics inbound = new InboundMetrics("lobby", sessions::size, Command.Refresh.class,
+			Command.Resync.class, Command.CreateRoom.class, Command.EnterRoom.class, Command.LeaveRoom.class);
+
+	private final RoomStore roomStore = Stores.rooms();
+
+	static {
+		// 방 목록 변경은 전체 목록 대신 seq 가 붙은 delta 로만 내보낸다
+		RoomRegistry.get().addListener(LobbySocket::broadcastDelta);
+		Bus.get().subscribe(CHANNEL, LobbySocket::onBusEvent);
+		Bus.get().onGap(LobbySocket::reloadAfterGap);
+	}
 
 	public static class HttpSessionConfigurator extends ServerEndpointConfig.Configurator {
 		@Override
@@ -41,6 +71,12 @@ public class LobbySocket {
 				sec.getUserProperties().put("HTTP_SESSION", httpSession);
 			}
 		}
+
+		// omok-bin 을 요청한 클라이언트만 바이너리, 기본은 JSON
+		@Override
+		public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+			return BinaryCodec.negotiate(requested);
+		}
 	}
 
 	private HttpSession getHttpSession(Session wsSession) {
@@ -59,10 +95,12 @@ public class LobbySocket {
 
 	@OnOpen
 	public void onOpen(Session session) {
+		OutboundQueue.attach(session, outbound);
 		sessions.add(session);
+		inbound.opened.inc();
 		try {
 			requireLogin(session);
-			sendRoomList(session); // 초기 목록
+			sendRoomList(session, FIRST_PAGE, null, null); // 초기 목록
 		} catch (Exception e) {
 			safeSend(session, Map.of("type", "error", "message", "로그인이 필요합니다."));
 			tryClose(session);
@@ -72,90 +110,132 @@ public class LobbySocket {
 	@OnClose
 	public void onClose(Session session) {
 		sessions.remove(session);
+		closeQueue(session);
 	}
 
 	@OnError
 	public void onError(Session session, Throwable thr) {
 		sessions.remove(session);
-		// 필요하면 로깅
+		closeQueue(session);
+		inbound.errors.inc();
 	}
 
 	@OnMessage
 	public void onMessage(Session s, String text) {
+		long received = System.nanoTime();
 		try {
-			UserSession loginUser = requireLogin(s);
+			handle(s, CommandDecoder.decode(text), received);
+		} catch (CommandDecoder.InvalidCommand e) {
+			inbound.invalid.inc();
+			safeSend(s, Map.of("type", "error", "message", e.getMessage()));
+		}
+	}
 
-			@SuppressWarnings("unchecked")
-			Map<String, Object> p = om.readValue(text, Map.class);
-			String type = asString(p.get("type"));
+	@OnMessage
+	public void onBinary(Session s, ByteBuffer buf) {
+		long received = System.nanoTime();
+		try {
+			handle(s, BinaryCodec.decodeCommand(buf), received);
+		} catch (CommandDecoder.InvalidCommand e) {
+			inbound.invalid.inc();
+			safeSend(s, Map.of("type", "error", "message", e.getMessage()));
+		}
+	}
 
-			if (type == null) {
-				safeSend(s, Map.of("type", "error", "message", "type이 없습니다."));
-				return;
-			}
+	// 목록/resync 는 레지스트리만 읽으니 그 자리에서, DB 를 타는 명령은 DbExecutor 로 넘긴다.
+	// 입장/퇴장은 방 주인 노드의 방 줄에서 한 번에 하나씩 돌아서 같은 방의 커밋과 브로드캐스트 순서가 같다
+	private void handle(Session s, Command c, long received) {
+		if (c instanceof Command.Refresh || c instanceof Command.Resync) {
+			dispatch(s, c, received);
+			return;
+		}
 
-			switch (type) {
+		boolean accepted;
+		if (c instanceof Command.EnterRoom r) {
+			accepted = submitToOwner(s, c, r.roomId(), received);
+		} else if (c instanceof Command.LeaveRoom r) {
+			accepted = submitToOwner(s, c, r.roomId(), received);
+		} else {
+			accepted = DbExecutor.submit(s, () -> dispatch(s, c, received));
+		}
+		if (!accepted) {
+			inbound.busy.inc();
+			safeSend(s, Map.of("type", "error", "message", "처리 중인 요청이 많습니다. 잠시 후 다시 시도하세요."));
+		}
+	}
 
-			case "refresh": {
-				sendRoomList(s);
-				break;
-			}
+	private boolean submitToOwner(Session s, Command c, UUID roomId, long received) {
+		if (RoomOwners.isLocal(roomId))
+			return DbExecutor.submit(s, roomId, () -> dispatch(s, c, received));
+		forward(s, c, roomId, received);
+		return true;
+	}
 
-			case "create_room": {
-				handleCreateRoom(s, loginUser, p);
-				break;
-			}
+	// 다른 노드가 주인인 방: 명령을 넘기고 주인이 만든 응답을 그대로 보낸다
+	private void forward(Session s, Command c, UUID roomId, long received) {
+		UserSession loginUser;
+		try {
+			loginUser = requireLogin(s);
+		} catch (Exception e) {
+			inbound.failed(c);
+			safeSend(s, Map.of("type", "error", "message", "요청 처리 실패: " + e.getMessage()));
+			inbound.handled(c, received);
+			return;
+		}
 
-			case "enter_room": {
-				handleEnterRoom(s, loginUser, p);
-				break;
+		Map<String, Object> args = new HashMap<>();
+		args.put("userId", loginUser.getId());
+		args.put("nickname", loginUser.getNickname());
+		String command = RoomOwners.LEAVE;
+		if (c instanceof Command.EnterRoom r) {
+			command = RoomOwners.ENTER;
+			args.put("roomPwd", r.roomPwd());
+		}
+		RoomOwners.forward(command, roomId, args).whenComplete((reply, e) -> {
+			if (e != null) {
+				inbound.failed(c);
+				safeSend(s, Map.of("type", "error", "message", "요청 처리 실패: " + RoomOwners.reason(e)));
+			} else {
+				safeSend(s, reply);
 			}
+			inbound.handled(c, received);
+		});
+	}
 
-			case "leave_room": {
-				handleLeaveRoom(s, loginUser, p);
-				break;
-			}
+	private void dispatch(Session s, Command c, long received) {
+		try {
+			UserSession loginUser = requireLogin(s);
 
-			default:
-				safeSend(s, Map.of("type", "error", "message", "지원하지 않는 type: " + type));
+			if (c instanceof Command.Refresh r) {
+				sendRoomList(s, r, r.cursor(), r.after());
+			} else if (c instanceof Command.Resync r) {
+				handleResync(s, r);
+			} else if (c instanceof Command.CreateRoom r) {
+				handleCreateRoom(s, loginUser, r);
+			} else if (c instanceof Command.EnterRoom r) {
+				handleEnterRoom(s, loginUser, r);
+			} else if (c instanceof Command.LeaveRoom r) {
+				handleLeaveRoom(s, loginUser, r);
+			} else {
+				safeSend(s, Map.of("type", "error", "message", "로비에서 지원하지 않는 명령입니다."));
 			}
 
 		} catch (Exception e) {
+			inbound.failed(c);
 			safeSend(s, Map.of("type", "error", "message", "요청 처리 실패: " + e.getMessage()));
+		} finally {
+			inbound.handled(c, received);
 		}
 	}
 
-	private void handleCreateRoom(Session s, UserSession loginUser, Map<String, Object> p) throws Exception {
-		String roomName = asString(p.get("roomName"));
-		int isPublic = asInt(p.get("isPublic"), 1);
-		int playType = asInt(p.get("playType"), 1);
-		int totalUserCnt = asInt(p.get("totalUserCnt"), 2);
-		String roomPwd = asStringAllowNull(p.get("roomPwd"));
-
-		if (roomName == null || roomName.isBlank()) {
-			safeSend(s, Map.of("type", "error", "message", "방 이름이 비어있습니다."));
-			return;
-		}
-		if (totalUserCnt <= 0) {
-			safeSend(s, Map.of("type", "error", "message", "정원은 1 이상이어야 합니다."));
-			return;
-		}
-
-		String pwdHash = null;
-		if (isPublic == 0) {
-			if (roomPwd == null || roomPwd.isBlank()) {
-				safeSend(s, Map.of("type", "error", "message", "비공개 방은 비밀번호가 필요합니다."));
-				return;
-			}
-			pwdHash = PasswordHash.sha256(roomPwd);
-		}
+	// 이름/정원/비밀번호 검증은 CommandDecoder 에서 끝남
+	private void handleCreateRoom(Session s, UserSession loginUser, Command.CreateRoom c) throws Exception {
+		String pwdHash = c.isPublic() == 0 ? PasswordHash.sha256(c.roomPwd()) : null;
 
-		RoomDto created = roomDao.createRoomAndEnter(loginUser.getId(), roomName, isPublic, playType, totalUserCnt,
-				pwdHash, 1 // host는 BLACK
+		RoomDto created = roomStore.createRoomAndEnter(loginUser.getId(), c.roomName(), c.isPublic(), c.playType(),
+				c.totalUserCnt(), pwdHash, 1 // host는 BLACK
 		);
-
-		broadcast(Map.of("type", "room_created", "room", created));
-		broadcastRoomList();
+		RoomRoster.onEnter(created.getId(), loginUser.getId(), loginUser.getNickname(), 1);
 
 		RoomSocket.broadcastPlayers(created.getId());
 
@@ -163,105 +243,200 @@ public class LobbySocket {
 
 	}
 
-	private void handleEnterRoom(Session s, UserSession loginUser, Map<String, Object> p) throws Exception {
-		String roomIdStr = asString(p.get("roomId"));
-		if (roomIdStr == null) {
-			safeSend(s, Map.of("type", "error", "message", "roomId가 없습니다."));
-			return;
-		}
-		UUID roomId = UUID.fromString(roomIdStr);
+	private void handleEnterRoom(Session s, UserSession loginUser, Command.EnterRoom c) throws Exception {
+		safeSend(s, enterRoom(loginUser.getId(), loginUser.getNickname(), c.roomId(), c.roomPwd()));
+	}
+
+	private void handleLeaveRoom(Session s, UserSession loginUser, Command.LeaveRoom c) throws Exception {
+		safeSend(s, leaveRoom(loginUser.getId(), c.roomId()));
+	}
+
+	// 아래 둘은 방 주인 노드의 방 줄에서 (이 노드 세션의 명령이든 RoomOwners 로 넘어온 것이든). 세션에 보낼 응답을 돌려준다
+	static Map<String, Object> enterRoom(UUID userId, String nickname, UUID roomId, String roomPwd) throws Exception {
+		RoomStore roomStore = Stores.rooms();
 
-		String roomPwd = asStringAllowNull(p.get("roomPwd"));
 		if (roomPwd != null && !roomPwd.isBlank()) {
-			boolean ok = roomDao.checkRoomPassword(roomId, PasswordHash.sha256(roomPwd));
+			boolean ok = roomStore.checkRoomPassword(roomId, PasswordHash.sha256(roomPwd));
 			if (!ok) {
-				safeSend(s, Map.of("type", "error", "message", "비밀번호가 틀렸습니다."));
-				return;
+				return Map.of("type", "error", "message", "비밀번호가 틀렸습니다.");
 			}
 		}
 
-		int stoneColor = 1;
-
-		roomDao.enterRoom(roomId, loginUser.getId(), stoneColor);
-
-		broadcastRoomState(roomId);
+		// 흑이 비어 있으면 흑, 아니면 백 (오목 판의 차례가 이 색을 따른다)
+		int stoneColor = roomStore.enterRoomAutoColor(roomId, userId);
+		RoomRoster.onEnter(roomId, userId, nickname, stoneColor);
 
 		RoomSocket.broadcastPlayers(roomId);
 
-		safeSend(s, Map.of("type", "enter_ok", "roomId", roomId.toString()));
+		return Map.of("type", "enter_ok", "roomId", roomId.toString());
 	}
 
-	private void handleLeaveRoom(Session s, UserSession loginUser, Map<String, Object> p) throws Exception {
-		String roomIdStr = asString(p.get("roomId"));
-		if (roomIdStr == null) {
-			safeSend(s, Map.of("type", "error", "message", "roomId가 없습니다."));
-			return;
-		}
-		UUID roomId = UUID.fromString(roomIdStr);
-
-		RoomDao.LeaveResult result = roomDao.leaveRoomWithHostTransfer(roomId, loginUser.getId());
+	static Map<String, Object> leaveRoom(UUID userId, UUID roomId) throws Exception {
+		RoomStore.LeaveResult result = Stores.rooms().leaveRoomWithHostTransfer(roomId, userId);
 
-		if (result.type == RoomDao.LeaveResultType.ROOM_DELETED) {
-
-			broadcast(Map.of("type", "room_deleted", "roomId", roomId.toString()));
-			broadcastRoomList();
+		if (result.type == RoomStore.LeaveResultType.ROOM_DELETED) {
 
 			RoomSocket.broadcastRoomDeleted(roomId);
 
 		} else {
 
-			broadcastRoomState(roomId);
+			RoomRoster.onLeave(roomId, userId);
+			RoomGame.onLeave(roomId);
 
 			RoomSocket.broadcastPlayers(roomId);
 
-			if (result.type == RoomDao.LeaveResultType.HOST_TRANSFERRED) {
+			if (result.type == RoomStore.LeaveResultType.HOST_TRANSFERRED) {
 
-				broadcast(Map.of("type", "host_changed", "roomId", roomId.toString(), "newHostUserId",
-						result.newHostUserId.toString()));
+				Bus.get().publish(CHANNEL, "host_changed",
+						Map.of("roomId", roomId, "newHostUserId", result.newHostUserId));
 			}
 		}
 
-		safeSend(s, Map.of("type", "leave_ok", "roomId", roomId.toString()));
+		return Map.of("type", "leave_ok", "roomId", roomId.toString());
 	}
 
-	private void sendRoomList(Session s) throws Exception {
-		List<RoomDto> rooms = roomDao.listPublicRooms(); // 비공개 제외
-		safeSend(s, Map.of("type", "room_list", "rooms", rooms));
+	// cursor(이전 페이지의 nextCursor) 가 null 이면 첫 페이지
+	private void sendRoomList(Session s, Command.ListQuery lq, String cursor, RoomCursor after) throws Exception {
+		RoomPageQuery q = RoomPageQuery.builder().publicOnly(true) // 비공개 제외
+				.playType(lq.playType() == Command.ALL_PLAY_TYPES ? null : lq.playType())
+				.hasFreeSeats(lq.hasFreeSeats()).after(after).limit(lq.pageSize()).build();
+
+		RoomRegistry.Snapshot snap = RoomRegistry.get().snapshot();
+		RoomPage page = snap.page(q);
+
+		Map<String, Object> msg = new HashMap<>();
+		msg.put("type", "room_list");
+		msg.put("version", snap.version);
+		msg.put("rooms", page.getRooms());
+		msg.put("cursor", cursor); // null 이면 첫 페이지 (클라이언트는 목록을 교체)
+		msg.put("nextCursor", page.getNext() == null ? null : page.getNext().encode());
+		safeSend(s, msg);
 	}
 
-	private void broadcastRoomList() throws Exception {
-		List<RoomDto> rooms = roomDao.listPublicRooms();
-		broadcast(Map.of("type", "room_list", "rooms", rooms));
+	// 클라이언트가 seq 구멍을 발견하면 fromVersion 이후만 다시 받는다
+	private void handleResync(Session s, Command.Resync c) throws Exception {
+		long fromVersion = c.fromVersion();
+		List<RoomDelta> deltas = fromVersion < 0 ? null : RoomRegistry.get().deltasSince(fromVersion);
+		if (deltas == null) {
+			// 로그가 거기까지 없으면 같은 필터로 첫 페이지부터 다시
+			sendRoomList(s, c, null, null);
+			return;
+		}
+
+		List<Map<String, Object>> list = new ArrayList<>(deltas.size());
+		for (RoomDelta d : deltas)
+			list.add(deltaMessage(d));
+		safeSend(s, Map.of("type", "room_deltas", "fromVersion", fromVersion, "deltas", list));
 	}
 
-	private void broadcastRoomState(UUID roomId) throws Exception {
-		Optional<RoomDto> roomOpt = roomDao.findRoom(roomId);
-		if (roomOpt.isEmpty()) {
+	// 방 handle 은 노드마다 다르니 받은 노드에서 roomId 로 찾는다
+	private static void onBusEvent(BusEvent e) {
+		if (!"host_changed".equals(e.type()))
+			return;
+		int handle = HandleTable.ROOMS.find(e.uuid("roomId"));
+		if (handle == 0)
+			return;
+		broadcast("host:" + handle,
+				Map.of("type", "host_changed", "handle", handle, "newHostUserId", e.uuid("newHostUserId")));
+	}
 
-			broadcastRoomList();
+	/**
+	 * 다른 노드의 방 변경을 놓쳤으면 저장소에서 방 목록을 다시 읽고 로비 전체에 resync 를 요구한다.
+	 * 버스 수신 스레드를 막지 않도록 따로 돌리고, 도는 중에 또 오면 한 번으로 친다.
+	 */
+	private static void reloadAfterGap(String origin) {
+		if (!reloading.compareAndSet(false, true))
 			return;
+		Thread t = new Thread(() -> {
+			try {
+				RoomRegistry.get().loadFrom(Stores.rooms());
+				broadcast("resync", Map.of("type", "resync_required"));
+			} catch (Exception ignore) {
+			} finally {
+				reloading.set(false);
+			}
+		}, "lobby-reload");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	private static void broadcastDelta(RoomDelta d) {
+		broadcast("room:" + d.getHandle(), deltaMessage(d));
+	}
+
+	/**
+	 * 같은 tick 안에서 같은 방의 delta 가 또 오면 최신 상태 하나로 합친다.
+	 * 합쳐진 delta 는 fromSeq..seq 범위를 덮는다.
+	 */
+	private static Map<String, Object> mergeDelta(Map<String, Object> prev, Map<String, Object> next) {
+		Map<String, Object> merged = new HashMap<>(next);
+		merged.put("fromSeq", prev.getOrDefault("fromSeq", prev.get("seq")));
+
+		// 아직 클라이언트가 모르는 방일 수 있으니 upsert 뒤의 counts 는 upsert 로 유지
+		if ("room_upsert".equals(prev.get("type")) && "room_counts".equals(next.get("type"))) {
+			RoomDto r = (RoomDto) prev.get("room");
+			merged.put("type", "room_upsert");
+			merged.put("room", RoomDto.builder().id(r.getId()).hostUserId(r.getHostUserId())
+					.roomName(r.getRoomName()).isPublic(r.getIsPublic()).playType(r.getPlayType())
+					.totalUserCnt((Integer) next.get("totalUserCnt"))
+					.currentUserCnt((Integer) next.get("currentUserCnt")).createdAt(r.getCreatedAt())
+					.handle(r.getHandle()).build());
+			merged.remove("currentUserCnt");
+			merged.remove("totalUserCnt");
 		}
-		broadcast(Map.of("type", "room_state", "room", roomOpt.get()));
+		return merged;
 	}
 
-	private void broadcast(Map<String, Object> msg) throws Exception {
-		String json = om.writeValueAsString(msg);
-		for (Session sess : sessions) {
-			if (sess != null && sess.isOpen()) {
-				sess.getAsyncRemote().sendText(json);
-			}
+	// 방은 handle 로만 가리킨다 (room_upsert 의 room 에는 id 도 있음)
+	private static Map<String, Object> deltaMessage(RoomDelta d) {
+		Map<String, Object> m = new HashMap<>();
+		m.put("seq", d.getSeq());
+		m.put("handle", d.getHandle());
+		switch (d.getKind()) {
+		case UPSERT:
+			m.put("type", "room_upsert");
+			m.put("room", d.getRoom());
+			break;
+		case REMOVE:
+			m.put("type", "room_removed");
+			break;
+		case COUNTS:
+			m.put("type", "room_counts");
+			m.put("currentUserCnt", d.getCurrentUserCnt());
+			m.put("totalUserCnt", d.getTotalUserCnt());
+			break;
 		}
+		return m;
+	}
+
+	private static void broadcast(String coalesceKey, Map<String, Object> msg) {
+		broadcaster.submit(LOBBY, coalesceKey, msg);
+	}
+
+	public static BroadcastScheduler broadcaster() {
+		return broadcaster;
+	}
+
+	public static OutboundQueue.Endpoint outbound() {
+		return outbound;
 	}
 
 	private void safeSend(Session s, Map<String, Object> msg) {
 		try {
-			if (s != null && s.isOpen()) {
-				s.getAsyncRemote().sendText(om.writeValueAsString(msg));
+			OutboundQueue q = OutboundQueue.of(s);
+			if (q != null && s.isOpen()) {
+				q.send(new Frame(msg));
 			}
 		} catch (Exception ignore) {
 		}
 	}
 
+	private static void closeQueue(Session s) {
+		OutboundQueue q = OutboundQueue.of(s);
+		if (q != null)
+			q.close();
+	}
+
 	private void tryClose(Session s) {
 		try {
 			if (s != null && s.isOpen())
@@ -269,29 +444,4 @@ public class LobbySocket {
 		} catch (Exception ignore) {
 		}
 	}
-
-	private String asString(Object v) {
-		if (v == null)
-			return null;
-		return String.valueOf(v);
-	}
-
-	private String asStringAllowNull(Object v) {
-		if (v == null)
-			return null;
-		String s = String.valueOf(v);
-		return "null".equalsIgnoreCase(s) ? null : s;
-	}
-
-	private int asInt(Object v, int def) {
-		if (v == null)
-			return def;
-		if (v instanceof Number)
-			return ((Number) v).intValue();
-		try {
-			return Integer.parseInt(String.valueOf(v));
-		} catch (Exception e) {
-			return def;
-		}
-	}
 }
@@ -0,0 +1,115 @@
+package websocket;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 한 번에 하나씩, 넣은 순서대로만 실행되는 작업 줄 (액터 메일박스)
+ *
+ * 락 없이 큐 + scheduled 플래그 하나로 돌고, 실행은 공용 executor 에 얹는다.
+ * 메일박스끼리는 서로 다른 스레드에서 병렬로 돈다.
+ * 한 번 잡으면 BATCH 개까지 처리하고 양보해서 바쁜 메일박스 하나가 스레드를 독차지하지 않게 한다.
+ * onDrained 가 있으면 넣은 작업이 모두 끝나 줄이 빌 때마다 (마지막 작업을 돌린 스레드에서) 부른다.
+ * executor 가 거절하면 자기 작업만 빼고 던지는데, 그 사이 CAS 에 져서 그냥 돌아간 다른 post 의 작업이 남았으면
+ * RETRY_MILLIS 뒤에 다시 잡는다 (post 는 DbExecutor 의 맵 compute 안에서 불리므로 그 자리에서 돌리지 않는다).
+ */
+final class Mailbox implements Runnable {
+
+	private static final int BATCH = 32;
+	private static final long RETRY_MILLIS = 10;
+
+	private static final ScheduledExecutorService retry = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "mailbox-retry");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Executor executor;
+	private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicInteger pending = new AtomicInteger(); // 줄에 있거나 도는 중인 작업
+	private final Runnable onDrained;
+
+	Mailbox(Executor executor) {
+		this(executor, null);
+	}
+
+	Mailbox(Executor executor, Runnable onDrained) {
+		this.executor = executor;
+		this.onDrained = onDrained;
+	}
+
+	/**
+	 * 넣은 작업이 모두 끝났으면 true (post 와 겹치지 않게 하는 건 부르는 쪽 몫)
+	 */
+	boolean idle() {
+		return pending.get() == 0;
+	}
+
+	/**
+	 * task 는 예외를 밖으로 던지지 않아야 한다. executor 가 거절하면 넣은 것을 빼고 그대로 던진다.
+	 */
+	void post(Runnable task) {
+		pending.incrementAndGet();
+		queue.offer(task);
+		if (!scheduled.compareAndSet(false, true))
+			return; // 이미 도는 중이면 그 스레드가 가져간다
+		try {
+			executor.execute(this);
+		} catch (RejectedExecutionException e) {
+			scheduled.set(false);
+			queue.remove(task);
+			pending.decrementAndGet(); // 부른 쪽이 아직 줄을 쥐고 있으니 onDrained 는 부르지 않는다
+			if (!queue.isEmpty() && scheduled.compareAndSet(false, true))
+				retryLater();
+			throw e;
+		}
+	}
+
+	// 다른 post 가 남긴 작업을 버리지 않도록 풀이 받아 줄 때까지 (내려가는 중이면 그만)
+	private void retryLater() {
+		retry.schedule(() -> {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				if (executor instanceof ExecutorService es && es.isShutdown())
+					return;
+				retryLater();
+			}
+		}, RETRY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			Runnable task;
+			for (int i = 0; i < BATCH && (task = queue.poll()) != null; i++) {
+				task.run();
+				done();
+			}
+
+			scheduled.set(false);
+			// 내려놓는 사이에 들어온 게 있으면 다시 잡는다 (post 쪽과 CAS 로 한 명만)
+			if (queue.isEmpty() || !scheduled.compareAndSet(false, true))
+				return;
+			try {
+				executor.execute(this);
+				return;
+			} catch (RejectedExecutionException e) {
+				// 풀이 꽉 찼으면 이 스레드에서 계속
+			}
+		}
+	}
+
+	private void done() {
+		if (pending.decrementAndGet() == 0 && onDrained != null)
+			onDrained.run();
+	}
+}
@@ -0,0 +1,283 @@
+package websocket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import metrics.Metrics;
+
+/**
+ * 세션당 송신 큐. 한 번에 한 프레임만 보내고(TEXT_FULL_WRITING 방지) 나머지는 여기서 기다린다.
+ * 세션이 omok-bin 으로 협상됐으면 바이너리, 아니면 JSON 텍스트로 보낸다.
+ *
+ * - conflateKey 가 같은 프레임이 아직 큐에 있으면 새 것으로 바꿔치기 (예: room_players)
+ * - 큐가 꽉 차면 droppable 프레임(로비 delta)을 버리고 엔드포인트의 overflowNotice 하나로 대신한다.
+ *   버릴 것이 없으면 (방 소켓은 전부 그렇다) 프레임을 조용히 잃는 대신 느린 클라이언트로 끊는다
+ * - 보내는 중인데 마지막으로 전송이 끝난 지 (그 전에 한가했으면 보내기 시작한 지) SLOW_MILLIS 가 지났으면
+ *   offer 때마다 (바꿔치기/버리는 경우도) 느린 클라이언트로 보고 끊는다. 큐 길이와 상관없이 시간으로만 본다
+ * - 새 프레임이 안 와도 걸린 전송은 컨테이너 send timeout (SLOW_MILLIS) 으로 실패 처리되고 세션을 닫는다
+ * - 끊을 때는 큐만 닫고 session.close 는 ws-close 스레드에 넘긴다. offer 는 브로드캐스트 틱 스레드 하나에서 돌고,
+ *   close 는 막힌 소켓에 close 프레임을 쓰느라 오래 걸릴 수 있다
+ *
+ * -Dws.outbound.capacity (기본 256), -Dws.outbound.slowMillis (기본 5000)
+ */
+public class OutboundQueue implements SendHandler {
+
+	static final int CAPACITY = Math.max(8, Integer.getInteger("ws.outbound.capacity", 256));
+	static final long SLOW_MILLIS = Long.getLong("ws.outbound.slowMillis", 5000);
+
+	private static final String KEY = "OUTBOUND_QUEUE";
+	private static final String OVERFLOW_KEY = "__overflow";
+
+	private static final ExecutorService closer = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "ws-close");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * 엔드포인트(/ws/lobby, /ws/room) 단위 집계
+	 */
+	public static final class Endpoint {
+		public final String name;
+		final Frame overflowNotice; // null 이면 그냥 버림
+
+		private final AtomicLong depth = new AtomicLong();
+		private final LongAdder sent = new LongAdder();
+		private final LongAdder dropped = new LongAdder();
+		private final LongAdder conflated = new LongAdder();
+		private final LongAdder failed = new LongAdder();
+		private final LongAdder slowClosed = new LongAdder();
+
+		Endpoint(String name, Frame overflowNotice) {
+			this.name = name;
+			this.overflowNotice = overflowNotice;
+			Metrics.gauge("ws_outbound_depth", "세션 송신 큐에 밀려 있는 프레임 (엔드포인트 합)", depth::get, "endpoint", name);
+			Metrics.counterOf("ws_outbound_sent_total", "보낸 프레임", sent::sum, "endpoint", name);
+			Metrics.counterOf("ws_outbound_dropped_total", "큐가 넘쳐 버린 프레임", dropped::sum, "endpoint", name);
+			Metrics.counterOf("ws_outbound_conflated_total", "큐에서 새 것으로 바꿔치기한 프레임", conflated::sum, "endpoint",
+					name);
+			Metrics.counterOf("ws_outbound_failed_total", "전송 실패, send timeout 포함 (세션을 닫음)", failed::sum, "endpoint",
+					name);
+			Metrics.counterOf("ws_outbound_slow_closed_total", "느린 클라이언트라 끊은 세션", slowClosed::sum, "endpoint",
+					name);
+		}
+
+		public long depth() {
+			return depth.get();
+		}
+
+		public long sent() {
+			return sent.sum();
+		}
+
+		public long dropped() {
+			return dropped.sum();
+		}
+
+		public long conflated() {
+			return conflated.sum();
+		}
+
+		public long failed() {
+			return failed.sum();
+		}
+
+		public long slowClosed() {
+			return slowClosed.sum();
+		}
+	}
+
+	private static final class Entry {
+		Object payload; // String 또는 byte[]
+		final String conflateKey;
+		final boolean droppable;
+
+		Entry(Object payload, String conflateKey, boolean droppable) {
+			this.payload = payload;
+			this.conflateKey = conflateKey;
+			this.droppable = droppable;
+		}
+	}
+
+	private final Session session;
+	private final Endpoint endpoint;
+	private final boolean binary;
+
+	// 아래는 모두 this 로 보호
+	private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+	private boolean inFlight;
+	private boolean closed;
+	private long lastProgress; // 마지막 전송 완료 (또는 한가하다가 보내기 시작한) 시각
+
+	private OutboundQueue(Session session, Endpoint endpoint) {
+		this.session = session;
+		this.endpoint = endpoint;
+		this.binary = BinaryCodec.isBinary(session);
+		session.getAsyncRemote().setSendTimeout(SLOW_MILLIS);
+	}
+
+	public static OutboundQueue attach(Session s, Endpoint endpoint) {
+		OutboundQueue q = new OutboundQueue(s, endpoint);
+		s.getUserProperties().put(KEY, q);
+		return q;
+	}
+
+	public static OutboundQueue of(Session s) {
+		return s == null ? null : (OutboundQueue) s.getUserProperties().get(KEY);
+	}
+
+	void send(Frame frame) throws Exception {
+		offer(frame, null, false);
+	}
+
+	void offer(Frame frame, String conflateKey, boolean droppable) throws Exception {
+		Object payload = binary ? frame.binary() : frame.json();
+		boolean sendNow = false;
+		boolean slow = false;
+
+		synchronized (this) {
+			if (closed)
+				return;
+
+			if (!inFlight) {
+				inFlight = true;
+				lastProgress = System.currentTimeMillis();
+				sendNow = true;
+			} else if (System.currentTimeMillis() - lastProgress > SLOW_MILLIS) {
+				slow = true;
+			} else if (!conflate(payload, conflateKey)) {
+				if (queue.size() >= CAPACITY && !makeRoom()) {
+					endpoint.dropped.increment();
+					slow = !droppable; // 잃으면 안 되는 프레임
+				} else {
+					queue.addLast(new Entry(payload, conflateKey, droppable));
+					endpoint.depth.incrementAndGet();
+				}
+			}
+			if (slow)
+				drain();
+		}
+
+		if (slow) {
+			endpoint.slowClosed.increment();
+			closeSlow();
+		} else if (sendNow) {
+			doSend(payload);
+		}
+	}
+
+	// 대기 중인 같은 키 프레임을 새 내용으로 교체
+	private boolean conflate(Object payload, String conflateKey) {
+		if (conflateKey == null)
+			return false;
+		for (Entry e : queue) {
+			if (conflateKey.equals(e.conflateKey)) {
+				e.payload = payload;
+				endpoint.conflated.increment();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// 꽉 찼을 때: droppable 프레임을 전부 버리고 overflowNotice 하나만 남김
+	private boolean makeRoom() throws Exception {
+		int removed = 0;
+		for (Iterator<Entry> it = queue.iterator(); it.hasNext();) {
+			if (it.next().droppable) {
+				it.remove();
+				removed++;
+			}
+		}
+		if (removed == 0)
+			return false;
+
+		endpoint.dropped.add(removed);
+		endpoint.depth.addAndGet(-removed);
+
+		if (endpoint.overflowNotice != null) {
+			Object notice = binary ? endpoint.overflowNotice.binary() : endpoint.overflowNotice.json();
+			if (!conflate(notice, OVERFLOW_KEY)) {
+				queue.addLast(new Entry(notice, OVERFLOW_KEY, false));
+				endpoint.depth.incrementAndGet();
+			}
+		}
+		return queue.size() < CAPACITY;
+	}
+
+	private void doSend(Object payload) {
+		try {
+			if (payload instanceof byte[])
+				session.getAsyncRemote().sendBinary(ByteBuffer.wrap((byte[]) payload), this);
+			else
+				session.getAsyncRemote().sendText((String) payload, this);
+		} catch (Exception e) {
+			onResult(new SendResult(e));
+		}
+	}
+
+	@Override
+	public void onResult(SendResult result) {
+		Entry next;
+		synchronized (this) {
+			if (result.isOK()) {
+				endpoint.sent.increment();
+				lastProgress = System.currentTimeMillis();
+				next = queue.pollFirst();
+				if (next == null) {
+					inFlight = false;
+					return;
+				}
+				endpoint.depth.decrementAndGet();
+			} else {
+				endpoint.failed.increment();
+				drain();
+				next = null;
+			}
+		}
+		if (next != null)
+			doSend(next.payload);
+		else
+			closeSession(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed");
+	}
+
+	/**
+	 * onClose/onError 에서 호출: 남은 프레임 폐기
+	 */
+	public void close() {
+		synchronized (this) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		closed = true;
+		endpoint.depth.addAndGet(-queue.size());
+		queue.clear();
+	}
+
+	private void closeSlow() {
+		closeSession(CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer");
+	}
+
+	// 큐는 이미 닫혔다 (drain). 세션 닫기는 부른 스레드를 막지 않게 넘긴다
+	private void closeSession(CloseReason.CloseCode code, String reason) {
+		closer.execute(() -> {
+			try {
+				if (session.isOpen())
+					session.close(new CloseReason(code, reason));
+			} catch (Exception ignore) {
+			}
+		});
+	}
+}
@@ -0,0 +1,214 @@
+package websocket;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dao.Stores;
+import game.Gomoku;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * 방별 오목 판 (game.Gomoku)
+ *
+ * 착수/새 게임은 방 주인 노드의 방 줄에서만 판을 바꾼다 (입장/퇴장과 같은 줄이라 검사하는 동안 명단의 돌 색이 그대로).
+ * 결과는 RoomSocket 이 버스로 돌리고, 다른 노드는 같은 수를 자기 판에 다시 둬서 나중에 방 소켓을 연 사람에게
+ * game_state 를 바로 준다. 수 번호가 이어지지 않으면 (놓친 이벤트, 게임 중에 붙은 노드) 그 판은 새 게임 전까지 쓰지 않는다.
+ * 주인 노드가 바뀌면 새 주인이 들고 있던 판으로 이어 간다.
+ *
+ * 그 색으로 앉은 사람이면 누구나 둘 수 있다 (팀전이면 같은 팀끼리 나눠 둔다).
+ * 끝나면 이긴 색 / 진 색 자리의 전적을 UserStore.addStats 로 올린다 (ProfileCache 가 그 프로필을 지운다).
+ */
+final class RoomGame {
+
+	private static final Map<UUID, Gomoku> games = new ConcurrentHashMap<>();
+	// 수를 놓쳐서 믿을 수 없는 판 (다음 새 게임에서 풀린다)
+	private static final Set<UUID> stale = ConcurrentHashMap.newKeySet();
+
+	private static final Counter moves = Metrics.counter("ws_game_moves_total", "주인 노드에서 검사를 통과해 둔 수");
+	private static final Counter rejected = Metrics.counter("ws_game_rejected_total", "거절한 착수/새 게임 (차례 아님, 빈 칸 아님 등)");
+	private static final Counter won = Metrics.counter("ws_game_finished_total", "끝난 게임", "result", "win");
+	private static final Counter drawn = Metrics.counter("ws_game_finished_total", "끝난 게임", "result", "draw");
+	private static final Counter staleBoards = Metrics.counter("ws_game_replica_stale_total",
+			"수 번호가 이어지지 않아 새 게임 전까지 쓰지 않는 판");
+	private static final Counter statsErrors = Metrics.counter("ws_game_stats_errors_total", "전적 반영 실패");
+
+	static {
+		Metrics.gauge("ws_games", "이 노드가 들고 있는 판", () -> games.size());
+	}
+
+	private RoomGame() {
+	}
+
+	/**
+	 * 주인 노드의 방 줄에서: RoomOwners.PLACE / NEW_GAME 은 성공이면 null (결과는 방 전체로), 아니면 그 세션에 보낼 error.
+	 * SYNC_GAME 은 그 세션에 보낼 game_state (둔 수가 없어도)
+	 */
+	static Map<String, Object> run(String command, UUID roomId, UUID userId, int cell) throws Exception {
+		if (RoomOwners.PLACE.equals(command))
+			return place(roomId, userId, cell);
+		if (RoomOwners.NEW_GAME.equals(command))
+			return restart(roomId, userId);
+		Map<String, Object> state = state(roomId);
+		return state != null ? state : stateMessage(roomId, new int[0], 0);
+	}
+
+	private static Map<String, Object> place(UUID roomId, UUID userId, int cell) throws Exception {
+		int color = RoomRoster.colorOf(roomId, userId);
+		if (color != Gomoku.BLACK && color != Gomoku.WHITE)
+			return reject("이 방의 플레이어가 아닙니다.");
+		if (!RoomRoster.hasColor(roomId, Gomoku.BLACK) || !RoomRoster.hasColor(roomId, Gomoku.WHITE))
+			return reject("상대를 기다리는 중입니다.");
+		if (stale.contains(roomId))
+			return reject("판 상태를 잃었습니다. 새 게임을 시작하세요.");
+
+		Gomoku g = games.computeIfAbsent(roomId, k -> new Gomoku());
+		int result, move;
+		synchronized (g) {
+			result = g.play(color, cell);
+			move = g.moves();
+		}
+		if (result < 0)
+			return reject(reason(result));
+
+		moves.inc();
+		int winner = result == Gomoku.WON ? color : result == Gomoku.DRAWN ? Gomoku.DRAW : 0;
+		RoomSocket.broadcastMove(roomId, move, color, cell, winner);
+		if (result == Gomoku.WON) {
+			won.inc();
+			recordStats(roomId, color);
+		} else if (result == Gomoku.DRAWN) {
+			drawn.inc();
+		}
+		return null;
+	}
+
+	// 끝난 판이나 판을 잃었을 때만 (진행 중에는 퇴장하면 판이 비워진다)
+	private static Map<String, Object> restart(UUID roomId, UUID userId) throws Exception {
+		if (RoomRoster.colorOf(roomId, userId) == 0)
+			return reject("이 방의 플레이어가 아닙니다.");
+		Gomoku g = games.get(roomId);
+		if (g != null) {
+			synchronized (g) {
+				if (g.winner() == 0 && g.moves() > 0 && !stale.contains(roomId))
+					return reject("게임이 아직 끝나지 않았습니다.");
+				g.reset();
+			}
+		}
+		stale.remove(roomId);
+		RoomSocket.broadcastGameReset(roomId);
+		return null;
+	}
+
+	/**
+	 * 주인 노드의 방 줄에서, 누가 나가고 방은 남았을 때: 진행 중인 게임은 무효
+	 */
+	static void onLeave(UUID roomId) {
+		Gomoku g = games.get(roomId);
+		if (g == null)
+			return;
+		synchronized (g) {
+			if (g.moves() == 0 || g.winner() != 0)
+				return;
+			g.reset();
+		}
+		RoomSocket.broadcastGameReset(roomId);
+	}
+
+	/**
+	 * 다른 노드에서 둔 수를 이 노드 판에 (move 는 1 부터)
+	 */
+	static void apply(UUID roomId, int move, int color, int cell) {
+		if (stale.contains(roomId))
+			return;
+		Gomoku g = games.computeIfAbsent(roomId, k -> new Gomoku());
+		synchronized (g) {
+			if (move <= g.moves())
+				return; // 이미 둔 수
+			if (move == g.moves() + 1 && g.play(color, cell) >= 0)
+				return;
+		}
+		stale.add(roomId);
+		staleBoards.inc();
+	}
+
+	/**
+	 * 다른 노드에서 새 게임 / 진행 중 게임 무효
+	 */
+	static void reset(UUID roomId) {
+		Gomoku g = games.get(roomId);
+		if (g != null) {
+			synchronized (g) {
+				g.reset();
+			}
+		}
+		stale.remove(roomId);
+	}
+
+	static void onDeleted(UUID roomId) {
+		games.remove(roomId);
+		stale.remove(roomId);
+	}
+
+	/**
+	 * 방 소켓을 연 사람에게: 둔 수가 있으면 판 전체, 아니면 null
+	 */
+	static Map<String, Object> state(UUID roomId) {
+		Gomoku g = games.get(roomId);
+		if (g == null || stale.contains(roomId))
+			return null;
+		synchronized (g) {
+			if (g.moves() == 0)
+				return null;
+			int[] cells = new int[g.moves()];
+			for (int i = 0; i < cells.length; i++)
+				cells[i] = g.moveAt(i);
+			return stateMessage(roomId, cells, g.winner());
+		}
+	}
+
+	static Map<String, Object> moveMessage(UUID roomId, int move, int color, int cell, int winner) {
+		return Map.of("type", "game_move", "roomId", roomId, "move", move, "color", color, "cell", cell, "winner",
+				winner);
+	}
+
+	/**
+	 * cells 는 둔 순서 (흑부터 번갈아)
+	 */
+	static Map<String, Object> stateMessage(UUID roomId, int[] cells, int winner) {
+		return Map.of("type", "game_state", "roomId", roomId, "moves", cells, "winner", winner);
+	}
+
+	private static void recordStats(UUID roomId, int winnerColor) {
+		try {
+			for (UUID id : RoomRoster.playersOf(roomId, winnerColor))
+				Stores.users().addStats(id, 1, 0, 0);
+			for (UUID id : RoomRoster.playersOf(roomId, winnerColor == Gomoku.BLACK ? Gomoku.WHITE : Gomoku.BLACK))
+				Stores.users().addStats(id, 0, 1, 0);
+		} catch (Exception e) {
+			statsErrors.inc(); // 판은 이미 끝났고 방 전체에 나갔다
+		}
+	}
+
+	private static Map<String, Object> reject(String message) {
+		rejected.inc();
+		return Map.of("type", "error", "message", message);
+	}
+
+	private static String reason(int result) {
+		switch (result) {
+		case Gomoku.GAME_OVER:
+			return "게임이 끝났습니다.";
+		case Gomoku.NOT_YOUR_TURN:
+			return "상대 차례입니다.";
+		case Gomoku.OUT_OF_BOARD:
+			return "판 밖입니다.";
+		case Gomoku.OCCUPIED:
+			return "이미 돌이 있습니다.";
+		default:
+			return "둘 수 없습니다.";
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package websocket;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bus.Bus;
+import bus.BusEvent;
+import bus.EventBus;
+import bus.HashRing;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * 방마다 주인 노드를 하나 정한다 (방 UUID 로 HashRing). 입장/퇴장(호스트 이전 포함)과 오목 착수/새 게임은 주인 노드의
+ * 방 줄에서만 돌아서 여러 노드가 같은 ROOM 행을 두고 락을 다투지 않고, 판(RoomGame)도 한 곳에서만 바뀐다.
+ *
+ * 다른 노드에 붙은 세션의 명령은 버스 send 로 주인에게 넘기고 (request), 주인은 방 줄에서 실행한 뒤
+ * 그 세션에 보낼 메시지를 돌려준다 (reply, 착수가 성공하면 메시지 없음 → null). 링은 버스의 살아 있는 노드로 만들고 노드가 붙거나 끊기면 다시 만든다
+ * → 주인이 바뀌는 방은 약 1/N. 노드마다 링이 잠깐 다를 수 있는데, 넘겨받은 명령은 다시 넘기지 않고 그대로 실행한다
+ * (그 사이 겹치는 것은 DB 트랜잭션이 막는다).
+ *
+ * -Dws.owner.vnodes (노드당 가상 노드, 기본 128), -Dws.owner.timeoutMillis (넘긴 명령 응답 대기, 기본 5000),
+ * -Dws.owner.enabled (기본 true. false 면 모든 방을 받은 노드에서 실행 → 저장소가 노드마다 따로인 부하 테스트용)
+ */
+public final class RoomOwners {
+
+	static final int VNODES = Math.max(1, Integer.getInteger("ws.owner.vnodes", HashRing.DEFAULT_VNODES));
+	static final long TIMEOUT_MILLIS = Math.max(1, Long.getLong("ws.owner.timeoutMillis", 5000));
+	static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("ws.owner.enabled", "true"));
+
+	static final String ENTER = "enter_room";
+	static final String LEAVE = "leave_room";
+	static final String PLACE = "place_stone";
+	static final String NEW_GAME = "new_game";
+	static final String SYNC_GAME = "sync_game";
+
+	private static final String CHANNEL = "owner";
+
+	private static final EventBus bus = Bus.get();
+	private static final Map<Long, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+	private static final AtomicLong ids = new AtomicLong();
+	private static volatile HashRing ring = HashRing.of(bus.nodes(), VNODES);
+
+	private static final Counter forwarded = Metrics.counter("ws_owner_forwarded_total", "주인 노드로 넘긴 명령");
+	private static final Counter forwardFailures = Metrics.counter("ws_owner_forward_failures_total",
+			"넘긴 명령이 실패함 (주인 없음, 시간 초과, 주인에서 예외)");
+	private static final Histogram forwardLatency = Metrics.latency("ws_owner_forward_seconds",
+			"주인 노드로 넘긴 명령의 왕복 (버스 + 주인의 방 줄 대기 + 실행)");
+	private static final Counter served = Metrics.counter("ws_owner_served_total", "다른 노드에서 넘어와 이 노드가 실행한 명령");
+	private static final Counter rebuilt = Metrics.counter("ws_owner_ring_changes_total", "노드 구성이 바뀌어 링을 다시 만든 횟수");
+
+	static {
+		Metrics.gauge("ws_owner_ring_nodes", "링에 있는 노드 수", () -> ring.nodes().size());
+		Metrics.gauge("ws_owner_pending", "응답을 기다리는 넘긴 명령", () -> pending.size());
+		bus.subscribe(CHANNEL, RoomOwners::onEvent);
+		bus.onMembership(RoomOwners::rebuild);
+		rebuild(); // 구독 전에 붙은 피어
+	}
+
+	private RoomOwners() {
+	}
+
+	/**
+	 * 웹앱 올라올 때: 다른 노드가 넘기는 명령을 첫 로비 접속 전에도 받도록 구독을 건다
+	 */
+	public static void start() {
+	}
+
+	static boolean isLocal(UUID roomId) {
+		return !ENABLED || bus.nodeId().equals(ring.ownerOf(roomId));
+	}
+
+	static String ownerOf(UUID roomId) {
+		return ring.ownerOf(roomId);
+	}
+
+	/**
+	 * 주인 노드에 command 를 넘긴다. 결과는 세션에 보낼 메시지 (없으면 null), 실패하면 예외 (reason 으로 이유)
+	 */
+	static CompletableFuture<Map<String, Object>> forward(String command, UUID roomId, Map<String, Object> args) {
+		long id = ids.incrementAndGet();
+		long start = System.nanoTime();
+		CompletableFuture<Map<String, Object>> f = new CompletableFuture<>();
+		pending.put(id, f);
+
+		Map<String, Object> body = new HashMap<>(args);
+		body.put("id", id);
+		body.put("command", command);
+		body.put("roomId", roomId);
+		forwarded.inc();
+		if (!bus.send(ownerOf(roomId), CHANNEL, "request", body))
+			f.completeExceptionally(new RuntimeException("OWNER_UNAVAILABLE"));
+
+		return f.orTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).whenComplete((reply, e) -> {
+			pending.remove(id);
+			forwardLatency.observeSince(start);
+			if (e != null)
+				forwardFailures.inc();
+		});
+	}
+
+	static String reason(Throwable e) {
+		Throwable c = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return c instanceof TimeoutException ? "OWNER_TIMEOUT" : c.getMessage();
+	}
+
+	private static void onEvent(BusEvent e) {
+		if ("request".equals(e.type())) {
+			serve(e);
+		} else if ("reply".equals(e.type())) {
+			CompletableFuture<Map<String, Object>> f = pending.get(e.longValue("id"));
+			if (f == null)
+				return; // 이미 시간 초과
+			if (Boolean.TRUE.equals(e.body().get("ok")))
+				f.complete(message(e.body().get("message")));
+			else
+				f.completeExceptionally(new RuntimeException(e.string("error")));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> message(Object m) {
+		return (Map<String, Object>) m;
+	}
+
+	// 주인 쪽: 로컬 세션 명령과 같은 방 줄에서
+	private static void serve(BusEvent req) {
+		long id = req.longValue("id");
+		String command = req.string("command");
+		UUID roomId = req.uuid("roomId");
+		if (!ENTER.equals(command) && !LEAVE.equals(command) && !PLACE.equals(command) && !NEW_GAME.equals(command)
+				&& !SYNC_GAME.equals(command)) {
+			fail(req, id, "UNKNOWN_COMMAND");
+			return;
+		}
+		boolean accepted = DbExecutor.submit(roomId, () -> {
+			served.inc();
+			Map<String, Object> msg;
+			try {
+				if (ENTER.equals(command))
+					msg = LobbySocket.enterRoom(req.uuid("userId"), req.string("nickname"), roomId, req.string("roomPwd"));
+				else if (LEAVE.equals(command))
+					msg = LobbySocket.leaveRoom(req.uuid("userId"), roomId);
+				else
+					msg = RoomGame.run(command, roomId, req.uuid("userId"), req.intValue("cell"));
+			} catch (Exception ex) {
+				// 메시지 없는 예외도 실패로 (null 이면 이름이라도)
+				fail(req, id, ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+				return;
+			}
+			reply(req, id, msg);
+		});
+		if (!accepted)
+			fail(req, id, "OWNER_BUSY");
+	}
+
+	private static void reply(BusEvent req, long id, Map<String, Object> msg) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("id", id);
+		body.put("ok", true);
+		body.put("message", msg);
+		bus.send(req.origin(), CHANNEL, "reply", body); // 보낸 노드가 그새 끊겼으면 그쪽에서 시간 초과
+	}
+
+	private static void fail(BusEvent req, long id, String error) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("id", id);
+		body.put("ok", false);
+		body.put("error", error);
+		bus.send(req.origin(), CHANNEL, "reply", body);
+	}
+
+	private static synchronized void rebuild() {
+		Set<String> nodes = bus.nodes();
+		if (!nodes.equals(Set.copyOf(ring.nodes()))) {
+			ring = HashRing.of(nodes, VNODES);
+			rebuilt.inc();
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package websocket;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dao.RoomRegistry;
+import dao.Stores;
+import model.UserInfo;
+
+/**
+ * 방별 플레이어 명단 캐시 (입장 순서, 닉네임, 돌 색)
+ *
+ * 처음 조회할 때만 RoomStore.listRoomSeats + ProfileCache 로 채우고 이후에는 입장/퇴장 경로가 커밋 후에 직접 고친다.
+ * room_players 프레임(인코딩 포함)은 명단이 바뀔 때까지 재사용한다.
+ * 다른 노드에서 바뀐 명단은 버스로 통째로 받아 replace 한다.
+ * 캐시는 RoomRegistry 에 있는 방만 들고, 방이 레지스트리에서 빠지면 (어느 노드에서 지웠든) 같이 버린다.
+ * 없는 방은 캐시에 넣지 않고 그때그때 만든 명단으로 답한다 (저장소에서 읽으면 빈 명단).
+ */
+final class RoomRoster {
+
+	private static final Map<UUID, RoomRoster> rosters = new ConcurrentHashMap<>();
+	private static final RoomRegistry registry = RoomRegistry.get();
+
+	static {
+		registry.addRemovalListener(rosters::remove);
+	}
+
+	private final UUID roomId;
+
+	// 아래는 모두 this 로 보호, players == null 이면 아직 DB 에서 안 읽음
+	private List<Map<String, Object>> players;
+	private Frame frame;
+
+	private RoomRoster(UUID roomId) {
+		this.roomId = roomId;
+	}
+
+	private static RoomRoster of(UUID roomId) {
+		RoomRoster r = rosters.get(roomId);
+		if (r != null)
+			return r;
+		if (registry.findRoom(roomId).isEmpty())
+			return new RoomRoster(roomId);
+		r = rosters.computeIfAbsent(roomId, RoomRoster::new);
+		if (registry.findRoom(roomId).isEmpty())
+			rosters.remove(roomId, r); // 넣는 사이에 지워짐 (리스너가 먼저 돌았다)
+		return r;
+	}
+
+	static Frame frame(UUID roomId) throws Exception {
+		return of(roomId).frame();
+	}
+
+	static void onEnter(UUID roomId, UUID userId, String nickname, int stoneColor) {
+		RoomRoster r = of(roomId);
+		synchronized (r) {
+			// 아직 안 읽었으면 다음 조회 때 커밋된 상태를 그대로 읽어온다
+			if (r.players == null || r.indexOf(userId) >= 0)
+				return;
+
+			Map<String, Object> row = new HashMap<>();
+			row.put("userId", userId);
+			row.put("nickname", nickname);
+			row.put("stoneColor", stoneColor);
+			r.players.add(row);
+			r.invalidate();
+		}
+	}
+
+	static void onLeave(UUID roomId, UUID userId) {
+		RoomRoster r = rosters.get(roomId);
+		if (r == null)
+			return;
+		synchronized (r) {
+			if (r.players == null)
+				return;
+			int i = r.indexOf(userId);
+			if (i >= 0) {
+				r.players.remove(i);
+				r.invalidate();
+			}
+		}
+	}
+
+	/**
+	 * 다른 노드가 보낸 명단으로 통째로 교체 (행마다 userId, nickname, stoneColor, userId 는 문자열일 수 있음)
+	 */
+	static void replace(UUID roomId, List<?> rows) {
+		List<Map<String, Object>> list = new ArrayList<>(rows.size());
+		for (Object o : rows) {
+			Map<?, ?> in = (Map<?, ?>) o;
+			Object id = in.get("userId");
+			Map<String, Object> row = new HashMap<>();
+			row.put("userId", id instanceof UUID ? id : UUID.fromString(id.toString()));
+			row.put("nickname", in.get("nickname"));
+			row.put("stoneColor", ((Number) in.get("stoneColor")).intValue());
+			list.add(row);
+		}
+		RoomRoster r = of(roomId);
+		synchronized (r) {
+			r.players = list;
+			r.invalidate();
+		}
+	}
+
+	/**
+	 * 명단 캐시에 없으면 false. 아직 안 읽은 방이면 모르므로 true
+	 */
+	static boolean maybeSeated(UUID roomId, UUID userId) {
+		RoomRoster r = rosters.get(roomId);
+		if (r == null)
+			return true;
+		synchronized (r) {
+			return r.players == null || r.indexOf(userId) >= 0;
+		}
+	}
+
+	/**
+	 * 그 사용자의 돌 색 (명단에 없으면 0). 아직 안 읽은 방이면 DB 에서 읽는다
+	 */
+	static int colorOf(UUID roomId, UUID userId) throws Exception {
+		RoomRoster r = of(roomId);
+		synchronized (r) {
+			r.load();
+			int i = r.indexOf(userId);
+			return i < 0 ? 0 : (Integer) r.players.get(i).get("stoneColor");
+		}
+	}
+
+	static boolean hasColor(UUID roomId, int stoneColor) throws Exception {
+		RoomRoster r = of(roomId);
+		synchronized (r) {
+			r.load();
+			for (Map<String, Object> p : r.players) {
+				if ((Integer) p.get("stoneColor") == stoneColor)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * 그 색으로 앉은 사용자들 (입장 순서)
+	 */
+	static List<UUID> playersOf(UUID roomId, int stoneColor) throws Exception {
+		RoomRoster r = of(roomId);
+		List<UUID> out = new ArrayList<>(2);
+		synchronized (r) {
+			r.load();
+			for (Map<String, Object> p : r.players) {
+				if ((Integer) p.get("stoneColor") == stoneColor)
+					out.add((UUID) p.get("userId"));
+			}
+		}
+		return out;
+	}
+
+	private void load() throws Exception {
+		if (players == null)
+			players = load(roomId);
+	}
+
+	private synchronized Frame frame() throws Exception {
+		load();
+
+		if (frame == null) {
+			frame = new Frame(Map.of("type", "room_players", "roomId", roomId, "players",
+					Collections.unmodifiableList(new ArrayList<>(players))));
+		}
+		return frame;
+	}
+
+	// 자리(userId, 돌 색)만 DB 에서, 닉네임은 ProfileCache 에서 (프로필이 없으면 조인처럼 빠진다)
+	private static List<Map<String, Object>> load(UUID roomId) throws Exception {
+		Map<UUID, Integer> seats = Stores.rooms().listRoomSeats(roomId);
+		Map<UUID, UserInfo> profiles = Stores.profiles().findProfiles(seats.keySet());
+
+		List<Map<String, Object>> list = new ArrayList<>(seats.size());
+		for (Map.Entry<UUID, Integer> e : seats.entrySet()) {
+			UserInfo p = profiles.get(e.getKey());
+			if (p == null)
+				continue;
+			Map<String, Object> row = new HashMap<>();
+			row.put("userId", e.getKey());
+			row.put("nickname", p.getNickname());
+			row.put("stoneColor", e.getValue());
+			list.add(row);
+		}
+		return list;
+	}
+
+	private int indexOf(UUID userId) {
+		for (int i = 0; i < players.size(); i++) {
+			if (userId.equals(players.get(i).get("userId")))
+				return i;
+		}
+		return -1;
+	}
+
+	private void invalidate() {
+		frame = null;
+	}
+}
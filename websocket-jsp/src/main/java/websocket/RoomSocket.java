@@ -1,24 +1,76 @@
 package websocket;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import dao.RoomDao;
+import bus.Bus;
+import bus.BusEvent;
+import dao.RoomRegistry;
+import metrics.Counter;
+import metrics.Metrics;
+import model.UserSession;
+import util.TimingWheel;
 
 import javax.servlet.http.HttpSession;
 import javax.websocket.*;
 import javax.websocket.server.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 방 화면 소켓: 명단(room_players)과 방 삭제를 내보내고 오목 착수(place_stone / new_game / sync_game)를 받는다
+ *
+ * 착수는 방 주인 노드의 방 줄에서 RoomGame 이 검사해 판에 두고, 둔 수(game_move, 칸 번호 하나)는 버스를 거쳐
+ * 모든 노드의 방 소켓으로 나간다. 소켓을 열면 명단 다음에 지금 판(game_state)을 받는다.
+ *
+ * 로그인한 사용자의 소켓이 끊기면 LEAVE_GRACE_MILLIS 뒤에 자동 퇴장한다 (탭을 닫아도 자리가 남지 않게).
+ * 그 안에 같은 방 소켓을 다시 열면 (새로고침, 어느 노드든) 취소된다. 타이머는 TimingWheel 하나에 모두 건다.
+ * 다른 노드에서 다시 연 것은 받은 시각을 자리마다 남겨 두므로, 끊긴 걸 늦게 알아챈 소켓이 그보다 먼저 열린 것이면
+ * 타이머를 걸지 않는다 (rejoined 알림이 타이머보다 먼저 와도). 기록은 명단에서 빠지거나 방이 지워지면 버린다.
+ *
+ * -Dws.room.leaveGraceMillis (기본 15000, 0 이면 자동 퇴장 안 함)
+ */
 @ServerEndpoint(
         value = "/ws/room",
+        subprotocols = { BinaryCodec.SUBPROTOCOL },
         configurator = RoomSocket.HttpSessionConfigurator.class
 )
 public class RoomSocket {
 
-    private static final ObjectMapper om = new ObjectMapper();
+    private static final Map<UUID, Set<Session>> roomSessions = new ConcurrentHashMap<>();
+    // 역인덱스: 끊길 때 모든 방을 훑지 않도록
+    private static final Map<Session, UUID> roomOfSession = new ConcurrentHashMap<>();
 
+    private static final OutboundQueue.Endpoint outbound = new OutboundQueue.Endpoint("room", null);
+    private static final BroadcastScheduler broadcaster =
+            new BroadcastScheduler("room", RoomSocket::sessionsOf, (prev, next) -> next, true, false);
+    private static final InboundMetrics inbound =
+            new InboundMetrics("room", roomOfSession::size, Command.RefreshPlayers.class, Command.PlaceStone.class,
+                    Command.NewGame.class, Command.SyncGame.class);
+    private static final String CHANNEL = "room"; // 버스 채널
 
-    private static final Map<UUID, Set<Session>> roomSessions = new ConcurrentHashMap<>();
+    static final long LEAVE_GRACE_MILLIS = Long.getLong("ws.room.leaveGraceMillis", 15000);
+    private static final String USER_KEY = "ROOM_USER_ID";
+    private static final String OPENED_KEY = "ROOM_OPENED_AT";
+    private static final TimingWheel wheel = new TimingWheel("room-auto-leave", 100, 512);
+    // (방, 사용자) -> 끊긴 뒤 걸어 둔 자동 퇴장
+    private static final Map<Seat, TimingWheel.Timeout> autoLeaves = new ConcurrentHashMap<>();
+    // 방 -> 사용자 -> 다른 노드에서 방 소켓을 다시 열었다는 알림을 받은 시각 (이 노드 시계, 레지스트리에 있는 방만)
+    private static final Map<UUID, Map<UUID, Long>> remoteRejoins = new ConcurrentHashMap<>();
+    private static final Counter autoLeaveScheduled =
+            Metrics.counter("ws_room_auto_leave_scheduled_total", "방 소켓이 끊겨 건 자동 퇴장 타이머");
+    private static final Counter autoLeaveCancelled =
+            Metrics.counter("ws_room_auto_leave_cancelled_total", "유예 시간 안에 다시 붙어 취소한 자동 퇴장");
+    private static final Counter autoLeaveFired =
+            Metrics.counter("ws_room_auto_leave_fired_total", "유예 시간이 지나 실제로 퇴장시킨 수");
+
+    private record Seat(UUID roomId, UUID userId) {}
+
+    static {
+        // 방 사람들이 여러 노드에 흩어져 있을 수 있어 명단/삭제는 버스를 한 번 거쳐 모든 노드에서 내보낸다
+        Bus.get().subscribe(CHANNEL, RoomSocket::onBusEvent);
+        Metrics.gauge("ws_room_auto_leave_pending", "대기 중인 자동 퇴장 타이머", wheel::size);
+        Metrics.gauge("ws_rooms_open", "방 소켓이 하나라도 열린 방", roomSessions::size);
+        RoomRegistry.get().addRemovalListener(remoteRejoins::remove);
+    }
 
     public static class HttpSessionConfigurator extends ServerEndpointConfig.Configurator {
         @Override
@@ -26,6 +78,11 @@ public class RoomSocket {
             HttpSession httpSession = (HttpSession) request.getHttpSession();
             if (httpSession != null) sec.getUserProperties().put("HTTP_SESSION", httpSession);
         }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            return BinaryCodec.negotiate(requested);
+        }
     }
 
     private static UUID roomIdFromQuery(Session s) {
@@ -44,12 +101,22 @@ public class RoomSocket {
 
     @OnOpen
     public void onOpen(Session s) {
+        OutboundQueue.attach(s, outbound);
+        inbound.opened.inc();
         try {
             UUID roomId = roomIdFromQuery(s);
-            roomSessions.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet()).add(s);
+            join(s, roomId);
 
+            // 끊겼다 다시 들어온 것이면 (다른 노드에서 끊겼어도) 자동 퇴장 취소
+            UUID userId = loginUserId(s);
+            if (userId != null) {
+                s.getUserProperties().put(USER_KEY, userId);
+                s.getUserProperties().put(OPENED_KEY, System.currentTimeMillis());
+                Bus.get().publish(CHANNEL, "rejoined", Map.of("roomId", roomId, "userId", userId));
+            }
 
-            sendPlayersToOne(s, roomId);
+            // 명단이 캐시에 없으면 DB 를 읽으므로 컨테이너 스레드 밖에서
+            submitPlayers(s, roomId, null, 0);
         } catch (Exception e) {
             safeSend(s, Map.of("type","error","message", e.getMessage()));
             tryClose(s);
@@ -58,72 +125,353 @@ public class RoomSocket {
 
     @OnClose
     public void onClose(Session s) {
-        roomSessions.values().forEach(set -> set.remove(s));
+        UUID roomId = leave(s);
+        if (roomId != null) scheduleAutoLeave(s, roomId);
+        closeQueue(s);
     }
 
     @OnError
     public void onError(Session s, Throwable t) {
-        roomSessions.values().forEach(set -> set.remove(s));
+        UUID roomId = leave(s);
+        if (roomId != null) scheduleAutoLeave(s, roomId);
+        closeQueue(s);
+        inbound.errors.inc();
+    }
+
+    private static UUID loginUserId(Session s) {
+        HttpSession hs = (HttpSession) s.getUserProperties().get("HTTP_SESSION");
+        if (hs == null) return null;
+        try {
+            Object u = hs.getAttribute("loginUser");
+            return u instanceof UserSession us ? us.getId() : null;
+        } catch (IllegalStateException invalidated) {
+            return null;
+        }
+    }
+
+    // compute/computeIfPresent 는 같은 키에 대해 원자적이라
+    // 빈 Set 을 지우는 순간 다른 onOpen 이 그 Set 에 끼어드는 일이 없다
+    private static void join(Session s, UUID roomId) {
+        roomOfSession.put(s, roomId);
+        roomSessions.compute(roomId, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(s);
+            return set;
+        });
+    }
+
+    // 이 세션이 있던 방 (이미 뺐으면 null)
+    private static UUID leave(Session s) {
+        UUID roomId = roomOfSession.remove(s);
+        if (roomId == null) return null;
+        roomSessions.computeIfPresent(roomId, (k, set) -> {
+            set.remove(s);
+            return set.isEmpty() ? null : set;
+        });
+        return roomId;
+    }
+
+    private static void scheduleAutoLeave(Session s, UUID roomId) {
+        UUID userId = (UUID) s.getUserProperties().get(USER_KEY);
+        if (userId == null || LEAVE_GRACE_MILLIS <= 0) return;
+        Seat seat = new Seat(roomId, userId);
+        long openedAt = (Long) s.getUserProperties().get(OPENED_KEY);
+        // 이 소켓보다 나중에 다른 노드에서 다시 열었다 (끊긴 걸 늦게 알아챔)
+        if (rejoinedSince(seat, openedAt)) {
+            autoLeaveCancelled.inc();
+            return;
+        }
+        try {
+            autoLeaves.compute(seat, (k, prev) -> {
+                if (prev != null) prev.cancel();
+                return wheel.schedule(LEAVE_GRACE_MILLIS, () -> autoLeave(seat, openedAt));
+            });
+        } catch (IllegalStateException stopped) {
+            return; // 웹앱이 내려가는 중 (stopTimers 뒤에 닫힌 소켓)
+        }
+        autoLeaveScheduled.inc();
+        // 확인하고 거는 사이에 온 rejoined 는 아직 걸리지 않은 타이머를 못 지웠다
+        if (rejoinedSince(seat, openedAt)) cancelAutoLeave(seat);
+    }
+
+    private static boolean rejoinedSince(Seat seat, long openedAt) {
+        Map<UUID, Long> rejoins = remoteRejoins.get(seat.roomId());
+        Long at = rejoins == null ? null : rejoins.get(seat.userId());
+        return at != null && at > openedAt;
+    }
+
+    private static void recordRejoin(Seat seat) {
+        RoomRegistry registry = RoomRegistry.get();
+        if (registry.findRoom(seat.roomId()).isEmpty()) return;
+        remoteRejoins.computeIfAbsent(seat.roomId(), k -> new ConcurrentHashMap<>())
+                .put(seat.userId(), System.currentTimeMillis());
+        if (registry.findRoom(seat.roomId()).isEmpty()) remoteRejoins.remove(seat.roomId()); // 그 사이 지워짐
+    }
+
+    // 명단에서 빠진 사용자의 기록은 더 쓸 일이 없다 (다시 앉으면 새 소켓이 다시 알린다)
+    private static void pruneRejoins(UUID roomId, List<?> players) {
+        Map<UUID, Long> rejoins = remoteRejoins.get(roomId);
+        if (rejoins == null) return;
+        Set<UUID> seated = new HashSet<>();
+        for (Object p : players) seated.add((UUID) ((Map<?, ?>) p).get("userId"));
+        rejoins.keySet().retainAll(seated);
+    }
+
+    private static void cancelAutoLeave(Seat seat) {
+        TimingWheel.Timeout t = autoLeaves.remove(seat);
+        if (t != null && t.cancel()) autoLeaveCancelled.inc();
+    }
+
+    // 휠 스레드: 유예 시간 안에 다시 안 들어왔으면 로비의 leave_room 과 같은 경로로 (방 주인 노드의 방 줄에서)
+    private static void autoLeave(Seat seat, long openedAt) {
+        TimingWheel.Timeout t = autoLeaves.get(seat);
+        if (t == null || !t.isExpired() || !autoLeaves.remove(seat, t)) return; // 그새 다시 걸렸거나 취소됨
+        // 같은 방을 다른 탭/노드로 보고 있거나 이미 leave_room 으로 나갔으면 그대로 둔다
+        if (connected(seat) || rejoinedSince(seat, openedAt)
+                || !RoomRoster.maybeSeated(seat.roomId(), seat.userId())) return;
+
+        autoLeaveFired.inc();
+        if (RoomOwners.isLocal(seat.roomId())) {
+            DbExecutor.submit(seat.roomId(), () -> LobbySocket.leaveRoom(seat.userId(), seat.roomId()));
+        } else {
+            RoomOwners.forward(RoomOwners.LEAVE, seat.roomId(), Map.of("userId", seat.userId()));
+        }
+    }
+
+    private static boolean connected(Seat seat) {
+        for (Session s : sessionsOf(seat.roomId())) {
+            if (seat.userId().equals(s.getUserProperties().get(USER_KEY))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 웹앱 내려갈 때 (남은 자동 퇴장은 버린다, 다음에 올라온 노드가 다시 걸지 않음)
+     */
+    public static void stopTimers() {
+        wheel.stop();
     }
 
     @OnMessage
     public void onMessage(Session s, String text) {
+        long received = System.nanoTime();
+        try {
+            handle(s, CommandDecoder.decode(text), received);
+        } catch (Exception e) {
+            inbound.invalid.inc();
+        }
+    }
+
+    @OnMessage
+    public void onBinary(Session s, ByteBuffer buf) {
+        long received = System.nanoTime();
         try {
-            @SuppressWarnings("unchecked")
-            Map<String,Object> p = om.readValue(text, Map.class);
-            String type = (String) p.get("type");
-            if ("refresh_players".equals(type)) {
-                UUID roomId = UUID.fromString(String.valueOf(p.get("roomId")));
+            handle(s, BinaryCodec.decodeCommand(buf), received);
+        } catch (Exception e) {
+            inbound.invalid.inc();
+        }
+    }
+
+    // 방 소켓은 refresh_players 와 오목 명령만 받는다 (나머지 명령은 로비 소켓으로)
+    private void handle(Session s, Command c, long received) throws Exception {
+        if (c instanceof Command.RefreshPlayers r) {
+            submitPlayers(s, r.roomId(), r, received);
+        } else if (c instanceof Command.PlaceStone p) {
+            submitGame(s, p.roomId(), c, received, RoomOwners.PLACE, p.cell());
+        } else if (c instanceof Command.NewGame g) {
+            submitGame(s, g.roomId(), c, received, RoomOwners.NEW_GAME, 0);
+        } else if (c instanceof Command.SyncGame g) {
+            // 이 노드 판은 수를 놓쳤을 수 있어 주인 노드의 판으로
+            submitGame(s, g.roomId(), c, received, RoomOwners.SYNC_GAME, 0);
+        }
+    }
+
+    // c 가 null 이면 접속 직후의 첫 명단 (명령이 아니라 재지 않음)
+    private static void submitPlayers(Session s, UUID roomId, Command c, long received) {
+        // 방 줄에서 돌아서 입장/퇴장 사이에 끼어들지 않는다 (항상 커밋된 명단)
+        boolean accepted = DbExecutor.submit(s, roomId, () -> {
+            try {
                 sendPlayersToOne(s, roomId);
+                if (c == null) {
+                    Map<String,Object> state = RoomGame.state(roomId);
+                    if (state != null) safeSend(s, state);
+                }
+            } catch (Exception e) {
+                if (c != null) inbound.failed(c);
+                safeSend(s, Map.of("type","error","message", e.getMessage()));
+            } finally {
+                if (c != null) inbound.handled(c, received);
             }
-        } catch (Exception ignore) {}
+        });
+        if (!accepted) {
+            inbound.busy.inc();
+            safeSend(s, Map.of("type","error","message","처리 중인 요청이 많습니다. 잠시 후 다시 시도하세요."));
+        }
+    }
+
+    // 판은 주인 노드의 방 줄에서만 바뀐다 (다른 노드면 RoomOwners 로 넘긴다). 성공하면 응답 없이 game_move 가 방 전체로
+    private static void submitGame(Session s, UUID roomId, Command c, long received, String command, int cell) {
+        UUID userId = (UUID) s.getUserProperties().get(USER_KEY);
+        if (userId == null) {
+            inbound.failed(c);
+            safeSend(s, Map.of("type","error","message","로그인이 필요합니다."));
+            inbound.handled(c, received);
+            return;
+        }
+
+        if (!RoomOwners.isLocal(roomId)) {
+            Map<String,Object> args = new HashMap<>();
+            args.put("userId", userId);
+            args.put("cell", cell);
+            RoomOwners.forward(command, roomId, args).whenComplete((reply, e) -> {
+                if (e != null) {
+                    inbound.failed(c);
+                    safeSend(s, Map.of("type","error","message","요청 처리 실패: " + RoomOwners.reason(e)));
+                } else if (reply != null) {
+                    safeSend(s, reply);
+                }
+                inbound.handled(c, received);
+            });
+            return;
+        }
+
+        boolean accepted = DbExecutor.submit(s, roomId, () -> {
+            try {
+                Map<String,Object> reply = RoomGame.run(command, roomId, userId, cell);
+                if (reply != null) safeSend(s, reply);
+            } catch (Exception e) {
+                inbound.failed(c);
+                safeSend(s, Map.of("type","error","message", "요청 처리 실패: " + e.getMessage()));
+            } finally {
+                inbound.handled(c, received);
+            }
+        });
+        if (!accepted) {
+            inbound.busy.inc();
+            safeSend(s, Map.of("type","error","message","처리 중인 요청이 많습니다. 잠시 후 다시 시도하세요."));
+        }
     }
 
 
     public static void broadcastPlayers(UUID roomId) {
         try {
-            RoomDao dao = new RoomDao();
-            List<Map<String,Object>> players = dao.listRoomPlayers(roomId);
-            broadcastToRoom(roomId, Map.of("type","room_players","roomId",roomId.toString(),"players", players));
+            Map<String,Object> players = new HashMap<>();
+            players.put("roomId", roomId);
+            players.put("players", RoomRoster.frame(roomId).message().get("players"));
+            Bus.get().publish(CHANNEL, "players", players);
         } catch (Exception e) {
        
         }
     }
 
     public static void broadcastRoomDeleted(UUID roomId) {
-        try {
-            broadcastToRoom(roomId, Map.of("type","room_deleted","roomId",roomId.toString()));
-        } catch (Exception e) {
-  
-        }
+        Bus.get().publish(CHANNEL, "deleted", Map.of("roomId", roomId));
+    }
+
+    /**
+     * 주인 노드가 둔 수 (move 는 1 부터, winner 는 끝났을 때만 0 이 아님)
+     */
+    static void broadcastMove(UUID roomId, int move, int color, int cell, int winner) {
+        Map<String,Object> body = new HashMap<>();
+        body.put("roomId", roomId);
+        body.put("move", move);
+        body.put("color", color);
+        body.put("cell", cell);
+        body.put("winner", winner);
+        Bus.get().publish(CHANNEL, "move", body);
     }
 
+    /**
+     * 새 게임, 또는 진행 중에 누가 나가서 판을 비움
+     */
+    static void broadcastGameReset(UUID roomId) {
+        Bus.get().publish(CHANNEL, "game_reset", Map.of("roomId", roomId));
+    }
 
-    private static void broadcastToRoom(UUID roomId, Map<String,Object> msg) throws Exception {
-        String json = om.writeValueAsString(msg);
+    /**
+     * 청소로 지운 방들: 버스에는 한 번만 싣고 방마다 room_deleted 를 내보낸다
+     */
+    static void broadcastRoomsDeleted(Collection<UUID> roomIds) {
+        Bus.get().publish(CHANNEL, "deleted_all", Map.of("roomIds", new ArrayList<>(roomIds)));
+    }
 
-        Set<Session> set = roomSessions.getOrDefault(roomId, Collections.emptySet());
-        for (Session s : set) {
-            if (s != null && s.isOpen()) {
-                s.getAsyncRemote().sendText(json);
+    /**
+     * 이 노드에 방 소켓이 하나라도 열려 있는 방
+     */
+    static Set<UUID> liveRooms() {
+        return Collections.unmodifiableSet(roomSessions.keySet());
+    }
+
+    // 다른 노드에서 온 명단은 이 노드의 명단 캐시를 통째로 바꾼다 (그 노드가 커밋 후 만든 것)
+    private static void onBusEvent(BusEvent e) {
+        UUID roomId = e.uuid("roomId");
+        if ("players".equals(e.type())) {
+            try {
+                if (!e.isFrom(Bus.get())) RoomRoster.replace(roomId, (List<?>) e.body().get("players"));
+                Map<String, Object> players = RoomRoster.frame(roomId).message();
+                pruneRejoins(roomId, (List<?>) players.get("players"));
+                broadcastToRoom(roomId, "players", players);
+            } catch (Exception ignore) {}
+        } else if ("move".equals(e.type())) {
+            int move = e.intValue("move"), color = e.intValue("color"), cell = e.intValue("cell");
+            if (!e.isFrom(Bus.get())) RoomGame.apply(roomId, move, color, cell);
+            // 수마다 따로 나가야 하므로 합쳐지지 않는 키 (버스 이벤트마다 다름)
+            broadcastToRoom(roomId, "move:" + e.origin() + ":" + e.seq(),
+                    RoomGame.moveMessage(roomId, move, color, cell, e.intValue("winner")));
+        } else if ("game_reset".equals(e.type())) {
+            if (!e.isFrom(Bus.get())) RoomGame.reset(roomId);
+            // 새 게임마다 따로 (같은 tick 의 reset, 수, reset 이 합쳐져 두 번째 reset 을 잃지 않게)
+            broadcastToRoom(roomId, "game_reset:" + e.origin() + ":" + e.seq(), RoomGame.stateMessage(roomId, new int[0], 0));
+        } else if ("deleted".equals(e.type())) {
+            RoomGame.onDeleted(roomId);
+            broadcastToRoom(roomId, "deleted", Map.of("type","room_deleted","roomId",roomId.toString()));
+        } else if ("deleted_all".equals(e.type())) {
+            for (UUID id : e.uuids("roomIds")) {
+                RoomGame.onDeleted(id);
+                broadcastToRoom(id, "deleted", Map.of("type","room_deleted","roomId",id.toString()));
             }
+        } else if ("rejoined".equals(e.type())) {
+            Seat seat = new Seat(roomId, e.uuid("userId"));
+            if (!e.isFrom(Bus.get())) recordRejoin(seat); // 이 노드에서 연 것은 connected 로 보인다
+            cancelAutoLeave(seat);
         }
-    
-        set.removeIf(ss -> ss == null || !ss.isOpen());
     }
 
-    private void sendPlayersToOne(Session s, UUID roomId) throws Exception {
-        RoomDao dao = new RoomDao();
-        List<Map<String,Object>> players = dao.listRoomPlayers(roomId);
-        safeSend(s, Map.of("type","room_players","roomId",roomId.toString(),"players", players));
+
+    // 같은 tick 안의 room_players 는 마지막 명단 하나만 나간다
+    private static void broadcastToRoom(UUID roomId, String coalesceKey, Map<String,Object> msg) {
+        broadcaster.submit(roomId, coalesceKey, msg);
+    }
+
+    private static Collection<Session> sessionsOf(Object roomId) {
+        return roomSessions.getOrDefault(roomId, Collections.emptySet());
+    }
+
+    public static BroadcastScheduler broadcaster() {
+        return broadcaster;
+    }
+
+    public static OutboundQueue.Endpoint outbound() {
+        return outbound;
+    }
+
+    private static void sendPlayersToOne(Session s, UUID roomId) throws Exception {
+        OutboundQueue q = OutboundQueue.of(s);
+        if (q != null && s.isOpen()) q.send(RoomRoster.frame(roomId));
     }
 
     private static void safeSend(Session s, Map<String,Object> msg) {
         try {
-            if (s != null && s.isOpen()) s.getAsyncRemote().sendText(om.writeValueAsString(msg));
+            OutboundQueue q = OutboundQueue.of(s);
+            if (q != null && s.isOpen()) q.send(new Frame(msg));
         } catch (Exception ignore) {}
     }
 
+    private static void closeQueue(Session s) {
+        OutboundQueue q = OutboundQueue.of(s);
+        if (q != null) q.close();
+    }
+
     private static void tryClose(Session s) {
         try { if (s != null && s.isOpen()) s.close(); } catch (Exception ignore) {}
     }
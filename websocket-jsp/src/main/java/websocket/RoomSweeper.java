@@ -0,0 +1,161 @@
+package websocket;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import bus.Bus;
+import bus.BusEvent;
+import bus.EventBus;
+import dao.RoomStore;
+import dao.Stores;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * 버려진 방 청소: 오래 아무도 들어오지 않았고 (CREATED_AT, 마지막 JOINED_AT 모두 idleMinutes 전) 어느 노드에도
+ * 방 소켓이 열려 있지 않은 방을 주기적으로 지운다 (자동 퇴장이 못 치운 방, 노드가 죽으면서 남은 자리).
+ *
+ * 후보는 findIdleRooms 로 한 번에 max 개까지, 지우기는 chunk 개씩 purgeIdleRooms 한 번 (IN 목록 한 트랜잭션)이라
+ * 방마다 왕복하지 않는다. 저장소가 잠근 뒤 다시 확인하므로 그 사이 입장한 방은 빠진다.
+ * 방마다 주인 노드가 자기 방만 청소하고, 노드마다 열린 방 목록을 주기마다 버스로 돌린다 (두 주기 안의 보고가 없는
+ * 노드가 있으면 그 주기는 건너뛴다). 지운 방은 레지스트리 (rooms_removed) 와 방 소켓 (deleted_all) 에 한 번씩 알린다.
+ *
+ * -Dws.sweep.seconds (주기, 기본 60, 0 이면 끔), -Dws.sweep.idleMinutes (기본 30),
+ * -Dws.sweep.chunk (트랜잭션 하나에 지울 방, 기본 100, 최대 1000), -Dws.sweep.max (한 주기에 볼 후보, 기본 1000)
+ */
+public final class RoomSweeper {
+
+	static final long PERIOD_SECONDS = Long.getLong("ws.sweep.seconds", 60);
+	static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("ws.sweep.idleMinutes", 30));
+	// Oracle IN 목록은 1000 개까지 (ORA-01795)
+	static final int CHUNK = Math.min(1000, Math.max(1, Integer.getInteger("ws.sweep.chunk", 100)));
+	static final int MAX = Math.max(1, Integer.getInteger("ws.sweep.max", 1000));
+
+	private static final String CHANNEL = "sweep";
+
+	private static final EventBus bus = Bus.get();
+	// 다른 노드 -> 마지막으로 받은 열린 방 목록
+	private static final Map<String, Live> remoteLive = new ConcurrentHashMap<>();
+	private static ScheduledExecutorService timer; // RoomSweeper.class 로 보호
+
+	private static final Histogram sweepLatency = Metrics.latency("ws_sweep_seconds", "청소 한 주기 (후보 조회 + 지우기)");
+	private static final Counter roomRows = Metrics.counter("ws_sweep_rows_reclaimed_total", "청소로 지운 행", "table",
+			"ROOM");
+	private static final Counter playerRows = Metrics.counter("ws_sweep_rows_reclaimed_total", "청소로 지운 행", "table",
+			"ROOM_PLAYER");
+	private static final Counter skippedLive = Metrics.counter("ws_sweep_skipped_live_total",
+			"오래 멈췄지만 방 소켓이 열려 있어 남긴 방");
+	private static final Counter deferred = Metrics.counter("ws_sweep_deferred_total",
+			"열린 방 목록을 아직 못 받은 노드가 있어 건너뛴 주기");
+	private static final Counter errors = Metrics.counter("ws_sweep_errors_total", "예외로 끝난 청소 주기");
+
+	private record Live(long receivedAt, Set<UUID> rooms) {
+	}
+
+	static {
+		bus.subscribe(CHANNEL, RoomSweeper::onEvent);
+	}
+
+	private RoomSweeper() {
+	}
+
+	public static synchronized void start() {
+		if (PERIOD_SECONDS <= 0 || timer != null)
+			return;
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "room-sweep");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleWithFixedDelay(() -> {
+			try {
+				gossip();
+				sweep();
+			} catch (Exception e) {
+				errors.inc(); // 다음 주기에 다시
+			}
+		}, PERIOD_SECONDS, PERIOD_SECONDS, TimeUnit.SECONDS);
+	}
+
+	public static synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			timer = null;
+		}
+	}
+
+	/**
+	 * 한 주기. 지운 방 수
+	 */
+	static int sweep() throws Exception {
+		long start = System.nanoTime();
+		Set<UUID> live = liveEverywhere();
+		if (live == null) {
+			deferred.inc();
+			return 0;
+		}
+
+		RoomStore store = Stores.rooms();
+		List<UUID> targets = new ArrayList<>();
+		for (UUID id : store.findIdleRooms(IDLE_MILLIS, MAX)) {
+			if (!RoomOwners.isLocal(id))
+				continue;
+			if (live.contains(id)) {
+				skippedLive.inc();
+				continue;
+			}
+			targets.add(id);
+		}
+
+		List<UUID> purged = new ArrayList<>();
+		for (int from = 0; from < targets.size(); from += CHUNK) {
+			RoomStore.PurgeResult r = store.purgeIdleRooms(targets.subList(from, Math.min(targets.size(), from + CHUNK)),
+					IDLE_MILLIS);
+			purged.addAll(r.roomIds);
+			roomRows.add(r.roomIds.size());
+			playerRows.add(r.playerRows);
+		}
+
+		// 명단 캐시와 방 줄은 레지스트리에서 빠질 때 같이 치워진다
+		if (!purged.isEmpty())
+			RoomSocket.broadcastRoomsDeleted(purged);
+		sweepLatency.observeSince(start);
+		return purged.size();
+	}
+
+	// 이 노드와 다른 노드들에 열린 방. 살아 있는 노드 중 최근 보고가 없는 곳이 있으면 null
+	private static Set<UUID> liveEverywhere() {
+		Set<UUID> live = new HashSet<>(RoomSocket.liveRooms());
+		long freshAfter = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(PERIOD_SECONDS * 2);
+		for (String node : bus.nodes()) {
+			if (node.equals(bus.nodeId()))
+				continue;
+			Live l = remoteLive.get(node);
+			if (l == null || l.receivedAt < freshAfter)
+				return null;
+			live.addAll(l.rooms);
+		}
+		remoteLive.keySet().retainAll(bus.nodes()); // 나간 노드
+		return live;
+	}
+
+	private static void gossip() {
+		if (bus.nodes().size() > 1)
+			bus.publish(CHANNEL, "live", Map.of("rooms", new ArrayList<>(RoomSocket.liveRooms())));
+	}
+
+	private static void onEvent(BusEvent e) {
+		if (e.isFrom(bus) || !"live".equals(e.type()))
+			return;
+		remoteLive.put(e.origin(), new Live(System.currentTimeMillis(), new HashSet<>(e.uuids("rooms"))));
+	}
+}
@@ -0,0 +1,73 @@
+package websocket;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.SeatGate;
+import dao.Stores;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * 방 인원/정원 주기 점검: 레지스트리 (SeatGate 가 입장 전에 읽는 확정 인원) 를 저장소의 CURRENT_USER_CNT 에 맞춘다
+ *
+ * 저장소 전체를 한 번 훑어 어긋난 방만 고르고 (SeatGate.findDrifted), 주인 노드가 그 방의 방 줄에서 다시 읽어 고친다.
+ * 입장/퇴장도 같은 줄에서 커밋과 레지스트리 반영을 한 번에 하므로, 커밋과 반영 사이에 끼어들어 옛 값으로 되돌리지 않는다.
+ *
+ * -Ddao.seats.reconcileSeconds (기본 60, 0 이면 점검 안 함)
+ */
+public final class SeatReconciler {
+
+	static final long PERIOD_SECONDS = Long.getLong("dao.seats.reconcileSeconds", 60);
+
+	private static ScheduledExecutorService timer; // SeatReconciler.class 로 보호
+
+	private static final Counter drifted = Metrics.counter("dao_seats_drifted_total",
+			"훑을 때 레지스트리와 저장소 인원/정원이 달랐던 방 (방 줄에서 다시 확인)");
+	private static final Counter errors = Metrics.counter("dao_seats_reconcile_errors_total", "예외로 끝난 점검");
+
+	private SeatReconciler() {
+	}
+
+	public static synchronized void start() {
+		if (PERIOD_SECONDS <= 0 || timer != null)
+			return;
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "seat-reconcile");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleWithFixedDelay(() -> {
+			try {
+				run();
+			} catch (Exception e) {
+				errors.inc(); // 다음 주기에 다시
+			}
+		}, PERIOD_SECONDS, PERIOD_SECONDS, TimeUnit.SECONDS);
+	}
+
+	public static synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			timer = null;
+		}
+	}
+
+	/**
+	 * 한 주기. 방 줄에 넘긴 방 수
+	 */
+	static int run() throws Exception {
+		SeatGate seats = Stores.seats();
+		int submitted = 0;
+		for (UUID id : seats.findDrifted()) {
+			drifted.inc();
+			if (!RoomOwners.isLocal(id))
+				continue;
+			DbExecutor.submit(id, () -> seats.reconcile(id));
+			submitted++;
+		}
+		return submitted;
+	}
+}
@@ -23,6 +23,15 @@
 
 <hr />
 
+<div style="display: flex; gap: 12px; align-items: center; margin-bottom: 8px;">
+	타입: <select id="filterPlayType">
+		<option value="">전체</option>
+		<option value="1">개인전</option>
+		<option value="0">팀전</option>
+	</select>
+	<label><input id="filterFreeSeats" type="checkbox" /> 빈 자리 있는 방만</label>
+</div>
+
 <table border="1" cellpadding="8" cellspacing="0"
 	style="width: 100%; max-width: 900px;">
 	<thead>
@@ -41,6 +50,8 @@
 	</tbody>
 </table>
 
+<button id="btnMore" type="button" style="display: none; margin-top: 8px;">더 보기</button>
+
 <!-- 모달 -->
 <div id="modalBackdrop"
 	style="display: none; position: fixed; inset: 0; background: rgba(0, 0, 0, .35);">
@@ -116,55 +127,147 @@
 	      <td>\${r.isPublic == 1 ? '공개' : '비공개'}</td>
 	      <td>\${r.playType == 1 ? '개인전' : '팀전'}</td>
 	      <td>\${r.currentUserCnt}/\${r.totalUserCnt}</td>
-	      <td><button type="button" onclick="enter('\${r.id}', \${r.isPublic})">입장</button></td>
+	      <td><button type="button" onclick="enter('\${r.id}', \${r.handle}, \${r.isPublic})">입장</button></td>
 	    </tr>
 	  `).join('');
 	}
 
 
-  function enter(roomId, isPublic){
+  // 명령은 서버가 붙인 handle 로, 방 주소는 roomId 로
+  function enter(roomId, handle, isPublic){
     if (isPublic == 0) {
       const pwd = prompt("비공개 방 비밀번호를 입력하세요");
       if (pwd == null) return;
-      ws.send(JSON.stringify({ type:'enter_room', roomId, roomPwd: pwd }));
+      ws.send(JSON.stringify({ type:'enter_room', handle, roomPwd: pwd }));
     } else {
-      ws.send(JSON.stringify({ type:'enter_room', roomId }));
+      ws.send(JSON.stringify({ type:'enter_room', handle }));
     }
     location.href = ctx + '/room?roomId=' + encodeURIComponent(roomId);
   }
 
+  // 서버 방 목록 사본: room_list 로 받고 seq 가 붙은 delta 로만 갱신
+  let rooms = [];
+  let version = -1;
+  let resyncing = false;
+  let nextCursor = null;
+
+  const PAGE_SIZE = 50;
+  const btnMore = document.getElementById("btnMore");
+  const filterPlayType = document.getElementById("filterPlayType");
+  const filterFreeSeats = document.getElementById("filterFreeSeats");
+
+  function listQuery(){
+    const q = { pageSize: PAGE_SIZE, hasFreeSeats: filterFreeSeats.checked };
+    if (filterPlayType.value !== "") q.playType = parseInt(filterPlayType.value, 10);
+    return q;
+  }
+
+  function matchesFilter(r){
+    const q = listQuery();
+    if (q.playType !== undefined && r.playType != q.playType) return false;
+    if (q.hasFreeSeats && r.currentUserCnt >= r.totalUserCnt) return false;
+    return true;
+  }
+
+  function refresh(){
+    ws.send(JSON.stringify(Object.assign({ type: "refresh" }, listQuery())));
+  }
+
+  // delta 는 roomId 대신 handle 로 방을 가리킨다
+  function applyDelta(d){
+    if (d.type === "room_upsert") {
+      const i = rooms.findIndex(r => r.handle === d.handle);
+      if (i >= 0) rooms[i] = d.room;
+      else if (matchesFilter(d.room)) rooms.unshift(d.room);
+    } else if (d.type === "room_removed") {
+      rooms = rooms.filter(r => r.handle !== d.handle);
+    } else if (d.type === "room_counts") {
+      const r = rooms.find(r => r.handle === d.handle);
+      if (r) {
+        r.currentUserCnt = d.currentUserCnt;
+        r.totalUserCnt = d.totalUserCnt;
+      }
+    }
+  }
+
+  // 서버가 한 tick 동안 합친 delta 들은 fromSeq..toSeq 범위를 통째로 덮는다
+  function onDeltas(fromSeq, toSeq, deltas){
+    if (toSeq <= version) return;
+    if (fromSeq > version + 1) {
+      // 중간 delta 를 놓침 → 마지막으로 적용한 version 부터 다시 요청
+      if (!resyncing) {
+        resyncing = true;
+        ws.send(JSON.stringify(Object.assign({ type: "resync", fromVersion: version }, listQuery())));
+      }
+      return;
+    }
+    deltas.forEach(applyDelta);
+    version = toSeq;
+    renderRooms(rooms);
+  }
+
+  function isDelta(msg){
+    return msg.type === "room_upsert" || msg.type === "room_removed" || msg.type === "room_counts";
+  }
+
   const wsUrl = (location.protocol === "https:" ? "wss://" : "ws://")
     + location.host + ctx + "/ws/lobby";
   const ws = new WebSocket(wsUrl);
 
-  ws.onopen = () => {
-    ws.send(JSON.stringify({ type: "refresh" }));
-  };
+  ws.onopen = () => refresh();
+
+  filterPlayType.addEventListener("change", refresh);
+  filterFreeSeats.addEventListener("change", refresh);
+  btnMore.addEventListener("click", () => {
+    if (nextCursor) ws.send(JSON.stringify(Object.assign({ type: "refresh", cursor: nextCursor }, listQuery())));
+  });
 
-  ws.onmessage = (ev) => {
-    const msg = JSON.parse(ev.data);
+  function onLobbyMessage(msg){
+    if (msg.type === "batch") {
+      const deltas = msg.events.filter(isDelta);
+      if (deltas.length > 0) onDeltas(msg.fromSeq, msg.toSeq, deltas);
+      msg.events.filter(e => !isDelta(e)).forEach(onLobbyMessage);
+      return;
+    }
 
     if (msg.type === "room_list") {
-    	console.log("renderRooms called", msg.rooms);
-    	renderRooms(msg.rooms);
+    	// cursor 가 있으면 다음 페이지 → 뒤에 붙임
+    	rooms = msg.cursor ? rooms.concat(msg.rooms || []) : (msg.rooms || []);
+    	nextCursor = msg.nextCursor;
+    	btnMore.style.display = nextCursor ? "inline-block" : "none";
+    	version = msg.version;
+    	resyncing = false;
+    	renderRooms(rooms);
+    }
+
+    if (msg.type === "room_deltas") {
+      resyncing = false;
+      msg.deltas.forEach(d => {
+        if (d.seq === version + 1) { applyDelta(d); version = d.seq; }
+      });
+      renderRooms(rooms);
     }
 
-    if (msg.type === "room_created" || msg.type === "room_deleted" || msg.type === "room_state") {
-      ws.send(JSON.stringify({ type: "refresh" }));
+    if (isDelta(msg)) {
+      onDeltas(msg.fromSeq ?? msg.seq, msg.seq, [msg]);
     }
-    
+
+    // 서버 송신 큐가 넘쳐 delta 일부가 버려짐
+    if (msg.type === "resync_required" && !resyncing) {
+      resyncing = true;
+      ws.send(JSON.stringify(Object.assign({ type: "resync", fromVersion: version }, listQuery())));
+    }
+
 
     if (msg.type === "create_room_ok") {
       location.href = ctx + "/room?roomId=" + encodeURIComponent(msg.roomId);
       return;
     }
 
-    if (msg.type === "room_created") {
-      // 필요하면 refresh 요청 (이미 서버가 room_list도 뿌려주니까 생략 가능)
-    }
-
     if (msg.type === "error") alert(msg.message || "에러");
-  };
+  }
+
+  ws.onmessage = (ev) => onLobbyMessage(JSON.parse(ev.data));
 
   ws.onerror = () => {
     alert("웹소켓 연결 오류. 로그인 상태/서버 로그를 확인해줘.");
@@ -14,12 +14,28 @@
   </ul>
 </div>
 
+<style>
+  #board { display:grid; grid-template-columns:repeat(15, 28px); width:max-content; padding:6px; background:#dcb35c; }
+  #board div { width:28px; height:28px; box-sizing:border-box; border:1px solid #a07a30; cursor:pointer; }
+  #board div.b::after, #board div.w::after { content:""; display:block; width:22px; height:22px; margin:2px; border-radius:50%; }
+  #board div.b::after { background:#111; }
+  #board div.w::after { background:#fff; }
+  #board div.last::after { box-shadow:0 0 0 2px red; }
+</style>
+
+<div style="margin:8px 0;">
+  <b id="gameStatus">-</b>
+  <div id="board" style="margin:8px 0;"></div>
+  <button type="button" id="btnNewGame">새 게임</button>
+</div>
+
 <button type="button" id="btnLeave">나가기</button>
 
 <script>
   const ctx = "<c:out value='${pageContext.request.contextPath}'/>";
   const roomId = new URLSearchParams(location.search).get('roomId');
   const playerList = document.getElementById('playerList');
+  const myId = "<c:out value='${sessionScope.loginUser.id}'/>";
 
   function escapeHtml(s){
     return String(s ?? "").replace(/[&<>"']/g, (m) => ({
@@ -32,25 +48,98 @@
       playerList.innerHTML = "<li>입장한 플레이어가 없습니다.</li>";
       return;
     }
+    const me = players.find(p => String(p.userId) === myId);
+    myColor = me ? Number(me.stoneColor) : 0;
+    renderStatus();
     playerList.innerHTML = players.map(p => {
       const color = (p.stoneColor == 1) ? "흑" : (p.stoneColor == 2 ? "백" : "-");
       return "<li>" + escapeHtml(p.nickname) + " (" + color + ")</li>";
     }).join("");
   }
 
+  // 오목 판: cell = y * 15 + x, 흑(1)부터 번갈아 둔다. 판정은 서버가 한다
+  const SIZE = 15;
+  const board = document.getElementById('board');
+  const gameStatus = document.getElementById('gameStatus');
+  const cells = [];
+  let myColor = 0;
+  let moveCount = 0;
+  let winner = 0;
+  let syncing = false; // sync_game 을 보내고 game_state 를 기다리는 중
+
+  for (let i = 0; i < SIZE * SIZE; i++) {
+    const d = document.createElement('div');
+    d.onclick = () => placeStone(i);
+    board.appendChild(d);
+    cells.push(d);
+  }
+
+  function colorName(c){
+    return c == 1 ? "흑" : "백";
+  }
+
+  function renderStatus(){
+    if (winner == 3) gameStatus.textContent = "무승부";
+    else if (winner) gameStatus.textContent = colorName(winner) + " 승리" + (winner == myColor ? " (나)" : "");
+    else gameStatus.textContent = colorName(moveCount % 2 === 0 ? 1 : 2) + " 차례"
+      + (myColor ? " / 나는 " + colorName(myColor) : "");
+  }
+
+  function putStone(cell, color){
+    cells.forEach(d => d.classList.remove('last'));
+    cells[cell].className = (color == 1 ? "b" : "w") + " last";
+  }
+
+  function applyGameState(msg){
+    cells.forEach(d => d.className = "");
+    msg.moves.forEach((cell, i) => putStone(cell, i % 2 === 0 ? 1 : 2));
+    moveCount = msg.moves.length;
+    winner = msg.winner;
+    syncing = false;
+    renderStatus();
+  }
+
+  function applyGameMove(msg){
+    if (msg.move <= moveCount || syncing) return;
+    if (msg.move > moveCount + 1) {
+      // 사이 수를 놓쳤다: 판 전체를 다시 받는다 (그동안 온 수는 game_state 에 들어 있다)
+      syncing = true;
+      wsRoom.send(JSON.stringify({ type:'sync_game', roomId: roomId }));
+      return;
+    }
+    putStone(msg.cell, msg.color);
+    moveCount = msg.move;
+    winner = msg.winner;
+    renderStatus();
+  }
+
+  function placeStone(cell){
+    if (winner || cells[cell].className) return;
+    wsRoom.send(JSON.stringify({ type:'place_stone', roomId: roomId, cell: cell }));
+  }
+
+  document.getElementById('btnNewGame').onclick = () => {
+    wsRoom.send(JSON.stringify({ type:'new_game', roomId: roomId }));
+  };
+
 
   const roomWsUrl = (location.protocol === "https:" ? "wss://" : "ws://")
     + location.host + ctx + "/ws/room?roomId=" + encodeURIComponent(roomId);
   const wsRoom = new WebSocket(roomWsUrl);
 
-  wsRoom.onmessage = (ev) => {
-    const msg = JSON.parse(ev.data);
+  function onRoomMessage(msg){
+    if (msg.type === "batch") { msg.events.forEach(onRoomMessage); return; }
     if (msg.type === "room_players") renderPlayers(msg.players);
+    if (msg.type === "game_state") applyGameState(msg);
+    if (msg.type === "game_move") applyGameMove(msg);
+    if (msg.type === "error") { syncing = false; gameStatus.textContent = msg.message; }
     if (msg.type === "room_deleted") {
       alert("방이 삭제되었습니다.");
       location.href = ctx + "/lobby";
     }
-  };
+  }
+
+  wsRoom.onmessage = (ev) => onRoomMessage(JSON.parse(ev.data));
 
 
   const lobbyWsUrl = (location.protocol === "https:" ? "wss://" : "ws://")
@@ -0,0 +1,115 @@
+package bus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class HashRingTest {
+
+	private static final int KEYS = 100_000;
+
+	// 실행마다 같은 키
+	private static List<UUID> keys() {
+		Random rnd = new Random(42);
+		List<UUID> keys = new ArrayList<>(KEYS);
+		for (int i = 0; i < KEYS; i++)
+			keys.add(new UUID(rnd.nextLong(), rnd.nextLong()));
+		return keys;
+	}
+
+	@Test
+	void sameNodesInAnyOrderGiveTheSameOwners() {
+		HashRing a = HashRing.of(List.of("node-a", "node-b", "node-c"));
+		HashRing b = HashRing.of(List.of("node-c", "node-a", "node-b", "node-a"));
+		assertEquals(List.of("node-a", "node-b", "node-c"), b.nodes());
+		for (UUID k : keys())
+			assertEquals(a.ownerOf(k), b.ownerOf(k));
+	}
+
+	@Test
+	void ownersArePinnedAcrossJvms() {
+		// 노드마다 같은 주인을 골라야 하므로 해시가 바뀌면 (버전이 섞인 클러스터에서) 방이 갈린다: 값을 고정해 둔다
+		assertEquals(0x48e86629c152a3f3L, HashRing.hash("node-a"));
+		HashRing ring = HashRing.of(Set.of("node-b", "node-c", "node-a"));
+		assertEquals("node-a", ring.ownerOf(UUID.fromString("00000000-0000-0000-0000-000000000001")));
+		assertEquals("node-c", ring.ownerOf(UUID.fromString("123e4567-e89b-12d3-a456-426614174000")));
+		assertEquals("node-a", ring.ownerOf(UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff")));
+		assertEquals("node-b", ring.ownerOf(UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8")));
+	}
+
+	@Test
+	void vnodesSpreadKeysEvenly() {
+		List<String> nodes = List.of("n1", "n2", "n3", "n4", "n5");
+		Map<String, Integer> counts = count(HashRing.of(nodes), keys());
+		for (String n : nodes) {
+			double share = counts.getOrDefault(n, 0) / (double) KEYS;
+			assertTrue(share > 0.5 / nodes.size() && share < 1.5 / nodes.size(), n + " " + share);
+		}
+	}
+
+	@Test
+	void joiningNodeTakesAboutOneShareAndOnlyForItself() {
+		HashRing before = HashRing.of(List.of("n1", "n2", "n3", "n4"));
+		HashRing after = HashRing.of(List.of("n1", "n2", "n3", "n4", "n5"));
+		int moved = 0;
+		for (UUID k : keys()) {
+			String was = before.ownerOf(k);
+			String now = after.ownerOf(k);
+			if (!was.equals(now)) {
+				assertEquals("n5", now, "새 노드가 아닌 쪽으로 옮긴 키 " + k);
+				moved++;
+			}
+		}
+		double share = moved / (double) KEYS;
+		assertTrue(share > 0.5 / 5 && share < 1.5 / 5, "moved " + share);
+	}
+
+	@Test
+	void leavingNodeHandsOffOnlyItsOwnKeys() {
+		HashRing before = HashRing.of(List.of("n1", "n2", "n3", "n4", "n5"));
+		HashRing after = HashRing.of(List.of("n1", "n2", "n4", "n5"));
+		int moved = 0;
+		for (UUID k : keys()) {
+			String was = before.ownerOf(k);
+			String now = after.ownerOf(k);
+			if (was.equals("n3")) {
+				assertTrue(after.contains(now));
+				moved++;
+			} else {
+				assertEquals(was, now, "n3 것이 아닌데 옮긴 키 " + k);
+			}
+		}
+		double share = moved / (double) KEYS;
+		assertTrue(share > 0.5 / 5 && share < 1.5 / 5, "moved " + share);
+	}
+
+	@Test
+	void singleNodeOwnsEverything() {
+		HashRing ring = HashRing.of(List.of("solo"), 1);
+		for (UUID k : keys().subList(0, 1000))
+			assertEquals("solo", ring.ownerOf(k));
+	}
+
+	@Test
+	void rejectsEmptyRingAndBadVnodes() {
+		assertThrows(IllegalArgumentException.class, () -> HashRing.of(List.of()));
+		assertThrows(IllegalArgumentException.class, () -> HashRing.of(List.of("n1"), 0));
+	}
+
+	private static Map<String, Integer> count(HashRing ring, List<UUID> keys) {
+		Map<String, Integer> counts = new HashMap<>();
+		for (UUID k : keys)
+			counts.merge(ring.ownerOf(k), 1, Integer::sum);
+		return counts;
+	}
+}
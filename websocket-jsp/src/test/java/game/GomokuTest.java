@@ -0,0 +1,191 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class GomokuTest {
+
+	private static int cell(int x, int y) {
+		return y * Gomoku.SIZE + x;
+	}
+
+	// 흑 black[i], 백 white[i] 순서로 번갈아 두고 마지막 수의 결과. 그 전 수는 모두 PLACED 여야 한다
+	private static int play(Gomoku g, int[] black, int[] white) {
+		int last = Gomoku.PLACED;
+		for (int i = 0; i < black.length; i++) {
+			assertEquals(Gomoku.PLACED, last, "끝나기 전 수 " + g.moves());
+			last = g.play(Gomoku.BLACK, black[i]);
+			if (i < white.length) {
+				assertEquals(Gomoku.PLACED, last, "끝나기 전 수 " + g.moves());
+				last = g.play(Gomoku.WHITE, white[i]);
+			}
+		}
+		return last;
+	}
+
+	// 흑이 줄을 두는 동안 백이 둘 곳 (가운데 줄, 어느 테스트의 줄과도 겹치지 않는다)
+	private static int[] whiteFiller(int n) {
+		int[] w = new int[n];
+		for (int i = 0; i < n; i++)
+			w[i] = cell(i * 3 % Gomoku.SIZE, 7 + i * 3 / Gomoku.SIZE);
+		return w;
+	}
+
+	@Test
+	void horizontalFiveOnTopLeftEdge() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(0, 0), cell(1, 0), cell(2, 0), cell(3, 0), cell(4, 0) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(4)));
+		assertEquals(Gomoku.BLACK, g.winner());
+		assertEquals(0, g.turn());
+	}
+
+	@Test
+	void horizontalFiveOnBottomRightEdge() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(14, 14), cell(13, 14), cell(12, 14), cell(11, 14), cell(10, 14) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(4)));
+	}
+
+	@Test
+	void verticalFiveOnRightEdge() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(14, 0), cell(14, 1), cell(14, 2), cell(14, 3), cell(14, 4) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(4)));
+	}
+
+	@Test
+	void rowDoesNotWrapIntoNextRow() {
+		Gomoku g = new Gomoku();
+		// 한 줄 끝 넷 + 다음 줄 첫 칸: 칸 번호는 이어져도 다섯이 아니다
+		int[] stones = { cell(11, 0), cell(12, 0), cell(13, 0), cell(14, 0), cell(0, 1) };
+		assertEquals(Gomoku.PLACED, play(g, stones, whiteFiller(4)));
+		assertEquals(0, g.winner());
+	}
+
+	@Test
+	void diagonalFiveIntoBottomRightCorner() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(10, 10), cell(11, 11), cell(12, 12), cell(13, 13), cell(14, 14) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(4)));
+	}
+
+	@Test
+	void antiDiagonalFiveFromTopRightCorner() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(14, 0), cell(13, 1), cell(12, 2), cell(11, 3), cell(10, 4) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(4)));
+	}
+
+	@Test
+	void antiDiagonalDoesNotWrapAcrossLeftEdge() {
+		Gomoku g = new Gomoku();
+		// (0,3) 다음 대각선 칸은 판 밖: 아래 줄 오른쪽 끝 (14,4) 와 이어지지 않는다
+		int[] stones = { cell(3, 0), cell(2, 1), cell(1, 2), cell(0, 3), cell(14, 4) };
+		assertEquals(Gomoku.PLACED, play(g, stones, whiteFiller(4)));
+		assertEquals(0, g.winner());
+	}
+
+	@Test
+	void fourIsNotAWin() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(3, 3), cell(4, 3), cell(5, 3), cell(6, 3) };
+		assertEquals(Gomoku.PLACED, play(g, line, whiteFiller(4)));
+		assertEquals(0, g.winner());
+		assertEquals(Gomoku.BLACK, g.turn());
+	}
+
+	@Test
+	void fillingTheGapWins() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(1, 9), cell(2, 10), cell(4, 12), cell(5, 13), cell(3, 11) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(4)));
+	}
+
+	@Test
+	void overlineWins() {
+		Gomoku g = new Gomoku();
+		// 자유룰: 여섯 이상도 승리
+		int[] line = { cell(0, 2), cell(1, 2), cell(2, 2), cell(4, 2), cell(5, 2), cell(3, 2) };
+		assertEquals(Gomoku.WON, play(g, line, whiteFiller(5)));
+		assertEquals(6, countInRow(g, 2, Gomoku.BLACK));
+	}
+
+	@Test
+	void whiteWins() {
+		Gomoku g = new Gomoku();
+		int[] black = { cell(0, 0), cell(2, 0), cell(4, 0), cell(6, 0), cell(8, 0) };
+		int[] white = { cell(0, 14), cell(1, 13), cell(2, 12), cell(3, 11), cell(4, 10) };
+		assertEquals(Gomoku.WON, play(g, black, white));
+		assertEquals(Gomoku.WHITE, g.winner());
+	}
+
+	@Test
+	void fullBoardWithoutFiveIsDrawn() {
+		Gomoku g = new Gomoku();
+		// (x / 2 + y) 가 짝수면 흑: 가로는 두 칸씩, 세로는 한 칸씩 엇갈려 어느 방향도 다섯이 안 된다 (흑 113, 백 112)
+		int[] black = new int[113];
+		int[] white = new int[112];
+		int b = 0, w = 0;
+		for (int y = 0; y < Gomoku.SIZE; y++) {
+			for (int x = 0; x < Gomoku.SIZE; x++) {
+				if ((x / 2 + y) % 2 == 0)
+					black[b++] = cell(x, y);
+				else
+					white[w++] = cell(x, y);
+			}
+		}
+		assertEquals(Gomoku.DRAWN, play(g, black, white));
+		assertEquals(Gomoku.DRAW, g.winner());
+		assertEquals(Gomoku.CELLS, g.moves());
+	}
+
+	@Test
+	void rejectsLeaveTheBoardUnchanged() {
+		Gomoku g = new Gomoku();
+		assertEquals(Gomoku.NOT_YOUR_TURN, g.play(Gomoku.WHITE, cell(7, 7)));
+		assertEquals(Gomoku.OUT_OF_BOARD, g.play(Gomoku.BLACK, -1));
+		assertEquals(Gomoku.OUT_OF_BOARD, g.play(Gomoku.BLACK, Gomoku.CELLS));
+		assertEquals(0, g.moves());
+
+		assertEquals(Gomoku.PLACED, g.play(Gomoku.BLACK, cell(7, 7)));
+		assertEquals(Gomoku.OCCUPIED, g.play(Gomoku.WHITE, cell(7, 7)));
+		assertEquals(1, g.moves());
+		assertEquals(Gomoku.WHITE, g.turn());
+		assertEquals(Gomoku.BLACK, g.stoneAt(cell(7, 7)));
+	}
+
+	@Test
+	void finishedGameRejectsUntilReset() {
+		Gomoku g = new Gomoku();
+		int[] line = { cell(0, 0), cell(1, 0), cell(2, 0), cell(3, 0), cell(4, 0) };
+		play(g, line, whiteFiller(4));
+		assertEquals(Gomoku.GAME_OVER, g.play(Gomoku.WHITE, cell(14, 14)));
+		assertEquals(9, g.moves());
+
+		g.reset();
+		assertEquals(0, g.moves());
+		assertEquals(0, g.winner());
+		assertEquals(0, g.stoneAt(cell(0, 0)));
+		assertEquals(Gomoku.PLACED, g.play(Gomoku.BLACK, cell(0, 0)));
+	}
+
+	@Test
+	void historyKeepsMoveOrder() {
+		Gomoku g = new Gomoku();
+		g.play(Gomoku.BLACK, cell(7, 7));
+		g.play(Gomoku.WHITE, cell(8, 7));
+		assertEquals(cell(7, 7), g.moveAt(0));
+		assertEquals(cell(8, 7), g.moveAt(1));
+	}
+
+	private static int countInRow(Gomoku g, int y, int color) {
+		int n = 0;
+		for (int x = 0; x < Gomoku.SIZE; x++) {
+			if (g.stoneAt(cell(x, y)) == color)
+				n++;
+		}
+		return n;
+	}
+}
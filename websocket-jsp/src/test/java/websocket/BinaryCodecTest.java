@@ -0,0 +1,198 @@
+package websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import model.RoomDto;
+import util.HandleTable;
+
+class BinaryCodecTest {
+
+	private static final UUID ROOM_ID = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+	private static final UUID USER_ID = UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8");
+
+	private static Map<String, Object> msg(Object... kv) {
+		Map<String, Object> m = new LinkedHashMap<>();
+		for (int i = 0; i < kv.length; i += 2)
+			m.put((String) kv[i], kv[i + 1]);
+		return m;
+	}
+
+	private static RoomDto room(int handle) {
+		return RoomDto.builder().id(ROOM_ID).handle(handle).hostUserId(USER_ID).roomName("방 이름 " + handle).isPublic(1)
+				.playType(2).totalUserCnt(8).currentUserCnt(3).createdAt(1_760_000_000_000L).build();
+	}
+
+	// 표에 있는 타입마다 하나 (새 타입을 더하면 여기도)
+	private static List<Map<String, Object>> samples() {
+		List<Map<String, Object>> s = new ArrayList<>();
+		s.add(msg("type", "room_list", "version", 1L << 40, "cursor", null, "nextCursor", "abc",
+				"rooms", List.of(room(1), room(300))));
+		s.add(msg("type", "room_upsert", "seq", 11L, "fromSeq", 9L, "room", room(5)));
+		s.add(msg("type", "room_removed", "seq", 12L, "fromSeq", 12L, "handle", 5));
+		s.add(msg("type", "room_counts", "seq", 13L, "fromSeq", 13L, "handle", 5, "currentUserCnt", 2,
+				"totalUserCnt", 8));
+		s.add(msg("type", "room_deltas", "fromVersion", 7L, "deltas",
+				List.of(msg("type", "room_removed", "seq", 8L, "fromSeq", 8L, "handle", 4))));
+		s.add(msg("type", "batch", "fromSeq", 20L, "toSeq", 21L, "events",
+				List.of(msg("type", "room_counts", "seq", 20L, "fromSeq", 20L, "handle", 1, "currentUserCnt", 1,
+						"totalUserCnt", 2), msg("type", "resync_required"))));
+		s.add(msg("type", "batch", "events", List.of(msg("type", "leave_ok", "roomId", ROOM_ID.toString()))));
+		s.add(msg("type", "room_players", "roomId", ROOM_ID.toString(), "players",
+				List.of(msg("userId", USER_ID.toString(), "nickname", "흑돌", "stoneColor", 1))));
+		s.add(msg("type", "room_deleted", "roomId", ROOM_ID.toString()));
+		s.add(msg("type", "create_room_ok", "roomId", ROOM_ID.toString()));
+		s.add(msg("type", "enter_ok", "roomId", ROOM_ID.toString()));
+		s.add(msg("type", "leave_ok", "roomId", ROOM_ID.toString()));
+		s.add(msg("type", "host_changed", "handle", 3, "newHostUserId", USER_ID.toString()));
+		s.add(msg("type", "resync_required"));
+		s.add(msg("type", "game_move", "roomId", ROOM_ID.toString(), "move", 9, "color", 1, "cell", 224, "winner", 1));
+		s.add(msg("type", "game_state", "roomId", ROOM_ID.toString(), "winner", 0, "moves", new int[] { 112, 0, 224 }));
+
+		s.add(msg("type", "refresh", "pageSize", 20, "cursor", null, "playType", 0, "hasFreeSeats", true));
+		s.add(msg("type", "refresh", "cursor", null, "hasFreeSeats", false));
+		s.add(msg("type", "resync", "fromVersion", 42L, "pageSize", 50, "cursor", "c", "playType", 3,
+				"hasFreeSeats", false));
+		s.add(msg("type", "create_room", "roomName", "비밀 방", "isPublic", 0, "playType", 1, "totalUserCnt", 2,
+				"roomPwd", "pw"));
+		s.add(msg("type", "enter_room", "handle", 70_000, "roomPwd", null));
+		s.add(msg("type", "leave_room", "handle", 1));
+		s.add(msg("type", "refresh_players", "handle", 128));
+		s.add(msg("type", "place_stone", "handle", 2, "cell", 112));
+		s.add(msg("type", "new_game", "handle", 3));
+		s.add(msg("type", "sync_game", "handle", 4));
+		return s;
+	}
+
+	@Test
+	void everyTypeRoundTrips() throws Exception {
+		for (Map<String, Object> m : samples()) {
+			byte[] bytes = BinaryCodec.encode(m);
+			assertNotEquals(0, bytes[0], "JSON 으로 떨어짐: " + m.get("type"));
+			ByteBuffer buf = ByteBuffer.wrap(bytes);
+			Map<String, Object> back = BinaryCodec.decode(buf);
+			assertEquals(normalize(m), normalize(back), String.valueOf(m.get("type")));
+			assertEquals(0, buf.remaining(), "남은 바이트: " + m.get("type"));
+		}
+	}
+
+	@Test
+	void syncGameCarriesItsHandle() throws Exception {
+		byte[] bytes = BinaryCodec.encode(msg("type", "sync_game", "handle", 300));
+		assertEquals(3, bytes.length); // 타입 + varint 2바이트
+		assertEquals(300, BinaryCodec.decode(ByteBuffer.wrap(bytes)).get("handle"));
+	}
+
+	@Test
+	void uuidsAreRawSixteenBytes() {
+		byte[] withUuid = BinaryCodec.encode(msg("type", "enter_ok", "roomId", ROOM_ID));
+		assertEquals(1 + 16, withUuid.length);
+		// UUID 객체와 문자열은 같은 바이트
+		assertEquals(Arrays.toString(withUuid),
+				Arrays.toString(BinaryCodec.encode(msg("type", "enter_ok", "roomId", ROOM_ID.toString()))));
+	}
+
+	@Test
+	void unknownTypeFallsBackToJson() throws Exception {
+		Map<String, Object> m = msg("type", "error", "message", "방을 찾을 수 없습니다.");
+		byte[] bytes = BinaryCodec.encode(m);
+		assertEquals(0, bytes[0]);
+		assertEquals(m, BinaryCodec.decode(ByteBuffer.wrap(bytes)));
+	}
+
+	@Test
+	void unknownCodeIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decode(ByteBuffer.wrap(new byte[] { 31 })));
+		assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decode(ByteBuffer.wrap(new byte[] { 99 })));
+	}
+
+	@Test
+	void commandsDecodeStraightToRecords() throws Exception {
+		int h = HandleTable.ROOMS.handleOf(ROOM_ID);
+		assertEquals(new Command.LeaveRoom(ROOM_ID), command(msg("type", "leave_room", "handle", h)));
+		assertEquals(new Command.RefreshPlayers(ROOM_ID), command(msg("type", "refresh_players", "handle", h)));
+		assertEquals(new Command.NewGame(ROOM_ID), command(msg("type", "new_game", "handle", h)));
+		assertEquals(new Command.SyncGame(ROOM_ID), command(msg("type", "sync_game", "handle", h)));
+		assertEquals(new Command.PlaceStone(ROOM_ID, 224),
+				command(msg("type", "place_stone", "handle", h, "cell", 224)));
+		assertEquals(new Command.EnterRoom(ROOM_ID, "pw"),
+				command(msg("type", "enter_room", "handle", h, "roomPwd", "pw")));
+		assertEquals(new Command.CreateRoom("방", 1, 0, 2, null), command(msg("type", "create_room", "roomName", "방",
+				"isPublic", 1, "playType", 0, "totalUserCnt", 2, "roomPwd", null)));
+
+		Command.Refresh r = (Command.Refresh) command(msg("type", "refresh", "pageSize", 20, "cursor", null,
+				"playType", 2, "hasFreeSeats", true));
+		assertEquals(20, r.pageSize());
+		assertEquals(2, r.playType());
+		assertEquals(true, r.hasFreeSeats());
+
+		Command.Resync s = (Command.Resync) command(msg("type", "resync", "fromVersion", 42L, "cursor", null,
+				"hasFreeSeats", false));
+		assertEquals(42L, s.fromVersion());
+		assertEquals(Command.ALL_PLAY_TYPES, s.playType());
+	}
+
+	@Test
+	void jsonCommandInsideBinaryFrame() throws Exception {
+		byte[] json = "{\"type\":\"leave_room\",\"roomId\":\"123e4567-e89b-12d3-a456-426614174000\"}".getBytes("UTF-8");
+		byte[] frame = new byte[json.length + 1];
+		System.arraycopy(json, 0, frame, 1, json.length);
+		assertEquals(new Command.LeaveRoom(ROOM_ID), BinaryCodec.decodeCommand(ByteBuffer.wrap(frame)));
+	}
+
+	@Test
+	void badCommandsAreInvalid() {
+		// 모르는 handle, 잘린 프레임, 서버 → 클라이언트 타입, 판 밖 cell
+		assertThrows(CommandDecoder.InvalidCommand.class,
+				() -> command(msg("type", "sync_game", "handle", Integer.MAX_VALUE)));
+		assertThrows(CommandDecoder.InvalidCommand.class,
+				() -> BinaryCodec.decodeCommand(ByteBuffer.wrap(new byte[] { 38 })));
+		assertThrows(CommandDecoder.InvalidCommand.class,
+				() -> BinaryCodec.decodeCommand(ByteBuffer.wrap(BinaryCodec.encode(msg("type", "resync_required")))));
+		int h = HandleTable.ROOMS.handleOf(ROOM_ID);
+		assertThrows(CommandDecoder.InvalidCommand.class,
+				() -> command(msg("type", "place_stone", "handle", h, "cell", 225)));
+	}
+
+	private static Command command(Map<String, Object> m) throws Exception {
+		return BinaryCodec.decodeCommand(ByteBuffer.wrap(BinaryCodec.encode(m)));
+	}
+
+	// 숫자는 long, UUID 는 문자열, RoomDto 는 필드 맵, int[] 는 목록으로 맞춰 비교
+	private static Object normalize(Object v) {
+		if (v instanceof Number n)
+			return n.longValue();
+		if (v instanceof UUID u)
+			return u.toString();
+		if (v instanceof int[] a)
+			return Arrays.stream(a).asLongStream().boxed().toList();
+		if (v instanceof RoomDto r)
+			return normalize(msg("id", r.getId(), "handle", r.getHandle(), "hostUserId", r.getHostUserId(),
+					"roomName", r.getRoomName(), "isPublic", r.getIsPublic(), "playType", r.getPlayType(),
+					"totalUserCnt", r.getTotalUserCnt(), "currentUserCnt", r.getCurrentUserCnt(), "createdAt",
+					r.getCreatedAt()));
+		if (v instanceof List<?> l)
+			return l.stream().map(BinaryCodecTest::normalize).toList();
+		if (v instanceof Map<?, ?> m) {
+			Map<Object, Object> out = new HashMap<>();
+			m.forEach((k, x) -> {
+				if (x != null) // 빠진 값과 null 은 같게
+					out.put(k, normalize(x));
+			});
+			return out;
+		}
+		return v;
+	}
+}